@@ -0,0 +1,132 @@
+package com.example.tienda_ms_pedidos.benchmark;
+
+import com.example.tienda_ms_pedidos.App;
+import com.example.tienda_ms_pedidos.exception.StockException;
+import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import com.example.tienda_ms_pedidos.service.ProductoService;
+import com.example.tienda_ms_pedidos.service.StockCalienteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput de descontar una unidad de un mismo producto desde 16 hilos,
+ * con la aplicación completa sobre H2 en memoria:
+ *
+ * - lecturaModificacionEscritura: el actualizarStock original (leer la
+ *   fila, validar y sobrescribirla en una transacción).
+ * - actualizacionCondicional: la ruta actual de base de datos (UPDATE
+ *   condicional bajo el bloqueo compartido del modo caliente).
+ * - contadorRayado: el mismo producto promovido al modo caliente.
+ *
+ * H2 bloquea filas de forma distinta a Oracle: los valores sirven para
+ * comparar las rutas entre sí, no como cifras de producción.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class DescuentoStockBenchmark {
+
+    // Suficiente para que ninguna ruta se quede sin stock durante la medición
+    private static final double STOCK_INICIAL = 1e12;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService productoService;
+    private ProductoRepository productoRepository;
+    private TransactionTemplate transaccion;
+
+    private Long idLecturaEscritura;
+    private Long idCondicional;
+    private Long idCaliente;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        // Sin reinicio de devtools: crearía otro class loader en el hilo de JMH
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // Como argumentos de línea de comandos para que prevalezcan sobre application.properties
+        contexto = new SpringApplicationBuilder(App.class)
+            .web(WebApplicationType.NONE)
+            .profiles("test")
+            .run(
+                "--spring.datasource.url=jdbc:h2:mem:benchmarkdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=MySQL",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.org.hibernate=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--pedidos.relacionados.reconstruir-al-iniciar=false",
+                "--pedidos.stock-caliente.habilitado=true",
+                // Sin evaluaciones durante la medición: solo el producto promovido a mano es caliente
+                "--pedidos.stock-caliente.ventana-ms=3600000");
+        productoService = contexto.getBean(ProductoService.class);
+        productoRepository = contexto.getBean(ProductoRepository.class);
+        transaccion = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+
+        idLecturaEscritura = crearProducto("Lectura-modificación-escritura");
+        idCondicional = crearProducto("UPDATE condicional");
+        idCaliente = crearProducto("Contador rayado");
+        if (!contexto.getBean(StockCalienteService.class).promover(idCaliente)) {
+            throw new IllegalStateException("No se pudo promover el producto " + idCaliente);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        contexto.close();
+    }
+
+    private Long crearProducto(String nombre) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setDescripcion("Producto de benchmark");
+        producto.setPrecio(100.0);
+        producto.setStock(STOCK_INICIAL);
+        producto.setImagen("imagen.jpg");
+        return productoRepository.save(producto).getId();
+    }
+
+    @Benchmark
+    public Producto lecturaModificacionEscritura() {
+        return transaccion.execute(status -> {
+            Producto producto = productoRepository.findById(idLecturaEscritura)
+                .orElseThrow(() -> new StockException("Producto no encontrado"));
+            if (producto.getStock() < 1) {
+                throw new StockException("Stock insuficiente");
+            }
+            producto.setStock(producto.getStock() - 1);
+            return productoRepository.save(producto);
+        });
+    }
+
+    @Benchmark
+    public Producto actualizacionCondicional() {
+        return productoService.actualizarStock(idCondicional, 1);
+    }
+
+    @Benchmark
+    public Producto contadorRayado() {
+        return productoService.actualizarStock(idCaliente, 1);
+    }
+}
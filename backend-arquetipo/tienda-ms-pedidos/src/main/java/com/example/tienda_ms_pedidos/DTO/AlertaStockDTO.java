@@ -0,0 +1,77 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+public class AlertaStockDTO {
+    public static final String BAJO = "stock-bajo";
+    public static final String REPUESTO = "stock-repuesto";
+
+    // Nombre del evento SSE: BAJO o REPUESTO
+    private String tipo;
+    private Long idProducto;
+    private String nombre;
+    private Double stockAnterior;
+    private Double stock;
+    // Umbral de la suscripción que se cruzó
+    private Double umbral;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public AlertaStockDTO() {
+    }
+
+    public AlertaStockDTO(String tipo, Long idProducto, String nombre, Double stockAnterior, Double stock, Double umbral) {
+        this.tipo = tipo;
+        this.idProducto = idProducto;
+        this.nombre = nombre;
+        this.stockAnterior = stockAnterior;
+        this.stock = stock;
+        this.umbral = umbral;
+    }
+
+    // Getters y Setters
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public Double getStockAnterior() {
+        return stockAnterior;
+    }
+
+    public void setStockAnterior(Double stockAnterior) {
+        this.stockAnterior = stockAnterior;
+    }
+
+    public Double getStock() {
+        return stock;
+    }
+
+    public void setStock(Double stock) {
+        this.stock = stock;
+    }
+
+    public Double getUmbral() {
+        return umbral;
+    }
+
+    public void setUmbral(Double umbral) {
+        this.umbral = umbral;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import java.util.Date;
+
+public class EventoOrdenDTO {
+    public static final String CREADA = "orden-creada";
+    public static final String ESTADO = "orden-estado";
+
+    // Nombre del evento SSE: CREADA o ESTADO
+    private String tipo;
+    private Long idOrden;
+    private String email;
+    private Integer estado;
+    private Date fecha;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public EventoOrdenDTO() {
+    }
+
+    public EventoOrdenDTO(String tipo, Long idOrden, String email, Integer estado, Date fecha) {
+        this.tipo = tipo;
+        this.idOrden = idOrden;
+        this.email = email;
+        this.estado = estado;
+        this.fecha = fecha;
+    }
+
+    // Getters y Setters
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public Long getIdOrden() {
+        return idOrden;
+    }
+
+    public void setIdOrden(Long idOrden) {
+        this.idOrden = idOrden;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Integer getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Integer estado) {
+        this.estado = estado;
+    }
+
+    public Date getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(Date fecha) {
+        this.fecha = fecha;
+    }
+}
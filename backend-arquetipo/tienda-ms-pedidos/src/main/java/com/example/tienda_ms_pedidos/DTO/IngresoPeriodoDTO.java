@@ -0,0 +1,45 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import java.time.LocalDateTime;
+
+public class IngresoPeriodoDTO {
+    // Inicio del periodo (hora, día o mes) en la zona horaria del servidor
+    private LocalDateTime inicio;
+    private Double monto;
+    private Long ordenes;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public IngresoPeriodoDTO() {
+    }
+
+    public IngresoPeriodoDTO(LocalDateTime inicio, Double monto, Long ordenes) {
+        this.inicio = inicio;
+        this.monto = monto;
+        this.ordenes = ordenes;
+    }
+
+    // Getters y Setters
+    public LocalDateTime getInicio() {
+        return inicio;
+    }
+
+    public void setInicio(LocalDateTime inicio) {
+        this.inicio = inicio;
+    }
+
+    public Double getMonto() {
+        return monto;
+    }
+
+    public void setMonto(Double monto) {
+        this.monto = monto;
+    }
+
+    public Long getOrdenes() {
+        return ordenes;
+    }
+
+    public void setOrdenes(Long ordenes) {
+        this.ordenes = ordenes;
+    }
+}
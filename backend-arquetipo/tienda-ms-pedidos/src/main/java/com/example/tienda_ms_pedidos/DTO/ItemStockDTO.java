@@ -0,0 +1,32 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+public class ItemStockDTO {
+    private Long idProducto;
+    private Integer cantidad;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public ItemStockDTO() {
+    }
+
+    public ItemStockDTO(Long idProducto, Integer cantidad) {
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+    }
+
+    // Getters y Setters
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+}
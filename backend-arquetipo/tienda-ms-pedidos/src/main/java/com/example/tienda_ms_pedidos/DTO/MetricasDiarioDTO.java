@@ -0,0 +1,72 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+public class MetricasDiarioDTO {
+    private int ordenesPendientes;
+    private int bytesPendientes;
+    private int capacidadBytes;
+    private long retrasoMs;
+    private long aceptadas;
+    private long reproducidas;
+    private long descartadas;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public MetricasDiarioDTO() {
+    }
+
+    // Getters y Setters
+    public int getOrdenesPendientes() {
+        return ordenesPendientes;
+    }
+
+    public void setOrdenesPendientes(int ordenesPendientes) {
+        this.ordenesPendientes = ordenesPendientes;
+    }
+
+    public int getBytesPendientes() {
+        return bytesPendientes;
+    }
+
+    public void setBytesPendientes(int bytesPendientes) {
+        this.bytesPendientes = bytesPendientes;
+    }
+
+    public int getCapacidadBytes() {
+        return capacidadBytes;
+    }
+
+    public void setCapacidadBytes(int capacidadBytes) {
+        this.capacidadBytes = capacidadBytes;
+    }
+
+    public long getRetrasoMs() {
+        return retrasoMs;
+    }
+
+    public void setRetrasoMs(long retrasoMs) {
+        this.retrasoMs = retrasoMs;
+    }
+
+    public long getAceptadas() {
+        return aceptadas;
+    }
+
+    public void setAceptadas(long aceptadas) {
+        this.aceptadas = aceptadas;
+    }
+
+    public long getReproducidas() {
+        return reproducidas;
+    }
+
+    public void setReproducidas(long reproducidas) {
+        this.reproducidas = reproducidas;
+    }
+
+    public long getDescartadas() {
+        return descartadas;
+    }
+
+    public void setDescartadas(long descartadas) {
+        this.descartadas = descartadas;
+    }
+}
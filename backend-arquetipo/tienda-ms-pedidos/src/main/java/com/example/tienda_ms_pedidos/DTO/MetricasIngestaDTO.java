@@ -0,0 +1,90 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+public class MetricasIngestaDTO {
+    private int profundidadCola;
+    private int capacidadCola;
+    private long ordenesConfirmadas;
+    private long lotesConfirmados;
+    private long lotesFallidos;
+    private long rechazadas;
+    private double tamanoLotePromedio;
+    private double latenciaCommitPromedioMs;
+    private double latenciaCommitMaximaMs;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public MetricasIngestaDTO() {
+    }
+
+    // Getters y Setters
+    public int getProfundidadCola() {
+        return profundidadCola;
+    }
+
+    public void setProfundidadCola(int profundidadCola) {
+        this.profundidadCola = profundidadCola;
+    }
+
+    public int getCapacidadCola() {
+        return capacidadCola;
+    }
+
+    public void setCapacidadCola(int capacidadCola) {
+        this.capacidadCola = capacidadCola;
+    }
+
+    public long getOrdenesConfirmadas() {
+        return ordenesConfirmadas;
+    }
+
+    public void setOrdenesConfirmadas(long ordenesConfirmadas) {
+        this.ordenesConfirmadas = ordenesConfirmadas;
+    }
+
+    public long getLotesConfirmados() {
+        return lotesConfirmados;
+    }
+
+    public void setLotesConfirmados(long lotesConfirmados) {
+        this.lotesConfirmados = lotesConfirmados;
+    }
+
+    public long getLotesFallidos() {
+        return lotesFallidos;
+    }
+
+    public void setLotesFallidos(long lotesFallidos) {
+        this.lotesFallidos = lotesFallidos;
+    }
+
+    public long getRechazadas() {
+        return rechazadas;
+    }
+
+    public void setRechazadas(long rechazadas) {
+        this.rechazadas = rechazadas;
+    }
+
+    public double getTamanoLotePromedio() {
+        return tamanoLotePromedio;
+    }
+
+    public void setTamanoLotePromedio(double tamanoLotePromedio) {
+        this.tamanoLotePromedio = tamanoLotePromedio;
+    }
+
+    public double getLatenciaCommitPromedioMs() {
+        return latenciaCommitPromedioMs;
+    }
+
+    public void setLatenciaCommitPromedioMs(double latenciaCommitPromedioMs) {
+        this.latenciaCommitPromedioMs = latenciaCommitPromedioMs;
+    }
+
+    public double getLatenciaCommitMaximaMs() {
+        return latenciaCommitMaximaMs;
+    }
+
+    public void setLatenciaCommitMaximaMs(double latenciaCommitMaximaMs) {
+        this.latenciaCommitMaximaMs = latenciaCommitMaximaMs;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import java.util.List;
+
+public class PaginaDTO<T> {
+    private List<T> items;
+    // Cursor opaco para pedir la página siguiente; null si no hay más resultados
+    private String next;
+
+    public PaginaDTO(List<T> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    // Getters y Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+public class ProductoRelacionadoDTO {
+    private Long idProducto;
+    // Número de órdenes en que se compró junto al producto consultado
+    private Long veces;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public ProductoRelacionadoDTO() {
+    }
+
+    public ProductoRelacionadoDTO(Long idProducto, Long veces) {
+        this.idProducto = idProducto;
+        this.veces = veces;
+    }
+
+    // Getters y Setters
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Long getVeces() {
+        return veces;
+    }
+
+    public void setVeces(Long veces) {
+        this.veces = veces;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+public class RankingProductoDTO {
+    private Long idProducto;
+    private Long unidades;
+    private Double monto;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public RankingProductoDTO() {
+    }
+
+    public RankingProductoDTO(Long idProducto, Long unidades, Double monto) {
+        this.idProducto = idProducto;
+        this.unidades = unidades;
+        this.monto = monto;
+    }
+
+    // Getters y Setters
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Long getUnidades() {
+        return unidades;
+    }
+
+    public void setUnidades(Long unidades) {
+        this.unidades = unidades;
+    }
+
+    public Double getMonto() {
+        return monto;
+    }
+
+    public void setMonto(Double monto) {
+        this.monto = monto;
+    }
+}
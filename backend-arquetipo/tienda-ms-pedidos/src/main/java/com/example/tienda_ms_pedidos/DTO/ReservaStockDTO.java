@@ -0,0 +1,45 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import java.util.Date;
+import java.util.List;
+
+public class ReservaStockDTO {
+    private String id;
+    private Date vence;
+    private List<ItemStockDTO> items;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public ReservaStockDTO() {
+    }
+
+    public ReservaStockDTO(String id, Date vence, List<ItemStockDTO> items) {
+        this.id = id;
+        this.vence = vence;
+        this.items = items;
+    }
+
+    // Getters y Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Date getVence() {
+        return vence;
+    }
+
+    public void setVence(Date vence) {
+        this.vence = vence;
+    }
+
+    public List<ItemStockDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ItemStockDTO> items) {
+        this.items = items;
+    }
+}
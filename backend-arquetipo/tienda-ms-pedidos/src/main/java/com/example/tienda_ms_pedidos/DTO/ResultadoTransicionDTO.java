@@ -0,0 +1,35 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import java.util.List;
+
+public class ResultadoTransicionDTO {
+    private List<Long> actualizadas;
+    // Órdenes inexistentes o que no estaban en el estado esperado
+    private List<Long> omitidas;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public ResultadoTransicionDTO() {
+    }
+
+    public ResultadoTransicionDTO(List<Long> actualizadas, List<Long> omitidas) {
+        this.actualizadas = actualizadas;
+        this.omitidas = omitidas;
+    }
+
+    // Getters y Setters
+    public List<Long> getActualizadas() {
+        return actualizadas;
+    }
+
+    public void setActualizadas(List<Long> actualizadas) {
+        this.actualizadas = actualizadas;
+    }
+
+    public List<Long> getOmitidas() {
+        return omitidas;
+    }
+
+    public void setOmitidas(List<Long> omitidas) {
+        this.omitidas = omitidas;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import java.util.Date;
+
+public class ResumenOrdenDTO {
+    private Long id;
+    private String email;
+    private Date fecha;
+    private Integer estado;
+    private Double montoTotal;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public ResumenOrdenDTO() {
+    }
+
+    public ResumenOrdenDTO(Long id, Date fecha, Integer estado, Double montoTotal) {
+        this.id = id;
+        this.fecha = fecha;
+        this.estado = estado;
+        this.montoTotal = montoTotal;
+    }
+
+    public ResumenOrdenDTO(Long id, String email, Date fecha, Integer estado, Double montoTotal) {
+        this(id, fecha, estado, montoTotal);
+        this.email = email;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Date getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(Date fecha) {
+        this.fecha = fecha;
+    }
+
+    public Integer getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Integer estado) {
+        this.estado = estado;
+    }
+
+    public Double getMontoTotal() {
+        return montoTotal;
+    }
+
+    public void setMontoTotal(Double montoTotal) {
+        this.montoTotal = montoTotal;
+    }
+}
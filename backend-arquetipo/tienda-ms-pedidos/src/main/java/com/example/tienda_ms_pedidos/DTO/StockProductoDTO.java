@@ -0,0 +1,42 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+public class StockProductoDTO {
+    private Long idProducto;
+    private String nombre;
+    private Double stock;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public StockProductoDTO() {
+    }
+
+    public StockProductoDTO(Long idProducto, String nombre, Double stock) {
+        this.idProducto = idProducto;
+        this.nombre = nombre;
+        this.stock = stock;
+    }
+
+    // Getters y Setters
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public Double getStock() {
+        return stock;
+    }
+
+    public void setStock(Double stock) {
+        this.stock = stock;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import java.util.List;
+
+public class TransicionEstadoDTO {
+    private List<Long> ids;
+    // Estado en que deben estar las órdenes; avanzan al siguiente (1→2→3→4)
+    private Integer desde;
+
+    // Constructor vacío requerido para la deserialización JSON
+    public TransicionEstadoDTO() {
+    }
+
+    public TransicionEstadoDTO(List<Long> ids, Integer desde) {
+        this.ids = ids;
+        this.desde = desde;
+    }
+
+    // Getters y Setters
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public Integer getDesde() {
+        return desde;
+    }
+
+    public void setDesde(Integer desde) {
+        this.desde = desde;
+    }
+}
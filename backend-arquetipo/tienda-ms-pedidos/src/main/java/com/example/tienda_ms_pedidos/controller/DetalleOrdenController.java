@@ -1,5 +1,6 @@
 package com.example.tienda_ms_pedidos.controller;
 
+import com.example.tienda_ms_pedidos.exception.DetalleOrdenException;
 import com.example.tienda_ms_pedidos.model.DetalleOrden;
 import com.example.tienda_ms_pedidos.service.DetalleOrdenService;
 
@@ -10,10 +11,11 @@ import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
-@RequestMapping("/api/pedidos/detalles")
+@RequestMapping("/api/pedidos")
 @CrossOrigin(origins = "*")
 public class DetalleOrdenController {
 
@@ -28,7 +30,7 @@ public class DetalleOrdenController {
      * @param detalleOrden Objeto del detalle de orden a crear.
      * @return El detalle de orden creado.
      */
-    @PostMapping
+    @PostMapping("/detalles")
     public ResponseEntity<DetalleOrden> createDetalleOrden(@RequestBody DetalleOrden detalleOrden) {
         if (detalleOrden.getIdProducto() == null) {
             throw new IllegalArgumentException("Producto ID es nulo");
@@ -45,12 +47,38 @@ public class DetalleOrdenController {
         return ResponseEntity.status(HttpStatus.CREATED).body(nuevoDetalleOrden);
     }
 
+    /**
+     * Crea varias líneas de detalle de una orden en una sola solicitud. Las
+     * líneas se validan juntas y se insertan en lote en una transacción.
+     * 
+     * @param id ID de la orden.
+     * @param detalles Líneas a crear; su ID y su orden se ignoran.
+     * @return Las líneas creadas con sus IDs en el orden recibido, un 400 con
+     *         las posiciones de las líneas inválidas o un 404 si la orden no existe.
+     */
+    @PostMapping("/{id}/detalles:batch")
+    public ResponseEntity<?> createDetallesOrden(@PathVariable Long id, @RequestBody List<DetalleOrden> detalles) {
+        try {
+            Optional<List<DetalleOrden>> guardados = detalleOrdenService.saveDetallesOrden(id, detalles);
+            if (guardados.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Orden no encontrada");
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(guardados.get());
+        } catch (DetalleOrdenException e) {
+            if (e.getLineas().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("mensaje", e.getMessage(), "lineas", e.getLineas()));
+        }
+    }
+
     /**
      * Obtiene todos los detalles de órdenes.
      * 
      * @return Lista de detalles de órdenes.
      */
-    @GetMapping
+    @GetMapping("/detalles")
     public ResponseEntity<List<DetalleOrden>> getAllDetallesOrdenes() {
         List<DetalleOrden> detallesOrdenes = detalleOrdenService.findAll();
         return ResponseEntity.ok(detallesOrdenes);
@@ -62,7 +90,7 @@ public class DetalleOrdenController {
      * @param id ID del detalle de orden.
      * @return El detalle de orden encontrado o un 404 si no se encuentra.
      */
-    @GetMapping("/{id}")
+    @GetMapping("/detalles/{id}")
     public ResponseEntity<DetalleOrden> getDetalleOrdenById(@PathVariable Long id) {
         Optional<DetalleOrden> detalleOrden = detalleOrdenService.findById(id);
         return detalleOrden.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
@@ -74,7 +102,7 @@ public class DetalleOrdenController {
      * @param id ID del detalle de orden.
      * @return Un 204 si se eliminó correctamente.
      */
-    @DeleteMapping("/{id}")
+    @DeleteMapping("/detalles/{id}")
     public ResponseEntity<Void> deleteDetalleOrden(@PathVariable Long id) {
         detalleOrdenService.deleteById(id);
         return ResponseEntity.noContent().build();
@@ -1,14 +1,49 @@
 package com.example.tienda_ms_pedidos.controller;
 
+import com.example.tienda_ms_pedidos.DTO.IngresoPeriodoDTO;
+import com.example.tienda_ms_pedidos.DTO.MetricasDiarioDTO;
+import com.example.tienda_ms_pedidos.DTO.MetricasIngestaDTO;
+import com.example.tienda_ms_pedidos.DTO.PaginaDTO;
+import com.example.tienda_ms_pedidos.DTO.ProductoRelacionadoDTO;
+import com.example.tienda_ms_pedidos.DTO.RankingProductoDTO;
+import com.example.tienda_ms_pedidos.DTO.ResultadoTransicionDTO;
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
+import com.example.tienda_ms_pedidos.DTO.TransicionEstadoDTO;
+import com.example.tienda_ms_pedidos.exception.IdempotenciaException;
+import com.example.tienda_ms_pedidos.exception.IngestaPendienteException;
+import com.example.tienda_ms_pedidos.exception.IngestaSaturadaException;
+import com.example.tienda_ms_pedidos.exception.StockException;
 import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.service.ArchivoOrdenesService;
+import com.example.tienda_ms_pedidos.service.DiarioOrdenesService;
+import com.example.tienda_ms_pedidos.service.EventosOrdenService;
+import com.example.tienda_ms_pedidos.service.IdempotenciaService;
+import com.example.tienda_ms_pedidos.service.IndiceCoCompraService;
+import com.example.tienda_ms_pedidos.service.IngresosService;
+import com.example.tienda_ms_pedidos.service.IngestaOrdenesService;
 import com.example.tienda_ms_pedidos.service.OrdenService;
+import com.example.tienda_ms_pedidos.service.VentasProductoService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -19,63 +54,441 @@ public class OrdenController {
     @Autowired
     private OrdenService ordenService;
 
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private EventosOrdenService eventosOrdenService;
+
+    @Autowired
+    private VentasProductoService ventasProductoService;
+
+    @Autowired
+    private IngresosService ingresosService;
+
+    @Autowired
+    private IndiceCoCompraService indiceCoCompraService;
+
+    @Autowired
+    private ArchivoOrdenesService archivoOrdenesService;
+
+    @Autowired(required = false)
+    private IngestaOrdenesService ingestaOrdenesService;
+
+    @Autowired(required = false)
+    private DiarioOrdenesService diarioOrdenesService;
+
+    @Value("${pedidos.paginacion.tamano-maximo:100}")
+    private int tamanoMaximo = 100;
+
     /**
-     * Crea una nueva orden.
+     * Crea una nueva orden. Con el header Idempotency-Key los reintentos de la
+     * misma solicitud devuelven la orden creada originalmente en vez de crear otra.
      * 
+     * @param claveIdempotencia Valor del header Idempotency-Key, opcional.
      * @param orden Objeto de la orden a crear.
-     * @return La orden creada.
+     * @return La orden creada, un 400 si la clave no es válida, un 409 si la
+     *         primera solicitud con la misma clave sigue en curso, un 503 si la
+     *         cola de ingesta está saturada, un 202 con la clave para consultar
+     *         el resultado si la orden sigue pendiente de confirmación o, con el
+     *         diario habilitado y la base de datos caída, un 202 con la clave con
+     *         la que se registrará. Solo los fallos de conexión y los transitorios
+     *         van al diario: una violación de integridad no se resolvería al
+     *         reproducirla y se propaga como antes, y un fallo al confirmar
+     *         tampoco se registra porque la orden pudo quedar guardada.
      */
     @PostMapping
-    public ResponseEntity<Orden> createOrden(@RequestBody Orden orden) {
-        Orden nuevaOrden = ordenService.saveOrden(orden);
-        return ResponseEntity.status(HttpStatus.CREATED).body(nuevaOrden);
+    public ResponseEntity<?> createOrden(@RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia,
+                                         @RequestBody Orden orden) {
+        if (claveIdempotencia != null && (claveIdempotencia.isBlank() || claveIdempotencia.length() > 100)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Idempotency-Key inválida");
+        }
+        try {
+            if (claveIdempotencia == null) {
+                Orden nuevaOrden = ordenService.saveOrden(orden);
+                return ResponseEntity.status(HttpStatus.CREATED).body(nuevaOrden);
+            }
+            IdempotenciaService.Resultado resultado =
+                idempotenciaService.ejecutar(claveIdempotencia, () -> ordenService.saveOrden(orden));
+            return ResponseEntity.status(HttpStatus.CREATED)
+                .header("Idempotent-Replayed", String.valueOf(resultado.repetida()))
+                .body(resultado.orden());
+        } catch (IdempotenciaException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IngestaPendienteException e) {
+            // Repetir el POST con esta clave devuelve la orden si se confirmó, sin duplicarla
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Idempotency-Key", e.getClave())
+                .body(Map.of("mensaje", e.getMessage(), "clave", e.getClave()));
+        } catch (IngestaSaturadaException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(e.getMessage());
+        } catch (TransientDataAccessException | CannotCreateTransactionException
+                 | DataAccessResourceFailureException e) {
+            if (diarioOrdenesService == null) {
+                throw e;
+            }
+            return aceptarEnDiario(orden, claveIdempotencia);
+        }
     }
 
     /**
-     * Obtiene todas las órdenes.
+     * Acepta la orden en el diario local. Repetir el POST con la clave
+     * devuelta, una vez reproducida, responde con la orden creada.
+     */
+    private ResponseEntity<?> aceptarEnDiario(Orden orden, String claveIdempotencia) {
+        try {
+            String clave = diarioOrdenesService.registrar(orden, claveIdempotencia);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Idempotency-Key", clave)
+                .body(Map.of("mensaje", "Orden aceptada, se registrará cuando la base de datos esté disponible",
+                    "clave", clave));
+        } catch (IngestaSaturadaException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el retraso del diario de órdenes aceptadas durante una caída de la base de datos.
      * 
-     * @return Lista de órdenes.
+     * @return Órdenes y bytes pendientes de reproducir y antigüedad de la más
+     *         antigua, o un 404 si el diario no está habilitado.
+     */
+    @GetMapping("/diario/metricas")
+    public ResponseEntity<MetricasDiarioDTO> getMetricasDiario() {
+        if (diarioOrdenesService == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(diarioOrdenesService.getMetricas());
+    }
+
+    /**
+     * Obtiene las métricas de la cola de ingesta de órdenes.
+     * 
+     * @return Profundidad de la cola y latencia de commit, o un 404 si la ingesta no está habilitada.
+     */
+    @GetMapping("/ingesta/metricas")
+    public ResponseEntity<MetricasIngestaDTO> getMetricasIngesta() {
+        if (ingestaOrdenesService == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(ingestaOrdenesService.getMetricas());
+    }
+
+    /**
+     * Registra una orden con todos sus detalles y rebaja el stock
+     * de cada producto en una sola transacción.
+     * 
+     * @param orden Orden con sus detalles.
+     * @return La orden creada con sus detalles, o un 400 si no hay stock suficiente
+     *         o alguna línea no es válida.
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(@RequestBody Orden orden) {
+        try {
+            Orden nuevaOrden = ordenService.checkout(orden);
+            return ResponseEntity.status(HttpStatus.CREATED).body(nuevaOrden);
+        } catch (StockException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene una página de órdenes ordenadas por ID.
+     * 
+     * @param cursor Valor de {@code next} de la página anterior; se omite para la primera.
+     * @param size Tamaño de la página, limitado por {@code pedidos.paginacion.tamano-maximo}.
+     * @return Página de órdenes, o un 400 si el cursor no es válido.
      */
     @GetMapping
-    public ResponseEntity<List<Orden>> getAllOrdenes() {
-        List<Orden> ordenes = ordenService.findAll();
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<?> getAllOrdenes(@RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "50") int size) {
+        try {
+            PaginaDTO<Orden> pagina = ordenService.findPagina(cursor, limitarTamano(size));
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene una página de resúmenes de órdenes ordenados por ID, para
+     * listados que no necesitan los detalles.
+     * 
+     * @param estado Estado de las órdenes, opcional.
+     * @param cursor Valor de {@code next} de la página anterior; se omite para la primera.
+     * @param size Tamaño de la página, limitado por {@code pedidos.paginacion.tamano-maximo}.
+     * @return Página de resúmenes de órdenes, o un 400 si el cursor no es válido.
+     */
+    @GetMapping("/resumen")
+    public ResponseEntity<?> getResumenOrdenes(@RequestParam(required = false) Integer estado,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "50") int size) {
+        try {
+            PaginaDTO<ResumenOrdenDTO> pagina = ordenService.findPaginaResumen(estado, cursor, limitarTamano(size));
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene una página de las órdenes de un rango de fechas con hora (p. ej.
+     * los últimos 15 minutos), ordenadas por fecha e ID.
+     * 
+     * @param desde Inicio del rango (inclusive, formato yyyy-MM-ddTHH:mm:ss).
+     * @param hasta Fin del rango (exclusivo, mismo formato); por defecto ahora.
+     * @param estado Estado de las órdenes, opcional.
+     * @param cursor Valor de {@code next} de la página anterior; se omite para la primera.
+     * @param size Tamaño de la página, limitado por {@code pedidos.paginacion.tamano-maximo}.
+     * @return Página de órdenes, o un 400 si el rango o el cursor no son válidos.
+     */
+    @GetMapping("/rango")
+    public ResponseEntity<?> getOrdenesPorRango(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) Integer estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            PaginaDTO<Orden> pagina = ordenService.findPaginaByFecha(
+                aFecha(desde), hasta == null ? new Date() : aFecha(hasta), estado, cursor, limitarTamano(size));
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     /**
-     * Obtiene una orden por su ID.
+     * Exporta como NDJSON las órdenes de un rango de fechas con hora, para
+     * ventanas demasiado grandes para recorrer por páginas.
+     * 
+     * @param desde Inicio del rango (inclusive, formato yyyy-MM-ddTHH:mm:ss).
+     * @param hasta Fin del rango (exclusivo, mismo formato); por defecto ahora.
+     * @param estado Estado de las órdenes, opcional.
+     * @return Stream NDJSON de órdenes, o un 400 si el rango no es válido.
+     */
+    @GetMapping(value = "/rango/export", produces = "application/x-ndjson")
+    public ResponseEntity<?> exportarOrdenesPorRango(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) Integer estado) {
+        Date inicio = aFecha(desde);
+        Date fin = hasta == null ? new Date() : aFecha(hasta);
+        if (!inicio.before(fin)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Rango de fechas inválido");
+        }
+        StreamingResponseBody cuerpo = salida -> ordenService.exportarRango(inicio, fin, estado, salida);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(cuerpo);
+    }
+
+    /**
+     * Obtiene el historial de órdenes de un cliente, de la más reciente a la
+     * más antigua, como resúmenes sin detalles.
+     * 
+     * @param email Email del cliente.
+     * @param cursor Valor de {@code next} de la página anterior; se omite para la primera.
+     * @param size Tamaño de la página, limitado por {@code pedidos.paginacion.tamano-maximo}.
+     * @return Página de resúmenes de órdenes, o un 400 si falta el email o el cursor no es válido.
+     */
+    @GetMapping("/cliente")
+    public ResponseEntity<?> getOrdenesCliente(@RequestParam String email,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "20") int size) {
+        try {
+            PaginaDTO<ResumenOrdenDTO> pagina = ordenService.findPaginaByEmail(email, cursor, limitarTamano(size));
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Exporta las órdenes con sus detalles como JSON delimitado por saltos de
+     * línea (una orden por línea). La respuesta se escribe a medida que se lee
+     * la base de datos, sin cargar el resultado completo en memoria.
+     * 
+     * @param desde Fecha inicial (inclusive, formato yyyy-MM-dd), opcional.
+     * @param hasta Fecha final (inclusive, formato yyyy-MM-dd), opcional.
+     * @param estado Estado de las órdenes, opcional.
+     * @return Stream NDJSON de órdenes, o un 400 si el rango de fechas no es válido.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<?> exportarOrdenes(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Integer estado) {
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Rango de fechas inválido");
+        }
+        StreamingResponseBody cuerpo = salida -> ordenService.exportar(desde, hasta, estado, salida);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(cuerpo);
+    }
+
+    /**
+     * Obtiene los productos más vendidos en un rango de días, calculado desde
+     * las ventas acumuladas por producto y día.
+     * 
+     * @param desde Primer día (inclusive, formato yyyy-MM-dd); por defecto hace 6 días.
+     * @param hasta Último día (inclusive, formato yyyy-MM-dd); por defecto hoy.
+     * @param limite Número de productos, limitado por {@code pedidos.paginacion.tamano-maximo}.
+     * @return Ranking por unidades vendidas, o un 400 si el rango de fechas no es válido.
+     */
+    @GetMapping("/ranking")
+    public ResponseEntity<?> getRanking(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "20") int limite) {
+        LocalDate fin = hasta == null ? LocalDate.now() : hasta;
+        LocalDate inicio = desde == null ? fin.minusDays(6) : desde;
+        try {
+            List<RankingProductoDTO> ranking = ventasProductoService.ranking(inicio, fin, limitarTamano(limite));
+            return ResponseEntity.ok(ranking);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene los ingresos por hora, día o mes, calculados desde los periodos
+     * acumulados (no recorre la tabla de órdenes).
+     * 
+     * @param from Primer día (inclusive, formato yyyy-MM-dd).
+     * @param to Último día (inclusive, formato yyyy-MM-dd).
+     * @param granularity hora, dia o mes.
+     * @return Ingresos de los periodos con ventas, o un 400 si el rango o la granularidad no son válidos.
+     */
+    @GetMapping("/revenue")
+    public ResponseEntity<?> getIngresos(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "dia") String granularity) {
+        try {
+            List<IngresoPeriodoDTO> ingresos = ingresosService.consultar(from, to, granularity);
+            return ResponseEntity.ok(ingresos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene los productos que más se compran junto al indicado ("comprados
+     * juntos"), desde el índice en memoria.
+     * 
+     * @param id ID del producto.
+     * @param limite Número de productos, limitado por {@code pedidos.paginacion.tamano-maximo}.
+     * @return Productos relacionados con el número de órdenes en común.
+     */
+    @GetMapping("/productos/{id}/relacionados")
+    public ResponseEntity<List<ProductoRelacionadoDTO>> getProductosRelacionados(@PathVariable Long id,
+                                                                                 @RequestParam(defaultValue = "10") int limite) {
+        return ResponseEntity.ok(indiceCoCompraService.relacionados(id, limitarTamano(limite)));
+    }
+
+    /**
+     * Abre un stream SSE con los cambios de órdenes: creación (evento
+     * {@code orden-creada}) y cambio de estado ({@code orden-estado}).
+     * 
+     * @param email Solo órdenes de este email, opcional.
+     * @param estado Solo órdenes que quedan en este estado, opcional.
+     * @return Emisor SSE, o un 503 si se alcanzó el máximo de suscriptores.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOrdenes(@RequestParam(required = false) String email,
+                                                    @RequestParam(required = false) Integer estado) {
+        try {
+            SseEmitter emitter = eventosOrdenService.suscribir(email, estado);
+            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Obtiene una orden por su ID. Si ya no está en la base de datos se busca
+     * en el archivo de órdenes entregadas.
      * 
      * @param id ID de la orden.
      * @return La orden encontrada o un 404 si no se encuentra.
      */
     @GetMapping("/{id}")
     public ResponseEntity<Orden> getOrdenById(@PathVariable Long id) {
-        Optional<Orden> orden = ordenService.findById(id);
+        Optional<Orden> orden = ordenService.findById(id).or(() -> archivoOrdenesService.buscar(id));
         return orden.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
     /**
-     * Obtiene órdenes por el estado.
+     * Obtiene una página de órdenes por el estado.
      * 
      * @param estado Estado de las órdenes.
-     * @return Lista de órdenes en ese estado.
+     * @param cursor Valor de {@code next} de la página anterior; se omite para la primera.
+     * @param size Tamaño de la página, limitado por {@code pedidos.paginacion.tamano-maximo}.
+     * @return Página de órdenes en ese estado, o un 400 si el cursor no es válido.
      */
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<List<Orden>> getOrdenesByEstado(@PathVariable int estado) {
-        List<Orden> ordenes = ordenService.findByEstado(estado);
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<?> getOrdenesByEstado(@PathVariable int estado,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "50") int size) {
+        try {
+            PaginaDTO<Orden> pagina = ordenService.findPaginaByEstado(estado, cursor, limitarTamano(size));
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     /**
-     * Actualiza el estado de una orden.
+     * Avanza una orden a un nuevo estado desde el estado anterior (1→2→3→4).
      * 
      * @param id ID de la orden a actualizar.
      * @param estado Nuevo estado de la orden.
-     * @return Un 204 si se actualizó correctamente.
+     * @return Un 204 si se actualizó correctamente, un 400 si el estado no es
+     *         válido o un 409 si la orden no está en el estado anterior.
      */
     @PutMapping("/{id}/estado")
-    public ResponseEntity<Void> updateEstado(@PathVariable Long id, @RequestParam int estado) {
-        ordenService.updateEstado(id, estado);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<?> updateEstado(@PathVariable Long id, @RequestParam int estado) {
+        try {
+            ordenService.updateEstado(id, estado);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Avanza varias órdenes al estado siguiente (1→2→3→4) en una sola
+     * operación, solo si siguen en el estado esperado.
+     * 
+     * @param transicion IDs de las órdenes y estado esperado.
+     * @return Órdenes que avanzaron y omitidas, o un 400 si la solicitud no es válida.
+     */
+    @PutMapping("/estado")
+    public ResponseEntity<?> avanzarEstado(@RequestBody TransicionEstadoDTO transicion) {
+        if (transicion.getDesde() == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Debe indicar el estado esperado");
+        }
+        try {
+            ResultadoTransicionDTO resultado = ordenService.avanzarEstado(transicion.getIds(), transicion.getDesde());
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    private int limitarTamano(int size) {
+        return Math.max(1, Math.min(size, tamanoMaximo));
+    }
+
+    private Date aFecha(LocalDateTime fecha) {
+        return Date.from(fecha.atZone(ZoneId.systemDefault()).toInstant());
     }
 }
\ No newline at end of file
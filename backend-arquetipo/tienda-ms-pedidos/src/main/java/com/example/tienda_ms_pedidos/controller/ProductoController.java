@@ -1,12 +1,20 @@
 package com.example.tienda_ms_pedidos.controller;
 
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
+import com.example.tienda_ms_pedidos.DTO.ReservaStockDTO;
+import com.example.tienda_ms_pedidos.DTO.StockProductoDTO;
 import com.example.tienda_ms_pedidos.exception.StockException;
 import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.service.IndiceBajoStockService;
 import com.example.tienda_ms_pedidos.service.ProductoService;
+import com.example.tienda_ms_pedidos.service.ReservaStockService;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -17,9 +25,19 @@ import java.util.Map;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final ReservaStockService reservaStockService;
 
-    public ProductoController(ProductoService productoService) {
+    public ProductoController(ProductoService productoService, ReservaStockService reservaStockService) {
         this.productoService = productoService;
+        this.reservaStockService = reservaStockService;
+    }
+
+    // Solo presente con pedidos.stock.bajo.habilitado=true
+    private IndiceBajoStockService indiceBajoStockService;
+
+    @Autowired(required = false)
+    public void setIndiceBajoStockService(IndiceBajoStockService indiceBajoStockService) {
+        this.indiceBajoStockService = indiceBajoStockService;
     }
 
     @PutMapping("/{id}/stock")
@@ -32,6 +50,100 @@ public class ProductoController {
         }
     }
 
+    @PutMapping("/stock")
+    public ResponseEntity<?> reservarStock(@RequestBody List<ItemStockDTO> items) {
+        try {
+            List<Producto> productos = productoService.reservarStock(items);
+            return ResponseEntity.ok(productos);
+        } catch (StockException e) {
+            if (e.getProductos().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("mensaje", e.getMessage(), "productos", e.getProductos()));
+        }
+    }
+
+    /**
+     * Reserva stock por un tiempo limitado; si no se confirma ni se libera
+     * antes de {@code ttlSegundos}, el stock vuelve a estar disponible.
+     */
+    @PostMapping("/reservas")
+    public ResponseEntity<?> crearReserva(@RequestBody List<ItemStockDTO> items,
+                                          @RequestParam(value = "ttlSegundos", defaultValue = "900") long ttlSegundos) {
+        try {
+            ReservaStockDTO reserva = reservaStockService.reservar(items, ttlSegundos);
+            return ResponseEntity.status(HttpStatus.CREATED).body(reserva);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (StockException e) {
+            if (e.getProductos().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("mensaje", e.getMessage(), "productos", e.getProductos()));
+        }
+    }
+
+    @PostMapping("/reservas/{id}/confirmar")
+    public ResponseEntity<Void> confirmarReserva(@PathVariable String id) {
+        return reservaStockService.confirmar(id)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/reservas/{id}")
+    public ResponseEntity<Void> liberarReserva(@PathVariable String id) {
+        return reservaStockService.liberar(id)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Productos con stock menor o igual al umbral, de menor a mayor stock,
+     * servidos desde el índice en memoria.
+     * 
+     * @param umbral Stock máximo a incluir; por defecto pedidos.stock.bajo.umbral.
+     * @param limite Número máximo de productos.
+     * @return Productos con stock bajo, o un 404 si el índice no está habilitado.
+     */
+    @GetMapping("/bajo-stock")
+    public ResponseEntity<?> getBajoStock(@RequestParam(value = "umbral", required = false) Double umbral,
+                                          @RequestParam(value = "limite", defaultValue = "100") int limite) {
+        if (indiceBajoStockService == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (limite <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("El límite debe ser positivo");
+        }
+        List<StockProductoDTO> productos = indiceBajoStockService.bajoStock(
+            umbral != null ? umbral : indiceBajoStockService.getUmbralPorDefecto(), limite);
+        return ResponseEntity.ok(productos);
+    }
+
+    /**
+     * Abre un stream SSE que avisa cuando un producto queda con stock menor o
+     * igual al umbral (evento {@code stock-bajo}) y cuando vuelve a superarlo
+     * ({@code stock-repuesto}).
+     * 
+     * @param umbral Umbral a vigilar; por defecto pedidos.stock.bajo.umbral.
+     * @return Emisor SSE, un 404 si el índice no está habilitado o un 503 si
+     *         se alcanzó el máximo de suscriptores.
+     */
+    @GetMapping(value = "/bajo-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamBajoStock(@RequestParam(value = "umbral", required = false) Double umbral) {
+        if (indiceBajoStockService == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        try {
+            SseEmitter emitter = indiceBajoStockService.suscribir(
+                umbral != null ? umbral : indiceBajoStockService.getUmbralPorDefecto());
+            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @GetMapping("/buscar")
     public ResponseEntity<List<Producto>> buscarPorNombreOCategoria(@RequestParam("filtro") String filtro) {
         List<Producto> productos = productoService.buscarPorNombreOCategoria(filtro);
@@ -0,0 +1,22 @@
+package com.example.tienda_ms_pedidos.exception;
+
+import java.util.List;
+
+public class DetalleOrdenException extends RuntimeException {
+
+    // Posiciones (desde 0) de las líneas inválidas del lote
+    private final List<Integer> lineas;
+
+    public DetalleOrdenException(String message) {
+        this(message, List.of());
+    }
+
+    public DetalleOrdenException(String message, List<Integer> lineas) {
+        super(message);
+        this.lineas = List.copyOf(lineas);
+    }
+
+    public List<Integer> getLineas() {
+        return lineas;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.tienda_ms_pedidos.exception;
+
+public class IdempotenciaException extends RuntimeException {
+
+    public IdempotenciaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.tienda_ms_pedidos.exception;
+
+public class IngestaPendienteException extends RuntimeException {
+
+    // Idempotency-Key con la que el cliente puede consultar el resultado
+    private final String clave;
+
+    public IngestaPendienteException(String message, String clave) {
+        super(message);
+        this.clave = clave;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.tienda_ms_pedidos.exception;
+
+public class IngestaSaturadaException extends RuntimeException {
+
+    public IngestaSaturadaException(String message) {
+        super(message);
+    }
+}
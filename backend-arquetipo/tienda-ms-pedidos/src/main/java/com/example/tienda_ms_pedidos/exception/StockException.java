@@ -1,7 +1,22 @@
 package com.example.tienda_ms_pedidos.exception;
 
+import java.util.List;
+
 public class StockException extends RuntimeException {
+
+    // Productos que no pudieron descontarse (reserva múltiple)
+    private final List<Long> productos;
+
     public StockException(String message) {
+        this(message, List.of());
+    }
+
+    public StockException(String message, List<Long> productos) {
         super(message);
+        this.productos = List.copyOf(productos);
+    }
+
+    public List<Long> getProductos() {
+        return productos;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.example.tienda_ms_pedidos.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * Clave Idempotency-Key ya recibida. Mientras la primera ejecución está en
+ * curso la respuesta es nula y la reserva pertenece a esa ejecución hasta
+ * RESERVADA_HASTA; al terminar guarda el JSON de la respuesta original para
+ * devolverlo en los reintentos sin volver a crear la orden.
+ */
+@Entity
+@Table(name = "IDEMPOTENCIA_PEDIDOS")
+public class ClaveIdempotencia {
+
+    @Id
+    @Column(name = "CLAVE", nullable = false, length = 100)
+    private String clave;
+
+    @Lob
+    @Column(name = "RESPUESTA")
+    private String respuesta;
+
+    @Column(name = "CREADA", nullable = false)
+    private Date creada;
+
+    @Column(name = "RESERVADA_POR", length = 36)
+    private String reservadaPor;
+
+    @Column(name = "RESERVADA_HASTA")
+    private Date reservadaHasta;
+
+    @Column(name = "EXPIRA", nullable = false)
+    private Date expira;
+
+    // Getters y Setters
+    public String getClave() {
+        return clave;
+    }
+
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    public String getRespuesta() {
+        return respuesta;
+    }
+
+    public void setRespuesta(String respuesta) {
+        this.respuesta = respuesta;
+    }
+
+    public Date getCreada() {
+        return creada;
+    }
+
+    public void setCreada(Date creada) {
+        this.creada = creada;
+    }
+
+    public String getReservadaPor() {
+        return reservadaPor;
+    }
+
+    public void setReservadaPor(String reservadaPor) {
+        this.reservadaPor = reservadaPor;
+    }
+
+    public Date getReservadaHasta() {
+        return reservadaHasta;
+    }
+
+    public void setReservadaHasta(Date reservadaHasta) {
+        this.reservadaHasta = reservadaHasta;
+    }
+
+    public Date getExpira() {
+        return expira;
+    }
+
+    public void setExpira(Date expira) {
+        this.expira = expira;
+    }
+}
@@ -9,7 +9,9 @@ import jakarta.persistence.*;
 public class DetalleOrden {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Secuencia pooled: un solo viaje a la base de datos cada 50 IDs y permite INSERT en lote
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalle_orden_seq")
+    @SequenceGenerator(name = "detalle_orden_seq", sequenceName = "DETALLE_ORDENES_SEQ", allocationSize = 50)
     @Column(name = "ID_DETALLE_ORDEN", nullable = false)
     private Long id;
 
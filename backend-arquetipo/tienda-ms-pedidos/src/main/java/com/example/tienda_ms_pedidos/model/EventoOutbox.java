@@ -0,0 +1,124 @@
+package com.example.tienda_ms_pedidos.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * Evento de dominio pendiente de publicar (patrón outbox). Se inserta en la
+ * misma transacción que el cambio que describe, así ningún evento se pierde
+ * ni se publica un cambio que hizo rollback.
+ */
+@Entity
+@Table(name = "OUTBOX_PEDIDOS")
+public class EventoOutbox {
+
+    public static final String ORDEN_CREADA = "ORDEN_CREADA";
+    public static final String ESTADO_ACTUALIZADO = "ESTADO_ACTUALIZADO";
+    public static final String DETALLE_CREADO = "DETALLE_CREADO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "OUTBOX_PEDIDOS_SEQ", allocationSize = 50)
+    @Column(name = "ID_EVENTO", nullable = false)
+    private Long id;
+
+    @Column(name = "TIPO", nullable = false, length = 50)
+    private String tipo;
+
+    // ID de la orden a la que se refiere el evento
+    @Column(name = "ID_AGREGADO", nullable = false)
+    private Long idAgregado;
+
+    @Lob
+    @Column(name = "PAYLOAD", nullable = false)
+    private String payload;
+
+    @Column(name = "CREADO", nullable = false)
+    private Date creado;
+
+    @Column(name = "PUBLICADO")
+    private Date publicado;
+
+    // Instancia del relay que reclamó el evento y hasta cuándo lo tiene reservado
+    @Column(name = "RECLAMADO_POR", length = 100)
+    private String reclamadoPor;
+
+    @Column(name = "RECLAMADO_HASTA")
+    private Date reclamadoHasta;
+
+    @Column(name = "INTENTOS", nullable = false)
+    private Integer intentos = 0;
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public Long getIdAgregado() {
+        return idAgregado;
+    }
+
+    public void setIdAgregado(Long idAgregado) {
+        this.idAgregado = idAgregado;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Date getCreado() {
+        return creado;
+    }
+
+    public void setCreado(Date creado) {
+        this.creado = creado;
+    }
+
+    public Date getPublicado() {
+        return publicado;
+    }
+
+    public void setPublicado(Date publicado) {
+        this.publicado = publicado;
+    }
+
+    public String getReclamadoPor() {
+        return reclamadoPor;
+    }
+
+    public void setReclamadoPor(String reclamadoPor) {
+        this.reclamadoPor = reclamadoPor;
+    }
+
+    public Date getReclamadoHasta() {
+        return reclamadoHasta;
+    }
+
+    public void setReclamadoHasta(Date reclamadoHasta) {
+        this.reclamadoHasta = reclamadoHasta;
+    }
+
+    public Integer getIntentos() {
+        return intentos;
+    }
+
+    public void setIntentos(Integer intentos) {
+        this.intentos = intentos;
+    }
+}
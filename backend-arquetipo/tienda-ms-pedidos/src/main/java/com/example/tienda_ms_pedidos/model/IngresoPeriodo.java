@@ -0,0 +1,112 @@
+package com.example.tienda_ms_pedidos.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Ingresos de un periodo (hora, día o mes). Las horas se acumulan con cada
+ * orden repartidas en franjas, para que compras concurrentes no esperen el
+ * bloqueo de una misma fila; los días y meses se pliegan desde las horas.
+ */
+@Entity
+@Table(name = "INGRESOS_PERIODO")
+@IdClass(IngresoPeriodo.Clave.class)
+public class IngresoPeriodo {
+
+    public static final String HORA = "HORA";
+    public static final String DIA = "DIA";
+    public static final String MES = "MES";
+
+    @Id
+    @Column(name = "GRANULARIDAD", nullable = false, length = 4)
+    private String granularidad;
+
+    @Id
+    @Column(name = "INICIO", nullable = false)
+    private LocalDateTime inicio;
+
+    @Id
+    @Column(name = "FRANJA", nullable = false)
+    private Integer franja;
+
+    @Column(name = "MONTO", nullable = false)
+    private Double monto;
+
+    @Column(name = "ORDENES", nullable = false)
+    private Long ordenes;
+
+    public static class Clave implements Serializable {
+        private String granularidad;
+        private LocalDateTime inicio;
+        private Integer franja;
+
+        public Clave() {
+        }
+
+        public Clave(String granularidad, LocalDateTime inicio, Integer franja) {
+            this.granularidad = granularidad;
+            this.inicio = inicio;
+            this.franja = franja;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Clave otra)) {
+                return false;
+            }
+            return Objects.equals(granularidad, otra.granularidad) && Objects.equals(inicio, otra.inicio)
+                && Objects.equals(franja, otra.franja);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularidad, inicio, franja);
+        }
+    }
+
+    // Getters y Setters
+    public String getGranularidad() {
+        return granularidad;
+    }
+
+    public void setGranularidad(String granularidad) {
+        this.granularidad = granularidad;
+    }
+
+    public LocalDateTime getInicio() {
+        return inicio;
+    }
+
+    public void setInicio(LocalDateTime inicio) {
+        this.inicio = inicio;
+    }
+
+    public Integer getFranja() {
+        return franja;
+    }
+
+    public void setFranja(Integer franja) {
+        this.franja = franja;
+    }
+
+    public Double getMonto() {
+        return monto;
+    }
+
+    public void setMonto(Double monto) {
+        this.monto = monto;
+    }
+
+    public Long getOrdenes() {
+        return ordenes;
+    }
+
+    public void setOrdenes(Long ordenes) {
+        this.ordenes = ordenes;
+    }
+}
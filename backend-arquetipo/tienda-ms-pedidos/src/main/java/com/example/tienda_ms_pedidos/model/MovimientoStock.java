@@ -0,0 +1,87 @@
+package com.example.tienda_ms_pedidos.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * Movimiento del libro de inventario: cambio de stock con signo (negativo al
+ * descontar, positivo al devolver). Las filas solo se insertan; el stock de
+ * un producto es su último snapshot más los movimientos posteriores.
+ */
+@Entity
+@Table(name = "MOVIMIENTOS_STOCK")
+public class MovimientoStock {
+
+    public static final String DESCUENTO = "DESCUENTO";
+    public static final String RESERVA = "RESERVA";
+    public static final String DEVOLUCION = "DEVOLUCION";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimiento_stock_seq")
+    @SequenceGenerator(name = "movimiento_stock_seq", sequenceName = "MOVIMIENTOS_STOCK_SEQ", allocationSize = 50)
+    @Column(name = "ID_MOVIMIENTO", nullable = false)
+    private Long id;
+
+    @Column(name = "ID_PRODUCTO", nullable = false)
+    private Long idProducto;
+
+    @Column(name = "CANTIDAD", nullable = false)
+    private Double cantidad;
+
+    @Column(name = "MOTIVO", nullable = false, length = 20)
+    private String motivo;
+
+    @Column(name = "CREADO", nullable = false)
+    private Date creado;
+
+    public MovimientoStock() {
+    }
+
+    public MovimientoStock(Long idProducto, Double cantidad, String motivo, Date creado) {
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+        this.motivo = motivo;
+        this.creado = creado;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Double getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Double cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public String getMotivo() {
+        return motivo;
+    }
+
+    public void setMotivo(String motivo) {
+        this.motivo = motivo;
+    }
+
+    public Date getCreado() {
+        return creado;
+    }
+
+    public void setCreado(Date creado) {
+        this.creado = creado;
+    }
+}
@@ -11,7 +11,9 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 public class Orden {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Secuencia pooled: un solo viaje a la base de datos cada 50 IDs y permite INSERT en lote
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orden_seq")
+    @SequenceGenerator(name = "orden_seq", sequenceName = "ORDENES_SEQ", allocationSize = 50)
     @Column(name = "ID_ORDEN", nullable = false)
     private Long id;
 
@@ -23,6 +25,7 @@ public class Orden {
      * 2 -> En proceso.
      * 3 -> Despachada.
      * 4 -> Entregada.
+     * En Oracle la columna requiere CONSTRAINT CK_ORDENES_ESTADO CHECK (ESTADO BETWEEN 1 AND 4).
      */
     @Column(name = "ESTADO", nullable = false)
     private Integer estado;
@@ -0,0 +1,93 @@
+package com.example.tienda_ms_pedidos.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Línea de una reserva de stock: cantidad descontada de un producto que se
+ * devuelve si la reserva vence sin confirmarse. La tabla solo se lee al
+ * iniciar; el vencimiento lo lleva la rueda de temporizadores en memoria.
+ */
+@Entity
+@Table(name = "RESERVAS_STOCK")
+@IdClass(ReservaStock.Clave.class)
+public class ReservaStock {
+
+    @Id
+    @Column(name = "ID_RESERVA", nullable = false, length = 36)
+    private String idReserva;
+
+    @Id
+    @Column(name = "ID_PRODUCTO", nullable = false)
+    private Long idProducto;
+
+    @Column(name = "CANTIDAD", nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "VENCE", nullable = false)
+    private Date vence;
+
+    public static class Clave implements Serializable {
+        private String idReserva;
+        private Long idProducto;
+
+        public Clave() {
+        }
+
+        public Clave(String idReserva, Long idProducto) {
+            this.idReserva = idReserva;
+            this.idProducto = idProducto;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Clave otra)) {
+                return false;
+            }
+            return Objects.equals(idReserva, otra.idReserva) && Objects.equals(idProducto, otra.idProducto);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(idReserva, idProducto);
+        }
+    }
+
+    // Getters y Setters
+    public String getIdReserva() {
+        return idReserva;
+    }
+
+    public void setIdReserva(String idReserva) {
+        this.idReserva = idReserva;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public Date getVence() {
+        return vence;
+    }
+
+    public void setVence(Date vence) {
+        this.vence = vence;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.tienda_ms_pedidos.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Ventas acumuladas de un producto en un día. Se mantiene junto con cada
+ * inserción de DetalleOrden para responder rankings sin recorrer los detalles.
+ */
+@Entity
+@Table(name = "VENTAS_PRODUCTO_DIA")
+@IdClass(VentaProductoDia.Clave.class)
+public class VentaProductoDia {
+
+    @Id
+    @Column(name = "ID_PRODUCTO", nullable = false)
+    private Long idProducto;
+
+    @Id
+    @Column(name = "DIA", nullable = false)
+    private LocalDate dia;
+
+    @Column(name = "UNIDADES", nullable = false)
+    private Long unidades;
+
+    @Column(name = "MONTO", nullable = false)
+    private Double monto;
+
+    // Número de líneas de detalle que aportaron a la fila
+    @Column(name = "LINEAS", nullable = false)
+    private Long lineas;
+
+    public static class Clave implements Serializable {
+        private Long idProducto;
+        private LocalDate dia;
+
+        public Clave() {
+        }
+
+        public Clave(Long idProducto, LocalDate dia) {
+            this.idProducto = idProducto;
+            this.dia = dia;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Clave otra)) {
+                return false;
+            }
+            return Objects.equals(idProducto, otra.idProducto) && Objects.equals(dia, otra.dia);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(idProducto, dia);
+        }
+    }
+
+    // Getters y Setters
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public LocalDate getDia() {
+        return dia;
+    }
+
+    public void setDia(LocalDate dia) {
+        this.dia = dia;
+    }
+
+    public Long getUnidades() {
+        return unidades;
+    }
+
+    public void setUnidades(Long unidades) {
+        this.unidades = unidades;
+    }
+
+    public Double getMonto() {
+        return monto;
+    }
+
+    public void setMonto(Double monto) {
+        this.monto = monto;
+    }
+
+    public Long getLineas() {
+        return lineas;
+    }
+
+    public void setLineas(Long lineas) {
+        this.lineas = lineas;
+    }
+}
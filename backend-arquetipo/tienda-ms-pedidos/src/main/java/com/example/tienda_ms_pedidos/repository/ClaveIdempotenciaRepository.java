@@ -0,0 +1,99 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.ClaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Repository
+public interface ClaveIdempotenciaRepository extends JpaRepository<ClaveIdempotencia, String>, ClaveIdempotenciaRepositoryCustom {
+
+    /**
+     * Reserva una clave para una ejecución. Al ser un INSERT directo (y no un
+     * merge) falla con una violación de clave primaria si otra ejecución ya la reservó.
+     * 
+     * @param clave Valor del header Idempotency-Key.
+     * @param reservadaPor Identificador de la ejecución dueña de la reserva.
+     * @param creada Momento de la reserva.
+     * @param reservadaHasta Vencimiento de la reserva si la ejecución no termina.
+     * @param expira Momento a partir del cual la clave puede reutilizarse.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO IDEMPOTENCIA_PEDIDOS (CLAVE, RESERVADA_POR, CREADA, RESERVADA_HASTA, EXPIRA) "
+        + "VALUES (:clave, :reservadaPor, :creada, :reservadaHasta, :expira)",
+        nativeQuery = true)
+    void reservar(@Param("clave") String clave, @Param("reservadaPor") String reservadaPor,
+                  @Param("creada") Date creada, @Param("reservadaHasta") Date reservadaHasta,
+                  @Param("expira") Date expira);
+
+    /**
+     * Guarda la respuesta de la ejecución dueña de la reserva. Si la reserva
+     * venció y otra ejecución la tomó, no actualiza nada.
+     * 
+     * @param clave Valor del header Idempotency-Key.
+     * @param reservadaPor Identificador de la ejecución dueña de la reserva.
+     * @param respuesta JSON de la respuesta original.
+     * @return Filas actualizadas (1 si la reserva seguía siendo de esta ejecución).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ClaveIdempotencia c SET c.respuesta = :respuesta "
+        + "WHERE c.clave = :clave AND c.reservadaPor = :reservadaPor AND c.respuesta IS NULL")
+    int completar(@Param("clave") String clave, @Param("reservadaPor") String reservadaPor,
+                  @Param("respuesta") String respuesta);
+
+    /**
+     * Libera la reserva de una ejecución que falló.
+     * 
+     * @param clave Valor del header Idempotency-Key.
+     * @param reservadaPor Identificador de la ejecución dueña de la reserva.
+     * @return Filas eliminadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ClaveIdempotencia c "
+        + "WHERE c.clave = :clave AND c.reservadaPor = :reservadaPor AND c.respuesta IS NULL")
+    int liberar(@Param("clave") String clave, @Param("reservadaPor") String reservadaPor);
+
+    /**
+     * Libera una reserva abandonada: sin respuesta y con la reserva vencida.
+     * 
+     * @param clave Valor del header Idempotency-Key.
+     * @param ahora Momento actual.
+     * @return Filas eliminadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ClaveIdempotencia c "
+        + "WHERE c.clave = :clave AND c.respuesta IS NULL AND c.reservadaHasta < :ahora")
+    int liberarVencida(@Param("clave") String clave, @Param("ahora") Date ahora);
+
+    /**
+     * Elimina una clave cuyo TTL ya venció.
+     * 
+     * @param clave Valor del header Idempotency-Key.
+     * @param ahora Momento actual.
+     * @return Filas eliminadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ClaveIdempotencia c WHERE c.clave = :clave AND c.expira < :ahora")
+    int eliminarSiExpirada(@Param("clave") String clave, @Param("ahora") Date ahora);
+
+    /**
+     * Elimina las claves cuyo TTL ya venció.
+     * 
+     * @param ahora Momento actual.
+     * @return Número de claves eliminadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ClaveIdempotencia c WHERE c.expira < :ahora")
+    int eliminarExpiradas(@Param("ahora") Date ahora);
+}
@@ -0,0 +1,18 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import java.util.Date;
+import java.util.Map;
+
+public interface ClaveIdempotenciaRepositoryCustom {
+
+    /**
+     * Inserta claves ya completadas, en un solo batch JDBC dentro de la
+     * transacción actual. Falla con una violación de clave primaria si alguna
+     * clave ya existe.
+     * 
+     * @param respuestas JSON de la respuesta por clave.
+     * @param creada Momento de creación.
+     * @param expira Momento a partir del cual las claves pueden reutilizarse.
+     */
+    void insertarCompletadas(Map<String, String> respuestas, Date creada, Date expira);
+}
@@ -0,0 +1,33 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class ClaveIdempotenciaRepositoryCustomImpl implements ClaveIdempotenciaRepositoryCustom {
+
+    private static final String SQL_INSERTAR =
+        "INSERT INTO IDEMPOTENCIA_PEDIDOS (CLAVE, RESPUESTA, CREADA, EXPIRA) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ClaveIdempotenciaRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertarCompletadas(Map<String, String> respuestas, Date creada, Date expira) {
+        if (respuestas.isEmpty()) {
+            return;
+        }
+        Timestamp desde = new Timestamp(creada.getTime());
+        Timestamp hasta = new Timestamp(expira.getTime());
+        List<Object[]> parametros = new ArrayList<>(respuestas.size());
+        respuestas.forEach((clave, respuesta) -> parametros.add(new Object[] { clave, respuesta, desde, hasta }));
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, parametros);
+    }
+}
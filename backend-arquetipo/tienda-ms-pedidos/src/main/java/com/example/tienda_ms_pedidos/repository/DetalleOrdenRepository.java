@@ -2,12 +2,19 @@ package com.example.tienda_ms_pedidos.repository;
 
 import com.example.tienda_ms_pedidos.model.DetalleOrden;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface DetalleOrdenRepository extends JpaRepository<DetalleOrden, Long> {
+public interface DetalleOrdenRepository extends JpaRepository<DetalleOrden, Long>, DetalleOrdenRepositoryCustom {
 
     /**
      * Encuentra todos los detalles de orden por el ID del producto.
@@ -16,4 +23,43 @@ public interface DetalleOrdenRepository extends JpaRepository<DetalleOrden, Long
      * @return Lista de detalles asociados al producto.
      */
     List<DetalleOrden> findByIdProducto(Long idProducto);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene la fecha de una orden sin cargar la orden ni sus detalles.
+     * 
+     * @param idOrden ID de la orden.
+     * @return Fecha de la orden, vacía si no existe o no tiene fecha.
+     */
+    @Query("SELECT o.fecha FROM Orden o WHERE o.id = :idOrden")
+    Optional<Date> findFechaOrden(@Param("idOrden") Long idOrden);
+
+    /**
+     * Productos distintos de una orden, sin contar una línea de detalle.
+     * 
+     * @param idOrden ID de la orden.
+     * @param idDetalle ID de la línea a excluir.
+     * @return IDs de los productos de las demás líneas.
+     */
+    @Query("SELECT DISTINCT d.idProducto FROM DetalleOrden d WHERE d.orden.id = :idOrden AND d.id <> :idDetalle")
+    List<Long> findOtrosProductosDeOrden(@Param("idOrden") Long idOrden, @Param("idDetalle") Long idDetalle);
+
+    /**
+     * Productos distintos de una orden.
+     * 
+     * @param idOrden ID de la orden.
+     * @return IDs de los productos de sus líneas.
+     */
+    @Query("SELECT DISTINCT d.idProducto FROM DetalleOrden d WHERE d.orden.id = :idOrden")
+    List<Long> findProductosDeOrden(@Param("idOrden") Long idOrden);
+
+    /**
+     * Elimina en una sola sentencia los detalles de varias órdenes.
+     * 
+     * @param idsOrden IDs de las órdenes (a lo más 1000 por llamada en Oracle).
+     * @return Filas eliminadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DetalleOrden d WHERE d.orden.id IN :idsOrden")
+    int eliminarPorOrdenes(@Param("idsOrden") Collection<Long> idsOrden);
+}
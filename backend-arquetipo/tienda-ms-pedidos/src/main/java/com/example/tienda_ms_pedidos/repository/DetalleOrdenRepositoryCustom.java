@@ -0,0 +1,17 @@
+package com.example.tienda_ms_pedidos.repository;
+
+public interface DetalleOrdenRepositoryCustom {
+
+    @FunctionalInterface
+    interface ConsumidorLinea {
+        void aceptar(long idDetalle, long idOrden, long idProducto);
+    }
+
+    /**
+     * Recorre todas las líneas de detalle ordenadas por orden, en streaming y
+     * sin crear entidades, entregando los IDs como valores primitivos.
+     * 
+     * @param consumidor Recibe el ID del detalle, de la orden y del producto de cada línea.
+     */
+    void recorrerLineasPorOrden(ConsumidorLinea consumidor);
+}
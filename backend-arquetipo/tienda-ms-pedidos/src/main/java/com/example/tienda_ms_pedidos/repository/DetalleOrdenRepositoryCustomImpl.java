@@ -0,0 +1,31 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+
+public class DetalleOrdenRepositoryCustomImpl implements DetalleOrdenRepositoryCustom {
+
+    private static final int FILAS_POR_LECTURA = 1000;
+
+    private static final String SQL_LINEAS =
+        "SELECT ID_DETALLE_ORDEN, ID_ORDEN, ID_PRODUCTO FROM DETALLE_ORDENES "
+        + "WHERE ID_ORDEN IS NOT NULL ORDER BY ID_ORDEN";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DetalleOrdenRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void recorrerLineasPorOrden(ConsumidorLinea consumidor) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_LINEAS);
+            ps.setFetchSize(FILAS_POR_LECTURA);
+            return ps;
+        }, rs -> {
+            consumidor.aceptar(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long>, EventoOutboxRepositoryCustom {
+
+    /**
+     * Marca como publicados los eventos que la instancia sigue teniendo reclamados.
+     * 
+     * @param ids IDs de los eventos.
+     * @param instancia Instancia que los reclamó.
+     * @param ahora Momento de la publicación.
+     * @return Eventos marcados.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EventoOutbox e SET e.publicado = :ahora, e.reclamadoHasta = null "
+        + "WHERE e.id IN :ids AND e.reclamadoPor = :instancia AND e.publicado IS NULL")
+    int marcarPublicados(@Param("ids") Collection<Long> ids, @Param("instancia") String instancia,
+                         @Param("ahora") Date ahora);
+
+    /**
+     * Libera eventos reclamados cuya publicación falló, para reintentarlos.
+     * 
+     * @param ids IDs de los eventos.
+     * @param instancia Instancia que los reclamó.
+     * @return Eventos liberados.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EventoOutbox e SET e.intentos = e.intentos + 1, e.reclamadoPor = null, e.reclamadoHasta = null "
+        + "WHERE e.id IN :ids AND e.reclamadoPor = :instancia AND e.publicado IS NULL")
+    int liberar(@Param("ids") Collection<Long> ids, @Param("instancia") String instancia);
+
+    /**
+     * Elimina los eventos publicados antes de la fecha indicada.
+     * 
+     * @param antesDe Límite de retención.
+     * @return Eventos eliminados.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EventoOutbox e WHERE e.publicado < :antesDe")
+    int eliminarPublicadosAntesDe(@Param("antesDe") Date antesDe);
+
+    long countByPublicadoIsNull();
+}
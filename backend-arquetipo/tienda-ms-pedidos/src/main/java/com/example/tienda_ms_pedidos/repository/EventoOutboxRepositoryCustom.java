@@ -0,0 +1,24 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+
+import java.util.Date;
+import java.util.List;
+
+public interface EventoOutboxRepositoryCustom {
+
+    /**
+     * Reclama hasta {@code lote} eventos pendientes para una instancia del relay.
+     * Las filas se leen con SELECT ... FOR UPDATE SKIP LOCKED, así varias
+     * instancias reclaman en paralelo sin esperarse ni repetir eventos, y se
+     * marcan como reservadas hasta {@code hasta}. Debe ejecutarse dentro de
+     * una transacción corta: los bloqueos se liberan al hacer commit y la
+     * reserva se mantiene por la columna RECLAMADO_HASTA.
+     * 
+     * @param lote Número máximo de eventos.
+     * @param instancia Identificador de la instancia que reclama.
+     * @param hasta Fin de la reserva; después otra instancia puede reclamarlos.
+     * @return Eventos reclamados, en orden de creación.
+     */
+    List<EventoOutbox> reclamar(int lote, String instancia, Date hasta);
+}
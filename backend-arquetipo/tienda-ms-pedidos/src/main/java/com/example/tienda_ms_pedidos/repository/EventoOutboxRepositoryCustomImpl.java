@@ -0,0 +1,61 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class EventoOutboxRepositoryCustomImpl implements EventoOutboxRepositoryCustom {
+
+    // Sin FETCH FIRST: Oracle no lo admite junto a FOR UPDATE, el límite se aplica con maxRows
+    private static final String SQL_RECLAMAR =
+        "SELECT ID_EVENTO, TIPO, ID_AGREGADO, PAYLOAD, CREADO, INTENTOS FROM OUTBOX_PEDIDOS "
+        + "WHERE PUBLICADO IS NULL AND (RECLAMADO_HASTA IS NULL OR RECLAMADO_HASTA < ?) "
+        + "ORDER BY ID_EVENTO FOR UPDATE SKIP LOCKED";
+
+    private static final String SQL_RESERVAR =
+        "UPDATE OUTBOX_PEDIDOS SET RECLAMADO_POR = ?, RECLAMADO_HASTA = ? WHERE ID_EVENTO = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EventoOutboxRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<EventoOutbox> reclamar(int lote, String instancia, Date hasta) {
+        List<EventoOutbox> eventos = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_RECLAMAR);
+            ps.setMaxRows(lote);
+            ps.setFetchSize(lote);
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            return ps;
+        }, (rs, fila) -> {
+            EventoOutbox evento = new EventoOutbox();
+            evento.setId(rs.getLong("ID_EVENTO"));
+            evento.setTipo(rs.getString("TIPO"));
+            evento.setIdAgregado(rs.getLong("ID_AGREGADO"));
+            evento.setPayload(rs.getString("PAYLOAD"));
+            evento.setCreado(rs.getTimestamp("CREADO"));
+            evento.setIntentos(rs.getInt("INTENTOS"));
+            evento.setReclamadoPor(instancia);
+            evento.setReclamadoHasta(hasta);
+            return evento;
+        });
+        if (eventos.isEmpty()) {
+            return eventos;
+        }
+
+        Timestamp fin = new Timestamp(hasta.getTime());
+        List<Object[]> parametros = new ArrayList<>(eventos.size());
+        for (EventoOutbox evento : eventos) {
+            parametros.add(new Object[] { instancia, fin, evento.getId() });
+        }
+        jdbcTemplate.batchUpdate(SQL_RESERVAR, parametros);
+        return eventos;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.DTO.IngresoPeriodoDTO;
+import com.example.tienda_ms_pedidos.model.IngresoPeriodo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface IngresoPeriodoRepository
+        extends JpaRepository<IngresoPeriodo, IngresoPeriodo.Clave>, IngresoPeriodoRepositoryCustom {
+
+    /**
+     * Ingresos por periodo en [desde, hasta), sumando las franjas de cada periodo.
+     * 
+     * @param granularidad HORA, DIA o MES.
+     * @param desde Inicio del rango (inclusive).
+     * @param hasta Fin del rango (exclusivo).
+     * @return Periodos con ventas, en orden cronológico.
+     */
+    @Query("SELECT new com.example.tienda_ms_pedidos.DTO.IngresoPeriodoDTO(i.inicio, SUM(i.monto), SUM(i.ordenes)) "
+        + "FROM IngresoPeriodo i WHERE i.granularidad = :granularidad AND i.inicio >= :desde AND i.inicio < :hasta "
+        + "GROUP BY i.inicio ORDER BY i.inicio")
+    List<IngresoPeriodoDTO> findPeriodos(@Param("granularidad") String granularidad,
+                                         @Param("desde") LocalDateTime desde,
+                                         @Param("hasta") LocalDateTime hasta);
+}
@@ -0,0 +1,40 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.DTO.IngresoPeriodoDTO;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+public interface IngresoPeriodoRepositoryCustom {
+
+    /**
+     * Suma ingresos a los periodos de una franja, creando las filas que falten.
+     * 
+     * @param granularidad HORA, DIA o MES.
+     * @param franja Franja a actualizar.
+     * @param ingresos Monto y número de órdenes por inicio de periodo.
+     */
+    void acumular(String granularidad, int franja, Map<LocalDateTime, IngresoPeriodoDTO> ingresos);
+
+    /**
+     * Reemplaza los periodos de una granularidad en [desde, hasta) por los
+     * indicados, en la franja 0.
+     * 
+     * @param granularidad Granularidad a reemplazar.
+     * @param desde Inicio del rango (inclusive).
+     * @param hasta Fin del rango (exclusivo).
+     * @param periodos Nuevos periodos.
+     */
+    void reemplazar(String granularidad, LocalDateTime desde, LocalDateTime hasta, Collection<IngresoPeriodoDTO> periodos);
+
+    /**
+     * Recorre las órdenes con fecha (una sola lectura, en streaming) y
+     * entrega la fecha y el monto de cada una.
+     * 
+     * @param consumidor Recibe la fecha y el monto de cada orden.
+     */
+    void recorrerOrdenes(BiConsumer<Date, Double> consumidor);
+}
@@ -0,0 +1,92 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.DTO.IngresoPeriodoDTO;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+public class IngresoPeriodoRepositoryCustomImpl implements IngresoPeriodoRepositoryCustom {
+
+    private static final int FILAS_POR_LECTURA = 1000;
+
+    private static final String SQL_SUMAR =
+        "UPDATE INGRESOS_PERIODO SET MONTO = MONTO + ?, ORDENES = ORDENES + ? "
+        + "WHERE GRANULARIDAD = ? AND INICIO = ? AND FRANJA = ?";
+
+    private static final String SQL_INSERTAR =
+        "INSERT INTO INGRESOS_PERIODO (GRANULARIDAD, INICIO, FRANJA, MONTO, ORDENES) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_ELIMINAR =
+        "DELETE FROM INGRESOS_PERIODO WHERE GRANULARIDAD = ? AND INICIO >= ? AND INICIO < ?";
+
+    private static final String SQL_ORDENES =
+        "SELECT FECHA, MONTO_TOTAL FROM ORDENES WHERE FECHA IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IngresoPeriodoRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void acumular(String granularidad, int franja, Map<LocalDateTime, IngresoPeriodoDTO> ingresos) {
+        if (ingresos.isEmpty()) {
+            return;
+        }
+        // Orden fijo de actualización entre transacciones concurrentes
+        List<IngresoPeriodoDTO> periodos = new ArrayList<>(new TreeMap<>(ingresos).values());
+        List<Object[]> parametros = new ArrayList<>(periodos.size());
+        for (IngresoPeriodoDTO periodo : periodos) {
+            parametros.add(new Object[] {
+                periodo.getMonto(), periodo.getOrdenes(), granularidad, Timestamp.valueOf(periodo.getInicio()), franja });
+        }
+        int[] filas = jdbcTemplate.batchUpdate(SQL_SUMAR, parametros);
+
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] == 0) {
+                Object[] fila = parametros.get(i);
+                try {
+                    jdbcTemplate.update(SQL_INSERTAR, granularidad, fila[3], franja, fila[0], fila[1]);
+                } catch (DuplicateKeyException e) {
+                    // Otra transacción creó el periodo entre el UPDATE y el INSERT
+                    jdbcTemplate.update(SQL_SUMAR, fila);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reemplazar(String granularidad, LocalDateTime desde, LocalDateTime hasta,
+                           Collection<IngresoPeriodoDTO> periodos) {
+        jdbcTemplate.update(SQL_ELIMINAR, granularidad, Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+        List<Object[]> parametros = new ArrayList<>(periodos.size());
+        for (IngresoPeriodoDTO periodo : periodos) {
+            parametros.add(new Object[] {
+                granularidad, Timestamp.valueOf(periodo.getInicio()), 0, periodo.getMonto(), periodo.getOrdenes() });
+        }
+        if (!parametros.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERTAR, parametros);
+        }
+    }
+
+    @Override
+    public void recorrerOrdenes(BiConsumer<Date, Double> consumidor) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_ORDENES);
+            ps.setFetchSize(FILAS_POR_LECTURA);
+            return ps;
+        }, rs -> {
+            consumidor.accept(rs.getTimestamp(1), rs.getDouble(2));
+        });
+    }
+}
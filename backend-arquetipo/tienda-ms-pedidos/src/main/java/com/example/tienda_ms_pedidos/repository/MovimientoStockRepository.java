@@ -0,0 +1,29 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.MovimientoStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface MovimientoStockRepository
+        extends JpaRepository<MovimientoStock, Long>, MovimientoStockRepositoryCustom {
+
+    /**
+     * Último movimiento creado antes de un momento: hasta él se puede tomar un
+     * snapshot sin dejar fuera transacciones que aún no confirman. Solo
+     * recorre la cola posterior al corte anterior.
+     * 
+     * @param desde ID del último movimiento ya incluido en un snapshot.
+     * @param antesDe Momento límite (exclusivo).
+     * @return ID del movimiento, o null si no hay movimientos nuevos.
+     */
+    @Query("SELECT MAX(m.id) FROM MovimientoStock m WHERE m.id > :desde AND m.creado < :antesDe")
+    Long findUltimoIdAntesDe(@Param("desde") long desde, @Param("antesDe") Date antesDe);
+
+    List<MovimientoStock> findByIdProductoOrderByIdAsc(Long idProducto);
+}
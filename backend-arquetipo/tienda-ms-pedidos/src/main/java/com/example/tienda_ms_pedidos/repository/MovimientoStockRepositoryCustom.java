@@ -0,0 +1,67 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+public interface MovimientoStockRepositoryCustom {
+
+    /**
+     * Stock de un producto leído en una sola sentencia.
+     * 
+     * @param base PRODUCTO.STOCK, con los movimientos hasta el corte ya sumados.
+     * @param movimientos Suma de los movimientos posteriores al corte.
+     * @param corte Corte del último snapshot al momento de la lectura.
+     */
+    record StockProyectado(double base, double movimientos, long corte) {
+
+        public double stock() {
+            return base + movimientos;
+        }
+    }
+
+    /**
+     * Corte del último snapshot: todos los movimientos con ID menor o igual
+     * ya están incluidos en SNAPSHOTS_STOCK y sumados a PRODUCTO.STOCK.
+     * 
+     * @return ID del último movimiento incluido, o 0 si no hay snapshots.
+     */
+    long findCorteSnapshot();
+
+    /**
+     * Suma a PRODUCTO.STOCK los movimientos entre el corte anterior y
+     * {@code corte} (con un UPDATE relativo, sin pisar cambios externos),
+     * guarda un snapshot por cada producto afectado y elimina los snapshots
+     * que reemplaza.
+     * 
+     * @param corte ID del último movimiento a incluir.
+     * @param ahora Momento del snapshot.
+     * @return Productos con snapshot nuevo.
+     */
+    int tomarSnapshot(long corte, Date ahora);
+
+    /**
+     * Suma de los movimientos por producto en (desde, hasta].
+     * 
+     * @param desde ID de movimiento (exclusivo).
+     * @param hasta ID de movimiento (inclusive).
+     * @return Suma por ID de producto; los productos sin movimientos no aparecen.
+     */
+    Map<Long, Double> sumarMovimientos(long desde, long hasta);
+
+    /**
+     * PRODUCTO.STOCK de todos los productos.
+     * 
+     * @return Stock base por ID de producto.
+     */
+    Map<Long, Double> findStockBase();
+
+    /**
+     * Stock actual de productos: PRODUCTO.STOCK más los movimientos
+     * posteriores al corte.
+     * 
+     * @param ids Productos a proyectar, o null para todos.
+     * @return Stock por ID de producto; los productos inexistentes no aparecen.
+     */
+    Map<Long, StockProyectado> proyectar(Collection<Long> ids);
+}
@@ -0,0 +1,119 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MovimientoStockRepositoryCustomImpl implements MovimientoStockRepositoryCustom {
+
+    // Oracle admite hasta 1000 elementos en una lista IN
+    private static final int IDS_POR_SENTENCIA = 1000;
+
+    private static final String SQL_CORTE = "SELECT COALESCE(MAX(ID_MOVIMIENTO), 0) FROM SNAPSHOTS_STOCK";
+
+    private static final String SQL_SUMAR_MOVIMIENTOS =
+        "SELECT ID_PRODUCTO, SUM(CANTIDAD) FROM MOVIMIENTOS_STOCK "
+        + "WHERE ID_MOVIMIENTO > ? AND ID_MOVIMIENTO <= ? GROUP BY ID_PRODUCTO";
+
+    // Relativo: una reposición de tienda-ms-productos confirmada entre medio no se pierde
+    private static final String SQL_SINCRONIZAR =
+        "UPDATE PRODUCTO SET STOCK = STOCK + ? WHERE ID_PRODUCTO = ?";
+
+    // Se ejecuta después de sincronizar: el snapshot guarda PRODUCTO.STOCK al corte
+    private static final String SQL_INSERTAR_SNAPSHOTS =
+        "INSERT INTO SNAPSHOTS_STOCK (ID_PRODUCTO, ID_MOVIMIENTO, STOCK, CREADO) "
+        + "SELECT p.ID_PRODUCTO, ?, p.STOCK, ? FROM PRODUCTO p WHERE p.ID_PRODUCTO IN "
+        + "(SELECT m.ID_PRODUCTO FROM MOVIMIENTOS_STOCK m WHERE m.ID_MOVIMIENTO > ? AND m.ID_MOVIMIENTO <= ?)";
+
+    private static final String SQL_ELIMINAR_REEMPLAZADOS =
+        "DELETE FROM SNAPSHOTS_STOCK WHERE ID_MOVIMIENTO < ? AND ID_PRODUCTO IN "
+        + "(SELECT n.ID_PRODUCTO FROM SNAPSHOTS_STOCK n WHERE n.ID_MOVIMIENTO = ?)";
+
+    private static final String SQL_STOCK_BASE = "SELECT ID_PRODUCTO, STOCK FROM PRODUCTO";
+
+    // Corte, base y cola en una sola sentencia: un snapshot concurrente no puede contar dos veces la cola
+    private static final String SQL_PROYECTAR =
+        "SELECT p.ID_PRODUCTO, p.STOCK, COALESCE(t.DELTA, 0), c.CORTE "
+        + "FROM PRODUCTO p CROSS JOIN (SELECT COALESCE(MAX(ID_MOVIMIENTO), 0) CORTE FROM SNAPSHOTS_STOCK) c "
+        + "LEFT JOIN (SELECT m.ID_PRODUCTO, SUM(m.CANTIDAD) DELTA FROM MOVIMIENTOS_STOCK m "
+        + "WHERE m.ID_MOVIMIENTO > (SELECT COALESCE(MAX(ID_MOVIMIENTO), 0) FROM SNAPSHOTS_STOCK) "
+        + "GROUP BY m.ID_PRODUCTO) t ON t.ID_PRODUCTO = p.ID_PRODUCTO";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MovimientoStockRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public long findCorteSnapshot() {
+        Long corte = jdbcTemplate.queryForObject(SQL_CORTE, Long.class);
+        return corte == null ? 0 : corte;
+    }
+
+    @Override
+    public int tomarSnapshot(long corte, Date ahora) {
+        long anterior = findCorteSnapshot();
+        if (corte <= anterior) {
+            return 0;
+        }
+        // Orden fijo de actualización entre transacciones concurrentes
+        List<Object[]> parametros = new ArrayList<>();
+        sumarMovimientos(anterior, corte).forEach((id, delta) -> parametros.add(new Object[] { delta, id }));
+        if (!parametros.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_SINCRONIZAR, parametros);
+        }
+        int insertados = jdbcTemplate.update(SQL_INSERTAR_SNAPSHOTS, corte, new Timestamp(ahora.getTime()), anterior, corte);
+        if (insertados > 0) {
+            jdbcTemplate.update(SQL_ELIMINAR_REEMPLAZADOS, corte, corte);
+        }
+        return insertados;
+    }
+
+    @Override
+    public Map<Long, Double> sumarMovimientos(long desde, long hasta) {
+        Map<Long, Double> suma = new TreeMap<>();
+        jdbcTemplate.query(SQL_SUMAR_MOVIMIENTOS, rs -> {
+            suma.put(rs.getLong(1), rs.getDouble(2));
+        }, desde, hasta);
+        return suma;
+    }
+
+    @Override
+    public Map<Long, Double> findStockBase() {
+        Map<Long, Double> stock = new HashMap<>();
+        jdbcTemplate.query(SQL_STOCK_BASE, rs -> {
+            stock.put(rs.getLong(1), rs.getDouble(2));
+        });
+        return stock;
+    }
+
+    @Override
+    public Map<Long, StockProyectado> proyectar(Collection<Long> ids) {
+        Map<Long, StockProyectado> stock = new HashMap<>();
+        if (ids == null) {
+            jdbcTemplate.query(SQL_PROYECTAR, rs -> {
+                stock.put(rs.getLong(1), new StockProyectado(rs.getDouble(2), rs.getDouble(3), rs.getLong(4)));
+            });
+            return stock;
+        }
+
+        List<Long> lista = new ArrayList<>(ids);
+        for (int inicio = 0; inicio < lista.size(); inicio += IDS_POR_SENTENCIA) {
+            List<Long> tramo = lista.subList(inicio, Math.min(inicio + IDS_POR_SENTENCIA, lista.size()));
+            String marcadores = String.join(", ", Collections.nCopies(tramo.size(), "?"));
+            jdbcTemplate.query(SQL_PROYECTAR + " WHERE p.ID_PRODUCTO IN (" + marcadores + ")", rs -> {
+                stock.put(rs.getLong(1), new StockProyectado(rs.getDouble(2), rs.getDouble(3), rs.getLong(4)));
+            }, tramo.toArray());
+        }
+        return stock;
+    }
+}
@@ -1,23 +1,47 @@
 package com.example.tienda_ms_pedidos.repository;
 
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
 import com.example.tienda_ms_pedidos.model.Orden;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Las lecturas que devuelven órdenes completas cargan sus detalles en la misma
+ * consulta (entity graph), ya que la serialización JSON los recorre siempre.
+ */
 @Repository
 public interface OrdenRepository extends JpaRepository<Orden, Long> {
 
+    @Override
+    @EntityGraph(attributePaths = "detalles")
+    List<Orden> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "detalles")
+    Optional<Orden> findById(Long id);
+
     /**
      * Encuentra todas las órdenes por el email del usuario.
      * 
      * @param email Email del usuario.
      * @return Lista de órdenes asociadas al email.
      */
+    @EntityGraph(attributePaths = "detalles")
     List<Orden> findByEmail(String email);
 
     /**
@@ -26,16 +50,217 @@ public interface OrdenRepository extends JpaRepository<Orden, Long> {
      * @param estado Estado de las órdenes (e.g., "PENDIENTE", "COMPLETADA").
      * @return Lista de órdenes con el estado dado.
      */
+    @EntityGraph(attributePaths = "detalles")
     List<Orden> findByEstado(int estado);
 
-        /**
-     * Actualiza el estado de una orden.
+    /**
+     * IDs de la página siguiente al cursor (paginación por keyset, sin OFFSET).
+     * 
+     * @param despuesDe Último ID entregado en la página anterior.
+     * @param limite Tamaño máximo de la página.
+     * @return IDs ordenados ascendentemente.
+     */
+    @Query("SELECT o.id FROM Orden o WHERE o.id > :despuesDe ORDER BY o.id")
+    List<Long> findIdsDespuesDe(@Param("despuesDe") Long despuesDe, Limit limite);
+
+    /**
+     * IDs de la página siguiente al cursor, filtrando por estado.
+     * 
+     * @param estado Estado de las órdenes.
+     * @param despuesDe Último ID entregado en la página anterior.
+     * @param limite Tamaño máximo de la página.
+     * @return IDs ordenados ascendentemente.
+     */
+    @Query("SELECT o.id FROM Orden o WHERE o.estado = :estado AND o.id > :despuesDe ORDER BY o.id")
+    List<Long> findIdsPorEstadoDespuesDe(@Param("estado") int estado, @Param("despuesDe") Long despuesDe, Limit limite);
+
+    /**
+     * IDs de la página siguiente a la posición dada en un rango de fechas,
+     * ordenados por fecha e ID (paginación por keyset sobre el índice
+     * (ESTADO, FECHA, ID_ORDEN); sin estado, Oracle lo recorre con skip scan).
+     * 
+     * @param fecha Fecha de la última orden entregada, o el inicio del rango en la primera página.
+     * @param id ID de la última orden entregada, o 0 en la primera página.
+     * @param hasta Fin del rango (exclusivo).
+     * @param limite Tamaño máximo de la página.
+     * @return IDs ordenados por fecha e ID.
+     */
+    @Query("SELECT o.id FROM Orden o WHERE o.fecha >= :fecha AND o.fecha < :hasta "
+        + "AND (o.fecha > :fecha OR o.id > :id) ORDER BY o.fecha, o.id")
+    List<Long> findIdsPorFechaDespuesDe(@Param("fecha") Date fecha, @Param("id") Long id,
+                                        @Param("hasta") Date hasta, Limit limite);
+
+    /**
+     * IDs de la página siguiente a la posición dada en un rango de fechas,
+     * filtrando por estado.
+     * 
+     * @param estado Estado de las órdenes.
+     * @param fecha Fecha de la última orden entregada, o el inicio del rango en la primera página.
+     * @param id ID de la última orden entregada, o 0 en la primera página.
+     * @param hasta Fin del rango (exclusivo).
+     * @param limite Tamaño máximo de la página.
+     * @return IDs ordenados por fecha e ID.
+     */
+    @Query("SELECT o.id FROM Orden o WHERE o.estado = :estado AND o.fecha >= :fecha AND o.fecha < :hasta "
+        + "AND (o.fecha > :fecha OR o.id > :id) ORDER BY o.fecha, o.id")
+    List<Long> findIdsPorEstadoYFechaDespuesDe(@Param("estado") int estado, @Param("fecha") Date fecha,
+                                               @Param("id") Long id, @Param("hasta") Date hasta, Limit limite);
+
+    /**
+     * IDs de órdenes entregadas anteriores a una fecha, las más antiguas
+     * primero, candidatas a pasar al archivo.
+     * 
+     * @param antesDe Fecha límite (exclusiva).
+     * @param limite Número máximo de IDs.
+     * @return IDs ordenados por fecha e ID.
+     */
+    @Query("SELECT o.id FROM Orden o WHERE o.estado = 4 AND o.fecha < :antesDe ORDER BY o.fecha, o.id")
+    List<Long> findIdsArchivables(@Param("antesDe") Date antesDe, Limit limite);
+
+    /**
+     * Resúmenes de las órdenes de un cliente, de la más reciente a la más
+     * antigua, anteriores al cursor. Se resuelve con el índice (EMAIL, ID_ORDEN)
+     * sin ordenar ni leer los detalles.
+     * 
+     * @param email Email del cliente.
+     * @param antesDe Último ID entregado en la página anterior.
+     * @param limite Tamaño máximo de la página.
+     * @return Resúmenes ordenados por ID descendente.
+     */
+    @Query("SELECT new com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO(o.id, o.email, o.fecha, o.estado, o.montoTotal) "
+        + "FROM Orden o WHERE o.email = :email AND o.id < :antesDe ORDER BY o.id DESC")
+    List<ResumenOrdenDTO> findResumenesPorEmailAntesDe(@Param("email") String email,
+                                                       @Param("antesDe") Long antesDe, Limit limite);
+
+    /**
+     * Resúmenes de la página siguiente al cursor, ordenados por ID. Solo se
+     * leen las columnas del resumen: no se crean entidades, no se registran
+     * en el contexto de persistencia y no se consultan los detalles.
+     * 
+     * @param despuesDe Último ID entregado en la página anterior.
+     * @param limite Tamaño máximo de la página.
+     * @return Resúmenes ordenados por ID ascendente.
+     */
+    @Query("SELECT new com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO(o.id, o.email, o.fecha, o.estado, o.montoTotal) "
+        + "FROM Orden o WHERE o.id > :despuesDe ORDER BY o.id")
+    List<ResumenOrdenDTO> findResumenesDespuesDe(@Param("despuesDe") Long despuesDe, Limit limite);
+
+    /**
+     * Resúmenes de la página siguiente al cursor, filtrando por estado.
+     * 
+     * @param estado Estado de las órdenes.
+     * @param despuesDe Último ID entregado en la página anterior.
+     * @param limite Tamaño máximo de la página.
+     * @return Resúmenes ordenados por ID ascendente.
+     */
+    @Query("SELECT new com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO(o.id, o.email, o.fecha, o.estado, o.montoTotal) "
+        + "FROM Orden o WHERE o.estado = :estado AND o.id > :despuesDe ORDER BY o.id")
+    List<ResumenOrdenDTO> findResumenesPorEstadoDespuesDe(@Param("estado") int estado,
+                                                          @Param("despuesDe") Long despuesDe, Limit limite);
+
+    /**
+     * Carga las órdenes indicadas junto con sus detalles.
+     * 
+     * @param ids IDs de las órdenes.
+     * @return Órdenes ordenadas por ID.
+     */
+    @EntityGraph(attributePaths = "detalles")
+    List<Orden> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    /**
+     * Recorre las órdenes y sus detalles como filas planas (una por detalle, o
+     * una con detalle nulo si la orden no tiene), ordenadas por orden. Las filas
+     * son escalares para que el contexto de persistencia no crezca con el recorrido.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     * 
+     * Columnas: idOrden, email, estado, fecha, montoTotal, idDetalle,
+     * idProducto, precio, cantidad, montoTotalDetalle.
+     * 
+     * @param desde Fecha mínima (inclusive), o null.
+     * @param hasta Fecha máxima (exclusiva), o null.
+     * @param estado Estado de las órdenes, o null para todos.
+     * @return Stream de filas de solo avance.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o.id, o.email, o.estado, o.fecha, o.montoTotal, d.id, d.idProducto, d.precio, d.cantidad, d.montoTotal "
+        + "FROM Orden o LEFT JOIN o.detalles d "
+        + "WHERE (:desde IS NULL OR o.fecha >= :desde) "
+        + "AND (:hasta IS NULL OR o.fecha < :hasta) "
+        + "AND (:estado IS NULL OR o.estado = :estado) "
+        + "ORDER BY o.id, d.id")
+    Stream<Object[]> streamParaExportar(@Param("desde") Date desde, @Param("hasta") Date hasta,
+                                        @Param("estado") Integer estado);
+
+    /**
+     * Obtiene el email de una orden sin cargarla completa.
+     * 
+     * @param id ID de la orden.
+     * @return El email de la orden, si existe.
+     */
+    @Query("SELECT o.email FROM Orden o WHERE o.id = :id")
+    Optional<String> findEmailById(@Param("id") Long id);
+
+    /**
+     * Obtiene el email de varias órdenes sin cargarlas completas.
+     * 
+     * @param ids IDs de las órdenes (a lo más 1000 por llamada en Oracle).
+     * @return Pares [ID, email].
+     */
+    @Query("SELECT o.id, o.email FROM Orden o WHERE o.id IN :ids")
+    List<Object[]> findEmailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Bloquea (SELECT ... FOR UPDATE) las órdenes indicadas que siguen en el estado dado.
+     * 
+     * @param ids IDs de las órdenes (a lo más 1000 por llamada en Oracle).
+     * @param estado Estado esperado.
+     * @return IDs bloqueados (Number: Oracle los entrega como NUMBER); el resto
+     *         no existe o está en otro estado.
+     */
+    @Query(value = "SELECT ID_ORDEN FROM ORDENES WHERE ID_ORDEN IN (:ids) AND ESTADO = :estado FOR UPDATE",
+        nativeQuery = true)
+    List<Number> bloquearIdsEnEstado(@Param("ids") Collection<Long> ids, @Param("estado") int estado);
+
+    /**
+     * Avanza al estado siguiente, en una sola sentencia, las órdenes que siguen
+     * en el estado esperado (compare-and-set). La condición de la sentencia
+     * impone la secuencia 1→2→3→4: no hay saltos, retrocesos ni estado 5.
+     * 
+     * @param ids IDs de las órdenes (a lo más 1000 por llamada en Oracle).
+     * @param desde Estado esperado.
+     * @return Filas actualizadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Orden o SET o.estado = o.estado + 1 "
+        + "WHERE o.id IN :ids AND o.estado = :desde AND o.estado BETWEEN 1 AND 3")
+    int avanzarEstado(@Param("ids") Collection<Long> ids, @Param("desde") int desde);
+
+    /**
+     * Elimina órdenes en una sola sentencia; sus detalles deben eliminarse antes.
+     * 
+     * @param ids IDs de las órdenes (a lo más 1000 por llamada en Oracle).
+     * @return Filas eliminadas.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Orden o WHERE o.id IN :ids")
+    int eliminarPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Actualiza el estado de una orden solo si viene del estado anterior
+     * (compare-and-set), con la misma secuencia 1→2→3→4 que avanzarEstado.
      * 
      * @param id ID de la orden.
      * @param estado Nuevo estado de la orden.
+     * @return Filas actualizadas (0 si la orden no existe o la transición no es válida).
      */
     @Modifying
     @Transactional
-    @Query("UPDATE Orden o SET o.estado = :estado WHERE o.id = :id")
-    void updateEstado(Long id, int estado);
+    @Query("UPDATE Orden o SET o.estado = :estado "
+        + "WHERE o.id = :id AND o.estado = :estado - 1 AND o.estado BETWEEN 1 AND 3")
+    int updateEstado(@Param("id") Long id, @Param("estado") int estado);
 }
\ No newline at end of file
@@ -1,18 +1,81 @@
 package com.example.tienda_ms_pedidos.repository;
 
 import com.example.tienda_ms_pedidos.model.Producto;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, ProductoRepositoryCustom {
 
     @Query("SELECT DISTINCT p FROM Producto p JOIN p.categorias c " +
            "WHERE LOWER(p.nombre) LIKE LOWER(CONCAT('%', :filtro, '%')) " +
            "   OR LOWER(c.nombre) LIKE LOWER(CONCAT('%', :filtro, '%'))")
     List<Producto> buscarPorNombreOCategoria(@Param("filtro") String filtro);
+
+    /**
+     * Descuenta stock de un producto de forma atómica en la base de datos.
+     * La condición sobre el stock evita vender más de lo disponible aun
+     * cuando varias compras del mismo producto se ejecutan en paralelo.
+     * 
+     * @param id ID del producto.
+     * @param cantidad Cantidad a descontar.
+     * @return Número de filas actualizadas (0 si no existe o no hay stock suficiente).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Producto p SET p.stock = p.stock - :cantidad WHERE p.id = :id AND p.stock >= :cantidad")
+    int descontarStock(@Param("id") Long id, @Param("cantidad") double cantidad);
+
+    /**
+     * Devuelve stock a un producto (rollback de una compra o liberación de una reserva).
+     * 
+     * @param id ID del producto.
+     * @param cantidad Cantidad a devolver.
+     * @return Número de filas actualizadas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Producto p SET p.stock = p.stock + :cantidad WHERE p.id = :id")
+    int devolverStock(@Param("id") Long id, @Param("cantidad") double cantidad);
+
+    /**
+     * Lee un producto tomando el bloqueo de fila (SELECT ... FOR UPDATE), de modo
+     * que espera a que terminen las transacciones que están modificando su stock.
+     * 
+     * @param id ID del producto.
+     * @return El producto bloqueado, si existe.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "2000"))
+    @Query("SELECT p FROM Producto p WHERE p.id = :id")
+    Optional<Producto> bloquearPorId(@Param("id") Long id);
+
+    /**
+     * Obtiene el stock de todos los productos sin cargar las entidades.
+     * 
+     * @return Tríos [ID, nombre, stock].
+     */
+    @Query("SELECT p.id, p.nombre, p.stock FROM Producto p")
+    List<Object[]> findStock();
+
+    /**
+     * Obtiene el stock de varios productos sin cargar las entidades.
+     * 
+     * @param ids IDs de los productos (a lo más 1000 por llamada en Oracle).
+     * @return Tríos [ID, nombre, stock].
+     */
+    @Query("SELECT p.id, p.nombre, p.stock FROM Producto p WHERE p.id IN :ids")
+    List<Object[]> findStockByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProductoRepositoryCustom {
+
+    /**
+     * Descuenta el stock de varios productos en un único lote JDBC.
+     * Cada sentencia es condicional (stock >= cantidad), por lo que nunca
+     * deja un stock negativo.
+     * 
+     * @param cantidades Cantidad a descontar por ID de producto.
+     * @return IDs de los productos que no pudieron descontarse.
+     */
+    List<Long> descontarStockEnLote(Map<Long, Integer> cantidades);
+
+    /**
+     * Devuelve stock de varios productos en un único lote JDBC (liberación de
+     * reservas). Los productos se actualizan en orden de ID para que lotes
+     * concurrentes no se interbloqueen.
+     * 
+     * @param cantidades Cantidad a devolver por ID de producto.
+     */
+    void devolverStockEnLote(Map<Long, Integer> cantidades);
+}
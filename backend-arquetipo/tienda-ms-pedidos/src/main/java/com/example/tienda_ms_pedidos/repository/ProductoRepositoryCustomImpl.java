@@ -0,0 +1,61 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ProductoRepositoryCustomImpl implements ProductoRepositoryCustom {
+
+    private static final String SQL_DESCONTAR_STOCK =
+        "UPDATE producto SET stock = stock - ? WHERE id_producto = ? AND stock >= ?";
+
+    private static final String SQL_DEVOLVER_STOCK =
+        "UPDATE producto SET stock = stock + ? WHERE id_producto = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductoRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> descontarStockEnLote(Map<Long, Integer> cantidades) {
+        // Por ID ascendente, como la devolución: dos lotes con los mismos productos
+        // bloquean las filas en el mismo orden y no se interbloquean
+        Map<Long, Integer> ordenadas = new TreeMap<>(cantidades);
+        List<Long> ids = new ArrayList<>(ordenadas.keySet());
+        List<Object[]> parametros = new ArrayList<>(ids.size());
+        ordenadas.forEach((id, cantidad) -> parametros.add(new Object[] { cantidad, id, cantidad }));
+
+        // Sincronizar cambios pendientes de JPA antes de ir directo a JDBC
+        entityManager.flush();
+        int[] filas = jdbcTemplate.batchUpdate(SQL_DESCONTAR_STOCK, parametros);
+        entityManager.clear();
+
+        List<Long> fallidos = new ArrayList<>();
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] == 0) {
+                fallidos.add(ids.get(i));
+            }
+        }
+        return fallidos;
+    }
+
+    @Override
+    public void devolverStockEnLote(Map<Long, Integer> cantidades) {
+        List<Object[]> parametros = new ArrayList<>(cantidades.size());
+        new TreeMap<>(cantidades).forEach((id, cantidad) -> parametros.add(new Object[] { cantidad, id }));
+
+        entityManager.flush();
+        jdbcTemplate.batchUpdate(SQL_DEVOLVER_STOCK, parametros);
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.ReservaStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface ReservaStockRepository
+        extends JpaRepository<ReservaStock, ReservaStock.Clave>, ReservaStockRepositoryCustom {
+
+    List<ReservaStock> findByIdReserva(String idReserva);
+
+    List<ReservaStock> findByVenceBefore(Date vence);
+
+    /**
+     * Elimina las líneas de una reserva. Solo quien obtiene filas eliminadas
+     * puede devolver o dar por consumido su stock.
+     * 
+     * @param idReserva ID de la reserva.
+     * @return Filas eliminadas (0 si ya se confirmó, liberó o venció).
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ReservaStock r WHERE r.idReserva = :idReserva")
+    int eliminarReserva(@Param("idReserva") String idReserva);
+}
@@ -0,0 +1,25 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface ReservaStockRepositoryCustom {
+
+    /**
+     * Inserta las líneas de una reserva en un único lote JDBC.
+     * 
+     * @param idReserva ID de la reserva.
+     * @param cantidades Cantidad reservada por ID de producto.
+     * @param vence Momento en que la reserva vence.
+     */
+    void insertar(String idReserva, Map<Long, Integer> cantidades, Date vence);
+
+    /**
+     * Elimina varias reservas en un único lote JDBC.
+     * 
+     * @param idsReserva IDs de las reservas.
+     * @return Filas eliminadas por reserva, en el mismo orden.
+     */
+    int[] eliminarReservas(List<String> idsReserva);
+}
@@ -0,0 +1,41 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class ReservaStockRepositoryCustomImpl implements ReservaStockRepositoryCustom {
+
+    private static final String SQL_INSERTAR =
+        "INSERT INTO RESERVAS_STOCK (ID_RESERVA, ID_PRODUCTO, CANTIDAD, VENCE) VALUES (?, ?, ?, ?)";
+
+    private static final String SQL_ELIMINAR = "DELETE FROM RESERVAS_STOCK WHERE ID_RESERVA = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReservaStockRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertar(String idReserva, Map<Long, Integer> cantidades, Date vence) {
+        Timestamp momento = new Timestamp(vence.getTime());
+        List<Object[]> parametros = new ArrayList<>(cantidades.size());
+        cantidades.forEach((idProducto, cantidad) ->
+            parametros.add(new Object[] { idReserva, idProducto, cantidad, momento }));
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, parametros);
+    }
+
+    @Override
+    public int[] eliminarReservas(List<String> idsReserva) {
+        List<Object[]> parametros = new ArrayList<>(idsReserva.size());
+        for (String id : idsReserva) {
+            parametros.add(new Object[] { id });
+        }
+        return jdbcTemplate.batchUpdate(SQL_ELIMINAR, parametros);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.DTO.RankingProductoDTO;
+import com.example.tienda_ms_pedidos.model.VentaProductoDia;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface VentaProductoDiaRepository
+        extends JpaRepository<VentaProductoDia, VentaProductoDia.Clave>, VentaProductoDiaRepositoryCustom {
+
+    /**
+     * Productos más vendidos en un rango de días, por unidades y luego por monto.
+     * Solo lee las filas de los días del rango (una por producto vendido y día).
+     * 
+     * @param desde Primer día (inclusive).
+     * @param hasta Último día (inclusive).
+     * @param limite Número de productos.
+     * @return Ranking de productos.
+     */
+    @Query("SELECT new com.example.tienda_ms_pedidos.DTO.RankingProductoDTO(v.idProducto, SUM(v.unidades), SUM(v.monto)) "
+        + "FROM VentaProductoDia v WHERE v.dia BETWEEN :desde AND :hasta "
+        + "GROUP BY v.idProducto HAVING SUM(v.unidades) > 0 "
+        + "ORDER BY SUM(v.unidades) DESC, SUM(v.monto) DESC, v.idProducto")
+    List<RankingProductoDTO> findRanking(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta, Limit limite);
+}
@@ -0,0 +1,32 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+
+public interface VentaProductoDiaRepositoryCustom {
+
+    /**
+     * Suma (o resta, con {@code signo} negativo) las líneas de detalle a las
+     * ventas del día de cada producto, creando las filas que falten. Las
+     * líneas se agrupan por producto y las filas se actualizan en orden de ID
+     * para que transacciones concurrentes no se interbloqueen.
+     * 
+     * @param dia Día de venta.
+     * @param detalles Líneas de detalle vendidas.
+     * @param signo 1 para registrar una venta, -1 para anularla.
+     */
+    void acumular(LocalDate dia, Collection<DetalleOrden> detalles, int signo);
+
+    /**
+     * Recalcula las ventas por producto y día desde DETALLE_ORDENES.
+     * Pensado para poblar la tabla la primera vez o corregir desfases.
+     * 
+     * @param zona Zona con la que se calcula el día de cada orden (la misma que en acumular).
+     * @param desde Primer día a recalcular; los anteriores no se tocan. Null para todos.
+     * @return Filas generadas.
+     */
+    int reconstruir(ZoneId zona, LocalDate desde);
+}
@@ -0,0 +1,116 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class VentaProductoDiaRepositoryCustomImpl implements VentaProductoDiaRepositoryCustom {
+
+    private static final String SQL_SUMAR =
+        "UPDATE VENTAS_PRODUCTO_DIA SET UNIDADES = UNIDADES + ?, MONTO = MONTO + ?, LINEAS = LINEAS + ? "
+        + "WHERE ID_PRODUCTO = ? AND DIA = ?";
+
+    private static final String SQL_INSERTAR =
+        "INSERT INTO VENTAS_PRODUCTO_DIA (ID_PRODUCTO, DIA, UNIDADES, MONTO, LINEAS) VALUES (?, ?, ?, ?, ?)";
+
+    private static final int FILAS_POR_LECTURA = 1000;
+
+    // El día se calcula en Java con la misma zona que acumular, no con TRUNC en la base de datos
+    private static final String SQL_DETALLES =
+        "SELECT d.ID_PRODUCTO, o.FECHA, d.CANTIDAD, d.MONTO_TOTAL "
+        + "FROM DETALLE_ORDENES d JOIN ORDENES o ON o.ID_ORDEN = d.ID_ORDEN WHERE o.FECHA IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VentaProductoDiaRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void acumular(LocalDate dia, Collection<DetalleOrden> detalles, int signo) {
+        // TreeMap: orden fijo de actualización entre transacciones concurrentes
+        Map<Long, double[]> porProducto = new TreeMap<>();
+        for (DetalleOrden detalle : detalles) {
+            double[] total = porProducto.computeIfAbsent(detalle.getIdProducto(), k -> new double[3]);
+            total[0] += detalle.getCantidad();
+            total[1] += detalle.getMontoTotal();
+            total[2] += 1;
+        }
+        if (porProducto.isEmpty()) {
+            return;
+        }
+
+        Date fecha = Date.valueOf(dia);
+        List<Long> productos = new ArrayList<>(porProducto.keySet());
+        List<Object[]> parametros = new ArrayList<>(productos.size());
+        for (Long idProducto : productos) {
+            double[] total = porProducto.get(idProducto);
+            parametros.add(new Object[] {
+                signo * (long) total[0], signo * total[1], signo * (long) total[2], idProducto, fecha });
+        }
+        int[] filas = jdbcTemplate.batchUpdate(SQL_SUMAR, parametros);
+        if (signo < 0) {
+            return;
+        }
+
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] == 0) {
+                Long idProducto = productos.get(i);
+                double[] total = porProducto.get(idProducto);
+                insertar(idProducto, fecha, (long) total[0], total[1], (long) total[2]);
+            }
+        }
+    }
+
+    private void insertar(Long idProducto, Date fecha, long unidades, double monto, long lineas) {
+        try {
+            jdbcTemplate.update(SQL_INSERTAR, idProducto, fecha, unidades, monto, lineas);
+        } catch (DuplicateKeyException e) {
+            // Otra transacción creó la fila del día entre el UPDATE y el INSERT
+            jdbcTemplate.update(SQL_SUMAR, unidades, monto, lineas, idProducto, fecha);
+        }
+    }
+
+    @Override
+    public int reconstruir(ZoneId zona, LocalDate desde) {
+        Map<Long, Map<LocalDate, double[]>> ventas = new TreeMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_DETALLES);
+            ps.setFetchSize(FILAS_POR_LECTURA);
+            return ps;
+        }, rs -> {
+            LocalDate dia = rs.getTimestamp(2).toInstant().atZone(zona).toLocalDate();
+            if (desde != null && dia.isBefore(desde)) {
+                return;
+            }
+            double[] total = ventas.computeIfAbsent(rs.getLong(1), k -> new TreeMap<>())
+                .computeIfAbsent(dia, k -> new double[3]);
+            total[0] += rs.getLong(3);
+            total[1] += rs.getDouble(4);
+            total[2] += 1;
+        });
+
+        List<Object[]> parametros = new ArrayList<>();
+        ventas.forEach((idProducto, dias) -> dias.forEach((dia, total) -> parametros.add(new Object[] {
+            idProducto, Date.valueOf(dia), (long) total[0], total[1], (long) total[2] })));
+        if (desde == null) {
+            jdbcTemplate.update("DELETE FROM VENTAS_PRODUCTO_DIA");
+        } else {
+            jdbcTemplate.update("DELETE FROM VENTAS_PRODUCTO_DIA WHERE DIA >= ?", Date.valueOf(desde));
+        }
+        if (!parametros.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERTAR, parametros);
+        }
+        return parametros.size();
+    }
+}
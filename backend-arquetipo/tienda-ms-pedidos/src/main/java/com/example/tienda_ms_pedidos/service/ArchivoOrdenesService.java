@@ -0,0 +1,171 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.DetalleOrdenRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Archivo de órdenes frías: las órdenes entregadas (estado 4) de más de
+ * {@code pedidos.archivo.meses} meses pasan a {@link SegmentosOrdenes} en
+ * disco local y se eliminan de ORDENES y DETALLE_ORDENES en lotes, para que
+ * las tablas e índices calientes no crezcan indefinidamente.
+ *
+ * Cada lote bloquea sus órdenes, escribe y fuerza el bloque a disco y recién
+ * entonces las elimina, todo en la misma transacción. Si el commit falla la
+ * orden queda en la base de datos y en el archivo; las lecturas prefieren la
+ * base de datos y el siguiente ciclo la vuelve a archivar.
+ *
+ * Los agregados que se reconstruyen desde ORDENES (ingresos, ventas por
+ * producto) no tocan los periodos anteriores a {@link #corteReconstruccion()}:
+ * sus órdenes pueden estar solo en el archivo. El índice de productos
+ * relacionados, que vive en memoria, lee además las órdenes archivadas.
+ */
+@Service
+public class ArchivoOrdenesService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivoOrdenesService.class);
+
+    private static final int ENTREGADA = 4;
+
+    // Oracle admite a lo más 1000 expresiones en una lista IN
+    private static final int IDS_POR_SENTENCIA = 1000;
+
+    private final OrdenRepository ordenRepository;
+    private final DetalleOrdenRepository detalleOrdenRepository;
+    private final HistorialClienteService historialClienteService;
+    private final SegmentosOrdenes segmentos;
+    private final TransactionTemplate transaccion;
+    private final boolean habilitado;
+    private final int meses;
+    private final int tamanoLote;
+    private final int lotesPorCiclo;
+
+    public ArchivoOrdenesService(OrdenRepository ordenRepository,
+                                 DetalleOrdenRepository detalleOrdenRepository,
+                                 HistorialClienteService historialClienteService,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${pedidos.archivo.habilitado:false}") boolean habilitado,
+                                 @Value("${pedidos.archivo.directorio:archivo-ordenes}") String directorio,
+                                 @Value("${pedidos.archivo.tamano-segmento-mb:64}") long tamanoSegmentoMb,
+                                 @Value("${pedidos.archivo.meses:6}") int meses,
+                                 @Value("${pedidos.archivo.tamano-lote:500}") int tamanoLote,
+                                 @Value("${pedidos.archivo.lotes-por-ciclo:20}") int lotesPorCiclo) {
+        this.ordenRepository = ordenRepository;
+        this.detalleOrdenRepository = detalleOrdenRepository;
+        this.historialClienteService = historialClienteService;
+        this.segmentos = new SegmentosOrdenes(Paths.get(directorio), objectMapper, tamanoSegmentoMb * 1024 * 1024);
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.meses = meses;
+        this.tamanoLote = Math.min(tamanoLote, IDS_POR_SENTENCIA);
+        this.lotesPorCiclo = lotesPorCiclo;
+    }
+
+    /**
+     * Archiva lotes mientras haya órdenes frías, hasta {@code lotesPorCiclo} lotes por ejecución.
+     */
+    @Scheduled(initialDelayString = "${pedidos.archivo.intervalo-ms:3600000}",
+               fixedDelayString = "${pedidos.archivo.intervalo-ms:3600000}")
+    public void archivar() {
+        if (!habilitado) {
+            return;
+        }
+        Date antesDe = Date.from(ZonedDateTime.now().minusMonths(meses).toInstant());
+        long total = 0;
+        try {
+            for (int i = 0; i < lotesPorCiclo; i++) {
+                int archivadas = archivarLote(antesDe);
+                total += archivadas;
+                if (archivadas < tamanoLote) {
+                    break;
+                }
+            }
+        } catch (DataAccessException | UncheckedIOException e) {
+            log.warn("Falló el archivado de órdenes: {}", e.getMessage());
+        }
+        if (total > 0) {
+            log.info("Archivadas {} órdenes entregadas anteriores a {}", total, antesDe);
+        }
+    }
+
+    /**
+     * Archiva y elimina de las tablas un lote de órdenes entregadas.
+     * 
+     * @param antesDe Solo órdenes con fecha anterior a esta.
+     * @return Número de órdenes archivadas.
+     */
+    public int archivarLote(Date antesDe) {
+        Integer archivadas = transaccion.execute(status -> {
+            List<Long> candidatas = ordenRepository.findIdsArchivables(antesDe, Limit.of(tamanoLote));
+            if (candidatas.isEmpty()) {
+                return 0;
+            }
+            // Bloqueadas no pueden cambiar de estado mientras se copian al archivo
+            List<Long> bloqueadas = ordenRepository.bloquearIdsEnEstado(candidatas, ENTREGADA).stream()
+                .map(Number::longValue)
+                .toList();
+            if (bloqueadas.isEmpty()) {
+                return 0;
+            }
+            List<Orden> ordenes = ordenRepository.findByIdInOrderByIdAsc(bloqueadas);
+            segmentos.agregar(ordenes);
+            detalleOrdenRepository.eliminarPorOrdenes(bloqueadas);
+            ordenRepository.eliminarPorIds(bloqueadas);
+            // El historial en cache de esos clientes apunta a filas que ya no existen
+            Set<String> emails = new LinkedHashSet<>();
+            ordenes.forEach(orden -> emails.add(orden.getEmail()));
+            emails.forEach(historialClienteService::invalidarAlConfirmar);
+            return ordenes.size();
+        });
+        return archivadas == null ? 0 : archivadas;
+    }
+
+    /**
+     * Primer día desde el que todas las órdenes siguen en ORDENES: el inicio
+     * del mes siguiente al límite de archivado. Como el límite solo avanza,
+     * ninguna orden de ese día en adelante se ha archivado.
+     * 
+     * @return El corte, o vacío si el archivo está deshabilitado y no tiene órdenes.
+     */
+    public Optional<LocalDate> corteReconstruccion() {
+        if (!habilitado && segmentos.getOrdenes() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(LocalDate.now().minusMonths(meses).withDayOfMonth(1).plusMonths(1));
+    }
+
+    /**
+     * Busca una orden en el archivo (lectura sobre el segmento mapeado en memoria).
+     * 
+     * @param id ID de la orden.
+     * @return La orden archivada con sus detalles, si existe.
+     */
+    public Optional<Orden> buscar(Long id) {
+        return id == null ? Optional.empty() : segmentos.buscar(id);
+    }
+
+    public SegmentosOrdenes getSegmentos() {
+        return segmentos;
+    }
+}
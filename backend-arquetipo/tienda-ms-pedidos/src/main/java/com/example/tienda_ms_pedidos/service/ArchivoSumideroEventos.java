@@ -0,0 +1,74 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Sumidero local que agrega cada evento como una línea JSON (NDJSON) a un
+ * archivo. Pensado para pruebas y desarrollo: cada lote se escribe de una vez
+ * y se fuerza a disco antes de que el relay lo marque como publicado.
+ */
+@Component
+@ConditionalOnProperty(name = "pedidos.outbox.sumidero", havingValue = "archivo", matchIfMissing = true)
+public class ArchivoSumideroEventos implements SumideroEventos {
+
+    private final Path archivo;
+    private final ObjectMapper objectMapper;
+
+    public ArchivoSumideroEventos(@Value("${pedidos.outbox.archivo:outbox-eventos.ndjson}") String archivo,
+                                  ObjectMapper objectMapper) {
+        this.archivo = Paths.get(archivo);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publicar(List<EventoOutbox> eventos) {
+        try {
+            ByteArrayOutputStream lote = new ByteArrayOutputStream();
+            for (EventoOutbox evento : eventos) {
+                ObjectNode linea = objectMapper.createObjectNode();
+                linea.put("id", evento.getId());
+                linea.put("tipo", evento.getTipo());
+                linea.put("idAgregado", evento.getIdAgregado());
+                linea.put("creado", evento.getCreado() == null ? null : evento.getCreado().getTime());
+                linea.set("payload", objectMapper.readTree(evento.getPayload()));
+                lote.write(objectMapper.writeValueAsBytes(linea));
+                lote.write('\n');
+            }
+
+            Path directorio = archivo.toAbsolutePath().getParent();
+            if (directorio != null) {
+                Files.createDirectories(directorio);
+            }
+            try (FileChannel canal = FileChannel.open(archivo,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lote.toByteArray());
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                canal.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron escribir los eventos en " + archivo, e);
+        }
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.tienda_ms_pedidos.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock de un producto repartido en franjas independientes. Cada compra
+ * descuenta de una sola franja con CAS, sin bloqueos, por lo que compras
+ * concurrentes del mismo producto casi nunca compiten por la misma celda.
+ */
+public class ContadorStockRayado {
+
+    static final long CERRADO = Long.MIN_VALUE;
+
+    // 16 longs (128 bytes) entre franjas para evitar false sharing
+    private static final int SEPARACION = 16;
+
+    private final AtomicLongArray franjas;
+    private final int numeroFranjas;
+    private final long inicial;
+
+    // Unidades consumidas que ya se descontaron en la base de datos
+    private long persistido;
+
+    public ContadorStockRayado(long stock, int numeroFranjas) {
+        if (stock < 0 || numeroFranjas <= 0) {
+            throw new IllegalArgumentException("Stock o número de franjas inválido");
+        }
+        this.numeroFranjas = numeroFranjas;
+        this.inicial = stock;
+        this.franjas = new AtomicLongArray(numeroFranjas * SEPARACION);
+
+        long base = stock / numeroFranjas;
+        long resto = stock % numeroFranjas;
+        for (int i = 0; i < numeroFranjas; i++) {
+            franjas.set(i * SEPARACION, base + (i < resto ? 1 : 0));
+        }
+    }
+
+    /**
+     * Descuenta la cantidad de una única franja, empezando por la del hilo actual.
+     *
+     * @param cantidad Cantidad a descontar.
+     * @return false si el contador está cerrado o ninguna franja alcanza por sí sola.
+     */
+    public boolean descontar(long cantidad) {
+        int inicio = franjaDelHilo();
+        for (int k = 0; k < numeroFranjas; k++) {
+            int indice = ((inicio + k) % numeroFranjas) * SEPARACION;
+            long actual = franjas.get(indice);
+            while (actual != CERRADO && actual >= cantidad) {
+                if (franjas.compareAndSet(indice, actual, actual - cantidad)) {
+                    return true;
+                }
+                actual = franjas.get(indice);
+            }
+            if (actual == CERRADO) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Devuelve unidades a la franja del hilo actual (p. ej. tras un rollback).
+     *
+     * @param cantidad Cantidad a devolver.
+     * @return false si el contador ya está cerrado.
+     */
+    public boolean devolver(long cantidad) {
+        int indice = franjaDelHilo() * SEPARACION;
+        long actual = franjas.get(indice);
+        while (actual != CERRADO) {
+            if (franjas.compareAndSet(indice, actual, actual + cantidad)) {
+                return true;
+            }
+            actual = franjas.get(indice);
+        }
+        return false;
+    }
+
+    public long disponible() {
+        long total = 0;
+        for (int i = 0; i < numeroFranjas; i++) {
+            long valor = franjas.get(i * SEPARACION);
+            if (valor != CERRADO) {
+                total += valor;
+            }
+        }
+        return total;
+    }
+
+    public boolean isCerrado() {
+        return franjas.get(0) == CERRADO;
+    }
+
+    /**
+     * Calcula el consumo aún no persistido y lo marca como persistido.
+     *
+     * @return Unidades a descontar en la base de datos (negativo si hay que devolver).
+     */
+    public synchronized long tomarPendiente() {
+        if (isCerrado()) {
+            return 0;
+        }
+        long consumido = inicial - disponible();
+        long delta = consumido - persistido;
+        persistido = consumido;
+        return delta;
+    }
+
+    /**
+     * Revierte un pendiente tomado cuyo guardado en la base de datos falló.
+     */
+    public synchronized void revertirPendiente(long delta) {
+        persistido -= delta;
+    }
+
+    /**
+     * Cierra todas las franjas; a partir de aquí ningún descuento en memoria
+     * tiene éxito y el consumo queda fijado de forma exacta.
+     *
+     * @return Consumo final aún no persistido.
+     */
+    public synchronized long cerrar() {
+        if (isCerrado()) {
+            return 0;
+        }
+        long restante = 0;
+        for (int i = 0; i < numeroFranjas; i++) {
+            long valor = franjas.getAndSet(i * SEPARACION, CERRADO);
+            if (valor != CERRADO) {
+                restante += valor;
+            }
+        }
+        long consumido = inicial - restante;
+        long delta = consumido - persistido;
+        persistido = consumido;
+        return delta;
+    }
+
+    private int franjaDelHilo() {
+        return (int) (Thread.currentThread().threadId() % numeroFranjas);
+    }
+}
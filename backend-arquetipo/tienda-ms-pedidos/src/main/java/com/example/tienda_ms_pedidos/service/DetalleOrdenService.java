@@ -15,6 +15,17 @@ public interface DetalleOrdenService {
      */
     DetalleOrden saveDetalleOrden(DetalleOrden detalleOrden);
 
+    /**
+     * Guarda varias líneas de una misma orden en una transacción, con INSERT
+     * en lote. El ID y la orden que traigan las líneas se ignoran.
+     * 
+     * @param idOrden ID de la orden.
+     * @param detalles Líneas a guardar.
+     * @return Las líneas guardadas con sus IDs, en el orden recibido; vacío si la orden no existe.
+     * @throws com.example.tienda_ms_pedidos.exception.DetalleOrdenException Si el lote o alguna línea es inválida.
+     */
+    Optional<List<DetalleOrden>> saveDetallesOrden(Long idOrden, List<DetalleOrden> detalles);
+
     /**
      * Encuentra un detalle de orden por su ID.
      * 
@@ -1,9 +1,15 @@
 package com.example.tienda_ms_pedidos.service;
 
+import com.example.tienda_ms_pedidos.exception.DetalleOrdenException;
 import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
 import com.example.tienda_ms_pedidos.repository.DetalleOrdenRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,13 +21,27 @@ public class DetalleOrdenServiceImpl implements DetalleOrdenService {
 
     private static final Logger log = LoggerFactory.getLogger(DetalleOrdenServiceImpl.class);
 
+    // Líneas por llamada a saveDetallesOrden
+    static final int MAX_LINEAS_POR_LOTE = 1000;
+
     private final DetalleOrdenRepository detalleOrdenRepository;
+    private final OrdenRepository ordenRepository;
+    private final OutboxService outboxService;
+    private final VentasProductoService ventasProductoService;
+    private final IndiceCoCompraService indiceCoCompraService;
 
-    public DetalleOrdenServiceImpl(DetalleOrdenRepository detalleOrdenRepository) {
+    public DetalleOrdenServiceImpl(DetalleOrdenRepository detalleOrdenRepository, OrdenRepository ordenRepository,
+                                   OutboxService outboxService, VentasProductoService ventasProductoService,
+                                   IndiceCoCompraService indiceCoCompraService) {
         this.detalleOrdenRepository = detalleOrdenRepository;
+        this.ordenRepository = ordenRepository;
+        this.outboxService = outboxService;
+        this.ventasProductoService = ventasProductoService;
+        this.indiceCoCompraService = indiceCoCompraService;
     }
 
     @Override
+    @Transactional
     public DetalleOrden saveDetalleOrden(DetalleOrden detalleOrden) {
         log.info("Detalle orden original recibido: ID={}, idProducto={}, precio={}, cantidad={}, montoTotal={}, ordenId={}", 
             detalleOrden.getId(), 
@@ -48,12 +68,92 @@ public class DetalleOrdenServiceImpl implements DetalleOrdenService {
             nuevoDetalle.getOrden().getId());
         
         DetalleOrden detalleGuardado = detalleOrdenRepository.save(nuevoDetalle);
+        outboxService.detalleCreado(detalleGuardado);
+        ventasProductoService.registrarVenta(fechaOrden(detalleGuardado.getOrden()), List.of(detalleGuardado));
+        registrarCoCompra(detalleGuardado, 1);
         
         log.info("Detalle orden guardado exitosamente con ID: {}", detalleGuardado.getId());
         
         return detalleGuardado;
     }
 
+    @Override
+    @Transactional
+    public Optional<List<DetalleOrden>> saveDetallesOrden(Long idOrden, List<DetalleOrden> detalles) {
+        validarLote(detalles);
+
+        // Sin cargar la orden: findById trae todas sus líneas, justo lo que crece en órdenes grandes
+        if (!ordenRepository.existsById(idOrden)) {
+            return Optional.empty();
+        }
+        Orden orden = ordenRepository.getReferenceById(idOrden);
+        Date fecha = detalleOrdenRepository.findFechaOrden(idOrden).orElse(null);
+        List<Long> productosExistentes = detalleOrdenRepository.findProductosDeOrden(idOrden);
+
+        List<DetalleOrden> nuevos = new ArrayList<>(detalles.size());
+        for (DetalleOrden detalle : detalles) {
+            DetalleOrden nuevo = new DetalleOrden();
+            nuevo.setOrden(orden);
+            nuevo.setIdProducto(detalle.getIdProducto());
+            nuevo.setPrecio(detalle.getPrecio());
+            nuevo.setCantidad(detalle.getCantidad());
+            nuevo.setMontoTotal(detalle.getMontoTotal());
+            nuevos.add(nuevo);
+        }
+
+        // IDs de la secuencia pooled: los INSERT salen en lotes de hibernate.jdbc.batch_size
+        List<DetalleOrden> guardados = detalleOrdenRepository.saveAll(nuevos);
+        outboxService.detallesCreados(guardados);
+        ventasProductoService.registrarVenta(fecha, guardados);
+        indiceCoCompraService.registrarLineasAlConfirmar(guardados, productosExistentes);
+
+        log.info("Guardadas {} líneas de detalle en la orden {}", guardados.size(), idOrden);
+        return Optional.of(guardados);
+    }
+
+    /**
+     * Valida todo el lote de una pasada e informa todas las líneas inválidas juntas.
+     */
+    private void validarLote(List<DetalleOrden> detalles) {
+        if (detalles == null || detalles.isEmpty()) {
+            throw new DetalleOrdenException("Debe indicar al menos una línea de detalle");
+        }
+        if (detalles.size() > MAX_LINEAS_POR_LOTE) {
+            throw new DetalleOrdenException("El lote supera el máximo de " + MAX_LINEAS_POR_LOTE + " líneas");
+        }
+        List<Integer> invalidas = new ArrayList<>();
+        for (int i = 0; i < detalles.size(); i++) {
+            DetalleOrden detalle = detalles.get(i);
+            if (detalle == null
+                    || detalle.getIdProducto() == null
+                    || detalle.getCantidad() == null || detalle.getCantidad() <= 0
+                    || detalle.getPrecio() == null || detalle.getPrecio() < 0
+                    || detalle.getMontoTotal() == null || detalle.getMontoTotal() < 0) {
+                invalidas.add(i);
+            }
+        }
+        if (!invalidas.isEmpty()) {
+            throw new DetalleOrdenException("Líneas de detalle inválidas", invalidas);
+        }
+    }
+
+    private void registrarCoCompra(DetalleOrden detalle, int signo) {
+        Long idOrden = detalle.getOrden().getId();
+        if (idOrden == null) {
+            return;
+        }
+        List<Long> otros = detalleOrdenRepository.findOtrosProductosDeOrden(idOrden, detalle.getId());
+        indiceCoCompraService.registrarLineaAlConfirmar(detalle, otros, signo);
+    }
+
+    private Date fechaOrden(Orden orden) {
+        // El cliente suele enviar solo el ID de la orden: la fecha se lee de la base de datos
+        if (orden.getFecha() != null || orden.getId() == null) {
+            return orden.getFecha();
+        }
+        return detalleOrdenRepository.findFechaOrden(orden.getId()).orElse(null);
+    }
+
     @Override
     public Optional<DetalleOrden> findById(Long id) {
         return detalleOrdenRepository.findById(id);
@@ -71,7 +171,13 @@ public class DetalleOrdenServiceImpl implements DetalleOrdenService {
 
     // Implementar el método para eliminar
     @Override
+    @Transactional
     public void deleteById(Long id) {
+        // La línea eliminada deja de contar en las ventas del día
+        detalleOrdenRepository.findById(id).ifPresent(detalle -> {
+            ventasProductoService.anularVenta(detalle.getOrden().getFecha(), List.of(detalle));
+            registrarCoCompra(detalle, -1);
+        });
         detalleOrdenRepository.deleteById(id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,329 @@
+package com.example.tienda_ms_pedidos.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario local de solo agregado sobre un archivo de tamaño fijo mapeado en
+ * memoria. Cada registro lleva una cabecera con la época del diario, el largo
+ * y un CRC32C; al abrir se recorren los registros pendientes y el primero
+ * inválido (escritura cortada por una caída) marca el final.
+ *
+ * La durabilidad se agrupa: quien necesita su registro en disco espera a un
+ * único force del rango pendiente, que cubre también los registros que otros
+ * hilos agregaron mientras tanto.
+ *
+ * La posición aplicada se guarda en dos ranuras de cabecera alternadas, así
+ * una cabecera cortada no pierde la anterior. Cuando todo lo escrito quedó
+ * aplicado el diario vuelve al inicio con una época nueva, que invalida los
+ * registros viejos que sigan en el archivo.
+ */
+public class DiarioOrdenes implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioOrdenes.class);
+
+    static final int MAGIA_CABECERA = 0x44494152;
+    static final int MAGIA_REGISTRO = 0x52454731;
+    // magia, secuencia, época, posición aplicada, CRC32C
+    static final int RANURA = 4 + 8 + 4 + 4 + 4;
+    static final int INICIO_DATOS = 64;
+    // magia, época, largo, CRC32C
+    static final int CABECERA_REGISTRO = 4 + 4 + 4 + 4;
+
+    private final Path archivo;
+    private final int capacidad;
+    private final FileChannel canal;
+    private final MappedByteBuffer mapa;
+
+    // Protegidos por el monitor del diario
+    private int epoca;
+    private long secuenciaCabecera;
+    private int aplicada;
+    private int escrito;
+    private int pendientes;
+
+    // Durabilidad en bytes lógicos (no retroceden al volver al inicio)
+    private final ReentrantLock disco = new ReentrantLock();
+    private final Condition forzado = disco.newCondition();
+    private long baseLogica;
+    private long durableLogico;
+    private boolean forzando;
+
+    /**
+     * Registro leído del diario.
+     *
+     * @param posicion Posición del registro.
+     * @param fin Posición siguiente al registro.
+     * @param datos Contenido.
+     */
+    public record Registro(int posicion, int fin, byte[] datos) {
+    }
+
+    public DiarioOrdenes(Path archivo, int capacidad) throws IOException {
+        if (capacidad <= INICIO_DATOS + CABECERA_REGISTRO) {
+            throw new IllegalArgumentException("Capacidad de diario inválida");
+        }
+        this.archivo = archivo;
+        this.capacidad = capacidad;
+        Path directorio = archivo.toAbsolutePath().getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+        this.canal = FileChannel.open(archivo,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean nuevo = canal.size() == 0;
+        this.mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, capacidad);
+        if (nuevo || !leerCabecera()) {
+            if (!nuevo) {
+                log.warn("Cabecera del diario {} inválida, se inicia vacío", archivo);
+            }
+            epoca = 1;
+            aplicada = INICIO_DATOS;
+            escribirCabecera();
+        }
+        recuperar();
+    }
+
+    /**
+     * Agrega un registro. No espera a que llegue a disco: para eso está
+     * {@link #esperarDurable(long)}.
+     *
+     * @return Marca a pasar a {@link #esperarDurable(long)}.
+     * @throws IllegalStateException Si el diario no tiene espacio.
+     */
+    public synchronized long agregar(byte[] datos) {
+        int fin = escrito + CABECERA_REGISTRO + datos.length;
+        if (fin > capacidad || fin < 0) {
+            throw new IllegalStateException("Diario de órdenes lleno");
+        }
+        mapa.put(escrito + CABECERA_REGISTRO, datos);
+        // La cabecera al final: un registro sin cabecera válida no se ve al recuperar
+        mapa.putInt(escrito + 4, epoca);
+        mapa.putInt(escrito + 8, datos.length);
+        mapa.putInt(escrito + 12, crc(epoca, datos));
+        mapa.putInt(escrito, MAGIA_REGISTRO);
+        escrito = fin;
+        pendientes++;
+        return baseLogica + (fin - INICIO_DATOS);
+    }
+
+    /**
+     * Espera a que todo lo agregado hasta {@code marca} esté en disco. Un solo
+     * hilo fuerza a la vez; los demás esperan y suelen quedar cubiertos por
+     * ese mismo force.
+     */
+    public void esperarDurable(long marca) {
+        disco.lock();
+        try {
+            while (durableLogico < marca) {
+                if (forzando) {
+                    forzado.awaitUninterruptibly();
+                    continue;
+                }
+                forzando = true;
+                long desdeLogico = durableLogico;
+                long hastaLogico;
+                int desde;
+                int hasta;
+                synchronized (this) {
+                    hastaLogico = baseLogica + (escrito - INICIO_DATOS);
+                    desde = (int) (INICIO_DATOS + Math.max(0, desdeLogico - baseLogica));
+                    hasta = escrito;
+                }
+                boolean forzadoOk = false;
+                disco.unlock();
+                try {
+                    if (hasta > desde) {
+                        mapa.force(desde, hasta - desde);
+                    }
+                    forzadoOk = true;
+                } finally {
+                    disco.lock();
+                    forzando = false;
+                    if (forzadoOk) {
+                        durableLogico = Math.max(durableLogico, hastaLogico);
+                    }
+                    forzado.signalAll();
+                }
+            }
+        } finally {
+            disco.unlock();
+        }
+    }
+
+    /**
+     * Lee los primeros registros pendientes de aplicar, en orden.
+     *
+     * @param maximo Número máximo de registros.
+     */
+    public synchronized List<Registro> leerPendientes(int maximo) {
+        List<Registro> registros = new ArrayList<>();
+        int posicion = aplicada;
+        while (registros.size() < maximo && posicion < escrito) {
+            int largo = mapa.getInt(posicion + 8);
+            byte[] datos = new byte[largo];
+            mapa.get(posicion + CABECERA_REGISTRO, datos);
+            int fin = posicion + CABECERA_REGISTRO + largo;
+            registros.add(new Registro(posicion, fin, datos));
+            posicion = fin;
+        }
+        return registros;
+    }
+
+    /**
+     * Marca como aplicados los registros hasta {@code fin} y guarda la
+     * posición en la cabecera. Si no queda nada pendiente el diario vuelve
+     * al inicio con una época nueva.
+     *
+     * @param fin Posición siguiente al último registro aplicado.
+     * @param cantidad Registros aplicados.
+     */
+    public void marcarAplicados(int fin, int cantidad) {
+        disco.lock();
+        try {
+            synchronized (this) {
+                if (fin <= aplicada || fin > escrito) {
+                    return;
+                }
+                aplicada = fin;
+                pendientes -= cantidad;
+                if (aplicada == escrito) {
+                    // Todo lo escrito ya está en la base de datos: no hace falta forzarlo
+                    baseLogica += escrito - INICIO_DATOS;
+                    durableLogico = Math.max(durableLogico, baseLogica);
+                    epoca++;
+                    aplicada = INICIO_DATOS;
+                    escrito = INICIO_DATOS;
+                    pendientes = 0;
+                    forzado.signalAll();
+                }
+                escribirCabecera();
+            }
+        } finally {
+            disco.unlock();
+        }
+    }
+
+    public synchronized int getPendientes() {
+        return pendientes;
+    }
+
+    public synchronized int getBytesPendientes() {
+        return escrito - aplicada;
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapa.force();
+        canal.close();
+    }
+
+    private boolean leerCabecera() {
+        boolean valida = false;
+        for (int ranura = 0; ranura < 2; ranura++) {
+            int base = ranura * RANURA;
+            if (mapa.getInt(base) != MAGIA_CABECERA) {
+                continue;
+            }
+            long secuencia = mapa.getLong(base + 4);
+            int epocaRanura = mapa.getInt(base + 12);
+            int aplicadaRanura = mapa.getInt(base + 16);
+            if (mapa.getInt(base + 20) != crcCabecera(secuencia, epocaRanura, aplicadaRanura)
+                    || aplicadaRanura < INICIO_DATOS || aplicadaRanura > capacidad) {
+                continue;
+            }
+            if (!valida || secuencia > secuenciaCabecera) {
+                secuenciaCabecera = secuencia;
+                epoca = epocaRanura;
+                aplicada = aplicadaRanura;
+                valida = true;
+            }
+        }
+        return valida;
+    }
+
+    private void escribirCabecera() {
+        secuenciaCabecera++;
+        int base = (int) (secuenciaCabecera % 2) * RANURA;
+        // Magia al final: una ranura cortada queda inválida y se usa la otra
+        mapa.putInt(base, 0);
+        mapa.putLong(base + 4, secuenciaCabecera);
+        mapa.putInt(base + 12, epoca);
+        mapa.putInt(base + 16, aplicada);
+        mapa.putInt(base + 20, crcCabecera(secuenciaCabecera, epoca, aplicada));
+        mapa.putInt(base, MAGIA_CABECERA);
+        mapa.force(0, INICIO_DATOS);
+    }
+
+    /**
+     * Recorre los registros desde la posición aplicada; el primero inválido
+     * marca el final del diario.
+     */
+    private void recuperar() {
+        int posicion = aplicada;
+        int registros = 0;
+        while (posicion + CABECERA_REGISTRO <= capacidad) {
+            if (mapa.getInt(posicion) != MAGIA_REGISTRO || mapa.getInt(posicion + 4) != epoca) {
+                break;
+            }
+            int largo = mapa.getInt(posicion + 8);
+            if (largo < 0 || largo > capacidad - posicion - CABECERA_REGISTRO) {
+                break;
+            }
+            byte[] datos = new byte[largo];
+            mapa.get(posicion + CABECERA_REGISTRO, datos);
+            if (mapa.getInt(posicion + 12) != crc(epoca, datos)) {
+                break;
+            }
+            posicion += CABECERA_REGISTRO + largo;
+            registros++;
+        }
+        escrito = posicion;
+        pendientes = registros;
+        // Lo recuperado ya está en el archivo
+        baseLogica = 0;
+        durableLogico = escrito - INICIO_DATOS;
+        if (registros > 0) {
+            log.info("Diario {}: {} órdenes pendientes de aplicar", archivo, registros);
+        }
+        // Un resto cortado después del final no debe confundirse con un registro al reescribir
+        if (escrito + 4 <= capacidad) {
+            mapa.putInt(escrito, 0);
+        }
+    }
+
+    private static int crc(int epoca, byte[] datos) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(4).putInt(0, epoca));
+        crc.update(datos);
+        return (int) crc.getValue();
+    }
+
+    private static int crcCabecera(long secuencia, int epoca, int aplicada) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(16).putLong(0, secuencia).putInt(8, epoca).putInt(12, aplicada));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.MetricasDiarioDTO;
+import com.example.tienda_ms_pedidos.exception.IngestaSaturadaException;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.ClaveIdempotenciaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diario de órdenes para caídas de la base de datos (opcional). Cuando
+ * guardar una orden falla por la base de datos, la orden se agrega a un
+ * {@link DiarioOrdenes} local y se responde como aceptada; un proceso
+ * periódico la reproduce en ORDENES cuando la base de datos vuelve.
+ *
+ * Cada entrada lleva una clave (la Idempotency-Key del cliente o una
+ * generada) que se guarda en IDEMPOTENCIA_PEDIDOS en la misma transacción
+ * que la orden: reproducir dos veces la misma entrada, o un reintento del
+ * cliente con su clave, no duplica la orden.
+ */
+@Service
+@ConditionalOnProperty(name = "pedidos.diario.habilitado", havingValue = "true")
+public class DiarioOrdenesService {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioOrdenesService.class);
+
+    static final String PREFIJO_CLAVE = "diario-";
+
+    private final DiarioOrdenes diario;
+    private final OrdenService ordenService;
+    private final ClaveIdempotenciaRepository claveRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaccion;
+    private final int tamanoLote;
+    private final long ttlMs;
+
+    private final LongAdder aceptadas = new LongAdder();
+    private final LongAdder reproducidas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+
+    /**
+     * Entrada del diario.
+     *
+     * @param clave Clave de idempotencia con la que se reproduce.
+     * @param recibida Momento en que se aceptó la orden.
+     * @param orden Orden tal como llegó.
+     */
+    record Entrada(String clave, long recibida, Orden orden) {
+    }
+
+    public DiarioOrdenesService(OrdenService ordenService,
+                                ClaveIdempotenciaRepository claveRepository,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${pedidos.diario.archivo:diario-ordenes.jrn}") String archivo,
+                                @Value("${pedidos.diario.tamano-mb:64}") int tamanoMb,
+                                @Value("${pedidos.diario.tamano-lote:100}") int tamanoLote,
+                                @Value("${pedidos.idempotencia.ttl-horas:24}") long ttlHoras) {
+        this.ordenService = ordenService;
+        this.claveRepository = claveRepository;
+        this.objectMapper = objectMapper;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.tamanoLote = tamanoLote;
+        this.ttlMs = TimeUnit.HOURS.toMillis(ttlHoras);
+        try {
+            this.diario = new DiarioOrdenes(Paths.get(archivo), tamanoMb * 1024 * 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario de órdenes " + archivo, e);
+        }
+    }
+
+    /**
+     * Agrega una orden al diario y espera a que quede en disco.
+     *
+     * @param orden Orden recibida.
+     * @param clave Idempotency-Key del cliente, o null para generar una.
+     * @return Clave con la que se reproducirá la orden.
+     * @throws IngestaSaturadaException Si el diario está lleno.
+     */
+    public String registrar(Orden orden, String clave) {
+        String claveEntrada = clave != null ? clave : PREFIJO_CLAVE + UUID.randomUUID();
+        byte[] datos;
+        try {
+            datos = objectMapper.writeValueAsBytes(new Entrada(claveEntrada, System.currentTimeMillis(), orden));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Orden no serializable", e);
+        }
+
+        long marca;
+        try {
+            marca = diario.agregar(datos);
+        } catch (IllegalStateException e) {
+            throw new IngestaSaturadaException("Diario de órdenes lleno");
+        }
+        diario.esperarDurable(marca);
+        aceptadas.increment();
+        log.warn("Orden aceptada en el diario con clave {} ({} pendientes)", claveEntrada, diario.getPendientes());
+        return claveEntrada;
+    }
+
+    /**
+     * Reproduce las órdenes pendientes mientras la base de datos responda.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.diario.intervalo-ms:1000}")
+    public void reproducirPendientes() {
+        int procesadas;
+        do {
+            procesadas = reproducirLote();
+        } while (procesadas == tamanoLote);
+    }
+
+    /**
+     * Reproduce un lote de entradas en orden y guarda el avance en el diario.
+     * Se detiene en la primera falla de la base de datos; esa entrada se
+     * reintenta en el próximo ciclo.
+     *
+     * @return Entradas procesadas (reproducidas o ya aplicadas).
+     */
+    public int reproducirLote() {
+        List<DiarioOrdenes.Registro> registros = diario.leerPendientes(tamanoLote);
+        int procesadas = 0;
+        int fin = -1;
+        try {
+            for (DiarioOrdenes.Registro registro : registros) {
+                aplicar(registro);
+                procesadas++;
+                fin = registro.fin();
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se pudo reproducir el diario de órdenes, se reintentará: {}", e.getMessage());
+        }
+        if (procesadas > 0) {
+            diario.marcarAplicados(fin, procesadas);
+        }
+        return procesadas;
+    }
+
+    public MetricasDiarioDTO getMetricas() {
+        MetricasDiarioDTO metricas = new MetricasDiarioDTO();
+        metricas.setOrdenesPendientes(diario.getPendientes());
+        metricas.setBytesPendientes(diario.getBytesPendientes());
+        metricas.setCapacidadBytes(diario.getCapacidad());
+        List<DiarioOrdenes.Registro> primera = diario.leerPendientes(1);
+        metricas.setRetrasoMs(primera.isEmpty() ? 0 : System.currentTimeMillis() - leer(primera.get(0)).recibida());
+        metricas.setAceptadas(aceptadas.sum());
+        metricas.setReproducidas(reproducidas.sum());
+        metricas.setDescartadas(descartadas.sum());
+        return metricas;
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        diario.close();
+    }
+
+    private void aplicar(DiarioOrdenes.Registro registro) {
+        Entrada entrada;
+        try {
+            entrada = leer(registro);
+        } catch (UncheckedIOException e) {
+            descartar(registro, e);
+            return;
+        }
+
+        try {
+            Boolean aplicada = transaccion.execute(status -> {
+                if (claveRepository.existsById(entrada.clave())) {
+                    // Ya reproducida, o el cliente la reintentó con su clave al volver la base de datos
+                    return false;
+                }
+                Date ahora = new Date();
+                Date expira = new Date(ahora.getTime() + ttlMs);
+                String propietario = UUID.randomUUID().toString();
+                // Reserva y respuesta en la misma transacción que la orden: la reserva nunca queda visible sin respuesta
+                claveRepository.reservar(entrada.clave(), propietario, ahora, expira, expira);
+                Orden guardada = ordenService.saveOrdenEnTransaccion(entrada.orden());
+                if (claveRepository.completar(entrada.clave(), propietario, escribir(guardada)) != 1) {
+                    throw new IllegalStateException("No se pudo guardar la respuesta de la clave " + entrada.clave());
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(aplicada)) {
+                reproducidas.increment();
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Carrera con un reintento del cliente, o datos que la base de datos nunca aceptará
+            if (!claveRepository.existsById(entrada.clave())) {
+                descartar(registro, e);
+            }
+        }
+    }
+
+    private void descartar(DiarioOrdenes.Registro registro, Exception causa) {
+        descartadas.increment();
+        log.error("Orden del diario descartada ({}): {}", causa.getMessage(),
+            new String(registro.datos(), StandardCharsets.UTF_8));
+    }
+
+    private Entrada leer(DiarioOrdenes.Registro registro) {
+        try {
+            return objectMapper.readValue(registro.datos(), Entrada.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Entrada del diario ilegible", e);
+        }
+    }
+
+    private String escribir(Orden orden) {
+        try {
+            return objectMapper.writeValueAsString(orden);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la orden", e);
+        }
+    }
+
+    DiarioOrdenes getDiario() {
+        return diario;
+    }
+}
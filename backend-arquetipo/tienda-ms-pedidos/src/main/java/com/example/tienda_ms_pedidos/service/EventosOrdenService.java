@@ -0,0 +1,100 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.EventoOrdenDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Distribuye los cambios de órdenes a los clientes suscritos por SSE, sobre
+ * {@link SuscripcionesSse}: cada suscripción tiene su cola acotada y un
+ * cliente lento no retrasa a los demás ni al hilo que confirmó la orden.
+ */
+@Service
+public class EventosOrdenService {
+
+    private final SuscripcionesSse<Filtro> suscripciones;
+    private final long timeoutMs;
+
+    private record Filtro(String email, Integer estado) {
+        private boolean acepta(EventoOrdenDTO evento) {
+            return (email == null || email.equalsIgnoreCase(evento.getEmail()))
+                && (estado == null || estado.equals(evento.getEstado()));
+        }
+    }
+
+    public EventosOrdenService(@Value("${pedidos.sse.timeout-ms:1800000}") long timeoutMs,
+                               @Value("${pedidos.sse.max-suscriptores:1000}") int maxSuscriptores,
+                               @Value("${pedidos.sse.capacidad-cola:256}") int capacidadCola,
+                               @Value("${pedidos.sse.hilos-envio:4}") int hilosEnvio) {
+        this.timeoutMs = timeoutMs;
+        this.suscripciones = new SuscripcionesSse<>("sse-ordenes", maxSuscriptores, capacidadCola, hilosEnvio);
+    }
+
+    /**
+     * Abre una suscripción a los eventos de órdenes.
+     *
+     * @param email Solo eventos de órdenes de este email, o null.
+     * @param estado Solo eventos de órdenes que quedan en este estado, o null.
+     * @return Emisor SSE de la suscripción.
+     * @throws IllegalStateException si se alcanzó el máximo de suscriptores.
+     */
+    public SseEmitter suscribir(String email, Integer estado) {
+        return registrar(new SseEmitter(timeoutMs), email, estado);
+    }
+
+    SseEmitter registrar(SseEmitter emitter, String email, Integer estado) {
+        return suscripciones.registrar(emitter, new Filtro(email, estado));
+    }
+
+    public boolean haySuscriptores() {
+        return suscripciones.haySuscriptores();
+    }
+
+    public int getSuscriptores() {
+        return suscripciones.getSuscriptores();
+    }
+
+    /**
+     * Publica el evento cuando la transacción actual haga commit, o de
+     * inmediato si no hay transacción (el cambio ya quedó confirmado).
+     */
+    public void publicarAlConfirmar(EventoOrdenDTO evento) {
+        if (!suscripciones.haySuscriptores()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publicar(evento);
+                }
+            });
+        } else {
+            publicar(evento);
+        }
+    }
+
+    /**
+     * Entrega el evento a las suscripciones cuyo filtro lo acepta, sin bloquear.
+     */
+    public void publicar(EventoOrdenDTO evento) {
+        suscripciones.publicar(filtro -> filtro.acepta(evento)
+            ? SuscripcionesSse.evento(evento.getTipo(), evento)
+            : null);
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.sse.latido-ms:15000}")
+    public void enviarLatido() {
+        suscripciones.enviarLatido();
+    }
+
+    @PreDestroy
+    public void detener() {
+        suscripciones.detener();
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.PaginaDTO;
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.example.tienda_ms_pedidos.util.CursorUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Historial de órdenes por cliente ("mis órdenes"), paginado de la más
+ * reciente a la más antigua.
+ *
+ * Las órdenes más recientes de cada email se guardan como resúmenes en un LRU
+ * acotado; las páginas que caen dentro de ese rango no tocan la base de datos.
+ * Crear una orden o cambiar su estado invalida la entrada de su email al hacer
+ * commit. Cada franja de emails lleva un contador de invalidaciones: una carga
+ * que empezó antes de una invalidación no se guarda, así una lectura lenta no
+ * deja en la cache datos anteriores al commit.
+ */
+@Service
+public class HistorialClienteService {
+
+    private static final int FRANJAS = 64;
+
+    private final OrdenRepository ordenRepository;
+    private final int ordenesPorEmail;
+
+    private final Map<String, Entrada> recientes;
+    // Protegido por el monitor de recientes
+    private final long[] versiones = new long[FRANJAS];
+
+    /**
+     * @param resumenes Órdenes más recientes del email, a lo más {@code ordenesPorEmail}.
+     * @param completa true si son todas las órdenes del email.
+     */
+    private record Entrada(List<ResumenOrdenDTO> resumenes, boolean completa) {
+    }
+
+    public HistorialClienteService(OrdenRepository ordenRepository,
+                                   @Value("${pedidos.cliente.cache.capacidad:10000}") int capacidad,
+                                   @Value("${pedidos.cliente.cache.ordenes-por-email:20}") int ordenesPorEmail) {
+        this.ordenRepository = ordenRepository;
+        this.ordenesPorEmail = ordenesPorEmail;
+        // LinkedHashMap en orden de acceso: al superar la capacidad se descarta la menos usada
+        this.recientes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > capacidad;
+            }
+        });
+    }
+
+    /**
+     * Obtiene una página del historial de un cliente.
+     *
+     * @param email Email del cliente.
+     * @param cursor Cursor devuelto por la página anterior, o null para la primera.
+     * @param tamano Número máximo de órdenes de la página.
+     * @return Resúmenes de órdenes y cursor de la siguiente página.
+     * @throws IllegalArgumentException si falta el email o el cursor no es válido.
+     */
+    public PaginaDTO<ResumenOrdenDTO> pagina(String email, String cursor, int tamano) {
+        if (email == null || email.isBlank()) {
+            throw new IllegalArgumentException("Debe indicar el email");
+        }
+        long ultimo = CursorUtil.decodificar(cursor);
+        long antesDe = ultimo == 0 ? Long.MAX_VALUE : ultimo;
+
+        Entrada entrada = recientes.get(email);
+        if (entrada == null && ultimo == 0) {
+            entrada = cargar(email);
+        }
+        if (entrada != null) {
+            PaginaDTO<ResumenOrdenDTO> pagina = desdeCache(entrada, antesDe, tamano);
+            if (pagina != null) {
+                return pagina;
+            }
+        }
+
+        // Se pide un resumen extra solo para saber si existe una página siguiente
+        List<ResumenOrdenDTO> resumenes = ordenRepository.findResumenesPorEmailAntesDe(email, antesDe, Limit.of(tamano + 1));
+        return armarPagina(resumenes, tamano, resumenes.size() <= tamano);
+    }
+
+    /**
+     * Descarta las órdenes en cache del email al confirmarse la transacción
+     * actual, o de inmediato si no hay una.
+     */
+    public void invalidarAlConfirmar(String email) {
+        if (email == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidar(email);
+                }
+            });
+        } else {
+            invalidar(email);
+        }
+    }
+
+    public void invalidar(String email) {
+        synchronized (recientes) {
+            versiones[franja(email)]++;
+            recientes.remove(email);
+        }
+    }
+
+    public int getTamano() {
+        return recientes.size();
+    }
+
+    private Entrada cargar(String email) {
+        long version;
+        synchronized (recientes) {
+            version = versiones[franja(email)];
+        }
+        List<ResumenOrdenDTO> resumenes =
+            ordenRepository.findResumenesPorEmailAntesDe(email, Long.MAX_VALUE, Limit.of(ordenesPorEmail + 1));
+        boolean completa = resumenes.size() <= ordenesPorEmail;
+        Entrada entrada = new Entrada(
+            List.copyOf(completa ? resumenes : resumenes.subList(0, ordenesPorEmail)), completa);
+        synchronized (recientes) {
+            if (versiones[franja(email)] == version) {
+                recientes.put(email, entrada);
+            }
+        }
+        return entrada;
+    }
+
+    /**
+     * @return La página armada desde la cache, o null si la cache no alcanza a cubrirla.
+     */
+    private PaginaDTO<ResumenOrdenDTO> desdeCache(Entrada entrada, long antesDe, int tamano) {
+        List<ResumenOrdenDTO> candidatos = new ArrayList<>(tamano + 1);
+        for (ResumenOrdenDTO resumen : entrada.resumenes()) {
+            if (resumen.getId() < antesDe) {
+                candidatos.add(resumen);
+                if (candidatos.size() > tamano) {
+                    break;
+                }
+            }
+        }
+        if (candidatos.size() <= tamano && !entrada.completa()) {
+            return null;
+        }
+        return armarPagina(candidatos, tamano, candidatos.size() <= tamano);
+    }
+
+    private PaginaDTO<ResumenOrdenDTO> armarPagina(List<ResumenOrdenDTO> resumenes, int tamano, boolean ultima) {
+        List<ResumenOrdenDTO> items = ultima ? resumenes : resumenes.subList(0, tamano);
+        String next = ultima || items.isEmpty() ? null : CursorUtil.codificar(items.get(items.size() - 1).getId());
+        return new PaginaDTO<>(new ArrayList<>(items), next);
+    }
+
+    private int franja(String email) {
+        return Math.floorMod(email.hashCode(), FRANJAS);
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.exception.IdempotenciaException;
+import com.example.tienda_ms_pedidos.model.ClaveIdempotencia;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.ClaveIdempotenciaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Soporte del header Idempotency-Key en la creación de órdenes.
+ *
+ * Las respuestas recientes se guardan en un LRU acotado en memoria y todas
+ * en la tabla IDEMPOTENCIA_PEDIDOS con un TTL, de modo que un reintento
+ * recibe la respuesta original sin tocar las tablas de órdenes. Los
+ * duplicados concurrentes esperan a la primera ejecución: en la misma
+ * instancia sobre un future, entre instancias consultando la reserva de la
+ * clave en la tabla.
+ *
+ * Cada reserva pertenece a una ejecución hasta {@code reserva-ms}; solo una
+ * reserva vencida se considera abandonada y puede tomarla otro intento. La
+ * transacción de la orden tiene ese mismo timeout y guarda la respuesta solo
+ * si la reserva sigue siendo suya; si no, falla y la orden no se crea.
+ */
+@Service
+public class IdempotenciaService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotenciaService.class);
+
+    private static final long INTERVALO_CONSULTA_MS = 50;
+
+    private final ClaveIdempotenciaRepository claveRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaccion;
+    private final long ttlMs;
+    private final long esperaMs;
+    private final long reservaMs;
+
+    private final Map<String, RespuestaGuardada> recientes;
+    private final Map<String, CompletableFuture<String>> enCurso = new ConcurrentHashMap<>();
+
+    /**
+     * Resultado de una ejecución idempotente.
+     *
+     * @param orden Orden creada, o copia de la respuesta original.
+     * @param repetida true si la respuesta viene de una ejecución anterior.
+     */
+    public record Resultado(Orden orden, boolean repetida) {
+    }
+
+    private record RespuestaGuardada(String json, long expira) {
+    }
+
+    public IdempotenciaService(ClaveIdempotenciaRepository claveRepository,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${pedidos.idempotencia.capacidad:10000}") int capacidad,
+                               @Value("${pedidos.idempotencia.ttl-horas:24}") long ttlHoras,
+                               @Value("${pedidos.idempotencia.espera-ms:10000}") long esperaMs,
+                               @Value("${pedidos.idempotencia.reserva-ms:60000}") long reservaMs) {
+        this.claveRepository = claveRepository;
+        this.objectMapper = objectMapper;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        // La base de datos corta la ejecución que supera su reserva
+        this.transaccion.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(reservaMs)));
+        this.ttlMs = TimeUnit.HOURS.toMillis(ttlHoras);
+        this.esperaMs = esperaMs;
+        this.reservaMs = reservaMs;
+        // LinkedHashMap en orden de acceso: al superar la capacidad se descarta la menos usada
+        this.recientes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RespuestaGuardada> eldest) {
+                return size() > capacidad;
+            }
+        });
+    }
+
+    /**
+     * Ejecuta la creación de una orden una sola vez por clave.
+     *
+     * @param clave Valor del header Idempotency-Key.
+     * @param operacion Creación de la orden; se ejecuta en la misma transacción
+     *                  que guarda su respuesta.
+     * @return La orden creada, o la respuesta original si la clave ya se usó.
+     * @throws IdempotenciaException si la primera ejecución sigue en curso tras la espera máxima,
+     *         o si la reserva de esta ejecución venció antes de guardar la respuesta.
+     */
+    public Resultado ejecutar(String clave, Supplier<Orden> operacion) {
+        long limite = System.currentTimeMillis() + esperaMs;
+        while (true) {
+            String guardada = buscarEnMemoria(clave);
+            if (guardada != null) {
+                return new Resultado(leer(guardada), true);
+            }
+
+            CompletableFuture<String> propia = new CompletableFuture<>();
+            CompletableFuture<String> ajena = enCurso.putIfAbsent(clave, propia);
+            if (ajena != null) {
+                String json = esperar(ajena, limite);
+                if (json != null) {
+                    return new Resultado(leer(json), true);
+                }
+                // La primera ejecución falló: este intento toma su lugar
+                continue;
+            }
+
+            try {
+                Resultado resultado = ejecutarComoPrimera(clave, operacion, limite);
+                if (resultado != null) {
+                    propia.complete(escribir(resultado.orden()));
+                    return resultado;
+                }
+                propia.completeExceptionally(new IdempotenciaException("Reserva liberada"));
+            } catch (RuntimeException e) {
+                propia.completeExceptionally(e);
+                throw e;
+            } finally {
+                enCurso.remove(clave, propia);
+            }
+        }
+    }
+
+    /**
+     * Elimina de la tabla las claves cuyo TTL venció.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.idempotencia.purga-ms:3600000}",
+               initialDelayString = "${pedidos.idempotencia.purga-ms:3600000}")
+    public void purgarExpiradas() {
+        try {
+            int eliminadas = claveRepository.eliminarExpiradas(new Date());
+            log.info("Claves de idempotencia expiradas eliminadas: {}", eliminadas);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron purgar las claves de idempotencia: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return El resultado, o null si la clave quedó libre y hay que volver a intentarlo.
+     */
+    private Resultado ejecutarComoPrimera(String clave, Supplier<Orden> operacion, long limite) {
+        Date ahora = new Date();
+        Optional<ClaveIdempotencia> existente = claveRepository.findById(clave);
+        if (existente.isPresent() && existente.get().getExpira().after(ahora)) {
+            return esperarEnTabla(clave, limite);
+        }
+        existente.ifPresent(c -> claveRepository.eliminarSiExpirada(clave, ahora));
+
+        String propietario = UUID.randomUUID().toString();
+        Date expira = new Date(ahora.getTime() + ttlMs);
+        try {
+            claveRepository.reservar(clave, propietario, ahora, new Date(ahora.getTime() + reservaMs), expira);
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia la reservó entre la consulta y el INSERT
+            return esperarEnTabla(clave, limite);
+        }
+
+        try {
+            String[] json = new String[1];
+            Orden orden = transaccion.execute(status -> {
+                Orden creada = operacion.get();
+                json[0] = escribir(creada);
+                if (claveRepository.completar(clave, propietario, json[0]) != 1) {
+                    // La reserva venció y otro intento la tomó: la orden se revierte con esta transacción
+                    throw new IdempotenciaException("La reserva de la Idempotency-Key venció antes de terminar");
+                }
+                return creada;
+            });
+            recientes.put(clave, new RespuestaGuardada(json[0], expira.getTime()));
+            return new Resultado(orden, false);
+        } catch (RuntimeException e) {
+            // Sin respuesta guardada el reintento debe poder ejecutar de nuevo
+            liberar(clave, propietario);
+            throw e;
+        }
+    }
+
+    private Resultado esperarEnTabla(String clave, long limite) {
+        while (true) {
+            Optional<ClaveIdempotencia> existente = claveRepository.findById(clave);
+            if (existente.isEmpty()) {
+                return null;
+            }
+            ClaveIdempotencia guardada = existente.get();
+            if (guardada.getRespuesta() != null) {
+                recientes.put(clave, new RespuestaGuardada(guardada.getRespuesta(), guardada.getExpira().getTime()));
+                return new Resultado(leer(guardada.getRespuesta()), true);
+            }
+            Date ahora = new Date();
+            if (guardada.getReservadaHasta() != null && guardada.getReservadaHasta().before(ahora)
+                    && liberarVencida(clave, ahora)) {
+                // Reserva abandonada: este intento toma su lugar
+                return null;
+            }
+            if (ahora.getTime() >= limite) {
+                throw new IdempotenciaException("La solicitud con esta Idempotency-Key sigue en curso");
+            }
+            dormir();
+        }
+    }
+
+    private String esperar(CompletableFuture<String> ajena, long limite) {
+        try {
+            return ajena.get(Math.max(0, limite - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw new IdempotenciaException("La solicitud con esta Idempotency-Key sigue en curso");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotenciaException("Espera interrumpida");
+        }
+    }
+
+    private String buscarEnMemoria(String clave) {
+        RespuestaGuardada guardada = recientes.get(clave);
+        if (guardada == null) {
+            return null;
+        }
+        if (guardada.expira() < System.currentTimeMillis()) {
+            recientes.remove(clave);
+            return null;
+        }
+        return guardada.json();
+    }
+
+    private void liberar(String clave, String propietario) {
+        try {
+            claveRepository.liberar(clave, propietario);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo liberar la clave de idempotencia {}: {}", clave, e.getMessage());
+        }
+    }
+
+    private boolean liberarVencida(String clave, Date ahora) {
+        try {
+            return claveRepository.liberarVencida(clave, ahora) > 0;
+        } catch (DataAccessException e) {
+            log.warn("No se pudo liberar la clave de idempotencia {}: {}", clave, e.getMessage());
+            return false;
+        }
+    }
+
+    private void dormir() {
+        try {
+            Thread.sleep(INTERVALO_CONSULTA_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotenciaException("Espera interrumpida");
+        }
+    }
+
+    private String escribir(Orden orden) {
+        try {
+            return objectMapper.writeValueAsString(orden);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la orden", e);
+        }
+    }
+
+    private Orden leer(String json) {
+        try {
+            return objectMapper.readValue(json, Orden.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo leer la respuesta guardada", e);
+        }
+    }
+}
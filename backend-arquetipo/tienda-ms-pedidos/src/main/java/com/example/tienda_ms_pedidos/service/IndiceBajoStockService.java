@@ -0,0 +1,326 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.AlertaStockDTO;
+import com.example.tienda_ms_pedidos.DTO.StockProductoDTO;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice en memoria de productos ordenados por stock restante (opcional).
+ * Listar los productos con stock bajo un umbral recorre solo los k que
+ * cumplen, sin consultar PRODUCTO, y las suscripciones SSE reciben un aviso
+ * cuando un producto cruza el umbral de la suscripción.
+ *
+ * El índice se carga completo al iniciar y se mantiene con los cambios de
+ * stock de {@link ProductoServiceImpl}, aplicados cuando la transacción hace
+ * commit. Los cambios hechos fuera de este servicio (p. ej. una reposición
+ * desde tienda-ms-productos) se incorporan en la recarga periódica.
+ */
+@Service
+@ConditionalOnProperty(name = "pedidos.stock.bajo.habilitado", havingValue = "true")
+public class IndiceBajoStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceBajoStockService.class);
+
+    private static final Comparator<Entrada> ORDEN =
+        Comparator.comparingDouble(Entrada::stock).thenComparingLong(Entrada::id);
+
+    private final ProductoRepository productoRepository;
+    private final double umbralPorDefecto;
+    private final long timeoutMs;
+
+    // Solo presente con pedidos.stock.libro.habilitado=true: PRODUCTO.STOCK no se actualiza
+    private LibroInventarioService libroInventarioService;
+
+    // Ambas estructuras protegidas por el mismo bloqueo
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private final TreeSet<Entrada> porStock = new TreeSet<>(ORDEN);
+    private final Map<Long, Entrada> porId = new HashMap<>();
+    private volatile boolean cargado;
+
+    // El filtro de cada suscripción es su umbral
+    private final SuscripcionesSse<Double> suscripciones;
+
+    record Entrada(long id, String nombre, double stock) {
+    }
+
+    public IndiceBajoStockService(ProductoRepository productoRepository,
+                                  @Value("${pedidos.stock.bajo.umbral:5}") double umbralPorDefecto,
+                                  @Value("${pedidos.sse.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${pedidos.sse.max-suscriptores:1000}") int maxSuscriptores,
+                                  @Value("${pedidos.sse.capacidad-cola:256}") int capacidadCola,
+                                  @Value("${pedidos.sse.hilos-envio:4}") int hilosEnvio) {
+        this.productoRepository = productoRepository;
+        this.umbralPorDefecto = umbralPorDefecto;
+        this.timeoutMs = timeoutMs;
+        this.suscripciones = new SuscripcionesSse<>("sse-bajo-stock", maxSuscriptores, capacidadCola, hilosEnvio);
+    }
+
+    @Autowired(required = false)
+    public void setLibroInventarioService(LibroInventarioService libroInventarioService) {
+        this.libroInventarioService = libroInventarioService;
+    }
+
+    /**
+     * Productos con stock menor o igual al umbral, de menor a mayor stock.
+     *
+     * @param umbral Stock máximo a incluir.
+     * @param limite Número máximo de productos.
+     */
+    public List<StockProductoDTO> bajoStock(double umbral, int limite) {
+        asegurarCargado();
+        List<StockProductoDTO> productos = new ArrayList<>();
+        bloqueo.readLock().lock();
+        try {
+            for (Entrada entrada : porStock.headSet(new Entrada(Long.MAX_VALUE, null, umbral), true)) {
+                if (productos.size() >= limite) {
+                    break;
+                }
+                productos.add(new StockProductoDTO(entrada.id(), entrada.nombre(), entrada.stock()));
+            }
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+        return productos;
+    }
+
+    public double getUmbralPorDefecto() {
+        return umbralPorDefecto;
+    }
+
+    /**
+     * Registra un descuento de stock para aplicarlo al índice cuando la
+     * transacción actual haga commit, o de inmediato si no hay transacción.
+     *
+     * @param cantidades Cantidad descontada por ID de producto.
+     */
+    public void descontarAlConfirmar(Map<Long, Integer> cantidades) {
+        Map<Long, Double> deltas = new HashMap<>();
+        cantidades.forEach((id, cantidad) -> deltas.put(id, -cantidad.doubleValue()));
+        ajustarAlConfirmar(deltas);
+    }
+
+    /**
+     * Registra una devolución de stock para aplicarla al índice cuando la
+     * transacción actual haga commit, o de inmediato si no hay transacción.
+     *
+     * @param cantidades Cantidad devuelta por ID de producto.
+     */
+    public void devolverAlConfirmar(Map<Long, Integer> cantidades) {
+        Map<Long, Double> deltas = new HashMap<>();
+        cantidades.forEach((id, cantidad) -> deltas.put(id, cantidad.doubleValue()));
+        ajustarAlConfirmar(deltas);
+    }
+
+    private void ajustarAlConfirmar(Map<Long, Double> deltas) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ajustarSinPropagar(deltas);
+                }
+            });
+        } else {
+            ajustarSinPropagar(deltas);
+        }
+    }
+
+    private void ajustarSinPropagar(Map<Long, Double> deltas) {
+        try {
+            ajustar(deltas);
+        } catch (DataAccessException | TransactionException e) {
+            // El cambio de stock ya se confirmó: la recarga periódica corrige el índice
+            log.warn("No se pudo actualizar el índice de stock bajo: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Suma los deltas al stock indexado. Los productos que el índice no
+     * conoce (creados después de cargarlo) se leen de la base de datos, cuyo
+     * stock ya incluye el cambio.
+     */
+    void ajustar(Map<Long, Double> deltas) {
+        if (!cargado) {
+            // La carga lee el stock ya confirmado, que incluye estos deltas
+            asegurarCargado();
+            return;
+        }
+        List<Long> desconocidos = new ArrayList<>();
+        bloqueo.writeLock().lock();
+        try {
+            deltas.forEach((id, delta) -> {
+                Entrada anterior = porId.get(id);
+                if (anterior == null) {
+                    desconocidos.add(id);
+                } else {
+                    reemplazar(anterior, new Entrada(id, anterior.nombre(), anterior.stock() + delta));
+                }
+            });
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+        if (!desconocidos.isEmpty()) {
+            incorporar(leer(productoRepository.findStockByIdIn(desconocidos)), false);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        try {
+            cargar();
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se pudo cargar el índice de stock bajo, se cargará al primer uso: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${pedidos.stock.bajo.recarga-ms:300000}",
+               fixedDelayString = "${pedidos.stock.bajo.recarga-ms:300000}")
+    public void recargar() {
+        try {
+            cargar();
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se pudo recargar el índice de stock bajo: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reemplaza el índice por el stock actual de todos los productos. Los
+     * productos cuyo stock cambió respecto del índice generan alertas.
+     *
+     * @return Productos indexados.
+     */
+    public synchronized int cargar() {
+        List<Entrada> entradas = leer(productoRepository.findStock());
+        incorporar(entradas, true);
+        cargado = true;
+        log.info("Índice de stock bajo cargado con {} productos", entradas.size());
+        return entradas.size();
+    }
+
+    /**
+     * Abre una suscripción a las alertas de stock.
+     *
+     * @param umbral Umbral cuyo cruce se avisa.
+     * @return Emisor SSE de la suscripción.
+     * @throws IllegalStateException si se alcanzó el máximo de suscriptores.
+     */
+    public SseEmitter suscribir(double umbral) {
+        return registrar(new SseEmitter(timeoutMs), umbral);
+    }
+
+    SseEmitter registrar(SseEmitter emitter, double umbral) {
+        return suscripciones.registrar(emitter, umbral);
+    }
+
+    public int getSuscriptores() {
+        return suscripciones.getSuscriptores();
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.sse.latido-ms:15000}")
+    public void enviarLatido() {
+        suscripciones.enviarLatido();
+    }
+
+    @PreDestroy
+    public void detener() {
+        suscripciones.detener();
+    }
+
+    private void asegurarCargado() {
+        if (!cargado) {
+            synchronized (this) {
+                if (!cargado) {
+                    cargar();
+                }
+            }
+        }
+    }
+
+    private List<Entrada> leer(List<Object[]> filas) {
+        List<Entrada> entradas = new ArrayList<>(filas.size());
+        for (Object[] fila : filas) {
+            long id = ((Number) fila[0]).longValue();
+            double stock = ((Number) fila[2]).doubleValue();
+            if (libroInventarioService != null) {
+                Double proyectado = libroInventarioService.getStock(id);
+                if (proyectado != null) {
+                    stock = proyectado;
+                }
+            }
+            entradas.add(new Entrada(id, (String) fila[1], stock));
+        }
+        return entradas;
+    }
+
+    /**
+     * Fija el stock leído de la base de datos. Con {@code completo} los
+     * productos que ya no existen se quitan del índice.
+     */
+    private void incorporar(List<Entrada> entradas, boolean completo) {
+        bloqueo.writeLock().lock();
+        try {
+            Set<Long> vigentes = new HashSet<>();
+            for (Entrada entrada : entradas) {
+                vigentes.add(entrada.id());
+                reemplazar(porId.get(entrada.id()), entrada);
+            }
+            if (completo) {
+                porId.values().removeIf(entrada -> !vigentes.contains(entrada.id()));
+                porStock.removeIf(entrada -> !vigentes.contains(entrada.id()));
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // Se llama con el bloqueo de escritura tomado
+    private void reemplazar(Entrada anterior, Entrada nueva) {
+        if (anterior != null) {
+            porStock.remove(anterior);
+        }
+        porStock.add(nueva);
+        porId.put(nueva.id(), nueva);
+        if (anterior != null && anterior.stock() != nueva.stock() && suscripciones.haySuscriptores()) {
+            // Encolar con el bloqueo tomado mantiene las alertas en el orden de los cambios
+            suscripciones.publicar(umbral -> cruce(anterior, nueva, umbral));
+        }
+    }
+
+    // Alerta si el cambio cruza el umbral de la suscripción, o null si no lo cruza
+    private static SseEmitter.SseEventBuilder cruce(Entrada anterior, Entrada nueva, double umbral) {
+        String tipo;
+        if (anterior.stock() > umbral && nueva.stock() <= umbral) {
+            tipo = AlertaStockDTO.BAJO;
+        } else if (anterior.stock() <= umbral && nueva.stock() > umbral) {
+            tipo = AlertaStockDTO.REPUESTO;
+        } else {
+            return null;
+        }
+        return SuscripcionesSse.evento(tipo, new AlertaStockDTO(tipo, nueva.id(), nueva.nombre(),
+            anterior.stock(), nueva.stock(), umbral));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.ProductoRelacionadoDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Índice de productos comprados juntos: para cada producto, en cuántas
+ * órdenes apareció con cada otro producto. Cada producto tiene su propio
+ * {@link MapaLargoLargo} de vecinos, ubicado a través de otro mapa primitivo
+ * de ID a posición, así ninguna clave se guarda boxeada. No es thread-safe.
+ */
+public class IndiceCoCompra {
+
+    private final MapaLargoLargo posiciones = new MapaLargoLargo();
+    private final List<MapaLargoLargo> vecinos = new ArrayList<>();
+    private long pares;
+
+    /**
+     * Suma (o resta) la co-ocurrencia de los productos nuevos entre sí y con
+     * los existentes de la misma orden.
+     *
+     * @param nuevos Productos agregados a la orden, sin repetidos.
+     * @param existentes Productos que la orden ya tenía, sin repetidos ni nuevos.
+     * @param signo 1 al agregar, -1 al quitar.
+     */
+    public void registrar(long[] nuevos, long[] existentes, int signo) {
+        for (int i = 0; i < nuevos.length; i++) {
+            for (int j = i + 1; j < nuevos.length; j++) {
+                sumarPar(nuevos[i], nuevos[j], signo);
+            }
+            for (long existente : existentes) {
+                sumarPar(nuevos[i], existente, signo);
+            }
+        }
+    }
+
+    /**
+     * Registra una orden completa a partir de sus productos (puede traer repetidos).
+     */
+    public void registrarOrden(long[] productos, int desde, int hasta) {
+        long[] distintos = Arrays.stream(productos, desde, hasta).sorted().distinct().toArray();
+        registrar(distintos, new long[0], 1);
+    }
+
+    /**
+     * Suma en este índice todos los pares de otro (usado al unir resultados parciales).
+     */
+    public void fusionar(IndiceCoCompra otro) {
+        otro.posiciones.recorrer((producto, posicion) -> {
+            MapaLargoLargo destino = vecinosDe(producto, true);
+            otro.vecinos.get((int) posicion).recorrer((vecino, veces) -> {
+                if (destino.sumar(vecino, veces) == veces) {
+                    // Par nuevo en este índice (cada par se guarda en ambos sentidos)
+                    pares++;
+                }
+            });
+        });
+    }
+
+    /**
+     * Productos más comprados junto al indicado.
+     *
+     * @param producto ID del producto.
+     * @param limite Número máximo de productos.
+     * @return Productos relacionados, de más a menos órdenes en común.
+     */
+    public List<ProductoRelacionadoDTO> relacionados(long producto, int limite) {
+        MapaLargoLargo mapa = vecinosDe(producto, false);
+        if (mapa == null || limite <= 0) {
+            return List.of();
+        }
+        // Montículo de mínimos con los "limite" mejores: O(n log k) sin ordenar todos los vecinos
+        Comparator<long[]> orden = Comparator.<long[]>comparingLong(par -> par[1])
+            .thenComparing(par -> par[0], Comparator.reverseOrder());
+        PriorityQueue<long[]> mejores = new PriorityQueue<>(limite + 1, orden);
+        mapa.recorrer((vecino, veces) -> {
+            mejores.add(new long[] { vecino, veces });
+            if (mejores.size() > limite) {
+                mejores.poll();
+            }
+        });
+
+        List<ProductoRelacionadoDTO> resultado = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            long[] par = mejores.poll();
+            resultado.add(new ProductoRelacionadoDTO(par[0], par[1]));
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    public int getProductos() {
+        return posiciones.tamano();
+    }
+
+    /**
+     * @return Pares distintos de productos (cada par cuenta una vez).
+     */
+    public long getPares() {
+        return pares / 2;
+    }
+
+    private void sumarPar(long a, long b, int signo) {
+        if (a == b) {
+            return;
+        }
+        sumarDireccion(a, b, signo);
+        sumarDireccion(b, a, signo);
+    }
+
+    private void sumarDireccion(long desde, long hacia, int signo) {
+        MapaLargoLargo mapa = vecinosDe(desde, signo > 0);
+        if (mapa == null) {
+            return;
+        }
+        long antes = mapa.get(hacia);
+        if (signo < 0 && antes <= 0) {
+            // El par no está en el índice (p. ej. la línea se cargó antes de reconstruirlo)
+            return;
+        }
+        long despues = mapa.sumar(hacia, signo);
+        if (antes == 0 && despues != 0) {
+            pares++;
+        } else if (antes != 0 && despues == 0) {
+            pares--;
+        }
+    }
+
+    private MapaLargoLargo vecinosDe(long producto, boolean crear) {
+        if (posiciones.contiene(producto)) {
+            return vecinos.get((int) posiciones.get(producto));
+        }
+        if (!crear) {
+            return null;
+        }
+        MapaLargoLargo mapa = new MapaLargoLargo();
+        posiciones.put(producto, vecinos.size());
+        vecinos.add(mapa);
+        return mapa;
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.ProductoRelacionadoDTO;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.DetalleOrdenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+
+/**
+ * Recomendaciones "comprados juntos" desde un {@link IndiceCoCompra} en
+ * memoria. El índice se actualiza cuando confirma una orden o una línea de
+ * detalle, y se reconstruye al iniciar en un hilo aparte: las líneas de
+ * DETALLE_ORDENES se leen una vez a arreglos primitivos y se reparten por
+ * rangos de órdenes entre tareas fork/join que construyen índices parciales.
+ *
+ * Los cambios confirmados durante la reconstrucción se guardan y se aplican
+ * al índice nuevo si la lectura no alcanzó a verlos (según el ID del detalle).
+ * La reconstrucción incluye las órdenes del archivo local, que ya no están
+ * en DETALLE_ORDENES.
+ */
+@Service
+public class IndiceCoCompraService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceCoCompraService.class);
+
+    // Líneas por tarea fork/join antes de dejar de dividir
+    private static final int LINEAS_POR_TAREA = 20000;
+
+    private final DetalleOrdenRepository detalleOrdenRepository;
+    private final ArchivoOrdenesService archivoOrdenesService;
+    private final boolean reconstruirAlIniciar;
+
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean();
+    private IndiceCoCompra indice = new IndiceCoCompra();
+    // Cambios confirmados mientras se reconstruye (null fuera de una reconstrucción)
+    private List<Cambio> pendientes;
+
+    record Cambio(long[] idsDetalle, long[] nuevos, long[] existentes, int signo) {
+    }
+
+    public IndiceCoCompraService(DetalleOrdenRepository detalleOrdenRepository,
+                                 ArchivoOrdenesService archivoOrdenesService,
+                                 @Value("${pedidos.relacionados.reconstruir-al-iniciar:true}") boolean reconstruirAlIniciar) {
+        this.detalleOrdenRepository = detalleOrdenRepository;
+        this.archivoOrdenesService = archivoOrdenesService;
+        this.reconstruirAlIniciar = reconstruirAlIniciar;
+    }
+
+    /**
+     * Registra los productos de una orden nueva cuando su transacción confirme.
+     */
+    public void registrarOrdenAlConfirmar(Orden orden) {
+        if (orden.getDetalles() == null || orden.getDetalles().size() < 2) {
+            return;
+        }
+        long[] ids = orden.getDetalles().stream()
+            .filter(d -> d.getId() != null)
+            .mapToLong(DetalleOrden::getId)
+            .toArray();
+        long[] productos = orden.getDetalles().stream()
+            .mapToLong(DetalleOrden::getIdProducto)
+            .sorted()
+            .distinct()
+            .toArray();
+        alConfirmar(new Cambio(ids, productos, new long[0], 1));
+    }
+
+    /**
+     * Registra (signo 1) o quita (signo -1) una línea de una orden existente
+     * cuando su transacción confirme.
+     * 
+     * @param detalle Línea agregada o eliminada.
+     * @param otrosProductos Productos de las demás líneas de la orden.
+     * @param signo 1 al agregar, -1 al eliminar.
+     */
+    public void registrarLineaAlConfirmar(DetalleOrden detalle, Collection<Long> otrosProductos, int signo) {
+        // Si el producto ya estaba en otra línea de la orden, la co-ocurrencia no cambia
+        if (otrosProductos.isEmpty() || otrosProductos.contains(detalle.getIdProducto())) {
+            return;
+        }
+        long[] ids = detalle.getId() == null ? new long[0] : new long[] { detalle.getId() };
+        long[] existentes = otrosProductos.stream().mapToLong(Long::longValue).toArray();
+        alConfirmar(new Cambio(ids, new long[] { detalle.getIdProducto() }, existentes, signo));
+    }
+
+    /**
+     * Registra varias líneas agregadas juntas a una orden existente cuando su
+     * transacción confirme.
+     * 
+     * @param detalles Líneas agregadas.
+     * @param productosExistentes Productos que la orden ya tenía.
+     */
+    public void registrarLineasAlConfirmar(List<DetalleOrden> detalles, Collection<Long> productosExistentes) {
+        long[] nuevos = detalles.stream()
+            .mapToLong(DetalleOrden::getIdProducto)
+            .filter(producto -> !productosExistentes.contains(producto))
+            .sorted()
+            .distinct()
+            .toArray();
+        long[] existentes = productosExistentes.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        if (nuevos.length == 0 || (nuevos.length == 1 && existentes.length == 0)) {
+            return;
+        }
+        long[] ids = detalles.stream()
+            .filter(d -> d.getId() != null)
+            .mapToLong(DetalleOrden::getId)
+            .toArray();
+        alConfirmar(new Cambio(ids, nuevos, existentes, 1));
+    }
+
+    private void alConfirmar(Cambio cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(cambio);
+                }
+            });
+        } else {
+            aplicar(cambio);
+        }
+    }
+
+    private void aplicar(Cambio cambio) {
+        bloqueo.writeLock().lock();
+        try {
+            indice.registrar(cambio.nuevos(), cambio.existentes(), cambio.signo());
+            if (pendientes != null) {
+                pendientes.add(cambio);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Productos más comprados junto al indicado.
+     * 
+     * @param idProducto ID del producto.
+     * @param limite Número máximo de productos.
+     * @return Productos relacionados, de más a menos órdenes en común.
+     */
+    public List<ProductoRelacionadoDTO> relacionados(long idProducto, int limite) {
+        bloqueo.readLock().lock();
+        try {
+            return indice.relacionados(idProducto, limite);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reconstruye el índice desde DETALLE_ORDENES y el archivo de órdenes.
+     * 
+     * @return Número de líneas leídas, o -1 si ya había una reconstrucción en curso.
+     */
+    public long reconstruir() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            bloqueo.writeLock().lock();
+            try {
+                pendientes = new ArrayList<>();
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+
+            long inicio = System.nanoTime();
+            LongStream.Builder detalles = LongStream.builder();
+            LongStream.Builder ordenes = LongStream.builder();
+            LongStream.Builder productos = LongStream.builder();
+            detalleOrdenRepository.recorrerLineasPorOrden((idDetalle, idOrden, idProducto) -> {
+                detalles.add(idDetalle);
+                ordenes.add(idOrden);
+                productos.add(idProducto);
+            });
+            long[] idsOrden = ordenes.build().toArray();
+            long[] idsProducto = productos.build().toArray();
+
+            // Las órdenes archivadas van al final, cada una contigua; se omiten las que
+            // siguen en la base de datos (commit fallido tras escribir el bloque) y las
+            // repetidas en más de un bloque. idsOrden viene ordenado por ID_ORDEN
+            if (archivoOrdenesService.getSegmentos().getOrdenes() > 0) {
+                long[] enBaseDeDatos = idsOrden;
+                Set<Long> vistas = new HashSet<>();
+                LongStream.Builder ordenesArchivadas = LongStream.builder();
+                LongStream.Builder productosArchivados = LongStream.builder();
+                archivoOrdenesService.getSegmentos().recorrer(orden -> {
+                    if (orden.getDetalles() == null || Arrays.binarySearch(enBaseDeDatos, orden.getId()) >= 0
+                            || !vistas.add(orden.getId())) {
+                        return;
+                    }
+                    for (DetalleOrden detalle : orden.getDetalles()) {
+                        ordenesArchivadas.add(orden.getId());
+                        productosArchivados.add(detalle.getIdProducto());
+                    }
+                });
+                idsOrden = LongStream.concat(Arrays.stream(idsOrden), ordenesArchivadas.build()).toArray();
+                idsProducto = LongStream.concat(Arrays.stream(idsProducto), productosArchivados.build()).toArray();
+            }
+            long[] idsLeidos = detalles.build().toArray();
+
+            IndiceCoCompra nuevo = ForkJoinPool.commonPool()
+                .invoke(new Construccion(idsOrden, idsProducto, 0, idsOrden.length));
+            Arrays.parallelSort(idsLeidos);
+
+            bloqueo.writeLock().lock();
+            try {
+                for (Cambio cambio : pendientes) {
+                    boolean leido = cambio.idsDetalle().length > 0
+                        && Arrays.binarySearch(idsLeidos, cambio.idsDetalle()[0]) >= 0;
+                    // Un alta ya leída o una baja que la lectura no vio ya están reflejadas
+                    if (cambio.signo() > 0 ? !leido : leido) {
+                        nuevo.registrar(cambio.nuevos(), cambio.existentes(), cambio.signo());
+                    }
+                }
+                indice = nuevo;
+            } finally {
+                pendientes = null;
+                bloqueo.writeLock().unlock();
+            }
+            log.info("Índice de productos relacionados reconstruido: {} líneas, {} productos, {} pares en {} ms",
+                idsOrden.length, nuevo.getProductos(), nuevo.getPares(), (System.nanoTime() - inicio) / 1_000_000);
+            return idsOrden.length;
+        } catch (RuntimeException e) {
+            bloqueo.writeLock().lock();
+            try {
+                pendientes = null;
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+            throw e;
+        } finally {
+            reconstruyendo.set(false);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirAlIniciar() {
+        if (!reconstruirAlIniciar) {
+            return;
+        }
+        // En segundo plano: hasta que termine, las consultas usan el índice incremental
+        Thread hilo = new Thread(() -> {
+            try {
+                reconstruir();
+            } catch (DataAccessException e) {
+                log.warn("No se pudo reconstruir el índice de productos relacionados: {}", e.getMessage());
+            }
+        }, "indice-cocompra");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    public int getProductos() {
+        bloqueo.readLock().lock();
+        try {
+            return indice.getProductos();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    public long getPares() {
+        bloqueo.readLock().lock();
+        try {
+            return indice.getPares();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Construye el índice de un rango de líneas ordenadas por orden. Divide
+     * el rango por la mitad (ajustada al inicio de una orden) hasta que es
+     * pequeño y une los índices parciales, el menor dentro del mayor.
+     */
+    static class Construccion extends RecursiveTask<IndiceCoCompra> {
+
+        private final long[] ordenes;
+        private final long[] productos;
+        private final int desde;
+        private final int hasta;
+
+        Construccion(long[] ordenes, long[] productos, int desde, int hasta) {
+            this.ordenes = ordenes;
+            this.productos = productos;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected IndiceCoCompra compute() {
+            if (hasta - desde > LINEAS_POR_TAREA) {
+                int mitad = (desde + hasta) >>> 1;
+                // Una orden nunca se reparte entre dos tareas
+                while (mitad < hasta && ordenes[mitad] == ordenes[mitad - 1]) {
+                    mitad++;
+                }
+                if (mitad < hasta) {
+                    Construccion izquierda = new Construccion(ordenes, productos, desde, mitad);
+                    izquierda.fork();
+                    IndiceCoCompra derecha = new Construccion(ordenes, productos, mitad, hasta).compute();
+                    IndiceCoCompra parcial = izquierda.join();
+                    if (parcial.getPares() >= derecha.getPares()) {
+                        parcial.fusionar(derecha);
+                        return parcial;
+                    }
+                    derecha.fusionar(parcial);
+                    return derecha;
+                }
+            }
+
+            IndiceCoCompra resultado = new IndiceCoCompra();
+            int inicioOrden = desde;
+            for (int i = desde + 1; i <= hasta; i++) {
+                if (i == hasta || ordenes[i] != ordenes[inicioOrden]) {
+                    if (i - inicioOrden > 1) {
+                        resultado.registrarOrden(productos, inicioOrden, i);
+                    }
+                    inicioOrden = i;
+                }
+            }
+            return resultado;
+        }
+    }
+}
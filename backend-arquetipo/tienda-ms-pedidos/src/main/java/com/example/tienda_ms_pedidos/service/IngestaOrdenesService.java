@@ -0,0 +1,296 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.MetricasIngestaDTO;
+import com.example.tienda_ms_pedidos.exception.IngestaPendienteException;
+import com.example.tienda_ms_pedidos.exception.IngestaSaturadaException;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.ClaveIdempotenciaRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modo de ingesta (opcional): las órdenes aceptadas entran a una cola acotada
+ * y un único escritor las guarda en commits agrupados de hasta N órdenes o T
+ * milisegundos, en vez de un commit por solicitud. Quien encola espera a que
+ * el commit de su lote termine, así la respuesta sigue siendo durable.
+ *
+ * Cada orden recibe una Idempotency-Key cuya respuesta se guarda en el mismo
+ * commit. Si la confirmación no llega a tiempo la orden queda pendiente (y
+ * puede confirmarse después): el cliente consulta el resultado con esa clave
+ * en vez de reintentar y duplicarla.
+ *
+ * Si la cola está llena se rechaza la orden (contrapresión) en lugar de
+ * acumular solicitudes sin límite. Encolar dentro de una transacción no está
+ * permitido: el llamador retendría su conexión mientras espera a otra.
+ */
+@Service
+@ConditionalOnProperty(name = "pedidos.ingesta.habilitada", havingValue = "true")
+public class IngestaOrdenesService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestaOrdenesService.class);
+
+    private static final long ESPERA_CIERRE_MS = 10000;
+
+    private static final String PREFIJO_CLAVE = "ingesta-";
+
+    private final OrdenRepository ordenRepository;
+    private final ClaveIdempotenciaRepository claveRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxService outboxService;
+    private final IngresosService ingresosService;
+    private final TransactionTemplate transaccion;
+    private final BlockingQueue<Solicitud> cola;
+    private final int capacidad;
+    private final int tamanoLote;
+    private final long esperaLoteNanos;
+    private final long esperaEncolarMs;
+    private final long esperaConfirmacionMs;
+    private final long ttlClaveMs;
+
+    private final LongAdder ordenesConfirmadas = new LongAdder();
+    private final LongAdder lotesConfirmados = new LongAdder();
+    private final LongAdder lotesFallidos = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder nanosCommit = new LongAdder();
+    private final AtomicLong maximoNanosCommit = new AtomicLong();
+
+    private volatile boolean activo;
+    private Thread escritor;
+
+    private record Solicitud(Orden orden, String clave, CompletableFuture<Orden> confirmacion) {
+    }
+
+    public IngestaOrdenesService(OrdenRepository ordenRepository,
+                                 ClaveIdempotenciaRepository claveRepository,
+                                 ObjectMapper objectMapper,
+                                 OutboxService outboxService,
+                                 IngresosService ingresosService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${pedidos.ingesta.capacidad:1000}") int capacidad,
+                                 @Value("${pedidos.ingesta.tamano-lote:50}") int tamanoLote,
+                                 @Value("${pedidos.ingesta.espera-lote-ms:10}") long esperaLoteMs,
+                                 @Value("${pedidos.ingesta.espera-encolar-ms:100}") long esperaEncolarMs,
+                                 @Value("${pedidos.ingesta.espera-confirmacion-ms:30000}") long esperaConfirmacionMs,
+                                 @Value("${pedidos.idempotencia.ttl-horas:24}") long ttlHoras) {
+        this.ordenRepository = ordenRepository;
+        this.claveRepository = claveRepository;
+        this.objectMapper = objectMapper;
+        this.outboxService = outboxService;
+        this.ingresosService = ingresosService;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.capacidad = capacidad;
+        this.tamanoLote = tamanoLote;
+        this.esperaLoteNanos = TimeUnit.MILLISECONDS.toNanos(esperaLoteMs);
+        this.esperaEncolarMs = esperaEncolarMs;
+        this.esperaConfirmacionMs = esperaConfirmacionMs;
+        this.ttlClaveMs = TimeUnit.HOURS.toMillis(ttlHoras);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        activo = true;
+        escritor = new Thread(this::escribir, "ingesta-ordenes");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Deja de aceptar órdenes y espera a que el escritor vacíe la cola.
+     */
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        try {
+            escritor.join(ESPERA_CIERRE_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encola la orden y espera a que el lote que la contiene haga commit.
+     *
+     * @param orden Orden nueva (sin ID).
+     * @return La orden guardada.
+     * @throws IngestaSaturadaException si la cola está llena.
+     * @throws IngestaPendienteException si la orden se encoló pero no hay confirmación a tiempo.
+     * @throws IllegalStateException si se llama dentro de una transacción.
+     */
+    public Orden guardar(Orden orden) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("La ingesta de órdenes no puede usarse dentro de una transacción");
+        }
+        Solicitud solicitud = new Solicitud(orden, PREFIJO_CLAVE + UUID.randomUUID(), new CompletableFuture<>());
+        try {
+            if (!activo || !cola.offer(solicitud, esperaEncolarMs, TimeUnit.MILLISECONDS)) {
+                rechazadas.increment();
+                throw new IngestaSaturadaException("Cola de ingesta de órdenes llena");
+            }
+            return solicitud.confirmacion().get(esperaConfirmacionMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw pendiente(solicitud);
+        } catch (TimeoutException e) {
+            throw pendiente(solicitud);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // La orden ya se encoló: puede seguir en la cola o en un commit en curso
+    private IngestaPendienteException pendiente(Solicitud solicitud) {
+        return new IngestaPendienteException("La orden sigue pendiente de confirmación", solicitud.clave());
+    }
+
+    public MetricasIngestaDTO getMetricas() {
+        long lotes = lotesConfirmados.sum();
+        long ordenes = ordenesConfirmadas.sum();
+        MetricasIngestaDTO metricas = new MetricasIngestaDTO();
+        metricas.setProfundidadCola(cola.size());
+        metricas.setCapacidadCola(capacidad);
+        metricas.setOrdenesConfirmadas(ordenes);
+        metricas.setLotesConfirmados(lotes);
+        metricas.setLotesFallidos(lotesFallidos.sum());
+        metricas.setRechazadas(rechazadas.sum());
+        metricas.setTamanoLotePromedio(lotes == 0 ? 0 : (double) ordenes / lotes);
+        metricas.setLatenciaCommitPromedioMs(lotes == 0 ? 0 : nanosCommit.sum() / 1e6 / lotes);
+        metricas.setLatenciaCommitMaximaMs(maximoNanosCommit.get() / 1e6);
+        return metricas;
+    }
+
+    private void escribir() {
+        List<Solicitud> lote = new ArrayList<>(tamanoLote);
+        // Al detener se sigue hasta vaciar la cola: esas órdenes ya fueron aceptadas
+        while (activo || !cola.isEmpty()) {
+            try {
+                Solicitud primera = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                long limite = System.nanoTime() + esperaLoteNanos;
+                while (lote.size() < tamanoLote) {
+                    Solicitud siguiente = cola.poll(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+                confirmar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lote.forEach(s -> s.confirmacion().completeExceptionally(e));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error inesperado en el escritor de ingesta: {}", e.getMessage(), e);
+                lote.forEach(s -> s.confirmacion().completeExceptionally(e));
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void confirmar(List<Solicitud> lote) {
+        List<Orden> ordenes = lote.stream().map(Solicitud::orden).toList();
+        long inicio = System.nanoTime();
+        try {
+            List<Orden> guardadas = transaccion.execute(status -> {
+                List<Orden> lista = ordenRepository.saveAll(ordenes);
+                outboxService.ordenesCreadas(lista);
+                ingresosService.registrarOrdenes(lista);
+                Map<String, String> respuestas = new LinkedHashMap<>();
+                for (int i = 0; i < lote.size(); i++) {
+                    respuestas.put(lote.get(i).clave(), escribir(lista.get(i)));
+                }
+                guardarClaves(respuestas);
+                return lista;
+            });
+            registrarCommit(System.nanoTime() - inicio, lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).confirmacion().complete(guardadas.get(i));
+            }
+        } catch (RuntimeException e) {
+            lotesFallidos.increment();
+            log.warn("Falló el commit de un lote de {} órdenes, se reintentan una a una: {}", lote.size(), e.getMessage());
+            // Una orden inválida no debe hacer fallar a las demás del lote
+            for (Solicitud solicitud : lote) {
+                reintentar(solicitud);
+            }
+        }
+    }
+
+    private void reintentar(Solicitud solicitud) {
+        Orden orden = solicitud.orden();
+        // El intento fallido pudo asignar IDs de la secuencia: sin limpiarlos se trataría como un merge
+        orden.setId(null);
+        if (orden.getDetalles() != null) {
+            orden.getDetalles().forEach((DetalleOrden detalle) -> detalle.setId(null));
+        }
+        long inicio = System.nanoTime();
+        try {
+            Orden guardada = transaccion.execute(status -> {
+                Orden unica = ordenRepository.save(orden);
+                outboxService.ordenCreada(unica);
+                ingresosService.registrarOrdenes(List.of(unica));
+                guardarClaves(Map.of(solicitud.clave(), escribir(unica)));
+                return unica;
+            });
+            registrarCommit(System.nanoTime() - inicio, 1);
+            solicitud.confirmacion().complete(guardada);
+        } catch (RuntimeException e) {
+            solicitud.confirmacion().completeExceptionally(e);
+        }
+    }
+
+    // En el mismo commit que las órdenes: una clave entregada como pendiente solo existe si su orden existe
+    private void guardarClaves(Map<String, String> respuestas) {
+        Date ahora = new Date();
+        claveRepository.insertarCompletadas(respuestas, ahora, new Date(ahora.getTime() + ttlClaveMs));
+    }
+
+    private String escribir(Orden orden) {
+        try {
+            return objectMapper.writeValueAsString(orden);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la orden", e);
+        }
+    }
+
+    private void registrarCommit(long nanos, int ordenes) {
+        lotesConfirmados.increment();
+        ordenesConfirmadas.add(ordenes);
+        nanosCommit.add(nanos);
+        maximoNanosCommit.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.IngresoPeriodoDTO;
+import com.example.tienda_ms_pedidos.model.IngresoPeriodo;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.IngresoPeriodoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Ingresos por hora, día y mes (tabla INGRESOS_PERIODO). Cada orden suma su
+ * monto a la hora de su fecha en la misma transacción que la crea; un proceso
+ * programado pliega las horas recientes en días y los días en meses. Las
+ * consultas leen solo estos periodos, nunca la tabla ORDENES.
+ *
+ * Los días y meses reflejan las órdenes hasta el último plegado; las órdenes
+ * sin fecha no se contabilizan.
+ */
+@Service
+public class IngresosService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngresosService.class);
+
+    // Límites del rango completo al reconstruir
+    private static final LocalDateTime MINIMO = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAXIMO = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private final IngresoPeriodoRepository ingresoPeriodoRepository;
+    private final ArchivoOrdenesService archivoOrdenesService;
+    private final TransactionTemplate transaccion;
+    private final int franjas;
+    private final int diasReplegado;
+    private final int maximoPuntos;
+    private final boolean reconstruirAlIniciar;
+
+    public IngresosService(IngresoPeriodoRepository ingresoPeriodoRepository,
+                           ArchivoOrdenesService archivoOrdenesService,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${pedidos.ingresos.franjas:8}") int franjas,
+                           @Value("${pedidos.ingresos.dias-replegado:2}") int diasReplegado,
+                           @Value("${pedidos.ingresos.maximo-puntos:2000}") int maximoPuntos,
+                           @Value("${pedidos.ingresos.reconstruir-al-iniciar:false}") boolean reconstruirAlIniciar) {
+        this.ingresoPeriodoRepository = ingresoPeriodoRepository;
+        this.archivoOrdenesService = archivoOrdenesService;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.franjas = franjas;
+        this.diasReplegado = diasReplegado;
+        this.maximoPuntos = maximoPuntos;
+        this.reconstruirAlIniciar = reconstruirAlIniciar;
+    }
+
+    /**
+     * Suma las órdenes a los ingresos de su hora.
+     * 
+     * @param ordenes Órdenes recién creadas.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarOrdenes(Collection<Orden> ordenes) {
+        Map<LocalDateTime, IngresoPeriodoDTO> porHora = new HashMap<>();
+        for (Orden orden : ordenes) {
+            if (orden.getFecha() != null && orden.getMontoTotal() != null) {
+                LocalDateTime hora = LocalDateTime.ofInstant(orden.getFecha().toInstant(), ZoneId.systemDefault())
+                    .truncatedTo(ChronoUnit.HOURS);
+                sumar(porHora, hora, orden.getMontoTotal(), 1);
+            }
+        }
+        // Una franja al azar por transacción: las compras concurrentes de la misma hora se reparten entre filas
+        ingresoPeriodoRepository.acumular(IngresoPeriodo.HORA, ThreadLocalRandom.current().nextInt(franjas), porHora);
+    }
+
+    /**
+     * Ingresos por periodo entre dos días.
+     * 
+     * @param desde Primer día (inclusive).
+     * @param hasta Último día (inclusive).
+     * @param granularidad hora, dia o mes.
+     * @return Periodos con ventas, en orden cronológico.
+     * @throws IllegalArgumentException si la granularidad o el rango no son válidos.
+     */
+    @Transactional(readOnly = true)
+    public List<IngresoPeriodoDTO> consultar(LocalDate desde, LocalDate hasta, String granularidad) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("Rango de fechas inválido");
+        }
+        String tipo = granularidad == null ? "" : granularidad.toUpperCase(Locale.ROOT);
+        LocalDate inicio;
+        LocalDate fin;
+        long puntos;
+        switch (tipo) {
+            case IngresoPeriodo.HORA -> {
+                inicio = desde;
+                fin = hasta.plusDays(1);
+                puntos = ChronoUnit.DAYS.between(inicio, fin) * 24;
+            }
+            case IngresoPeriodo.DIA -> {
+                inicio = desde;
+                fin = hasta.plusDays(1);
+                puntos = ChronoUnit.DAYS.between(inicio, fin);
+            }
+            case IngresoPeriodo.MES -> {
+                inicio = desde.withDayOfMonth(1);
+                fin = hasta.withDayOfMonth(1).plusMonths(1);
+                puntos = ChronoUnit.MONTHS.between(inicio, fin);
+            }
+            default -> throw new IllegalArgumentException("Granularidad inválida: use hora, dia o mes");
+        }
+        if (puntos > maximoPuntos) {
+            throw new IllegalArgumentException("Rango demasiado amplio para la granularidad " + granularidad);
+        }
+        return ingresoPeriodoRepository.findPeriodos(tipo, inicio.atStartOfDay(), fin.atStartOfDay());
+    }
+
+    /**
+     * Pliega las horas de los últimos días en días, y esos días en sus meses.
+     */
+    @Scheduled(initialDelayString = "${pedidos.ingresos.plegado-ms:300000}",
+               fixedDelayString = "${pedidos.ingresos.plegado-ms:300000}")
+    public void plegar() {
+        try {
+            LocalDate manana = LocalDate.now().plusDays(1);
+            LocalDate desdeDia = manana.minusDays(diasReplegado + 1L);
+            LocalDate desdeMes = desdeDia.withDayOfMonth(1);
+            LocalDate hastaMes = manana.minusDays(1).withDayOfMonth(1).plusMonths(1);
+            transaccion.executeWithoutResult(status -> {
+                plegar(IngresoPeriodo.HORA, IngresoPeriodo.DIA, desdeDia.atStartOfDay(), manana.atStartOfDay(),
+                    hora -> hora.truncatedTo(ChronoUnit.DAYS));
+                plegar(IngresoPeriodo.DIA, IngresoPeriodo.MES, desdeMes.atStartOfDay(), hastaMes.atStartOfDay(),
+                    dia -> dia.withDayOfMonth(1));
+            });
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron plegar los ingresos por periodo: {}", e.getMessage());
+        }
+    }
+
+    private void plegar(String origen, String destino, LocalDateTime desde, LocalDateTime hasta,
+                        Function<LocalDateTime, LocalDateTime> periodo) {
+        Map<LocalDateTime, IngresoPeriodoDTO> plegados = new TreeMap<>();
+        for (IngresoPeriodoDTO fila : ingresoPeriodoRepository.findPeriodos(origen, desde, hasta)) {
+            sumar(plegados, periodo.apply(fila.getInicio()), fila.getMonto(), fila.getOrdenes());
+        }
+        ingresoPeriodoRepository.reemplazar(destino, desde, hasta, plegados.values());
+    }
+
+    /**
+     * Recalcula horas, días y meses desde la tabla ORDENES (una sola lectura).
+     * Pensado para poblar los periodos la primera vez o tras cargar órdenes antiguas.
+     * Con órdenes archivadas solo se recalculan los periodos desde el corte del
+     * archivo; los anteriores se conservan.
+     * 
+     * @return Número de horas con ventas.
+     */
+    public int reconstruir() {
+        ZoneId zona = ZoneId.systemDefault();
+        // El corte es inicio de mes: ningún día ni mes queda a medias
+        LocalDateTime desde = archivoOrdenesService.corteReconstruccion()
+            .map(LocalDate::atStartOfDay)
+            .orElse(MINIMO);
+        Map<LocalDateTime, IngresoPeriodoDTO> horas = new TreeMap<>();
+        ingresoPeriodoRepository.recorrerOrdenes((fecha, monto) -> {
+            LocalDateTime hora = LocalDateTime.ofInstant(fecha.toInstant(), zona).truncatedTo(ChronoUnit.HOURS);
+            if (!hora.isBefore(desde)) {
+                sumar(horas, hora, monto, 1);
+            }
+        });
+
+        Map<LocalDateTime, IngresoPeriodoDTO> dias = new TreeMap<>();
+        horas.values().forEach(h -> sumar(dias, h.getInicio().truncatedTo(ChronoUnit.DAYS), h.getMonto(), h.getOrdenes()));
+        Map<LocalDateTime, IngresoPeriodoDTO> meses = new TreeMap<>();
+        dias.values().forEach(d -> sumar(meses, d.getInicio().withDayOfMonth(1), d.getMonto(), d.getOrdenes()));
+
+        transaccion.executeWithoutResult(status -> {
+            ingresoPeriodoRepository.reemplazar(IngresoPeriodo.HORA, desde, MAXIMO, horas.values());
+            ingresoPeriodoRepository.reemplazar(IngresoPeriodo.DIA, desde, MAXIMO, dias.values());
+            ingresoPeriodoRepository.reemplazar(IngresoPeriodo.MES, desde, MAXIMO, meses.values());
+        });
+        log.info("Ingresos por periodo reconstruidos: {} horas, {} días, {} meses", horas.size(), dias.size(), meses.size());
+        return horas.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirSiCorresponde() {
+        if (!reconstruirAlIniciar) {
+            return;
+        }
+        try {
+            reconstruir();
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron reconstruir los ingresos por periodo: {}", e.getMessage());
+        }
+    }
+
+    private void sumar(Map<LocalDateTime, IngresoPeriodoDTO> periodos, LocalDateTime inicio, double monto, long ordenes) {
+        IngresoPeriodoDTO periodo = periodos.computeIfAbsent(inicio, k -> new IngresoPeriodoDTO(k, 0.0, 0L));
+        periodo.setMonto(periodo.getMonto() + monto);
+        periodo.setOrdenes(periodo.getOrdenes() + ordenes);
+    }
+}
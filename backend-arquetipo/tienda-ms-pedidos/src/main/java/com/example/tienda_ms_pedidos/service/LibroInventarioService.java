@@ -0,0 +1,348 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.MovimientoStock;
+import com.example.tienda_ms_pedidos.repository.MovimientoStockRepository;
+import com.example.tienda_ms_pedidos.repository.MovimientoStockRepositoryCustom.StockProyectado;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Libro de inventario (opcional): en lugar de sobrescribir PRODUCTO.STOCK,
+ * cada cambio de stock se inserta como un {@link MovimientoStock} con signo y
+ * el stock vigente se sirve desde una proyección en memoria. Un proceso
+ * periódico suma a PRODUCTO.STOCK los movimientos hasta un corte y guarda un
+ * snapshot por producto en SNAPSHOTS_STOCK; al iniciar, la proyección se
+ * reconstruye desde PRODUCTO.STOCK más la cola de movimientos posteriores.
+ *
+ * Contrato con tienda-ms-productos: PRODUCTO.STOCK sigue siendo compartido.
+ * pedidos lo descuenta con retraso (hasta snapshot-ms + snapshot-retraso-ms)
+ * y tienda-ms-productos puede reponer o ajustar stock, pero solo con UPDATE
+ * relativos (STOCK = STOCK + n): sobrescribir el valor absoluto descartaría
+ * los movimientos aún no sumados. Cada snapshot detecta esos cambios
+ * externos comparando PRODUCTO.STOCK con la base que conoce y los aplica a la
+ * proyección.
+ *
+ * La disponibilidad se valida contra la proyección, por lo que en este modo
+ * pedidos debe ejecutarse como una única instancia escritora. Un rollback de
+ * la transacción que insertó los movimientos revierte también la proyección.
+ */
+@Service
+@ConditionalOnProperty(name = "pedidos.stock.libro.habilitado", havingValue = "true")
+public class LibroInventarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(LibroInventarioService.class);
+
+    private static final int NUMERO_BLOQUEOS = 64;
+
+    private final MovimientoStockRepository movimientoStockRepository;
+    private final TransactionTemplate transaccion;
+    private final long retrasoSnapshotMs;
+
+    private final Map<Long, Double> proyeccion = new ConcurrentHashMap<>();
+    // PRODUCTO.STOCK y corte con los que se cargó (o concilió) cada producto de la proyección
+    private final Map<Long, StockProyectado> bases = new ConcurrentHashMap<>();
+    private final ReentrantLock[] bloqueos = new ReentrantLock[NUMERO_BLOQUEOS];
+    private volatile boolean cargada;
+
+    public LibroInventarioService(MovimientoStockRepository movimientoStockRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${pedidos.stock.libro.snapshot-retraso-ms:60000}") long retrasoSnapshotMs) {
+        this.movimientoStockRepository = movimientoStockRepository;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.retrasoSnapshotMs = retrasoSnapshotMs;
+        for (int i = 0; i < NUMERO_BLOQUEOS; i++) {
+            bloqueos[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Descuenta stock de varios productos: todos o ninguno.
+     *
+     * @param cantidades Cantidad a descontar por ID de producto.
+     * @param motivo Motivo registrado en los movimientos.
+     * @return IDs de los productos sin stock suficiente (o inexistentes); vacío si se descontó.
+     */
+    public List<Long> descontar(Map<Long, Integer> cantidades, String motivo) {
+        asegurarCargada();
+        Map<Long, Double> deltas = new TreeMap<>();
+        cantidades.forEach((id, cantidad) -> deltas.put(id, -cantidad.doubleValue()));
+
+        List<Long> fallidos = new ArrayList<>();
+        List<ReentrantLock> tomados = bloquear(deltas.keySet());
+        try {
+            cargarFaltantes(deltas.keySet());
+            deltas.forEach((id, delta) -> {
+                Double actual = proyeccion.get(id);
+                if (actual == null || actual + delta < 0) {
+                    fallidos.add(id);
+                }
+            });
+            if (!fallidos.isEmpty()) {
+                return fallidos;
+            }
+            deltas.forEach((id, delta) -> proyeccion.merge(id, delta, Double::sum));
+        } finally {
+            tomados.forEach(ReentrantLock::unlock);
+        }
+
+        registrar(deltas, motivo);
+        return fallidos;
+    }
+
+    /**
+     * Devuelve stock a varios productos.
+     *
+     * @param cantidades Cantidad a devolver por ID de producto.
+     * @param motivo Motivo registrado en los movimientos.
+     */
+    public void devolver(Map<Long, Integer> cantidades, String motivo) {
+        asegurarCargada();
+        Map<Long, Double> deltas = new TreeMap<>();
+        cantidades.forEach((id, cantidad) -> deltas.put(id, cantidad.doubleValue()));
+
+        List<ReentrantLock> tomados = bloquear(deltas.keySet());
+        try {
+            cargarFaltantes(deltas.keySet());
+            deltas.forEach((id, delta) -> proyeccion.computeIfPresent(id, (k, actual) -> actual + delta));
+        } finally {
+            tomados.forEach(ReentrantLock::unlock);
+        }
+
+        registrar(deltas, motivo);
+    }
+
+    /**
+     * Stock vigente de un producto según la proyección.
+     *
+     * @return Stock, o null si el producto no existe.
+     */
+    public Double getStock(Long id) {
+        asegurarCargada();
+        Double stock = proyeccion.get(id);
+        if (stock != null) {
+            return stock;
+        }
+        List<ReentrantLock> tomados = bloquear(List.of(id));
+        try {
+            cargarFaltantes(List.of(id));
+            return proyeccion.get(id);
+        } finally {
+            tomados.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${pedidos.stock.libro.snapshot-ms:300000}",
+               fixedDelayString = "${pedidos.stock.libro.snapshot-ms:300000}")
+    public void tomarSnapshotProgramado() {
+        try {
+            int productos = tomarSnapshot(System.currentTimeMillis());
+            if (productos > 0) {
+                log.info("Snapshot de stock de {} productos", productos);
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se pudo tomar el snapshot de stock: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Suma a PRODUCTO.STOCK los movimientos nuevos y guarda su snapshot. Solo
+     * incluye movimientos creados antes de {@code ahoraMs} menos el retraso
+     * configurado, para no dejar atrás los de transacciones aún abiertas.
+     * Después aplica a la proyección los cambios externos de PRODUCTO.STOCK.
+     *
+     * @return Productos con snapshot nuevo.
+     */
+    public synchronized int tomarSnapshot(long ahoraMs) {
+        Map<Long, StockProyectado> conocidas = new HashMap<>(bases);
+        Map<Long, StockProyectado> nuevas = new HashMap<>();
+        Map<Long, Double> externos = new HashMap<>();
+        Integer productos = transaccion.execute(status -> {
+            long anterior = movimientoStockRepository.findCorteSnapshot();
+            Long corte = movimientoStockRepository.findUltimoIdAntesDe(anterior, new Date(ahoraMs - retrasoSnapshotMs));
+            int conSnapshot = corte == null ? 0 : movimientoStockRepository.tomarSnapshot(corte, new Date(ahoraMs));
+            long corteActual = corte == null ? anterior : movimientoStockRepository.findCorteSnapshot();
+            conciliar(conocidas, corteActual, nuevas, externos);
+            return conSnapshot;
+        });
+
+        List<ReentrantLock> tomados = bloquear(nuevas.keySet());
+        try {
+            nuevas.forEach((id, nueva) -> {
+                // Un producto recargado mientras tanto ya trae su base al día
+                if (bases.get(id) == conocidas.get(id)) {
+                    Double externo = externos.get(id);
+                    if (externo != null) {
+                        proyeccion.computeIfPresent(id, (k, actual) -> actual + externo);
+                    }
+                    bases.put(id, nueva);
+                }
+            });
+        } finally {
+            tomados.forEach(ReentrantLock::unlock);
+        }
+        if (!externos.isEmpty()) {
+            log.info("Cambios externos de stock aplicados a la proyección: {}", externos);
+        }
+        return productos == null ? 0 : productos;
+    }
+
+    /**
+     * Compara PRODUCTO.STOCK con lo que debería valer según la base conocida
+     * de cada producto más los movimientos sumados desde su corte; la
+     * diferencia viene de fuera de pedidos.
+     */
+    private void conciliar(Map<Long, StockProyectado> conocidas, long corteActual,
+                           Map<Long, StockProyectado> nuevas, Map<Long, Double> externos) {
+        Map<Long, Double> actuales = movimientoStockRepository.findStockBase();
+        Map<Long, Map<Long, Double>> sumadosDesde = new HashMap<>();
+        conocidas.forEach((id, conocida) -> {
+            Double actual = actuales.get(id);
+            if (actual == null) {
+                return;
+            }
+            double sumados = conocida.corte() < corteActual
+                ? sumadosDesde.computeIfAbsent(conocida.corte(),
+                    desde -> movimientoStockRepository.sumarMovimientos(desde, corteActual)).getOrDefault(id, 0.0)
+                : 0.0;
+            double externo = actual - (conocida.base() + sumados);
+            if (externo != 0) {
+                externos.put(id, externo);
+            }
+            nuevas.put(id, new StockProyectado(actual, 0, corteActual));
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirAlIniciar() {
+        try {
+            reconstruir();
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se pudo reconstruir la proyección de stock, se cargará al primer uso: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reemplaza la proyección por el último snapshot más la cola de
+     * movimientos. Pensado para el arranque: los movimientos de transacciones
+     * todavía abiertas no se ven en la base de datos.
+     *
+     * @return Productos cargados.
+     */
+    public synchronized int reconstruir() {
+        Map<Long, StockProyectado> stock = movimientoStockRepository.proyectar(null);
+        for (ReentrantLock bloqueo : bloqueos) {
+            bloqueo.lock();
+        }
+        try {
+            proyeccion.clear();
+            bases.clear();
+            stock.forEach((id, proyectado) -> {
+                proyeccion.put(id, proyectado.stock());
+                bases.put(id, proyectado);
+            });
+        } finally {
+            for (ReentrantLock bloqueo : bloqueos) {
+                bloqueo.unlock();
+            }
+        }
+        cargada = true;
+        log.info("Proyección de stock reconstruida con {} productos", stock.size());
+        return stock.size();
+    }
+
+    private void asegurarCargada() {
+        if (!cargada) {
+            synchronized (this) {
+                if (!cargada) {
+                    reconstruir();
+                }
+            }
+        }
+    }
+
+    // Productos creados después de cargar la proyección
+    private void cargarFaltantes(Collection<Long> ids) {
+        List<Long> faltantes = ids.stream().filter(id -> !proyeccion.containsKey(id)).toList();
+        if (!faltantes.isEmpty()) {
+            movimientoStockRepository.proyectar(faltantes).forEach((id, proyectado) -> {
+                if (proyeccion.putIfAbsent(id, proyectado.stock()) == null) {
+                    bases.put(id, proyectado);
+                }
+            });
+        }
+    }
+
+    /**
+     * Inserta los movimientos ya aplicados a la proyección. Si la inserción o
+     * la transacción que la contiene fallan, la proyección se revierte.
+     */
+    private void registrar(Map<Long, Double> deltas, String motivo) {
+        Date ahora = new Date();
+        List<MovimientoStock> movimientos = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> movimientos.add(new MovimientoStock(id, delta, motivo, ahora)));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        revertir(deltas);
+                    }
+                }
+            });
+            movimientoStockRepository.saveAll(movimientos);
+            return;
+        }
+        try {
+            movimientoStockRepository.saveAll(movimientos);
+        } catch (RuntimeException e) {
+            revertir(deltas);
+            throw e;
+        }
+    }
+
+    private void revertir(Map<Long, Double> deltas) {
+        List<ReentrantLock> tomados = bloquear(deltas.keySet());
+        try {
+            deltas.forEach((id, delta) -> proyeccion.computeIfPresent(id, (k, actual) -> actual - delta));
+        } finally {
+            tomados.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    private List<ReentrantLock> bloquear(Collection<Long> ids) {
+        // Orden fijo de bloqueos para evitar interbloqueos entre lotes
+        Set<Integer> indices = new TreeSet<>();
+        ids.forEach(id -> indices.add(Math.floorMod(id.hashCode(), NUMERO_BLOQUEOS)));
+        List<ReentrantLock> tomados = new ArrayList<>(indices.size());
+        for (Integer indice : indices) {
+            bloqueos[indice].lock();
+            tomados.add(bloqueos[indice]);
+        }
+        return tomados;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.tienda_ms_pedidos.service;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de long a long con direccionamiento abierto (sondeo lineal) sobre dos
+ * arreglos primitivos. Cada entrada ocupa 16 bytes más el espacio libre de la
+ * tabla, en vez de los ~80 de un HashMap&lt;Long, Long&gt; con claves y valores
+ * boxeados. La clave 0 se reserva para marcar celdas libres. No es thread-safe.
+ */
+public class MapaLargoLargo {
+
+    private static final long LIBRE = 0L;
+    private static final int CAPACIDAD_MINIMA = 4;
+
+    private long[] claves;
+    private long[] valores;
+    private int mascara;
+    private int tamano;
+    private int limite;
+
+    @FunctionalInterface
+    public interface Consumidor {
+        void aceptar(long clave, long valor);
+    }
+
+    public MapaLargoLargo() {
+        this(CAPACIDAD_MINIMA);
+    }
+
+    public MapaLargoLargo(int capacidadEsperada) {
+        // Factor de carga 0.75 sobre una tabla de tamaño potencia de 2
+        int capacidad = Integer.highestOneBit(Math.max(CAPACIDAD_MINIMA, capacidadEsperada * 4 / 3) - 1) << 1;
+        asignar(capacidad);
+    }
+
+    public long get(long clave) {
+        int indice = buscar(clave);
+        return indice < 0 ? 0L : valores[indice];
+    }
+
+    public boolean contiene(long clave) {
+        return buscar(clave) >= 0;
+    }
+
+    public void put(long clave, long valor) {
+        validar(clave);
+        int indice = posicion(clave);
+        while (claves[indice] != LIBRE) {
+            if (claves[indice] == clave) {
+                valores[indice] = valor;
+                return;
+            }
+            indice = (indice + 1) & mascara;
+        }
+        insertarEn(indice, clave, valor);
+    }
+
+    /**
+     * Suma {@code delta} al valor de la clave (0 si no existe). Si el
+     * resultado es 0 la entrada se elimina.
+     *
+     * @return El nuevo valor.
+     */
+    public long sumar(long clave, long delta) {
+        validar(clave);
+        int indice = posicion(clave);
+        while (claves[indice] != LIBRE) {
+            if (claves[indice] == clave) {
+                long nuevo = valores[indice] + delta;
+                if (nuevo == 0) {
+                    eliminarEn(indice);
+                } else {
+                    valores[indice] = nuevo;
+                }
+                return nuevo;
+            }
+            indice = (indice + 1) & mascara;
+        }
+        if (delta != 0) {
+            insertarEn(indice, clave, delta);
+        }
+        return delta;
+    }
+
+    public void eliminar(long clave) {
+        int indice = buscar(clave);
+        if (indice >= 0) {
+            eliminarEn(indice);
+        }
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    public void recorrer(Consumidor consumidor) {
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != LIBRE) {
+                consumidor.aceptar(claves[i], valores[i]);
+            }
+        }
+    }
+
+    private int buscar(long clave) {
+        if (clave == LIBRE) {
+            return -1;
+        }
+        int indice = posicion(clave);
+        while (claves[indice] != LIBRE) {
+            if (claves[indice] == clave) {
+                return indice;
+            }
+            indice = (indice + 1) & mascara;
+        }
+        return -1;
+    }
+
+    private void insertarEn(int indice, long clave, long valor) {
+        claves[indice] = clave;
+        valores[indice] = valor;
+        if (++tamano > limite) {
+            crecer();
+        }
+    }
+
+    /**
+     * Borrado con desplazamiento hacia atrás: mueve las entradas siguientes del
+     * mismo grupo para que ninguna búsqueda se corte en la celda liberada.
+     */
+    private void eliminarEn(int indice) {
+        int libre = indice;
+        int actual = (indice + 1) & mascara;
+        while (claves[actual] != LIBRE) {
+            int ideal = posicion(claves[actual]);
+            // La entrada puede ocupar la celda libre si esta queda entre su posición ideal y la actual
+            boolean mover = libre <= actual
+                ? ideal <= libre || ideal > actual
+                : ideal <= libre && ideal > actual;
+            if (mover) {
+                claves[libre] = claves[actual];
+                valores[libre] = valores[actual];
+                libre = actual;
+            }
+            actual = (actual + 1) & mascara;
+        }
+        claves[libre] = LIBRE;
+        valores[libre] = 0L;
+        tamano--;
+    }
+
+    private void crecer() {
+        long[] clavesAnteriores = claves;
+        long[] valoresAnteriores = valores;
+        asignar(claves.length << 1);
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            long clave = clavesAnteriores[i];
+            if (clave != LIBRE) {
+                int indice = posicion(clave);
+                while (claves[indice] != LIBRE) {
+                    indice = (indice + 1) & mascara;
+                }
+                claves[indice] = clave;
+                valores[indice] = valoresAnteriores[i];
+            }
+        }
+    }
+
+    private void asignar(int capacidad) {
+        claves = new long[capacidad];
+        valores = new long[capacidad];
+        Arrays.fill(claves, LIBRE);
+        mascara = capacidad - 1;
+        limite = capacidad * 3 / 4;
+    }
+
+    private int posicion(long clave) {
+        // Mezcla de Fibonacci: IDs consecutivos quedan repartidos por toda la tabla
+        long mezcla = clave * 0x9E3779B97F4A7C15L;
+        return (int) (mezcla ^ (mezcla >>> 32)) & mascara;
+    }
+
+    private void validar(long clave) {
+        if (clave == LIBRE) {
+            throw new IllegalArgumentException("La clave 0 está reservada");
+        }
+    }
+}
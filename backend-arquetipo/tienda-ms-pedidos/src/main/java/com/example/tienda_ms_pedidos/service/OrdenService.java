@@ -1,7 +1,14 @@
 package com.example.tienda_ms_pedidos.service;
 
+import com.example.tienda_ms_pedidos.DTO.PaginaDTO;
+import com.example.tienda_ms_pedidos.DTO.ResultadoTransicionDTO;
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
 import com.example.tienda_ms_pedidos.model.Orden;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +22,26 @@ public interface OrdenService {
      */
     Orden saveOrden(Orden orden);
 
+    /**
+     * Igual que {@link #saveOrden(Orden)}, pero siempre dentro de la
+     * transacción del llamador, sin pasar por la cola de ingesta. Lo usa la
+     * reproducción del diario, que guarda la clave de la orden en la misma
+     * transacción.
+     * 
+     * @param orden Orden a guardar.
+     * @return La orden guardada.
+     */
+    Orden saveOrdenEnTransaccion(Orden orden);
+
+    /**
+     * Registra una orden completa (cabecera, detalles y rebaja de stock)
+     * en una sola transacción.
+     * 
+     * @param orden Orden con sus detalles.
+     * @return La orden guardada con sus detalles.
+     */
+    Orden checkout(Orden orden);
+
     /**
      * Encuentra una orden por su ID.
      * 
@@ -30,6 +57,65 @@ public interface OrdenService {
      */
     List<Orden> findAll();
 
+    /**
+     * Obtiene una página de órdenes ordenadas por ID, a partir de un cursor.
+     * 
+     * @param cursor Cursor devuelto por la página anterior, o null para la primera.
+     * @param tamano Número máximo de órdenes de la página.
+     * @return Página de órdenes y cursor de la siguiente.
+     * @throws IllegalArgumentException si el cursor no es válido.
+     */
+    PaginaDTO<Orden> findPagina(String cursor, int tamano);
+
+    /**
+     * Obtiene una página de resúmenes de órdenes (ID, email, estado, fecha y
+     * monto total) ordenados por ID, sin cargar los detalles.
+     * 
+     * @param estado Estado de las órdenes, o null para todos.
+     * @param cursor Cursor devuelto por la página anterior, o null para la primera.
+     * @param tamano Tamaño de la página.
+     * @return Página de resúmenes de órdenes y cursor de la siguiente.
+     * @throws IllegalArgumentException si el cursor no es válido.
+     */
+    PaginaDTO<ResumenOrdenDTO> findPaginaResumen(Integer estado, String cursor, int tamano);
+
+    /**
+     * Obtiene una página de órdenes con el estado dado, a partir de un cursor.
+     * 
+     * @param estado Estado de las órdenes.
+     * @param cursor Cursor devuelto por la página anterior, o null para la primera.
+     * @param tamano Número máximo de órdenes de la página.
+     * @return Página de órdenes y cursor de la siguiente.
+     * @throws IllegalArgumentException si el cursor no es válido.
+     */
+    PaginaDTO<Orden> findPaginaByEstado(int estado, String cursor, int tamano);
+
+    /**
+     * Obtiene una página de las órdenes de un rango de fechas, ordenadas por
+     * fecha e ID, a partir de un cursor.
+     * 
+     * @param desde Inicio del rango (inclusive).
+     * @param hasta Fin del rango (exclusivo).
+     * @param estado Estado de las órdenes, o null para todos.
+     * @param cursor Cursor devuelto por la página anterior, o null para la primera.
+     * @param tamano Número máximo de órdenes de la página.
+     * @return Página de órdenes y cursor de la siguiente.
+     * @throws IllegalArgumentException si el rango o el cursor no son válidos.
+     */
+    PaginaDTO<Orden> findPaginaByFecha(Date desde, Date hasta, Integer estado, String cursor, int tamano);
+
+    /**
+     * Obtiene una página del historial de órdenes de un cliente, de la más
+     * reciente a la más antigua, a partir de un cursor.
+     * 
+     * @param email Email del cliente.
+     * @param cursor Cursor devuelto por la página anterior, o null para la primera.
+     * @param tamano Número máximo de órdenes de la página.
+     * @return Página de resúmenes de órdenes y cursor de la siguiente.
+     * @throws IllegalArgumentException si falta el email o el cursor no es válido.
+     */
+    PaginaDTO<ResumenOrdenDTO> findPaginaByEmail(String email, String cursor, int tamano);
+
     /**
      * Encuentra todas las órdenes asociadas a un email.
      * 
@@ -47,10 +133,50 @@ public interface OrdenService {
     List<Orden> findByEstado(int estado);
 
     /**
-     * Actualiza el estado de una orden.
+     * Escribe las órdenes con sus detalles como JSON delimitado por saltos de
+     * línea (una orden por línea), leyendo la base de datos como stream para
+     * que la memoria usada no dependa del número de órdenes.
+     * 
+     * @param desde Fecha inicial (inclusive), o null.
+     * @param hasta Fecha final (inclusive), o null.
+     * @param estado Estado de las órdenes, o null para todos.
+     * @param salida Destino del export; no se cierra.
+     * @return Número de órdenes escritas.
+     * @throws IOException si falla la escritura.
+     */
+    long exportar(LocalDate desde, LocalDate hasta, Integer estado, OutputStream salida) throws IOException;
+
+    /**
+     * Escribe como JSON delimitado por saltos de línea las órdenes de un rango
+     * de fechas con hora, para ventanas demasiado grandes para paginar.
+     * 
+     * @param desde Inicio del rango (inclusive).
+     * @param hasta Fin del rango (exclusivo).
+     * @param estado Estado de las órdenes, o null para todos.
+     * @param salida Destino del export; no se cierra.
+     * @return Número de órdenes escritas.
+     * @throws IOException si falla la escritura.
+     */
+    long exportarRango(Date desde, Date hasta, Integer estado, OutputStream salida) throws IOException;
+
+    /**
+     * Avanza una orden a un nuevo estado, solo desde el estado anterior (1→2→3→4).
      * 
      * @param id ID de la orden.
      * @param estado Nuevo estado de la orden.
+     * @throws IllegalArgumentException si el estado no es un destino válido.
+     * @throws IllegalStateException si la orden existe pero no está en el estado anterior.
      */
     void updateEstado(Long id, int estado);
+
+    /**
+     * Avanza varias órdenes del estado indicado al siguiente (1→2→3→4),
+     * solo si siguen en ese estado.
+     * 
+     * @param ids IDs de las órdenes.
+     * @param desde Estado esperado de las órdenes.
+     * @return Órdenes que avanzaron y órdenes omitidas.
+     * @throws IllegalArgumentException si no hay IDs o el estado no admite transición.
+     */
+    ResultadoTransicionDTO avanzarEstado(List<Long> ids, int desde);
 }
\ No newline at end of file
@@ -1,11 +1,39 @@
 package com.example.tienda_ms_pedidos.service;
 
+import com.example.tienda_ms_pedidos.DTO.EventoOrdenDTO;
+import com.example.tienda_ms_pedidos.DTO.PaginaDTO;
+import com.example.tienda_ms_pedidos.DTO.ResultadoTransicionDTO;
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
 import com.example.tienda_ms_pedidos.model.Orden;
 import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.example.tienda_ms_pedidos.util.CursorUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,14 +43,60 @@ public class OrdenServiceImpl implements OrdenService {
 
     private static final Logger log = LoggerFactory.getLogger(OrdenServiceImpl.class);
 
+    // Cada cuántas órdenes se vacía la salida del export hacia el cliente
+    private static final int ORDENES_POR_FLUSH = 500;
+
+    // Oracle admite a lo más 1000 expresiones en una lista IN
+    private static final int IDS_POR_SENTENCIA = 1000;
+
     private final OrdenRepository ordenRepository;
+    private final ProductoService productoService;
+    private final ObjectMapper objectMapper;
+    private final EventosOrdenService eventosOrdenService;
+    private final OutboxService outboxService;
+    private final VentasProductoService ventasProductoService;
+    private final IngresosService ingresosService;
+    private final IndiceCoCompraService indiceCoCompraService;
+    private final HistorialClienteService historialClienteService;
+    private final TransactionTemplate transaccion;
+    private IngestaOrdenesService ingestaOrdenesService;
 
-    public OrdenServiceImpl(OrdenRepository ordenRepository) {
+    public OrdenServiceImpl(OrdenRepository ordenRepository, ProductoService productoService,
+                            ObjectMapper objectMapper, EventosOrdenService eventosOrdenService,
+                            OutboxService outboxService, VentasProductoService ventasProductoService,
+                            IngresosService ingresosService, IndiceCoCompraService indiceCoCompraService,
+                            HistorialClienteService historialClienteService,
+                            PlatformTransactionManager transactionManager) {
         this.ordenRepository = ordenRepository;
+        this.productoService = productoService;
+        this.objectMapper = objectMapper;
+        this.eventosOrdenService = eventosOrdenService;
+        this.outboxService = outboxService;
+        this.ventasProductoService = ventasProductoService;
+        this.ingresosService = ingresosService;
+        this.indiceCoCompraService = indiceCoCompraService;
+        this.historialClienteService = historialClienteService;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    @Autowired(required = false)
+    public void setIngestaOrdenesService(IngestaOrdenesService ingestaOrdenesService) {
+        this.ingestaOrdenesService = ingestaOrdenesService;
     }
 
     @Override
     public Orden saveOrden(Orden orden) {
+        // Dentro de una transacción (p. ej. con Idempotency-Key) se guarda en ella, sin pasar por la cola
+        return guardar(orden, ingestaOrdenesService != null
+            && !TransactionSynchronizationManager.isActualTransactionActive());
+    }
+
+    @Override
+    public Orden saveOrdenEnTransaccion(Orden orden) {
+        return guardar(orden, false);
+    }
+
+    private Orden guardar(Orden orden, boolean porIngesta) {
         log.info("Orden original recibida: ID={}, email={}, montoTotal={}, fecha={}, estado={}", 
             orden.getId(), 
             orden.getEmail(), 
@@ -44,13 +118,100 @@ public class OrdenServiceImpl implements OrdenService {
             nuevaOrden.getFecha(), 
             nuevaOrden.getEstado());
         
-        Orden ordenGuardada = ordenRepository.save(nuevaOrden);
+        // Con la ingesta habilitada el guardado se agrupa con otras órdenes en un solo commit
+        // (el escritor registra el evento del outbox en ese mismo commit)
+        Orden ordenGuardada = porIngesta
+            ? ingestaOrdenesService.guardar(nuevaOrden)
+            : transaccion.execute(status -> {
+                Orden guardada = ordenRepository.save(nuevaOrden);
+                outboxService.ordenCreada(guardada);
+                ingresosService.registrarOrdenes(List.of(guardada));
+                return guardada;
+            });
         
         log.info("Orden guardada exitosamente con ID: {}", ordenGuardada.getId());
+        historialClienteService.invalidarAlConfirmar(ordenGuardada.getEmail());
+        publicarCreada(ordenGuardada);
         
         return ordenGuardada;
     }
 
+    @Override
+    @Transactional
+    public Orden checkout(Orden orden) {
+        log.info("Checkout recibido: email={}, montoTotal={}, detalles={}",
+            orden.getEmail(),
+            orden.getMontoTotal(),
+            orden.getDetalles() == null ? 0 : orden.getDetalles().size());
+        validarCheckout(orden);
+
+        // Crear una nueva orden con los datos, ignorando el id
+        Orden nuevaOrden = new Orden();
+        nuevaOrden.setEmail(orden.getEmail());
+        nuevaOrden.setMontoTotal(orden.getMontoTotal());
+        nuevaOrden.setFecha(orden.getFecha());
+        nuevaOrden.setEstado(orden.getEstado());
+        nuevaOrden.setDetalles(new ArrayList<>());
+
+        if (orden.getDetalles() != null) {
+            // Rebajar stock dentro de la misma transacción, por ID ascendente: dos checkouts
+            // con los mismos productos en distinto orden bloquean las filas en el mismo orden
+            Map<Long, Integer> cantidades = new TreeMap<>();
+            for (DetalleOrden detalle : orden.getDetalles()) {
+                cantidades.merge(detalle.getIdProducto(), detalle.getCantidad(), Integer::sum);
+            }
+            cantidades.forEach(productoService::actualizarStock);
+
+            for (DetalleOrden detalle : orden.getDetalles()) {
+                DetalleOrden nuevoDetalle = new DetalleOrden();
+                nuevoDetalle.setIdProducto(detalle.getIdProducto());
+                nuevoDetalle.setPrecio(detalle.getPrecio());
+                nuevoDetalle.setCantidad(detalle.getCantidad());
+                nuevoDetalle.setMontoTotal(detalle.getMontoTotal());
+                nuevaOrden.addDetalle(nuevoDetalle);
+            }
+        }
+
+        // Los detalles se persisten en cascada junto con la orden
+        Orden ordenGuardada = ordenRepository.save(nuevaOrden);
+        outboxService.ordenCreada(ordenGuardada);
+        ventasProductoService.registrarVenta(ordenGuardada.getFecha(), ordenGuardada.getDetalles());
+        ingresosService.registrarOrdenes(List.of(ordenGuardada));
+        indiceCoCompraService.registrarOrdenAlConfirmar(ordenGuardada);
+
+        log.info("Checkout completado para la orden con ID: {}", ordenGuardada.getId());
+        historialClienteService.invalidarAlConfirmar(ordenGuardada.getEmail());
+        publicarCreada(ordenGuardada);
+
+        return ordenGuardada;
+    }
+
+    /**
+     * Valida toda la orden antes de tocar el stock: una cantidad negativa
+     * aumentaría el stock en el descuento condicional y una nula fallaría al
+     * convertirla.
+     */
+    private void validarCheckout(Orden orden) {
+        if (orden.getMontoTotal() == null) {
+            throw new IllegalArgumentException("El monto total de la orden es obligatorio");
+        }
+        if (orden.getDetalles() == null) {
+            return;
+        }
+        for (DetalleOrden detalle : orden.getDetalles()) {
+            if (detalle == null || detalle.getIdProducto() == null) {
+                throw new IllegalArgumentException("Producto ID es nulo");
+            }
+            if (detalle.getCantidad() == null || detalle.getCantidad() <= 0) {
+                throw new IllegalArgumentException("Cantidad inválida para el producto " + detalle.getIdProducto());
+            }
+            if (detalle.getPrecio() == null || detalle.getMontoTotal() == null) {
+                throw new IllegalArgumentException("Precio y monto total son obligatorios para el producto "
+                    + detalle.getIdProducto());
+            }
+        }
+    }
+
     @Override
     public Optional<Orden> findById(Long id) {
         return ordenRepository.findById(id);
@@ -61,6 +222,79 @@ public class OrdenServiceImpl implements OrdenService {
         return ordenRepository.findAll();
     }
 
+    @Override
+    public PaginaDTO<Orden> findPagina(String cursor, int tamano) {
+        long despuesDe = CursorUtil.decodificar(cursor);
+        // Se pide un ID extra solo para saber si existe una página siguiente
+        List<Long> ids = ordenRepository.findIdsDespuesDe(despuesDe, Limit.of(tamano + 1));
+        return cargarPagina(ids, tamano);
+    }
+
+    @Override
+    public PaginaDTO<ResumenOrdenDTO> findPaginaResumen(Integer estado, String cursor, int tamano) {
+        long despuesDe = CursorUtil.decodificar(cursor);
+        List<ResumenOrdenDTO> resumenes = estado == null
+            ? ordenRepository.findResumenesDespuesDe(despuesDe, Limit.of(tamano + 1))
+            : ordenRepository.findResumenesPorEstadoDespuesDe(estado, despuesDe, Limit.of(tamano + 1));
+        boolean hayMas = resumenes.size() > tamano;
+        List<ResumenOrdenDTO> items = hayMas ? resumenes.subList(0, tamano) : resumenes;
+        String next = hayMas ? CursorUtil.codificar(items.get(items.size() - 1).getId()) : null;
+        return new PaginaDTO<>(items, next);
+    }
+
+    @Override
+    public PaginaDTO<Orden> findPaginaByEstado(int estado, String cursor, int tamano) {
+        long despuesDe = CursorUtil.decodificar(cursor);
+        List<Long> ids = ordenRepository.findIdsPorEstadoDespuesDe(estado, despuesDe, Limit.of(tamano + 1));
+        return cargarPagina(ids, tamano);
+    }
+
+    @Override
+    public PaginaDTO<Orden> findPaginaByFecha(Date desde, Date hasta, Integer estado, String cursor, int tamano) {
+        if (desde == null || hasta == null || !desde.before(hasta)) {
+            throw new IllegalArgumentException("Rango de fechas inválido");
+        }
+        CursorUtil.PosicionFecha posicion = CursorUtil.decodificarFecha(cursor);
+        // En la primera página la posición es el inicio del rango: fecha >= desde
+        boolean primera = posicion == null || posicion.fecha().before(desde);
+        Date fecha = primera ? desde : posicion.fecha();
+        long id = primera ? 0L : posicion.id();
+
+        List<Long> ids = estado == null
+            ? ordenRepository.findIdsPorFechaDespuesDe(fecha, id, hasta, Limit.of(tamano + 1))
+            : ordenRepository.findIdsPorEstadoYFechaDespuesDe(estado, fecha, id, hasta, Limit.of(tamano + 1));
+        boolean hayMas = ids.size() > tamano;
+        List<Long> idsPagina = hayMas ? ids.subList(0, tamano) : ids;
+        if (idsPagina.isEmpty()) {
+            return new PaginaDTO<>(List.of(), null);
+        }
+
+        // La carga con detalles viene por ID: se reordena según la página (fecha, ID)
+        Map<Long, Orden> porId = new HashMap<>();
+        ordenRepository.findByIdInOrderByIdAsc(idsPagina).forEach(o -> porId.put(o.getId(), o));
+        List<Orden> ordenes = idsPagina.stream().map(porId::get).filter(Objects::nonNull).toList();
+        Orden ultima = ordenes.isEmpty() ? null : ordenes.get(ordenes.size() - 1);
+        String next = hayMas && ultima != null ? CursorUtil.codificar(ultima.getFecha(), ultima.getId()) : null;
+        return new PaginaDTO<>(ordenes, next);
+    }
+
+    private PaginaDTO<Orden> cargarPagina(List<Long> ids, int tamano) {
+        boolean hayMas = ids.size() > tamano;
+        List<Long> idsPagina = hayMas ? ids.subList(0, tamano) : ids;
+        if (idsPagina.isEmpty()) {
+            return new PaginaDTO<>(List.of(), null);
+        }
+        // Los detalles se cargan aparte de los IDs: un fetch join con límite se paginaría en memoria
+        List<Orden> ordenes = ordenRepository.findByIdInOrderByIdAsc(idsPagina);
+        String next = hayMas ? CursorUtil.codificar(idsPagina.get(idsPagina.size() - 1)) : null;
+        return new PaginaDTO<>(ordenes, next);
+    }
+
+    @Override
+    public PaginaDTO<ResumenOrdenDTO> findPaginaByEmail(String email, String cursor, int tamano) {
+        return historialClienteService.pagina(email, cursor, tamano);
+    }
+
     @Override
     public List<Orden> findByEmail(String email) {
         return ordenRepository.findByEmail(email);
@@ -72,7 +306,160 @@ public class OrdenServiceImpl implements OrdenService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public long exportar(LocalDate desde, LocalDate hasta, Integer estado, OutputStream salida) throws IOException {
+        long ordenes = escribirExport(inicioDelDia(desde), hasta == null ? null : inicioDelDia(hasta.plusDays(1)), estado, salida);
+        log.info("Export de órdenes completado: {} órdenes (desde={}, hasta={}, estado={})", ordenes, desde, hasta, estado);
+        return ordenes;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportarRango(Date desde, Date hasta, Integer estado, OutputStream salida) throws IOException {
+        if (desde == null || hasta == null || !desde.before(hasta)) {
+            throw new IllegalArgumentException("Rango de fechas inválido");
+        }
+        long ordenes = escribirExport(desde, hasta, estado, salida);
+        log.info("Export de órdenes por rango completado: {} órdenes (desde={}, hasta={}, estado={})", ordenes, desde, hasta, estado);
+        return ordenes;
+    }
+
+    private long escribirExport(Date desde, Date hasta, Integer estado, OutputStream salida) throws IOException {
+        JsonGenerator json = objectMapper.createGenerator(salida);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Sin separador entre valores raíz: cada orden termina en su propio salto de línea
+        json.setRootValueSeparator(null);
+
+        long ordenes = 0;
+        Long ordenActual = null;
+        try (Stream<Object[]> filas = ordenRepository.streamParaExportar(desde, hasta, estado)) {
+            Iterator<Object[]> iterador = filas.iterator();
+            while (iterador.hasNext()) {
+                Object[] fila = iterador.next();
+                // Las filas vienen ordenadas por orden: un cambio de ID cierra la línea anterior
+                if (!fila[0].equals(ordenActual)) {
+                    if (ordenActual != null) {
+                        cerrarOrden(json);
+                        if (ordenes % ORDENES_POR_FLUSH == 0) {
+                            json.flush();
+                        }
+                    }
+                    abrirOrden(json, fila);
+                    ordenActual = (Long) fila[0];
+                    ordenes++;
+                }
+                if (fila[5] != null) {
+                    escribirDetalle(json, fila);
+                }
+            }
+            if (ordenActual != null) {
+                cerrarOrden(json);
+            }
+        }
+        json.flush();
+        return ordenes;
+    }
+
+    private Date inicioDelDia(LocalDate fecha) {
+        return fecha == null ? null : Date.from(fecha.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private void abrirOrden(JsonGenerator json, Object[] fila) throws IOException {
+        json.writeStartObject();
+        json.writeObjectField("id", fila[0]);
+        json.writeObjectField("email", fila[1]);
+        json.writeObjectField("estado", fila[2]);
+        json.writeObjectField("fecha", fila[3]);
+        json.writeObjectField("montoTotal", fila[4]);
+        json.writeArrayFieldStart("detalles");
+    }
+
+    private void escribirDetalle(JsonGenerator json, Object[] fila) throws IOException {
+        json.writeStartObject();
+        json.writeObjectField("id", fila[5]);
+        json.writeObjectField("idProducto", fila[6]);
+        json.writeObjectField("precio", fila[7]);
+        json.writeObjectField("cantidad", fila[8]);
+        json.writeObjectField("montoTotal", fila[9]);
+        json.writeEndObject();
+    }
+
+    private void cerrarOrden(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    @Override
+    @Transactional
     public void updateEstado(Long id, int estado) {
-        ordenRepository.updateEstado(id, estado);
+        if (estado < 2 || estado > 4) {
+            throw new IllegalArgumentException("Estado sin transición válida");
+        }
+        int filas = ordenRepository.updateEstado(id, estado);
+        if (filas == 0) {
+            if (ordenRepository.existsById(id)) {
+                throw new IllegalStateException("La orden " + id + " no puede pasar al estado " + estado);
+            }
+            return;
+        }
+        outboxService.estadosActualizados(List.of(id), estado);
+        String email = ordenRepository.findEmailById(id).orElse(null);
+        historialClienteService.invalidarAlConfirmar(email);
+        if (eventosOrdenService.haySuscriptores()) {
+            eventosOrdenService.publicarAlConfirmar(
+                new EventoOrdenDTO(EventoOrdenDTO.ESTADO, id, email, estado, new Date()));
+        }
+    }
+
+    private void publicarCreada(Orden orden) {
+        eventosOrdenService.publicarAlConfirmar(new EventoOrdenDTO(
+            EventoOrdenDTO.CREADA, orden.getId(), orden.getEmail(), orden.getEstado(), new Date()));
+    }
+
+    @Override
+    @Transactional
+    public ResultadoTransicionDTO avanzarEstado(List<Long> ids, int desde) {
+        if (ids == null || ids.isEmpty() || ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Debe indicar al menos una orden");
+        }
+        if (desde < 1 || desde > 3) {
+            throw new IllegalArgumentException("Estado sin transición válida");
+        }
+
+        List<Long> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        Set<Long> actualizadas = new LinkedHashSet<>();
+        for (int i = 0; i < unicos.size(); i += IDS_POR_SENTENCIA) {
+            List<Long> lote = unicos.subList(i, Math.min(i + IDS_POR_SENTENCIA, unicos.size()));
+            // Las filas bloqueadas no pueden cambiar antes del UPDATE, así se sabe cuáles avanzan
+            List<Long> bloqueadas = ordenRepository.bloquearIdsEnEstado(lote, desde).stream()
+                .map(Number::longValue)
+                .toList();
+            if (!bloqueadas.isEmpty()) {
+                ordenRepository.avanzarEstado(bloqueadas, desde);
+                actualizadas.addAll(bloqueadas);
+                outboxService.estadosActualizados(bloqueadas, desde + 1);
+                notificarEstado(bloqueadas, desde + 1);
+            }
+        }
+
+        List<Long> omitidas = unicos.stream().filter(id -> !actualizadas.contains(id)).toList();
+        log.info("Transición de estado {} -> {}: {} actualizadas, {} omitidas",
+            desde, desde + 1, actualizadas.size(), omitidas.size());
+        return new ResultadoTransicionDTO(new ArrayList<>(actualizadas), omitidas);
+    }
+
+    private void notificarEstado(List<Long> ids, int estado) {
+        boolean haySuscriptores = eventosOrdenService.haySuscriptores();
+        Date ahora = new Date();
+        Set<String> emails = new LinkedHashSet<>();
+        for (Object[] fila : ordenRepository.findEmailsByIdIn(ids)) {
+            emails.add((String) fila[1]);
+            if (haySuscriptores) {
+                eventosOrdenService.publicarAlConfirmar(
+                    new EventoOrdenDTO(EventoOrdenDTO.ESTADO, (Long) fila[0], (String) fila[1], estado, ahora));
+            }
+        }
+        emails.forEach(historialClienteService::invalidarAlConfirmar);
     }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.EventoOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registra eventos de dominio en la tabla OUTBOX_PEDIDOS. Los métodos exigen
+ * una transacción activa: el evento se confirma o se descarta junto con el
+ * cambio que describe, y {@link RelayOutboxService} lo publica después.
+ *
+ * Solo se registran eventos con el relay habilitado: sin él nadie los
+ * publicaría ni purgaría y la tabla crecería sin límite. Con varias
+ * instancias, todas las que crean órdenes deben habilitarlo; los relays se
+ * reparten los lotes.
+ */
+@Service
+public class OutboxService {
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean habilitado;
+
+    public OutboxService(EventoOutboxRepository eventoOutboxRepository,
+                         ObjectMapper objectMapper,
+                         @Value("${pedidos.outbox.relay.habilitado:false}") boolean habilitado) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.objectMapper = objectMapper;
+        this.habilitado = habilitado;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ordenCreada(Orden orden) {
+        ordenesCreadas(List.of(orden));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ordenesCreadas(Collection<Orden> ordenes) {
+        if (!habilitado) {
+            return;
+        }
+        Date ahora = new Date();
+        List<EventoOutbox> eventos = new ArrayList<>(ordenes.size());
+        for (Orden orden : ordenes) {
+            // La carga es la misma representación que devuelve la API
+            eventos.add(crear(EventoOutbox.ORDEN_CREADA, orden.getId(), orden, ahora));
+        }
+        eventoOutboxRepository.saveAll(eventos);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void estadosActualizados(Collection<Long> idsOrden, int estado) {
+        if (!habilitado) {
+            return;
+        }
+        Date ahora = new Date();
+        List<EventoOutbox> eventos = new ArrayList<>(idsOrden.size());
+        for (Long id : idsOrden) {
+            Map<String, Object> carga = new LinkedHashMap<>();
+            carga.put("id", id);
+            carga.put("estado", estado);
+            eventos.add(crear(EventoOutbox.ESTADO_ACTUALIZADO, id, carga, ahora));
+        }
+        eventoOutboxRepository.saveAll(eventos);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void detalleCreado(DetalleOrden detalle) {
+        detallesCreados(List.of(detalle));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void detallesCreados(Collection<DetalleOrden> detalles) {
+        if (!habilitado) {
+            return;
+        }
+        Date ahora = new Date();
+        List<EventoOutbox> eventos = new ArrayList<>(detalles.size());
+        for (DetalleOrden detalle : detalles) {
+            Long idOrden = detalle.getOrden().getId();
+            // El detalle se serializa sin su orden (referencia inversa), así que el ID va aparte
+            Map<String, Object> carga = new LinkedHashMap<>();
+            carga.put("id", detalle.getId());
+            carga.put("idOrden", idOrden);
+            carga.put("idProducto", detalle.getIdProducto());
+            carga.put("precio", detalle.getPrecio());
+            carga.put("cantidad", detalle.getCantidad());
+            carga.put("montoTotal", detalle.getMontoTotal());
+            eventos.add(crear(EventoOutbox.DETALLE_CREADO, idOrden, carga, ahora));
+        }
+        eventoOutboxRepository.saveAll(eventos);
+    }
+
+    private EventoOutbox crear(String tipo, Long idAgregado, Object carga, Date ahora) {
+        EventoOutbox evento = new EventoOutbox();
+        evento.setTipo(tipo);
+        evento.setIdAgregado(idAgregado);
+        evento.setCreado(ahora);
+        try {
+            evento.setPayload(objectMapper.writeValueAsString(carga));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + tipo, e);
+        }
+        return evento;
+    }
+}
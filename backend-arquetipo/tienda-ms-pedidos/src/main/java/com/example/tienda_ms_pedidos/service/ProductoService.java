@@ -1,5 +1,6 @@
 package com.example.tienda_ms_pedidos.service;
 
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
 import com.example.tienda_ms_pedidos.model.Producto;
 
 import java.util.List;
@@ -7,6 +8,8 @@ import java.util.Map;
 
 public interface ProductoService {
     Producto actualizarStock(Long id, int cantidad);
+    List<Producto> reservarStock(List<ItemStockDTO> items);
+    void devolverStock(Map<Long, Integer> cantidades);
     List<Producto> buscarPorNombreOCategoria(String filtro);
     public Map<String, List<Map<String, Object>>> obtenerProductosAgrupadosConId();
 }
\ No newline at end of file
@@ -1,13 +1,19 @@
 package com.example.tienda_ms_pedidos.service;
 
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
 import com.example.tienda_ms_pedidos.exception.StockException;
 import com.example.tienda_ms_pedidos.model.Categoria;
+import com.example.tienda_ms_pedidos.model.MovimientoStock;
 import com.example.tienda_ms_pedidos.model.Producto;
 import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,29 +21,195 @@ import java.util.Map;
 @Service
 public class ProductoServiceImpl implements ProductoService {
 
+    // Reintentos ante bloqueos transitorios (lock timeout, deadlock) al descontar stock
+    static final int MAX_REINTENTOS = 3;
+    private static final long ESPERA_REINTENTO_MS = 20;
+
     private final ProductoRepository productoRepository;
 
+    // Solo presente con pedidos.stock-caliente.habilitado=true
+    private StockCalienteService stockCalienteService;
+
+    // Solo presente con pedidos.stock.libro.habilitado=true; tiene prioridad sobre el modo caliente
+    private LibroInventarioService libroInventarioService;
+
+    // Solo presente con pedidos.stock.bajo.habilitado=true
+    private IndiceBajoStockService indiceBajoStockService;
+
     public ProductoServiceImpl(ProductoRepository productoRepository) {
         this.productoRepository = productoRepository;
     }
 
+    @Autowired(required = false)
+    public void setStockCalienteService(StockCalienteService stockCalienteService) {
+        this.stockCalienteService = stockCalienteService;
+    }
+
+    @Autowired(required = false)
+    public void setLibroInventarioService(LibroInventarioService libroInventarioService) {
+        this.libroInventarioService = libroInventarioService;
+    }
+
+    @Autowired(required = false)
+    public void setIndiceBajoStockService(IndiceBajoStockService indiceBajoStockService) {
+        this.indiceBajoStockService = indiceBajoStockService;
+    }
+
     @Override
-    @Transactional
     public Producto actualizarStock(Long id, int cantidad) {
+        Producto producto;
+        if (libroInventarioService != null) {
+            producto = actualizarStockEnLibro(id, cantidad);
+        } else if (stockCalienteService == null) {
+            producto = actualizarStockEnBaseDatos(id, cantidad);
+        } else {
+            producto = stockCalienteService.descontar(id, cantidad, () -> actualizarStockEnBaseDatos(id, cantidad));
+        }
+        if (indiceBajoStockService != null) {
+            indiceBajoStockService.descontarAlConfirmar(Map.of(id, cantidad));
+        }
+        return producto;
+    }
+
+    private Producto actualizarStockEnLibro(Long id, int cantidad) {
         Producto producto = productoRepository.findById(id)
             .orElseThrow(() -> new StockException("Producto no encontrado"));
+        if (!libroInventarioService.descontar(Map.of(id, cantidad), MovimientoStock.DESCUENTO).isEmpty()) {
+            throw new StockException("Stock insuficiente");
+        }
+        return conStockDelLibro(List.of(producto)).get(0);
+    }
 
-        if (producto.getStock() < cantidad) {
+    private Producto actualizarStockEnBaseDatos(Long id, int cantidad) {
+        if (descontarConReintentos(id, cantidad) == 0) {
+            if (!productoRepository.existsById(id)) {
+                throw new StockException("Producto no encontrado");
+            }
             throw new StockException("Stock insuficiente");
         }
 
-        producto.setStock(producto.getStock() - cantidad);
-        return productoRepository.save(producto);
+        return productoRepository.findById(id)
+            .orElseThrow(() -> new StockException("Producto no encontrado"));
+    }
+
+    @Override
+    @Transactional
+    public List<Producto> reservarStock(List<ItemStockDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new StockException("Debe indicar al menos un producto");
+        }
+
+        // Agrupar cantidades por producto para emitir una sola sentencia por ID
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        for (ItemStockDTO item : items) {
+            if (item.getIdProducto() == null || item.getCantidad() == null || item.getCantidad() <= 0) {
+                throw new StockException("Item de stock inválido");
+            }
+            cantidades.merge(item.getIdProducto(), item.getCantidad(), Integer::sum);
+        }
+
+        if (libroInventarioService != null) {
+            List<Long> fallidos = libroInventarioService.descontar(cantidades, MovimientoStock.RESERVA);
+            if (!fallidos.isEmpty()) {
+                throw new StockException("Stock insuficiente", fallidos);
+            }
+            notificarDescuento(cantidades);
+            return conStockDelLibro(productoRepository.findAllById(cantidades.keySet()));
+        }
+
+        List<Long> fallidos = stockCalienteService == null
+            ? productoRepository.descontarStockEnLote(cantidades)
+            : stockCalienteService.ejecutarEnBaseDatos(cantidades.keySet(),
+                () -> productoRepository.descontarStockEnLote(cantidades));
+        if (!fallidos.isEmpty()) {
+            // La excepción revierte todos los descuentos del lote
+            throw new StockException("Stock insuficiente", fallidos);
+        }
+
+        notificarDescuento(cantidades);
+        return productoRepository.findAllById(cantidades.keySet());
+    }
+
+    private void notificarDescuento(Map<Long, Integer> cantidades) {
+        if (indiceBajoStockService != null) {
+            indiceBajoStockService.descontarAlConfirmar(cantidades);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void devolverStock(Map<Long, Integer> cantidades) {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+        if (libroInventarioService != null) {
+            libroInventarioService.devolver(cantidades, MovimientoStock.DEVOLUCION);
+        } else if (stockCalienteService == null) {
+            productoRepository.devolverStockEnLote(cantidades);
+        } else {
+            stockCalienteService.ejecutarEnBaseDatos(cantidades.keySet(), () -> {
+                productoRepository.devolverStockEnLote(cantidades);
+                return null;
+            });
+        }
+        if (indiceBajoStockService != null) {
+            indiceBajoStockService.devolverAlConfirmar(cantidades);
+        }
+    }
+
+    private int descontarConReintentos(Long id, int cantidad) {
+        // Dentro de una transacción externa (p. ej. checkout) no se reintenta:
+        // la transacción ya quedó marcada para rollback y debe fallar completa.
+        boolean reintentable = !TransactionSynchronizationManager.isActualTransactionActive();
+        int intento = 1;
+        while (true) {
+            try {
+                return productoRepository.descontarStock(id, cantidad);
+            } catch (TransientDataAccessException e) {
+                if (!reintentable || intento >= MAX_REINTENTOS) {
+                    throw e;
+                }
+                esperar(intento++);
+            }
+        }
+    }
+
+    private void esperar(int intento) {
+        try {
+            Thread.sleep(ESPERA_REINTENTO_MS * intento);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StockException("Actualización de stock interrumpida");
+        }
     }
 
     @Override
     public List<Producto> buscarPorNombreOCategoria(String filtro) {
-        return productoRepository.buscarPorNombreOCategoria(filtro);
+        return conStockDelLibro(productoRepository.buscarPorNombreOCategoria(filtro));
+    }
+
+    /**
+     * Con el libro de inventario PRODUCTO.STOCK solo se actualiza en cada
+     * snapshot: devuelve copias con el stock de la proyección.
+     */
+    private List<Producto> conStockDelLibro(List<Producto> productos) {
+        if (libroInventarioService == null) {
+            return productos;
+        }
+        List<Producto> copias = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            Producto copia = new Producto();
+            copia.setId(producto.getId());
+            copia.setNombre(producto.getNombre());
+            copia.setDescripcion(producto.getDescripcion());
+            copia.setPrecio(producto.getPrecio());
+            copia.setImagen(producto.getImagen());
+            copia.setCategorias(new HashSet<>(producto.getCategorias()));
+            Double stock = libroInventarioService.getStock(producto.getId());
+            copia.setStock(stock == null ? producto.getStock() : stock);
+            copias.add(copia);
+        }
+        return copias;
     }
 
     @Override
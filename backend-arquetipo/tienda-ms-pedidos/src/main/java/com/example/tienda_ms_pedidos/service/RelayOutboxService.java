@@ -0,0 +1,126 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+import com.example.tienda_ms_pedidos.repository.EventoOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relay del outbox (opcional): reclama eventos pendientes en lotes con
+ * SELECT ... FOR UPDATE SKIP LOCKED, los publica en el {@link SumideroEventos}
+ * y los marca como publicados. Varias instancias de pedidos pueden ejecutarlo
+ * a la vez: cada una reclama filas distintas y una reserva vencida (instancia
+ * caída a medio lote) vuelve a quedar disponible para las demás.
+ *
+ * La entrega es al menos una vez: si la instancia cae entre publicar y marcar,
+ * el lote se vuelve a publicar cuando vence la reserva.
+ */
+@Service
+@ConditionalOnProperty(name = "pedidos.outbox.relay.habilitado", havingValue = "true")
+public class RelayOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(RelayOutboxService.class);
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final SumideroEventos sumidero;
+    private final TransactionTemplate transaccion;
+    private final int tamanoLote;
+    private final int lotesPorCiclo;
+    private final long reservaMs;
+    private final long retencionHoras;
+    private final String instancia;
+
+    public RelayOutboxService(EventoOutboxRepository eventoOutboxRepository,
+                              SumideroEventos sumidero,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${pedidos.outbox.relay.tamano-lote:100}") int tamanoLote,
+                              @Value("${pedidos.outbox.relay.lotes-por-ciclo:10}") int lotesPorCiclo,
+                              @Value("${pedidos.outbox.relay.reserva-ms:60000}") long reservaMs,
+                              @Value("${pedidos.outbox.retencion-horas:72}") long retencionHoras) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.sumidero = sumidero;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.tamanoLote = tamanoLote;
+        this.lotesPorCiclo = lotesPorCiclo;
+        this.reservaMs = reservaMs;
+        this.retencionHoras = retencionHoras;
+        this.instancia = "relay-" + UUID.randomUUID();
+    }
+
+    /**
+     * Publica lotes mientras haya pendientes, hasta {@code lotesPorCiclo} lotes por ejecución.
+     */
+    @Scheduled(initialDelayString = "${pedidos.outbox.relay.intervalo-ms:1000}",
+               fixedDelayString = "${pedidos.outbox.relay.intervalo-ms:1000}")
+    public void publicarPendientes() {
+        try {
+            for (int i = 0; i < lotesPorCiclo; i++) {
+                if (publicarLote() < tamanoLote) {
+                    return;
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudo consultar el outbox: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reclama, publica y marca un lote de eventos.
+     * 
+     * @return Número de eventos reclamados (0 si no había pendientes o si la publicación falló).
+     */
+    public int publicarLote() {
+        // Transacción corta: solo reclama; la publicación ocurre sin bloqueos tomados
+        Date hasta = new Date(System.currentTimeMillis() + reservaMs);
+        List<EventoOutbox> eventos = transaccion.execute(status ->
+            eventoOutboxRepository.reclamar(tamanoLote, instancia, hasta));
+        if (eventos == null || eventos.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = eventos.stream().map(EventoOutbox::getId).toList();
+        try {
+            sumidero.publicar(eventos);
+        } catch (RuntimeException e) {
+            log.warn("Falló la publicación de {} eventos del outbox, se reintentarán: {}", eventos.size(), e.getMessage());
+            eventoOutboxRepository.liberar(ids, instancia);
+            return 0;
+        }
+
+        int marcados = eventoOutboxRepository.marcarPublicados(ids, instancia, new Date());
+        if (marcados < ids.size()) {
+            // La reserva venció y otra instancia tomó parte del lote: esos eventos saldrán repetidos
+            log.warn("Reserva vencida en {} de {} eventos publicados", ids.size() - marcados, ids.size());
+        }
+        return eventos.size();
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.outbox.purga-ms:3600000}")
+    public void purgarPublicados() {
+        try {
+            Date antesDe = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retencionHoras));
+            int eliminados = eventoOutboxRepository.eliminarPublicadosAntesDe(antesDe);
+            if (eliminados > 0) {
+                log.info("Purgados {} eventos publicados del outbox", eliminados);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudo purgar el outbox: {}", e.getMessage());
+        }
+    }
+
+    public String getInstancia() {
+        return instancia;
+    }
+}
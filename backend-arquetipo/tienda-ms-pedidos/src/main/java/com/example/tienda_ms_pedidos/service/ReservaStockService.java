@@ -0,0 +1,291 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
+import com.example.tienda_ms_pedidos.DTO.ReservaStockDTO;
+import com.example.tienda_ms_pedidos.model.ReservaStock;
+import com.example.tienda_ms_pedidos.repository.ReservaStockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reservas de stock con vencimiento. Reservar descuenta el stock y registra
+ * la reserva en RESERVAS_STOCK en la misma transacción; el vencimiento lo
+ * lleva una {@link RuedaTemporizadores} en memoria, de modo que la tabla
+ * solo se lee completa al iniciar. Una reserva vive en la rueda de la
+ * instancia que la creó; si esa instancia cae, un barrido periódico lee solo
+ * las filas vencidas hace más de {@code pedidos.reservas.barrido-ms} y las
+ * programa en la rueda propia.
+ *
+ * Las reservas vencidas en un tick se liberan juntas: un lote que elimina las
+ * reservas y un lote que devuelve el stock agrupado por producto. Eliminar
+ * primero hace la liberación idempotente entre instancias: solo devuelve
+ * stock quien logra eliminar las filas de la reserva.
+ */
+@Service
+public class ReservaStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservaStockService.class);
+
+    private final ReservaStockRepository reservaStockRepository;
+    private final ProductoService productoService;
+    private final TransactionTemplate transaccion;
+    private final long ttlMaximoSegundos;
+    private final long reintentoMs;
+    private final long barridoMs;
+    private final boolean cargarAlIniciar;
+
+    // Rueda y reservas pendientes de esta instancia; ambas protegidas por el monitor de la rueda
+    private final RuedaTemporizadores<Reserva> rueda;
+    private final Map<String, RuedaTemporizadores.Temporizador<Reserva>> pendientes = new HashMap<>();
+
+    /**
+     * Reserva pendiente: cantidades por producto y hora de vencimiento.
+     */
+    record Reserva(String id, Map<Long, Integer> cantidades, long venceMs) {
+    }
+
+    public ReservaStockService(ReservaStockRepository reservaStockRepository,
+                               ProductoService productoService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${pedidos.reservas.tick-ms:100}") long tickMs,
+                               @Value("${pedidos.reservas.ttl-maximo-segundos:3600}") long ttlMaximoSegundos,
+                               @Value("${pedidos.reservas.reintento-ms:5000}") long reintentoMs,
+                               @Value("${pedidos.reservas.barrido-ms:60000}") long barridoMs,
+                               @Value("${pedidos.reservas.cargar-al-iniciar:true}") boolean cargarAlIniciar) {
+        this.reservaStockRepository = reservaStockRepository;
+        this.productoService = productoService;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.ttlMaximoSegundos = ttlMaximoSegundos;
+        this.reintentoMs = reintentoMs;
+        this.barridoMs = barridoMs;
+        this.cargarAlIniciar = cargarAlIniciar;
+        this.rueda = new RuedaTemporizadores<>(tickMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Descuenta el stock de los items y lo retiene hasta que la reserva se
+     * confirme, se libere o venza.
+     *
+     * @param items Productos y cantidades a reservar.
+     * @param ttlSegundos Segundos hasta el vencimiento.
+     * @return Reserva creada, con los items agrupados por producto.
+     * @throws IllegalArgumentException Si el TTL está fuera de rango.
+     * @throws com.example.tienda_ms_pedidos.exception.StockException Si algún producto no tiene stock suficiente.
+     */
+    public ReservaStockDTO reservar(List<ItemStockDTO> items, long ttlSegundos) {
+        if (ttlSegundos <= 0 || ttlSegundos > ttlMaximoSegundos) {
+            throw new IllegalArgumentException("El TTL debe estar entre 1 y " + ttlMaximoSegundos + " segundos");
+        }
+
+        String id = UUID.randomUUID().toString();
+        long venceMs = System.currentTimeMillis() + ttlSegundos * 1000;
+        Map<Long, Integer> cantidades = transaccion.execute(status -> {
+            // Valida los items y descuenta en lote; una falta de stock revierte todo
+            productoService.reservarStock(items);
+            Map<Long, Integer> agrupadas = new LinkedHashMap<>();
+            items.forEach(item -> agrupadas.merge(item.getIdProducto(), item.getCantidad(), Integer::sum));
+            reservaStockRepository.insertar(id, agrupadas, new Date(venceMs));
+            return agrupadas;
+        });
+
+        programar(new Reserva(id, cantidades, venceMs));
+        List<ItemStockDTO> reservados = new ArrayList<>(cantidades.size());
+        cantidades.forEach((idProducto, cantidad) -> reservados.add(new ItemStockDTO(idProducto, cantidad)));
+        return new ReservaStockDTO(id, new Date(venceMs), reservados);
+    }
+
+    /**
+     * Da por consumida una reserva: el stock queda descontado.
+     *
+     * @return {@code false} si la reserva no existe o ya se liberó o venció.
+     */
+    public boolean confirmar(String id) {
+        cancelar(id);
+        Integer eliminadas = transaccion.execute(status -> reservaStockRepository.eliminarReserva(id));
+        return eliminadas != null && eliminadas > 0;
+    }
+
+    /**
+     * Libera una reserva antes de su vencimiento y devuelve su stock.
+     *
+     * @return {@code false} si la reserva no existe o ya se confirmó o venció.
+     */
+    public boolean liberar(String id) {
+        cancelar(id);
+        // Se lee de la tabla: la reserva pudo crearse en otra instancia
+        Boolean liberada = transaccion.execute(status -> {
+            List<ReservaStock> lineas = reservaStockRepository.findByIdReserva(id);
+            if (lineas.isEmpty() || reservaStockRepository.eliminarReserva(id) == 0) {
+                return false;
+            }
+            Map<Long, Integer> cantidades = new HashMap<>();
+            lineas.forEach(linea -> cantidades.merge(linea.getIdProducto(), linea.getCantidad(), Integer::sum));
+            productoService.devolverStock(cantidades);
+            return true;
+        });
+        return Boolean.TRUE.equals(liberada);
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.reservas.tick-ms:100}")
+    public void procesarVencidas() {
+        procesarVencidas(System.currentTimeMillis());
+    }
+
+    /**
+     * Avanza la rueda hasta {@code ahoraMs} y libera en lote las reservas
+     * vencidas. Si la base de datos falla, se reprograman para reintentarlas.
+     *
+     * @return Reservas liberadas.
+     */
+    public int procesarVencidas(long ahoraMs) {
+        List<Reserva> vencidas = new ArrayList<>();
+        synchronized (rueda) {
+            rueda.avanzar(ahoraMs, reserva -> {
+                pendientes.remove(reserva.id());
+                vencidas.add(reserva);
+            });
+        }
+        if (vencidas.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            Integer liberadas = transaccion.execute(status -> liberarVencidas(vencidas));
+            return liberadas == null ? 0 : liberadas;
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se pudieron liberar {} reservas vencidas, se reintentarán: {}", vencidas.size(), e.getMessage());
+            synchronized (rueda) {
+                for (Reserva reserva : vencidas) {
+                    pendientes.put(reserva.id(), rueda.programar(reserva, ahoraMs + reintentoMs));
+                }
+            }
+            return 0;
+        }
+    }
+
+    private int liberarVencidas(List<Reserva> vencidas) {
+        int[] filas = reservaStockRepository.eliminarReservas(vencidas.stream().map(Reserva::id).toList());
+
+        // Un solo lote de devolución para todas las reservas que se lograron eliminar
+        Map<Long, Integer> cantidades = new HashMap<>();
+        int liberadas = 0;
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] > 0) {
+                vencidas.get(i).cantidades().forEach((idProducto, cantidad) ->
+                    cantidades.merge(idProducto, cantidad, Integer::sum));
+                liberadas++;
+            }
+        }
+        productoService.devolverStock(cantidades);
+        return liberadas;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarSiCorresponde() {
+        if (!cargarAlIniciar) {
+            return;
+        }
+        try {
+            int cargadas = cargar();
+            if (cargadas > 0) {
+                log.info("Cargadas {} reservas de stock pendientes", cargadas);
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se pudieron cargar las reservas de stock: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Programa en la rueda las reservas guardadas que esta instancia no
+     * conoce (creadas antes de iniciar o por otra instancia). Las ya vencidas
+     * se liberan en el próximo tick.
+     *
+     * @return Reservas programadas.
+     */
+    public int cargar() {
+        return programarGuardadas(reservaStockRepository.findAll());
+    }
+
+    @Scheduled(initialDelayString = "${pedidos.reservas.barrido-ms:60000}",
+               fixedDelayString = "${pedidos.reservas.barrido-ms:60000}")
+    public void barrerVencidas() {
+        try {
+            int tomadas = barrerVencidas(System.currentTimeMillis());
+            if (tomadas > 0) {
+                log.info("Programadas {} reservas vencidas sin liberar", tomadas);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron barrer las reservas vencidas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Programa las reservas vencidas hace más de {@code barridoMs} que esta
+     * instancia no conoce, como las de una instancia caída. Si su instancia
+     * sigue viva, la liberación es idempotente: solo una de las dos devuelve
+     * el stock.
+     *
+     * @return Reservas programadas; se liberan en el próximo tick.
+     */
+    public int barrerVencidas(long ahoraMs) {
+        return programarGuardadas(reservaStockRepository.findByVenceBefore(new Date(ahoraMs - barridoMs)));
+    }
+
+    private int programarGuardadas(List<ReservaStock> lineas) {
+        Map<String, Reserva> guardadas = new LinkedHashMap<>();
+        for (ReservaStock linea : lineas) {
+            guardadas.computeIfAbsent(linea.getIdReserva(),
+                    id -> new Reserva(id, new LinkedHashMap<>(), linea.getVence().getTime()))
+                .cantidades().merge(linea.getIdProducto(), linea.getCantidad(), Integer::sum);
+        }
+
+        int programadas = 0;
+        synchronized (rueda) {
+            for (Reserva reserva : guardadas.values()) {
+                if (!pendientes.containsKey(reserva.id())) {
+                    pendientes.put(reserva.id(), rueda.programar(reserva, reserva.venceMs()));
+                    programadas++;
+                }
+            }
+        }
+        return programadas;
+    }
+
+    public int getPendientes() {
+        synchronized (rueda) {
+            return rueda.getTamano();
+        }
+    }
+
+    private void programar(Reserva reserva) {
+        synchronized (rueda) {
+            pendientes.put(reserva.id(), rueda.programar(reserva, reserva.venceMs()));
+        }
+    }
+
+    private void cancelar(String id) {
+        synchronized (rueda) {
+            RuedaTemporizadores.Temporizador<Reserva> temporizador = pendientes.remove(id);
+            if (temporizador != null) {
+                rueda.cancelar(temporizador);
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.tienda_ms_pedidos.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Rueda de temporizadores jerárquica: {@value #NIVELES} niveles de
+ * {@value #RANURAS} ranuras, cada nivel 64 veces más grueso que el anterior.
+ * Programar y cancelar son O(1) (listas doblemente enlazadas por ranura) y
+ * avanzar un tick solo toca la ranura que vence, más la ranura del nivel
+ * superior que se reparte hacia abajo cuando el nivel inferior completa una
+ * vuelta.
+ *
+ * Un temporizador nunca vence antes de su hora; vence a más tardar en el
+ * primer {@link #avanzar} posterior a ella (resolución de un tick). Las horas
+ * más allá del alcance de la rueda se aparcan en el último nivel y se reubican
+ * al bajar. No es segura entre hilos: quien la usa debe sincronizar el acceso.
+ *
+ * @param <T> Valor asociado a cada temporizador.
+ */
+public class RuedaTemporizadores<T> {
+
+    static final int BITS = 6;
+    static final int RANURAS = 1 << BITS;
+    static final int NIVELES = 4;
+    private static final int MASCARA = RANURAS - 1;
+
+    private final long tickMs;
+    // Cabeza de la lista de cada ranura, nivel por nivel
+    private final Temporizador<T>[] ranuras;
+    // Primer tick todavía no procesado
+    private long proximoTick;
+    private int tamano;
+
+    /**
+     * Temporizador programado. Sirve como asa para cancelarlo.
+     */
+    public static final class Temporizador<T> {
+        private final T valor;
+        private final long tick;
+        private Temporizador<T> anterior;
+        private Temporizador<T> siguiente;
+        private int ranura = -1;
+
+        private Temporizador(T valor, long tick) {
+            this.valor = valor;
+            this.tick = tick;
+        }
+
+        public T getValor() {
+            return valor;
+        }
+
+        public boolean isPendiente() {
+            return ranura >= 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public RuedaTemporizadores(long tickMs, long ahoraMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("El tick debe ser positivo");
+        }
+        this.tickMs = tickMs;
+        this.ranuras = (Temporizador<T>[]) new Temporizador[NIVELES * RANURAS];
+        this.proximoTick = ahoraMs / tickMs;
+    }
+
+    /**
+     * Programa un temporizador. Una hora ya pasada vence en el próximo tick.
+     *
+     * @param valor Valor que se entregará al vencer.
+     * @param venceMs Hora de vencimiento en milisegundos de época.
+     * @return Asa para cancelarlo.
+     */
+    public Temporizador<T> programar(T valor, long venceMs) {
+        // Redondeo hacia arriba: el tick t se procesa cuando ahora >= t * tickMs
+        Temporizador<T> temporizador = new Temporizador<>(valor, Math.ceilDiv(venceMs, tickMs));
+        ubicar(temporizador, proximoTick);
+        tamano++;
+        return temporizador;
+    }
+
+    /**
+     * Cancela un temporizador pendiente.
+     *
+     * @return {@code false} si ya había vencido o estaba cancelado.
+     */
+    public boolean cancelar(Temporizador<T> temporizador) {
+        if (!temporizador.isPendiente()) {
+            return false;
+        }
+        desenlazar(temporizador);
+        tamano--;
+        return true;
+    }
+
+    /**
+     * Procesa los ticks hasta {@code ahoraMs} entregando cada temporizador
+     * vencido a {@code vencidos}, en orden de tick.
+     */
+    public void avanzar(long ahoraMs, Consumer<T> vencidos) {
+        long hasta = ahoraMs / tickMs;
+        while (proximoTick <= hasta) {
+            if (tamano == 0) {
+                // Nada pendiente: saltar los ticks vacíos de una vez
+                proximoTick = hasta + 1;
+                return;
+            }
+            long tick = proximoTick;
+
+            // Repartir de arriba hacia abajo las ranuras cuya vuelta empieza en este tick
+            for (int nivel = NIVELES - 1; nivel > 0; nivel--) {
+                int desplazamiento = BITS * nivel;
+                if ((tick & ((1L << desplazamiento) - 1)) == 0) {
+                    Temporizador<T> actual = extraer(nivel, (int) ((tick >>> desplazamiento) & MASCARA));
+                    while (actual != null) {
+                        Temporizador<T> siguiente = actual.siguiente;
+                        ubicar(actual, tick);
+                        actual = siguiente;
+                    }
+                }
+            }
+
+            // Lo programado desde el consumidor cae en ticks posteriores
+            proximoTick = tick + 1;
+            Temporizador<T> actual = extraer(0, (int) (tick & MASCARA));
+            while (actual != null) {
+                Temporizador<T> siguiente = actual.siguiente;
+                if (actual.tick > tick) {
+                    ubicar(actual, proximoTick);
+                } else {
+                    tamano--;
+                    vencidos.accept(actual.valor);
+                }
+                actual = siguiente;
+            }
+        }
+    }
+
+    public int getTamano() {
+        return tamano;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /**
+     * Coloca el temporizador en el nivel más bajo que lo alcanza desde
+     * {@code referencia} (primer tick aún no procesado de ese nivel).
+     */
+    private void ubicar(Temporizador<T> temporizador, long referencia) {
+        long tick = Math.max(temporizador.tick, referencia);
+        if (tick - referencia < RANURAS) {
+            enlazar(temporizador, (int) (tick & MASCARA));
+            return;
+        }
+        for (int nivel = 1; nivel < NIVELES; nivel++) {
+            int desplazamiento = BITS * nivel;
+            long grupo = tick >>> desplazamiento;
+            // La ranura se reparte al llegar al inicio del grupo: debe estar por delante
+            // y a menos de una vuelta completa de este nivel
+            if ((grupo << desplazamiento) >= referencia
+                    && grupo - Math.ceilDiv(referencia, 1L << desplazamiento) < RANURAS) {
+                enlazar(temporizador, nivel * RANURAS + (int) (grupo & MASCARA));
+                return;
+            }
+        }
+        // Fuera de alcance: última ranura alcanzable del nivel superior, se reubica al repartirla
+        int desplazamiento = BITS * (NIVELES - 1);
+        long grupo = Math.ceilDiv(referencia, 1L << desplazamiento) + RANURAS - 1;
+        enlazar(temporizador, (NIVELES - 1) * RANURAS + (int) (grupo & MASCARA));
+    }
+
+    private void enlazar(Temporizador<T> temporizador, int ranura) {
+        Temporizador<T> cabeza = ranuras[ranura];
+        temporizador.anterior = null;
+        temporizador.siguiente = cabeza;
+        if (cabeza != null) {
+            cabeza.anterior = temporizador;
+        }
+        ranuras[ranura] = temporizador;
+        temporizador.ranura = ranura;
+    }
+
+    private void desenlazar(Temporizador<T> temporizador) {
+        if (temporizador.anterior == null) {
+            ranuras[temporizador.ranura] = temporizador.siguiente;
+        } else {
+            temporizador.anterior.siguiente = temporizador.siguiente;
+        }
+        if (temporizador.siguiente != null) {
+            temporizador.siguiente.anterior = temporizador.anterior;
+        }
+        temporizador.anterior = null;
+        temporizador.siguiente = null;
+        temporizador.ranura = -1;
+    }
+
+    /**
+     * Vacía una ranura y devuelve su lista; los nodos quedan sin ranura pero
+     * conservan el enlace {@code siguiente} para recorrerla.
+     */
+    private Temporizador<T> extraer(int nivel, int indice) {
+        int ranura = nivel * RANURAS + indice;
+        Temporizador<T> cabeza = ranuras[ranura];
+        ranuras[ranura] = null;
+        for (Temporizador<T> actual = cabeza; actual != null; actual = actual.siguiente) {
+            actual.ranura = -1;
+            actual.anterior = null;
+        }
+        return cabeza;
+    }
+}
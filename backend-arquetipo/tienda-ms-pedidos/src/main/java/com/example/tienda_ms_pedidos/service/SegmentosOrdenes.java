@@ -0,0 +1,352 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Archivo de órdenes en segmentos de solo agregado sobre disco local.
+ *
+ * Cada segmento es una secuencia de bloques; un bloque guarda un lote de
+ * órdenes (con sus detalles) como JSON comprimido con deflate, precedido de
+ * una cabecera con el rango de IDs, el largo y un CRC32C del contenido. El
+ * índice es disperso: una entrada por bloque, en memoria, reconstruida al
+ * abrir leyendo solo las cabeceras. Las búsquedas leen el bloque desde el
+ * segmento mapeado en memoria y lo descomprimen.
+ *
+ * Un bloque a medio escribir al final del último segmento (caída durante el
+ * agregado) se descarta al abrir.
+ */
+public class SegmentosOrdenes {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentosOrdenes.class);
+
+    static final int MAGIA = 0x4F524431;
+    // magia, ID mínimo, ID máximo, cantidad, largo, CRC32C
+    static final int CABECERA = 4 + 8 + 8 + 4 + 4 + 4;
+
+    private static final String PREFIJO = "segmento-";
+    private static final String EXTENSION = ".seg";
+
+    private final Path directorio;
+    private final ObjectMapper objectMapper;
+    private final long tamanoSegmento;
+
+    // Ordenado por ID mínimo; se reemplaza completo en cada agregado para leerlo sin bloqueos
+    private volatile List<Bloque> indice = List.of();
+    private final Map<Path, MappedByteBuffer> mapeados = new ConcurrentHashMap<>();
+    private volatile boolean abierto;
+    private Path activo;
+    private long tamanoActivo;
+    private int numeroActivo;
+
+    record Bloque(Path segmento, long posicion, int largo, long idMin, long idMax, int cantidad) {
+
+        boolean contiene(long id) {
+            return id >= idMin && id <= idMax;
+        }
+    }
+
+    public SegmentosOrdenes(Path directorio, ObjectMapper objectMapper, long tamanoSegmento) {
+        if (tamanoSegmento <= CABECERA || tamanoSegmento > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tamaño de segmento inválido");
+        }
+        this.directorio = directorio;
+        this.objectMapper = objectMapper;
+        this.tamanoSegmento = tamanoSegmento;
+    }
+
+    /**
+     * Agrega un lote de órdenes como un bloque nuevo y lo fuerza a disco antes de volver.
+     *
+     * @param ordenes Órdenes con sus detalles cargados.
+     */
+    public synchronized void agregar(List<Orden> ordenes) {
+        if (ordenes.isEmpty()) {
+            return;
+        }
+        abrir();
+        List<Orden> ordenadas = new ArrayList<>(ordenes);
+        ordenadas.sort(Comparator.comparing(Orden::getId));
+        long idMin = ordenadas.get(0).getId();
+        long idMax = ordenadas.get(ordenadas.size() - 1).getId();
+
+        try {
+            byte[] contenido = comprimir(objectMapper.writeValueAsBytes(ordenadas));
+            if (CABECERA + contenido.length > tamanoSegmento) {
+                throw new IllegalArgumentException("Lote demasiado grande para un segmento");
+            }
+            if (activo == null || tamanoActivo + CABECERA + contenido.length > tamanoSegmento) {
+                numeroActivo++;
+                activo = directorio.resolve(String.format("%s%06d%s", PREFIJO, numeroActivo, EXTENSION));
+                tamanoActivo = 0;
+            }
+
+            ByteBuffer bloque = ByteBuffer.allocate(CABECERA + contenido.length);
+            bloque.putInt(MAGIA).putLong(idMin).putLong(idMax).putInt(ordenadas.size())
+                .putInt(contenido.length).putInt(crc(contenido, 0, contenido.length))
+                .put(contenido)
+                .flip();
+            Files.createDirectories(directorio);
+            try (FileChannel canal = FileChannel.open(activo,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (bloque.hasRemaining()) {
+                    canal.write(bloque);
+                }
+                canal.force(true);
+            }
+
+            indexar(new Bloque(activo, tamanoActivo, contenido.length, idMin, idMax, ordenadas.size()));
+            tamanoActivo += CABECERA + contenido.length;
+        } catch (IOException e) {
+            descartarEscrituraParcial();
+            throw new UncheckedIOException("No se pudo escribir el segmento " + activo, e);
+        }
+    }
+
+    // Un bloque escrito a medias dejaría mal ubicados los siguientes agregados
+    private void descartarEscrituraParcial() {
+        if (activo == null || !Files.exists(activo)) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(activo, StandardOpenOption.WRITE)) {
+            if (canal.size() > tamanoActivo) {
+                canal.truncate(tamanoActivo);
+                canal.force(true);
+            }
+        } catch (IOException e) {
+            log.error("No se pudo truncar el segmento {} tras un error de escritura: {}", activo, e.getMessage());
+        }
+    }
+
+    /**
+     * Busca una orden archivada.
+     *
+     * @param id ID de la orden.
+     * @return La orden con sus detalles, si está en algún bloque.
+     * @throws IllegalStateException si el bloque que la contiene está corrupto.
+     */
+    public Optional<Orden> buscar(long id) {
+        abrir();
+        List<Bloque> bloques = indice;
+        // Los rangos de distintos bloques pueden solaparse (ciclos de archivado distintos)
+        for (int i = ultimoQueEmpiezaAntesDe(bloques, id); i >= 0; i--) {
+            Bloque bloque = bloques.get(i);
+            if (!bloque.contiene(id)) {
+                continue;
+            }
+            for (Orden orden : leer(bloque)) {
+                if (orden.getId() == id) {
+                    return Optional.of(orden);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Recorre todas las órdenes archivadas, bloque a bloque. Una orden que se
+     * archivó dos veces (commit fallido tras escribir el bloque) aparece en
+     * ambos bloques.
+     *
+     * @param consumidor Recibe cada orden con sus detalles.
+     * @throws IllegalStateException si algún bloque está corrupto.
+     */
+    public void recorrer(Consumer<Orden> consumidor) {
+        abrir();
+        for (Bloque bloque : indice) {
+            leer(bloque).forEach(consumidor);
+        }
+    }
+
+    public int getBloques() {
+        abrir();
+        return indice.size();
+    }
+
+    public long getOrdenes() {
+        abrir();
+        return indice.stream().mapToLong(Bloque::cantidad).sum();
+    }
+
+    /**
+     * Reconstruye el índice leyendo las cabeceras de los segmentos existentes.
+     */
+    private void abrir() {
+        if (abierto) {
+            return;
+        }
+        synchronized (this) {
+            if (abierto) {
+                return;
+            }
+            List<Bloque> bloques = new ArrayList<>();
+            if (Files.isDirectory(directorio)) {
+                List<Path> segmentos;
+                try (Stream<Path> archivos = Files.list(directorio)) {
+                    segmentos = archivos
+                        .filter(p -> p.getFileName().toString().startsWith(PREFIJO)
+                            && p.getFileName().toString().endsWith(EXTENSION))
+                        .sorted()
+                        .toList();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("No se pudo listar " + directorio, e);
+                }
+                for (int i = 0; i < segmentos.size(); i++) {
+                    boolean ultimo = i == segmentos.size() - 1;
+                    tamanoActivo = recorrerSegmento(segmentos.get(i), ultimo, bloques);
+                }
+                if (!segmentos.isEmpty()) {
+                    activo = segmentos.get(segmentos.size() - 1);
+                    String nombre = activo.getFileName().toString();
+                    numeroActivo = Integer.parseInt(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+                }
+            }
+            bloques.sort(Comparator.comparingLong(Bloque::idMin));
+            indice = List.copyOf(bloques);
+            abierto = true;
+        }
+    }
+
+    /**
+     * @return Largo válido del segmento; si el final está incompleto se trunca ahí.
+     */
+    private long recorrerSegmento(Path segmento, boolean ultimo, List<Bloque> bloques) {
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long largoArchivo = canal.size();
+            long posicion = 0;
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            while (posicion + CABECERA <= largoArchivo) {
+                cabecera.clear();
+                canal.read(cabecera, posicion);
+                cabecera.flip();
+                int magia = cabecera.getInt();
+                long idMin = cabecera.getLong();
+                long idMax = cabecera.getLong();
+                int cantidad = cabecera.getInt();
+                int largo = cabecera.getInt();
+                int crc = cabecera.getInt();
+                if (magia != MAGIA || largo < 0 || posicion + CABECERA + largo > largoArchivo) {
+                    break;
+                }
+                // En el segmento activo se verifica el contenido: es donde puede quedar un bloque a medias
+                if (ultimo) {
+                    ByteBuffer contenido = ByteBuffer.allocate(largo);
+                    canal.read(contenido, posicion + CABECERA);
+                    if (crc(contenido.array(), 0, largo) != crc) {
+                        break;
+                    }
+                }
+                bloques.add(new Bloque(segmento, posicion, largo, idMin, idMax, cantidad));
+                posicion += CABECERA + largo;
+            }
+            if (posicion < largoArchivo) {
+                log.warn("Segmento {} con {} bytes finales inválidos; se truncan", segmento, largoArchivo - posicion);
+                canal.truncate(posicion);
+                canal.force(true);
+            }
+            return posicion;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el segmento " + segmento, e);
+        }
+    }
+
+    private List<Orden> leer(Bloque bloque) {
+        ByteBuffer datos = mapear(bloque).slice((int) bloque.posicion(), CABECERA + bloque.largo());
+        if (datos.getInt() != MAGIA) {
+            throw new IllegalStateException("Bloque inválido en " + bloque.segmento() + " posición " + bloque.posicion());
+        }
+        datos.position(CABECERA - 4);
+        int crc = datos.getInt();
+        byte[] contenido = new byte[bloque.largo()];
+        datos.get(contenido);
+        if (crc(contenido, 0, contenido.length) != crc) {
+            throw new IllegalStateException("Checksum inválido en " + bloque.segmento() + " posición " + bloque.posicion());
+        }
+        try (InputStream entrada = new InflaterInputStream(new ByteArrayInputStream(contenido))) {
+            return List.of(objectMapper.readValue(entrada, Orden[].class));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el bloque de " + bloque.segmento(), e);
+        }
+    }
+
+    /**
+     * Mapea el segmento en memoria (solo lectura), volviendo a mapearlo si
+     * creció desde el último mapeo y el bloque quedó fuera.
+     */
+    private MappedByteBuffer mapear(Bloque bloque) {
+        long fin = bloque.posicion() + CABECERA + bloque.largo();
+        return mapeados.compute(bloque.segmento(), (segmento, actual) -> {
+            if (actual != null && actual.capacity() >= fin) {
+                return actual;
+            }
+            try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ)) {
+                return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo mapear el segmento " + segmento, e);
+            }
+        });
+    }
+
+    private void indexar(Bloque bloque) {
+        List<Bloque> nuevo = new ArrayList<>(indice.size() + 1);
+        nuevo.addAll(indice);
+        nuevo.add(ultimoQueEmpiezaAntesDe(indice, bloque.idMin()) + 1, bloque);
+        indice = List.copyOf(nuevo);
+    }
+
+    /**
+     * @return Posición del último bloque con ID mínimo menor o igual al dado, o -1.
+     */
+    private static int ultimoQueEmpiezaAntesDe(List<Bloque> bloques, long id) {
+        int bajo = 0;
+        int alto = bloques.size() - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (bloques.get(medio).idMin() <= id) {
+                bajo = medio + 1;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return alto;
+    }
+
+    private static byte[] comprimir(byte[] datos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 4 + 64);
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(salida)) {
+            deflate.write(datos);
+        }
+        return salida.toByteArray();
+    }
+
+    private static int crc(byte[] datos, int desde, int largo) {
+        CRC32C crc = new CRC32C();
+        crc.update(datos, desde, largo);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Modo "producto caliente" (opcional): los productos con mucha contención se
+ * descuentan en memoria sobre un {@link ContadorStockRayado} y un proceso en
+ * segundo plano persiste los descuentos acumulados en lotes.
+ *
+ * Las rutas que van directo a la base de datos toman un bloqueo compartido
+ * por producto; promover un producto toma el exclusivo y lee la fila con
+ * SELECT ... FOR UPDATE, así ningún descuento en la base de datos queda fuera
+ * del stock cargado en memoria.
+ *
+ * Un delta ya confirmado en memoria que no se puede escribir (base de datos
+ * caída) no se descarta: queda en espera y se reintenta en cada flush, y la
+ * ruta directa de ese producto no se ejecuta hasta que se persista.
+ *
+ * Cada instancia carga el stock de la base de datos en su propio contador al
+ * promover un producto y lo vende sin volver a consultarla, por lo que con el
+ * modo habilitado pedidos debe ejecutarse como una única instancia: dos
+ * instancias venderían las mismas unidades y PRODUCTO.STOCK quedaría
+ * sobrevendido.
+ */
+@Service
+@ConditionalOnProperty(name = "pedidos.stock-caliente.habilitado", havingValue = "true")
+public class StockCalienteService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockCalienteService.class);
+
+    private static final int NUMERO_BLOQUEOS = 64;
+    private static final long ESPERA_PROMOCION_MS = 500;
+
+    private final ProductoRepository productoRepository;
+    private final TransactionTemplate transaccionNueva;
+    private final int franjas;
+    private final double umbralPromocion;
+    private final double umbralDemocion;
+
+    private final Map<Long, EntradaCaliente> calientes = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> solicitudes = new ConcurrentHashMap<>();
+    // Deltas por producto que no se pudieron escribir (positivo: descuento, negativo: devolución)
+    private final Map<Long, Long> noPersistidos = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock[] bloqueos = new ReentrantReadWriteLock[NUMERO_BLOQUEOS];
+    private long inicioVentana = System.currentTimeMillis();
+
+    record EntradaCaliente(ContadorStockRayado contador, Producto producto) {
+    }
+
+    public StockCalienteService(ProductoRepository productoRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${pedidos.stock-caliente.franjas:8}") int franjas,
+                                @Value("${pedidos.stock-caliente.umbral-promocion:50}") double umbralPromocion,
+                                @Value("${pedidos.stock-caliente.umbral-democion:5}") double umbralDemocion) {
+        this.productoRepository = productoRepository;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.franjas = franjas;
+        this.umbralPromocion = umbralPromocion;
+        this.umbralDemocion = umbralDemocion;
+        for (int i = 0; i < NUMERO_BLOQUEOS; i++) {
+            bloqueos[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Descuenta stock en memoria si el producto está caliente; si no, ejecuta
+     * la ruta de base de datos bajo el bloqueo compartido del producto.
+     */
+    public Producto descontar(Long id, int cantidad, Supplier<Producto> rutaBaseDatos) {
+        solicitudes.computeIfAbsent(id, k -> new LongAdder()).increment();
+
+        EntradaCaliente entrada = calientes.get(id);
+        if (entrada != null && cantidad > 0) {
+            if (entrada.contador().descontar(cantidad)) {
+                compensarSiHayRollback(id, entrada, cantidad);
+                return copiar(entrada.producto(), entrada.contador().disponible());
+            }
+            // Franjas fragmentadas o sin stock: volver a la semántica exacta de la base de datos
+            degradar(id);
+        }
+        return ejecutarEnBaseDatos(List.of(id), rutaBaseDatos);
+    }
+
+    /**
+     * Ejecuta una operación directa sobre la base de datos para los productos
+     * indicados, degradando antes los que estén calientes.
+     */
+    public <T> T ejecutarEnBaseDatos(Collection<Long> ids, Supplier<T> operacion) {
+        // Orden fijo de bloqueos para evitar interbloqueos entre lotes
+        Set<Integer> indices = new TreeSet<>();
+        ids.forEach(id -> indices.add(indiceBloqueo(id)));
+
+        while (true) {
+            ids.forEach(this::degradar);
+            ids.forEach(this::reintentarNoPersistido);
+
+            List<Lock> tomados = new ArrayList<>(indices.size());
+            try {
+                for (Integer indice : indices) {
+                    Lock lock = bloqueos[indice].readLock();
+                    lock.lock();
+                    tomados.add(lock);
+                }
+                if (ids.stream().noneMatch(calientes::containsKey)) {
+                    // El stock de la base de datos no incluye ese delta: operar sobre él podría vender de más
+                    for (Long id : ids) {
+                        if (noPersistidos.containsKey(id)) {
+                            throw new DataAccessResourceFailureException(
+                                "Stock del producto " + id + " pendiente de persistir");
+                        }
+                    }
+                    return operacion.get();
+                }
+            } finally {
+                tomados.forEach(Lock::unlock);
+            }
+        }
+    }
+
+    /**
+     * Pasa un producto a modo caliente cargando su stock en memoria.
+     *
+     * @return true si el producto quedó caliente.
+     */
+    public boolean promover(Long id) {
+        Lock exclusivo = bloqueos[indiceBloqueo(id)].writeLock();
+        try {
+            if (!exclusivo.tryLock(ESPERA_PROMOCION_MS, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            if (calientes.containsKey(id)) {
+                return true;
+            }
+            reintentarNoPersistido(id);
+            if (noPersistidos.containsKey(id)) {
+                return false;
+            }
+            Producto producto = transaccionNueva.execute(status -> productoRepository.bloquearPorId(id).orElse(null));
+            if (producto == null || producto.getStock() < franjas) {
+                return false;
+            }
+            long stock = (long) Math.floor(producto.getStock());
+            calientes.put(id, new EntradaCaliente(new ContadorStockRayado(stock, franjas), copiar(producto, stock)));
+            log.info("Producto {} promovido a modo caliente con stock {}", id, stock);
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("No se pudo promover el producto {}: {}", id, e.getMessage());
+            return false;
+        } finally {
+            exclusivo.unlock();
+        }
+    }
+
+    /**
+     * Saca un producto del modo caliente y persiste su consumo final.
+     */
+    public void degradar(Long id) {
+        if (!calientes.containsKey(id)) {
+            return;
+        }
+        Lock exclusivo = bloqueos[indiceBloqueo(id)].writeLock();
+        exclusivo.lock();
+        try {
+            EntradaCaliente entrada = calientes.remove(id);
+            if (entrada != null) {
+                persistir(id, entrada.contador().cerrar());
+                log.info("Producto {} degradado del modo caliente", id);
+            }
+        } finally {
+            exclusivo.unlock();
+        }
+    }
+
+    public boolean isCaliente(Long id) {
+        return calientes.containsKey(id);
+    }
+
+    /**
+     * @return Delta de un producto que sigue sin persistirse, o 0.
+     */
+    long getNoPersistido(Long id) {
+        return noPersistidos.getOrDefault(id, 0L);
+    }
+
+    /**
+     * Persiste en un solo lote los descuentos acumulados de todos los productos calientes.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.stock-caliente.flush-ms:200}")
+    public void persistirPendientes() {
+        new ArrayList<>(noPersistidos.keySet()).forEach(this::reintentarNoPersistido);
+
+        Map<Long, Integer> descuentos = new LinkedHashMap<>();
+        Map<Long, ContadorStockRayado> contadores = new LinkedHashMap<>();
+        calientes.forEach((id, entrada) -> {
+            long delta = entrada.contador().tomarPendiente();
+            if (delta > 0) {
+                descuentos.put(id, (int) delta);
+                contadores.put(id, entrada.contador());
+            } else if (delta < 0) {
+                persistir(id, delta);
+            }
+        });
+        if (descuentos.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Long> fallidos = transaccionNueva.execute(status -> productoRepository.descontarStockEnLote(descuentos));
+            for (Long id : fallidos) {
+                log.error("Desfase de stock al persistir el producto {} (delta {})", id, descuentos.get(id));
+                revertir(id, contadores.get(id), descuentos.get(id));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Fallo al persistir descuentos de productos calientes: {}", e.getMessage());
+            descuentos.forEach((id, delta) -> revertir(id, contadores.get(id), delta));
+        }
+    }
+
+    /**
+     * Promueve o degrada productos según la tasa de solicitudes observada en la última ventana.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.stock-caliente.ventana-ms:5000}")
+    public void evaluarContencion() {
+        long ahora = System.currentTimeMillis();
+        double segundos = Math.max(1, ahora - inicioVentana) / 1000.0;
+        inicioVentana = ahora;
+
+        Set<Long> activos = new HashSet<>();
+        solicitudes.forEach((id, contador) -> {
+            long total = contador.sumThenReset();
+            if (total == 0) {
+                solicitudes.remove(id, contador);
+                return;
+            }
+            double tasa = total / segundos;
+            if (tasa >= umbralPromocion) {
+                promover(id);
+            }
+            if (tasa >= umbralDemocion) {
+                activos.add(id);
+            }
+        });
+
+        for (Long id : new ArrayList<>(calientes.keySet())) {
+            if (!activos.contains(id)) {
+                degradar(id);
+            }
+        }
+    }
+
+    private void compensarSiHayRollback(Long id, EntradaCaliente entrada, int cantidad) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK && !entrada.contador().devolver(cantidad)) {
+                    // El contador ya se cerró y su consumo final incluyó estas unidades
+                    persistir(id, -cantidad);
+                }
+            }
+        });
+    }
+
+    private void revertir(Long id, ContadorStockRayado contador, long delta) {
+        if (contador.isCerrado()) {
+            // El cierre ya no contará este delta: queda en espera fuera del contador
+            reencolar(id, delta);
+        } else {
+            contador.revertirPendiente(delta);
+        }
+    }
+
+    private void persistir(Long id, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        try {
+            Integer filas = transaccionNueva.execute(status -> delta > 0
+                ? productoRepository.descontarStock(id, delta)
+                : productoRepository.devolverStock(id, -delta));
+            if (filas == null || filas == 0) {
+                log.error("Desfase de stock al persistir el producto {} (delta {})", id, delta);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudo persistir el stock del producto {} (delta {}), se reintentará: {}",
+                id, delta, e.getMessage());
+            reencolar(id, delta);
+        }
+    }
+
+    private void reintentarNoPersistido(Long id) {
+        Long delta = noPersistidos.remove(id);
+        if (delta != null) {
+            persistir(id, delta);
+        }
+    }
+
+    private void reencolar(Long id, long delta) {
+        noPersistidos.merge(id, delta, (actual, nuevo) -> actual + nuevo == 0 ? null : actual + nuevo);
+    }
+
+    private int indiceBloqueo(Long id) {
+        return Math.floorMod(id.hashCode(), NUMERO_BLOQUEOS);
+    }
+
+    private Producto copiar(Producto origen, double stock) {
+        Producto copia = new Producto();
+        copia.setId(origen.getId());
+        copia.setNombre(origen.getNombre());
+        copia.setDescripcion(origen.getDescripcion());
+        copia.setPrecio(origen.getPrecio());
+        copia.setImagen(origen.getImagen());
+        copia.setCategorias(new HashSet<>(origen.getCategorias()));
+        copia.setStock(stock);
+        return copia;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+
+import java.util.List;
+
+/**
+ * Destino al que {@link RelayOutboxService} publica los eventos del outbox
+ * (un archivo, una cola de mensajería, etc.).
+ */
+public interface SumideroEventos {
+
+    /**
+     * Publica un lote de eventos en orden. Si lanza una excepción el lote
+     * completo se reintenta más tarde, por lo que el destino debe tolerar
+     * eventos repetidos (entrega al menos una vez).
+     * 
+     * @param eventos Eventos a publicar.
+     */
+    void publicar(List<EventoOutbox> eventos);
+}
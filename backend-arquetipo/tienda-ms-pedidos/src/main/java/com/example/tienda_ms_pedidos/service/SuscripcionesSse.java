@@ -0,0 +1,173 @@
+package com.example.tienda_ms_pedidos.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Suscripciones SSE con una cola acotada por suscripción.
+ *
+ * Publicar no escribe en ninguna conexión: solo agrega el evento a la cola
+ * de cada suscripción que lo acepta. Un pool pequeño de hilos vacía esas
+ * colas, de a una tarea por suscripción, así un cliente lento no retrasa a
+ * los demás ni al hilo que publica. Si la cola de un cliente se llena se
+ * cierra su conexión para que vuelva a conectarse.
+ *
+ * @param <F> Filtro de cada suscripción, con el que se decide qué recibe.
+ */
+public class SuscripcionesSse<F> {
+
+    private static final Logger log = LoggerFactory.getLogger(SuscripcionesSse.class);
+
+    private final Set<Suscripcion> suscripciones = ConcurrentHashMap.newKeySet();
+    private final ExecutorService envios;
+    private final int maxSuscriptores;
+    private final int capacidadCola;
+
+    public SuscripcionesSse(String nombreHilos, int maxSuscriptores, int capacidadCola, int hilosEnvio) {
+        this.maxSuscriptores = maxSuscriptores;
+        this.capacidadCola = capacidadCola;
+        AtomicInteger contador = new AtomicInteger();
+        this.envios = Executors.newFixedThreadPool(hilosEnvio, r -> {
+            Thread hilo = new Thread(r, nombreHilos + "-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Evento SSE con nombre y datos en JSON.
+     */
+    public static SseEmitter.SseEventBuilder evento(String nombre, Object datos) {
+        return SseEmitter.event().name(nombre).data(datos, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Registra un emisor con su filtro.
+     *
+     * @throws IllegalStateException si se alcanzó el máximo de suscriptores.
+     */
+    public SseEmitter registrar(SseEmitter emitter, F filtro) {
+        if (suscripciones.size() >= maxSuscriptores) {
+            throw new IllegalStateException("Se alcanzó el máximo de suscriptores");
+        }
+        Suscripcion suscripcion = new Suscripcion(emitter, filtro);
+        emitter.onCompletion(() -> suscripciones.remove(suscripcion));
+        emitter.onTimeout(() -> suscripciones.remove(suscripcion));
+        emitter.onError(e -> suscripciones.remove(suscripcion));
+        suscripciones.add(suscripcion);
+        return emitter;
+    }
+
+    /**
+     * Encola en cada suscripción el evento que le corresponde, sin bloquear.
+     *
+     * @param evento Evento para el filtro de una suscripción, o null si no le corresponde ninguno.
+     */
+    public void publicar(Function<F, SseEmitter.SseEventBuilder> evento) {
+        for (Suscripcion suscripcion : suscripciones) {
+            SseEmitter.SseEventBuilder paraSuscripcion = evento.apply(suscripcion.filtro);
+            if (paraSuscripcion != null) {
+                suscripcion.encolar(paraSuscripcion);
+            }
+        }
+    }
+
+    /**
+     * Encola un comentario SSE en todas las suscripciones para detectar
+     * conexiones cerradas y evitar que los proxies corten las inactivas.
+     */
+    public void enviarLatido() {
+        suscripciones.forEach(s -> s.encolar(SseEmitter.event().comment("latido")));
+    }
+
+    public boolean haySuscriptores() {
+        return !suscripciones.isEmpty();
+    }
+
+    public int getSuscriptores() {
+        return suscripciones.size();
+    }
+
+    public void detener() {
+        suscripciones.forEach(s -> s.emitter.complete());
+        suscripciones.clear();
+        envios.shutdown();
+    }
+
+    private final class Suscripcion {
+        private final SseEmitter emitter;
+        private final F filtro;
+        private final Queue<SseEmitter.SseEventBuilder> pendientes = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger tamano = new AtomicInteger();
+        private final AtomicBoolean enviando = new AtomicBoolean();
+
+        private Suscripcion(SseEmitter emitter, F filtro) {
+            this.emitter = emitter;
+            this.filtro = filtro;
+        }
+
+        private void encolar(SseEmitter.SseEventBuilder evento) {
+            if (tamano.incrementAndGet() > capacidadCola) {
+                tamano.decrementAndGet();
+                log.warn("Suscriptor SSE lento: se cierra la conexión para que vuelva a conectarse");
+                cerrar();
+                return;
+            }
+            pendientes.add(evento);
+            programar();
+        }
+
+        // Una sola tarea de envío por suscripción: los eventos salen en orden
+        private void programar() {
+            if (!enviando.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                envios.execute(this::drenar);
+            } catch (RejectedExecutionException e) {
+                enviando.set(false);
+            }
+        }
+
+        private void drenar() {
+            try {
+                SseEmitter.SseEventBuilder evento;
+                while ((evento = pendientes.poll()) != null) {
+                    tamano.decrementAndGet();
+                    emitter.send(evento);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado o emisor ya completado
+                cerrar();
+                return;
+            } finally {
+                enviando.set(false);
+            }
+            // Un evento pudo llegar después del último poll y antes de liberar la marca
+            if (!pendientes.isEmpty()) {
+                programar();
+            }
+        }
+
+        private void cerrar() {
+            if (suscripciones.remove(this)) {
+                pendientes.clear();
+                emitter.complete();
+            }
+        }
+    }
+}
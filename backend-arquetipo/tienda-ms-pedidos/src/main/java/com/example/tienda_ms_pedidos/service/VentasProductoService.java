@@ -0,0 +1,123 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.RankingProductoDTO;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.repository.VentaProductoDiaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Mantiene las ventas por producto y día (tabla VENTAS_PRODUCTO_DIA) en la
+ * misma transacción que inserta o elimina líneas de detalle, y responde los
+ * rankings de productos más vendidos desde esos agregados.
+ */
+@Service
+public class VentasProductoService {
+
+    private static final Logger log = LoggerFactory.getLogger(VentasProductoService.class);
+
+    private final VentaProductoDiaRepository ventaProductoDiaRepository;
+    private final ArchivoOrdenesService archivoOrdenesService;
+    private final TransactionTemplate transaccion;
+    private final boolean reconstruirAlIniciar;
+    // Zona del día de venta, tanto incremental como al reconstruir
+    private final ZoneId zona = ZoneId.systemDefault();
+
+    public VentasProductoService(VentaProductoDiaRepository ventaProductoDiaRepository,
+                                 ArchivoOrdenesService archivoOrdenesService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${pedidos.ranking.reconstruir-al-iniciar:false}") boolean reconstruirAlIniciar) {
+        this.ventaProductoDiaRepository = ventaProductoDiaRepository;
+        this.archivoOrdenesService = archivoOrdenesService;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.reconstruirAlIniciar = reconstruirAlIniciar;
+    }
+
+    /**
+     * Suma las líneas a las ventas del día de la orden.
+     * 
+     * @param fechaOrden Fecha de la orden; si no se conoce se usa el día actual.
+     * @param detalles Líneas vendidas.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarVenta(Date fechaOrden, Collection<DetalleOrden> detalles) {
+        if (detalles != null && !detalles.isEmpty()) {
+            ventaProductoDiaRepository.acumular(dia(fechaOrden), detalles, 1);
+        }
+    }
+
+    /**
+     * Resta las líneas de las ventas del día de la orden (p. ej. al eliminar un detalle).
+     * 
+     * @param fechaOrden Fecha de la orden; si no se conoce se usa el día actual.
+     * @param detalles Líneas anuladas.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void anularVenta(Date fechaOrden, Collection<DetalleOrden> detalles) {
+        if (detalles != null && !detalles.isEmpty()) {
+            ventaProductoDiaRepository.acumular(dia(fechaOrden), detalles, -1);
+        }
+    }
+
+    /**
+     * Productos más vendidos entre dos días.
+     * 
+     * @param desde Primer día (inclusive).
+     * @param hasta Último día (inclusive).
+     * @param limite Número de productos.
+     * @return Ranking por unidades vendidas.
+     * @throws IllegalArgumentException si el rango no es válido.
+     */
+    @Transactional(readOnly = true)
+    public List<RankingProductoDTO> ranking(LocalDate desde, LocalDate hasta, int limite) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("Rango de fechas inválido");
+        }
+        return ventaProductoDiaRepository.findRanking(desde, hasta, Limit.of(limite));
+    }
+
+    /**
+     * Recalcula los agregados desde DETALLE_ORDENES. Con órdenes archivadas
+     * solo se recalculan los días desde el corte del archivo.
+     * 
+     * @return Filas generadas.
+     */
+    public int reconstruir() {
+        LocalDate desde = archivoOrdenesService.corteReconstruccion().orElse(null);
+        Integer filas = transaccion.execute(status -> ventaProductoDiaRepository.reconstruir(zona, desde));
+        log.info("Ventas por producto y día reconstruidas: {} filas", filas);
+        return filas == null ? 0 : filas;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirSiCorresponde() {
+        if (!reconstruirAlIniciar) {
+            return;
+        }
+        try {
+            reconstruir();
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron reconstruir las ventas por producto: {}", e.getMessage());
+        }
+    }
+
+    private LocalDate dia(Date fecha) {
+        return fecha == null ? LocalDate.now() : fecha.toInstant().atZone(zona).toLocalDate();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.tienda_ms_pedidos.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Codifica el cursor de paginación (último ID entregado, o última fecha e ID
+ * en los listados por fecha) como un token opaco.
+ */
+public class CursorUtil {
+
+    private static final String PREFIJO = "id:";
+    private static final String PREFIJO_FECHA = "fi:";
+
+    /**
+     * Posición de la última orden entregada en un listado ordenado por fecha e ID.
+     */
+    public record PosicionFecha(Date fecha, long id) {
+    }
+
+    private CursorUtil() {
+    }
+
+    public static String codificar(Long ultimoId) {
+        String valor = PREFIJO + ultimoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor Token recibido del cliente, o null para la primera página.
+     * @return El último ID entregado, o 0 si no hay cursor.
+     * @throws IllegalArgumentException si el token no es válido.
+     */
+    public static long decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!valor.startsWith(PREFIJO)) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return Long.parseLong(valor.substring(PREFIJO.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    public static String codificar(Date fecha, Long ultimoId) {
+        String valor = PREFIJO_FECHA + fecha.getTime() + ":" + ultimoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor Token de un listado por fecha, o null para la primera página.
+     * @return La fecha e ID de la última orden entregada, o null si no hay cursor.
+     * @throws IllegalArgumentException si el token no es válido.
+     */
+    public static PosicionFecha decodificarFecha(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(':', PREFIJO_FECHA.length());
+            if (!valor.startsWith(PREFIJO_FECHA) || separador < 0) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            long fecha = Long.parseLong(valor.substring(PREFIJO_FECHA.length(), separador));
+            long id = Long.parseLong(valor.substring(separador + 1));
+            return new PosicionFecha(new Date(fecha), id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
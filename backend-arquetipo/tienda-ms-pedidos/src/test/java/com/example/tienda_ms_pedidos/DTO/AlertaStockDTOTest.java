@@ -0,0 +1,42 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class AlertaStockDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        AlertaStockDTO dto = new AlertaStockDTO(AlertaStockDTO.BAJO, 1L, "Producto", 6.0, 4.0, 5.0);
+
+        assertEquals(AlertaStockDTO.BAJO, dto.getTipo());
+        assertEquals(1L, dto.getIdProducto());
+        assertEquals("Producto", dto.getNombre());
+        assertEquals(6.0, dto.getStockAnterior());
+        assertEquals(4.0, dto.getStock());
+        assertEquals(5.0, dto.getUmbral());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        AlertaStockDTO dto = new AlertaStockDTO();
+
+        dto.setTipo(AlertaStockDTO.REPUESTO);
+        assertEquals(AlertaStockDTO.REPUESTO, dto.getTipo());
+
+        dto.setIdProducto(2L);
+        assertEquals(2L, dto.getIdProducto());
+
+        dto.setNombre("Otro");
+        assertEquals("Otro", dto.getNombre());
+
+        dto.setStockAnterior(1.0);
+        assertEquals(1.0, dto.getStockAnterior());
+
+        dto.setStock(8.0);
+        assertEquals(8.0, dto.getStock());
+
+        dto.setUmbral(5.0);
+        assertEquals(5.0, dto.getUmbral());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+public class EventoOrdenDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        Date fecha = new Date();
+        EventoOrdenDTO dto = new EventoOrdenDTO(EventoOrdenDTO.CREADA, 1L, "test@test.com", 1, fecha);
+
+        assertEquals(EventoOrdenDTO.CREADA, dto.getTipo());
+        assertEquals(1L, dto.getIdOrden());
+        assertEquals("test@test.com", dto.getEmail());
+        assertEquals(1, dto.getEstado());
+        assertEquals(fecha, dto.getFecha());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        EventoOrdenDTO dto = new EventoOrdenDTO();
+        Date fecha = new Date();
+
+        dto.setTipo(EventoOrdenDTO.ESTADO);
+        assertEquals(EventoOrdenDTO.ESTADO, dto.getTipo());
+
+        dto.setIdOrden(2L);
+        assertEquals(2L, dto.getIdOrden());
+
+        dto.setEmail("otro@test.com");
+        assertEquals("otro@test.com", dto.getEmail());
+
+        dto.setEstado(3);
+        assertEquals(3, dto.getEstado());
+
+        dto.setFecha(fecha);
+        assertEquals(fecha, dto.getFecha());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+public class IngresoPeriodoDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        LocalDateTime inicio = LocalDateTime.of(2024, 1, 1, 10, 0);
+        IngresoPeriodoDTO dto = new IngresoPeriodoDTO(inicio, 150.0, 3L);
+
+        assertEquals(inicio, dto.getInicio());
+        assertEquals(150.0, dto.getMonto());
+        assertEquals(3L, dto.getOrdenes());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        IngresoPeriodoDTO dto = new IngresoPeriodoDTO();
+        LocalDateTime inicio = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+        dto.setInicio(inicio);
+        assertEquals(inicio, dto.getInicio());
+
+        dto.setMonto(20.0);
+        assertEquals(20.0, dto.getMonto());
+
+        dto.setOrdenes(1L);
+        assertEquals(1L, dto.getOrdenes());
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class ItemStockDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        ItemStockDTO dto = new ItemStockDTO(1L, 3);
+
+        assertEquals(1L, dto.getIdProducto());
+        assertEquals(3, dto.getCantidad());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        ItemStockDTO dto = new ItemStockDTO();
+
+        dto.setIdProducto(2L);
+        assertEquals(2L, dto.getIdProducto());
+
+        dto.setCantidad(5);
+        assertEquals(5, dto.getCantidad());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class MetricasDiarioDTOTest {
+
+    @Test
+    void testSettersAndGetters() {
+        MetricasDiarioDTO dto = new MetricasDiarioDTO();
+
+        dto.setOrdenesPendientes(3);
+        assertEquals(3, dto.getOrdenesPendientes());
+
+        dto.setBytesPendientes(2048);
+        assertEquals(2048, dto.getBytesPendientes());
+
+        dto.setCapacidadBytes(67108864);
+        assertEquals(67108864, dto.getCapacidadBytes());
+
+        dto.setRetrasoMs(1500L);
+        assertEquals(1500L, dto.getRetrasoMs());
+
+        dto.setAceptadas(10L);
+        assertEquals(10L, dto.getAceptadas());
+
+        dto.setReproducidas(7L);
+        assertEquals(7L, dto.getReproducidas());
+
+        dto.setDescartadas(1L);
+        assertEquals(1L, dto.getDescartadas());
+    }
+}
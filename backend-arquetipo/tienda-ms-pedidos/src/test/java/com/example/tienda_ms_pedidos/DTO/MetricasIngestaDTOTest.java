@@ -0,0 +1,40 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class MetricasIngestaDTOTest {
+
+    @Test
+    void testSettersAndGetters() {
+        MetricasIngestaDTO dto = new MetricasIngestaDTO();
+
+        dto.setProfundidadCola(3);
+        assertEquals(3, dto.getProfundidadCola());
+
+        dto.setCapacidadCola(1000);
+        assertEquals(1000, dto.getCapacidadCola());
+
+        dto.setOrdenesConfirmadas(120L);
+        assertEquals(120L, dto.getOrdenesConfirmadas());
+
+        dto.setLotesConfirmados(4L);
+        assertEquals(4L, dto.getLotesConfirmados());
+
+        dto.setLotesFallidos(1L);
+        assertEquals(1L, dto.getLotesFallidos());
+
+        dto.setRechazadas(2L);
+        assertEquals(2L, dto.getRechazadas());
+
+        dto.setTamanoLotePromedio(30.0);
+        assertEquals(30.0, dto.getTamanoLotePromedio());
+
+        dto.setLatenciaCommitPromedioMs(12.5);
+        assertEquals(12.5, dto.getLatenciaCommitPromedioMs());
+
+        dto.setLatenciaCommitMaximaMs(40.0);
+        assertEquals(40.0, dto.getLatenciaCommitMaximaMs());
+    }
+}
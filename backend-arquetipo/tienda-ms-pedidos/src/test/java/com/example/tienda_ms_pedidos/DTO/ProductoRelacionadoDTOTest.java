@@ -0,0 +1,27 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class ProductoRelacionadoDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        ProductoRelacionadoDTO dto = new ProductoRelacionadoDTO(3L, 12L);
+
+        assertEquals(3L, dto.getIdProducto());
+        assertEquals(12L, dto.getVeces());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        ProductoRelacionadoDTO dto = new ProductoRelacionadoDTO();
+
+        dto.setIdProducto(4L);
+        assertEquals(4L, dto.getIdProducto());
+
+        dto.setVeces(2L);
+        assertEquals(2L, dto.getVeces());
+    }
+}
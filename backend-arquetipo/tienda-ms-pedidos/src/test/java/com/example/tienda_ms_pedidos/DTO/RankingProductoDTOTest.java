@@ -0,0 +1,31 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class RankingProductoDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        RankingProductoDTO dto = new RankingProductoDTO(1L, 10L, 500.0);
+
+        assertEquals(1L, dto.getIdProducto());
+        assertEquals(10L, dto.getUnidades());
+        assertEquals(500.0, dto.getMonto());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        RankingProductoDTO dto = new RankingProductoDTO();
+
+        dto.setIdProducto(2L);
+        assertEquals(2L, dto.getIdProducto());
+
+        dto.setUnidades(3L);
+        assertEquals(3L, dto.getUnidades());
+
+        dto.setMonto(30.0);
+        assertEquals(30.0, dto.getMonto());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ReservaStockDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        Date vence = new Date();
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2));
+        ReservaStockDTO dto = new ReservaStockDTO("r-1", vence, items);
+
+        assertEquals("r-1", dto.getId());
+        assertEquals(vence, dto.getVence());
+        assertEquals(items, dto.getItems());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        ReservaStockDTO dto = new ReservaStockDTO();
+        Date vence = new Date();
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(3L, 4));
+
+        dto.setId("r-2");
+        assertEquals("r-2", dto.getId());
+
+        dto.setVence(vence);
+        assertEquals(vence, dto.getVence());
+
+        dto.setItems(items);
+        assertEquals(items, dto.getItems());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ResultadoTransicionDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        ResultadoTransicionDTO dto = new ResultadoTransicionDTO(List.of(1L), List.of(2L));
+
+        assertEquals(List.of(1L), dto.getActualizadas());
+        assertEquals(List.of(2L), dto.getOmitidas());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        ResultadoTransicionDTO dto = new ResultadoTransicionDTO();
+
+        dto.setActualizadas(List.of(4L));
+        assertEquals(List.of(4L), dto.getActualizadas());
+
+        dto.setOmitidas(List.of(5L));
+        assertEquals(List.of(5L), dto.getOmitidas());
+    }
+}
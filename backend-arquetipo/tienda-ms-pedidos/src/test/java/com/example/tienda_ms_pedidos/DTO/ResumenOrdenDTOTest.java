@@ -0,0 +1,48 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+public class ResumenOrdenDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        Date fecha = new Date();
+        ResumenOrdenDTO dto = new ResumenOrdenDTO(1L, fecha, 2, 500.0);
+
+        assertEquals(1L, dto.getId());
+        assertEquals(fecha, dto.getFecha());
+        assertEquals(2, dto.getEstado());
+        assertEquals(500.0, dto.getMontoTotal());
+        assertNull(dto.getEmail());
+
+        ResumenOrdenDTO conEmail = new ResumenOrdenDTO(3L, "test@example.com", fecha, 1, 100.0);
+        assertEquals(3L, conEmail.getId());
+        assertEquals("test@example.com", conEmail.getEmail());
+        assertEquals(fecha, conEmail.getFecha());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        ResumenOrdenDTO dto = new ResumenOrdenDTO();
+        Date fecha = new Date();
+
+        dto.setId(2L);
+        assertEquals(2L, dto.getId());
+
+        dto.setEmail("test@example.com");
+        assertEquals("test@example.com", dto.getEmail());
+
+        dto.setFecha(fecha);
+        assertEquals(fecha, dto.getFecha());
+
+        dto.setEstado(3);
+        assertEquals(3, dto.getEstado());
+
+        dto.setMontoTotal(30.0);
+        assertEquals(30.0, dto.getMontoTotal());
+    }
+}
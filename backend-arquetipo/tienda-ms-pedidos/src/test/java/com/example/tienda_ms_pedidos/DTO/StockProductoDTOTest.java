@@ -0,0 +1,30 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class StockProductoDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        StockProductoDTO dto = new StockProductoDTO(1L, "Producto", 3.0);
+
+        assertEquals(1L, dto.getIdProducto());
+        assertEquals("Producto", dto.getNombre());
+        assertEquals(3.0, dto.getStock());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        StockProductoDTO dto = new StockProductoDTO();
+
+        dto.setIdProducto(2L);
+        assertEquals(2L, dto.getIdProducto());
+
+        dto.setNombre("Otro");
+        assertEquals("Otro", dto.getNombre());
+
+        dto.setStock(5.0);
+        assertEquals(5.0, dto.getStock());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.tienda_ms_pedidos.DTO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TransicionEstadoDTOTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        TransicionEstadoDTO dto = new TransicionEstadoDTO(List.of(1L, 2L), 2);
+
+        assertEquals(List.of(1L, 2L), dto.getIds());
+        assertEquals(2, dto.getDesde());
+    }
+
+    @Test
+    void testSettersAndGetters() {
+        TransicionEstadoDTO dto = new TransicionEstadoDTO();
+
+        dto.setIds(List.of(3L));
+        assertEquals(List.of(3L), dto.getIds());
+
+        dto.setDesde(1);
+        assertEquals(1, dto.getDesde());
+    }
+}
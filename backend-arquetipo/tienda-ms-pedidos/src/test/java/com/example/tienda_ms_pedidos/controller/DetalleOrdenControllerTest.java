@@ -1,5 +1,6 @@
 package com.example.tienda_ms_pedidos.controller;
 
+import com.example.tienda_ms_pedidos.exception.DetalleOrdenException;
 import com.example.tienda_ms_pedidos.model.DetalleOrden;
 import com.example.tienda_ms_pedidos.service.DetalleOrdenService;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -65,6 +67,48 @@ class DetalleOrdenControllerTest {
         verify(detalleOrdenService, never()).saveDetalleOrden(any(DetalleOrden.class));
     }
 
+    @Test
+    void createDetallesOrden_Success() {
+        // Arrange
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setId(10L);
+        List<DetalleOrden> detalles = List.of(detalle);
+        when(detalleOrdenService.saveDetallesOrden(5L, detalles)).thenReturn(Optional.of(detalles));
+
+        // Act
+        ResponseEntity<?> response = detalleOrdenController.createDetallesOrden(5L, detalles);
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(detalles, response.getBody());
+    }
+
+    @Test
+    void createDetallesOrden_OrdenNoEncontrada() {
+        // Arrange
+        when(detalleOrdenService.saveDetallesOrden(5L, List.of())).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<?> response = detalleOrdenController.createDetallesOrden(5L, List.of());
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void createDetallesOrden_LineasInvalidas() {
+        // Arrange
+        when(detalleOrdenService.saveDetallesOrden(5L, List.of()))
+            .thenThrow(new DetalleOrdenException("Líneas de detalle inválidas", List.of(0, 2)));
+
+        // Act
+        ResponseEntity<?> response = detalleOrdenController.createDetallesOrden(5L, List.of());
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(List.of(0, 2), ((Map<?, ?>) response.getBody()).get("lineas"));
+    }
+
     @Test
     void getAllDetallesOrdenes_Success() {
         // Arrange
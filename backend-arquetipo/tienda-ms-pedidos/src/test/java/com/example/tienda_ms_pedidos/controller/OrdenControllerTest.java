@@ -1,18 +1,51 @@
 package com.example.tienda_ms_pedidos.controller;
 
+import com.example.tienda_ms_pedidos.DTO.IngresoPeriodoDTO;
+import com.example.tienda_ms_pedidos.DTO.MetricasDiarioDTO;
+import com.example.tienda_ms_pedidos.DTO.MetricasIngestaDTO;
+import com.example.tienda_ms_pedidos.DTO.PaginaDTO;
+import com.example.tienda_ms_pedidos.DTO.ProductoRelacionadoDTO;
+import com.example.tienda_ms_pedidos.DTO.RankingProductoDTO;
+import com.example.tienda_ms_pedidos.DTO.ResultadoTransicionDTO;
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
+import com.example.tienda_ms_pedidos.DTO.TransicionEstadoDTO;
+import com.example.tienda_ms_pedidos.exception.IdempotenciaException;
+import com.example.tienda_ms_pedidos.exception.IngestaPendienteException;
+import com.example.tienda_ms_pedidos.exception.IngestaSaturadaException;
+import com.example.tienda_ms_pedidos.exception.StockException;
 import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.service.ArchivoOrdenesService;
+import com.example.tienda_ms_pedidos.service.DiarioOrdenesService;
+import com.example.tienda_ms_pedidos.service.EventosOrdenService;
+import com.example.tienda_ms_pedidos.service.IdempotenciaService;
+import com.example.tienda_ms_pedidos.service.IndiceCoCompraService;
+import com.example.tienda_ms_pedidos.service.IngresosService;
+import com.example.tienda_ms_pedidos.service.IngestaOrdenesService;
 import com.example.tienda_ms_pedidos.service.OrdenService;
+import com.example.tienda_ms_pedidos.service.VentasProductoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,6 +57,30 @@ class OrdenControllerTest {
     @Mock
     private OrdenService ordenService;
 
+    @Mock
+    private IdempotenciaService idempotenciaService;
+
+    @Mock
+    private IngestaOrdenesService ingestaOrdenesService;
+
+    @Mock
+    private EventosOrdenService eventosOrdenService;
+
+    @Mock
+    private VentasProductoService ventasProductoService;
+
+    @Mock
+    private IngresosService ingresosService;
+
+    @Mock
+    private IndiceCoCompraService indiceCoCompraService;
+
+    @Mock
+    private ArchivoOrdenesService archivoOrdenesService;
+
+    @Mock
+    private DiarioOrdenesService diarioOrdenesService;
+
     @InjectMocks
     private OrdenController ordenController;
 
@@ -44,28 +101,565 @@ class OrdenControllerTest {
         when(ordenService.saveOrden(any(Orden.class))).thenReturn(orden);
 
         // Act
-        ResponseEntity<Orden> response = ordenController.createOrden(orden);
+        ResponseEntity<?> response = ordenController.createOrden(null, orden);
 
         // Assert
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals(orden.getEmail(), response.getBody().getEmail());
+        assertEquals(orden.getEmail(), ((Orden) response.getBody()).getEmail());
         verify(ordenService).saveOrden(any(Orden.class));
+        verifyNoInteractions(idempotenciaService);
+    }
+
+    @Test
+    void createOrden_ConIdempotencyKey_DevuelveRespuestaOriginal() {
+        // Arrange
+        Orden original = new Orden();
+        original.setId(7L);
+        when(idempotenciaService.ejecutar(eq("clave-1"), any()))
+            .thenReturn(new IdempotenciaService.Resultado(original, true));
+
+        // Act
+        ResponseEntity<?> response = ordenController.createOrden("clave-1", new Orden());
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(7L, ((Orden) response.getBody()).getId());
+        assertEquals("true", response.getHeaders().getFirst("Idempotent-Replayed"));
+        verify(ordenService, never()).saveOrden(any());
+    }
+
+    @Test
+    void createOrden_IdempotencyKeyInvalida() {
+        // Act
+        ResponseEntity<?> response = ordenController.createOrden(" ", new Orden());
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Idempotency-Key inválida", response.getBody());
+    }
+
+    @Test
+    void createOrden_IdempotencyKeyEnCurso() {
+        // Arrange
+        when(idempotenciaService.ejecutar(eq("clave-1"), any()))
+            .thenThrow(new IdempotenciaException("La solicitud con esta Idempotency-Key sigue en curso"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.createOrden("clave-1", new Orden());
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void createOrden_IngestaSaturada() {
+        // Arrange
+        when(ordenService.saveOrden(any(Orden.class)))
+            .thenThrow(new IngestaSaturadaException("Cola de ingesta de órdenes llena"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.createOrden(null, new Orden());
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+    }
+
+    @Test
+    void createOrden_ConfirmacionPendiente_DevuelveClave() {
+        // Arrange
+        when(ordenService.saveOrden(any(Orden.class)))
+            .thenThrow(new IngestaPendienteException("La orden sigue pendiente de confirmación", "ingesta-1"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.createOrden(null, new Orden());
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("ingesta-1", response.getHeaders().getFirst("Idempotency-Key"));
+        assertEquals("ingesta-1", ((Map<?, ?>) response.getBody()).get("clave"));
+    }
+
+    @Test
+    void createOrden_BaseDeDatosCaida_AceptaEnDiario() {
+        // Arrange
+        Orden orden = new Orden();
+        when(ordenService.saveOrden(any(Orden.class)))
+            .thenThrow(new DataAccessResourceFailureException("Base de datos no disponible"));
+        when(diarioOrdenesService.registrar(orden, null)).thenReturn("diario-1");
+
+        // Act
+        ResponseEntity<?> response = ordenController.createOrden(null, orden);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("diario-1", response.getHeaders().getFirst("Idempotency-Key"));
+        assertEquals("diario-1", ((Map<?, ?>) response.getBody()).get("clave"));
+    }
+
+    @Test
+    void createOrden_BaseDeDatosCaida_DiarioLleno() {
+        // Arrange
+        when(ordenService.saveOrden(any(Orden.class)))
+            .thenThrow(new DataAccessResourceFailureException("Base de datos no disponible"));
+        when(diarioOrdenesService.registrar(any(Orden.class), any()))
+            .thenThrow(new IngestaSaturadaException("Diario de órdenes lleno"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.createOrden(null, new Orden());
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    void createOrden_BaseDeDatosCaida_SinDiario() {
+        // Arrange
+        ReflectionTestUtils.setField(ordenController, "diarioOrdenesService", null);
+        when(ordenService.saveOrden(any(Orden.class)))
+            .thenThrow(new DataAccessResourceFailureException("Base de datos no disponible"));
+
+        // Act & Assert
+        assertThrows(DataAccessResourceFailureException.class, () -> ordenController.createOrden(null, new Orden()));
+    }
+
+    @Test
+    void createOrden_SinConexion_AceptaEnDiario() {
+        // Arrange
+        Orden orden = new Orden();
+        when(idempotenciaService.ejecutar(eq("clave-1"), any()))
+            .thenThrow(new CannotCreateTransactionException("No se pudo obtener una conexión"));
+        when(diarioOrdenesService.registrar(orden, "clave-1")).thenReturn("clave-1");
+
+        // Act
+        ResponseEntity<?> response = ordenController.createOrden("clave-1", orden);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("clave-1", response.getHeaders().getFirst("Idempotency-Key"));
+    }
+
+    @Test
+    void createOrden_ViolacionDeIntegridad_NoAceptaEnDiario() {
+        // Arrange
+        when(ordenService.saveOrden(any(Orden.class)))
+            .thenThrow(new DataIntegrityViolationException("Valor nulo en EMAIL"));
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> ordenController.createOrden(null, new Orden()));
+        verifyNoInteractions(diarioOrdenesService);
+    }
+
+    @Test
+    void createOrden_FalloAlConfirmar_NoAceptaEnDiario() {
+        // Arrange
+        when(ordenService.saveOrden(any(Orden.class)))
+            .thenThrow(new TransactionSystemException("No se pudo confirmar la transacción"));
+
+        // Act & Assert
+        assertThrows(TransactionSystemException.class, () -> ordenController.createOrden(null, new Orden()));
+        verifyNoInteractions(diarioOrdenesService);
+    }
+
+    @Test
+    void getMetricasDiario_Success() {
+        // Arrange
+        MetricasDiarioDTO metricas = new MetricasDiarioDTO();
+        metricas.setOrdenesPendientes(2);
+        when(diarioOrdenesService.getMetricas()).thenReturn(metricas);
+
+        // Act
+        ResponseEntity<MetricasDiarioDTO> response = ordenController.getMetricasDiario();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getOrdenesPendientes());
+    }
+
+    @Test
+    void getMetricasDiario_Deshabilitado() {
+        // Arrange
+        ReflectionTestUtils.setField(ordenController, "diarioOrdenesService", null);
+
+        // Act
+        ResponseEntity<MetricasDiarioDTO> response = ordenController.getMetricasDiario();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getMetricasIngesta_Success() {
+        // Arrange
+        MetricasIngestaDTO metricas = new MetricasIngestaDTO();
+        metricas.setProfundidadCola(3);
+        when(ingestaOrdenesService.getMetricas()).thenReturn(metricas);
+
+        // Act
+        ResponseEntity<MetricasIngestaDTO> response = ordenController.getMetricasIngesta();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3, response.getBody().getProfundidadCola());
+    }
+
+    @Test
+    void checkout_Success() {
+        // Arrange
+        Orden orden = new Orden();
+        orden.setEmail("test@test.com");
+        orden.setEstado(1);
+        orden.setFecha(new Date());
+        orden.setMontoTotal(100.0);
+
+        when(ordenService.checkout(any(Orden.class))).thenReturn(orden);
+
+        // Act
+        ResponseEntity<?> response = ordenController.checkout(orden);
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertSame(orden, response.getBody());
+        verify(ordenService).checkout(orden);
+    }
+
+    @Test
+    void checkout_StockInsuficiente() {
+        // Arrange
+        Orden orden = new Orden();
+        when(ordenService.checkout(any(Orden.class))).thenThrow(new StockException("Stock insuficiente"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.checkout(orden);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Stock insuficiente", response.getBody());
+    }
+
+    @Test
+    void checkout_CantidadInvalida() {
+        // Arrange
+        Orden orden = new Orden();
+        when(ordenService.checkout(any(Orden.class)))
+            .thenThrow(new IllegalArgumentException("Cantidad inválida para el producto 1"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.checkout(orden);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Cantidad inválida para el producto 1", response.getBody());
     }
 
     @Test
     void getAllOrdenes_Success() {
         // Arrange
         List<Orden> ordenes = Arrays.asList(new Orden(), new Orden());
-        when(ordenService.findAll()).thenReturn(ordenes);
+        when(ordenService.findPagina(null, 50)).thenReturn(new PaginaDTO<>(ordenes, "abc"));
 
         // Act
-        ResponseEntity<List<Orden>> response = ordenController.getAllOrdenes();
+        ResponseEntity<?> response = ordenController.getAllOrdenes(null, 50);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(2, response.getBody().size());
-        verify(ordenService).findAll();
+        PaginaDTO<?> pagina = (PaginaDTO<?>) response.getBody();
+        assertEquals(2, pagina.getItems().size());
+        assertEquals("abc", pagina.getNext());
+        verify(ordenService).findPagina(null, 50);
+    }
+
+    @Test
+    void getAllOrdenes_LimitaTamanoMaximo() {
+        // Arrange
+        when(ordenService.findPagina(null, 100)).thenReturn(new PaginaDTO<>(List.of(), null));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getAllOrdenes(null, 10000);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(ordenService).findPagina(null, 100);
+    }
+
+    @Test
+    void getAllOrdenes_CursorInvalido() {
+        // Arrange
+        when(ordenService.findPagina("xyz", 50)).thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getAllOrdenes("xyz", 50);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Cursor inválido", response.getBody());
+    }
+
+    @Test
+    void getResumenOrdenes_Success() {
+        // Arrange
+        List<ResumenOrdenDTO> resumenes = List.of(new ResumenOrdenDTO(2L, "test@example.com", new Date(), 1, 10.0));
+        when(ordenService.findPaginaResumen(1, null, 50)).thenReturn(new PaginaDTO<>(resumenes, "abc"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getResumenOrdenes(1, null, 50);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        PaginaDTO<?> pagina = (PaginaDTO<?>) response.getBody();
+        assertEquals(resumenes, pagina.getItems());
+        assertEquals("abc", pagina.getNext());
+    }
+
+    @Test
+    void getResumenOrdenes_CursorInvalido() {
+        // Arrange
+        when(ordenService.findPaginaResumen(null, "x", 100)).thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getResumenOrdenes(null, "x", 10000);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Cursor inválido", response.getBody());
+    }
+
+    @Test
+    void getOrdenesCliente_Success() {
+        // Arrange
+        List<ResumenOrdenDTO> resumenes = List.of(new ResumenOrdenDTO(2L, new Date(), 1, 10.0));
+        when(ordenService.findPaginaByEmail("test@example.com", null, 20)).thenReturn(new PaginaDTO<>(resumenes, "abc"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getOrdenesCliente("test@example.com", null, 20);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        PaginaDTO<?> pagina = (PaginaDTO<?>) response.getBody();
+        assertEquals(1, pagina.getItems().size());
+        assertEquals("abc", pagina.getNext());
+    }
+
+    @Test
+    void getOrdenesCliente_LimitaTamanoMaximo() {
+        // Arrange
+        when(ordenService.findPaginaByEmail("test@example.com", null, 100)).thenReturn(new PaginaDTO<>(List.of(), null));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getOrdenesCliente("test@example.com", null, 10000);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(ordenService).findPaginaByEmail("test@example.com", null, 100);
+    }
+
+    @Test
+    void getOrdenesCliente_EmailVacio() {
+        // Arrange
+        when(ordenService.findPaginaByEmail(" ", null, 20)).thenThrow(new IllegalArgumentException("Debe indicar el email"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getOrdenesCliente(" ", null, 20);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Debe indicar el email", response.getBody());
+    }
+
+    @Test
+    void getOrdenesPorRango_Success() {
+        // Arrange
+        LocalDateTime desde = LocalDateTime.of(2024, 1, 1, 10, 0);
+        LocalDateTime hasta = LocalDateTime.of(2024, 1, 1, 10, 15);
+        Date inicio = Date.from(desde.atZone(ZoneId.systemDefault()).toInstant());
+        Date fin = Date.from(hasta.atZone(ZoneId.systemDefault()).toInstant());
+        when(ordenService.findPaginaByFecha(inicio, fin, 1, null, 100)).thenReturn(new PaginaDTO<>(List.of(new Orden()), null));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getOrdenesPorRango(desde, hasta, 1, null, 10000);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, ((PaginaDTO<?>) response.getBody()).getItems().size());
+    }
+
+    @Test
+    void getOrdenesPorRango_RangoInvalido() {
+        // Arrange
+        when(ordenService.findPaginaByFecha(any(), any(), any(), any(), anyInt()))
+            .thenThrow(new IllegalArgumentException("Rango de fechas inválido"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getOrdenesPorRango(LocalDateTime.now(), null, null, null, 50);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Rango de fechas inválido", response.getBody());
+    }
+
+    @Test
+    void exportarOrdenesPorRango_Success() throws Exception {
+        // Arrange
+        LocalDateTime desde = LocalDateTime.of(2024, 1, 1, 0, 0);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        // Act
+        ResponseEntity<?> response = ordenController.exportarOrdenesPorRango(desde, null, 2);
+        ((StreamingResponseBody) response.getBody()).writeTo(salida);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        verify(ordenService).exportarRango(eq(Date.from(desde.atZone(ZoneId.systemDefault()).toInstant())), any(Date.class), eq(2), eq(salida));
+    }
+
+    @Test
+    void exportarOrdenesPorRango_RangoInvalido() {
+        // Act
+        ResponseEntity<?> response = ordenController.exportarOrdenesPorRango(
+            LocalDateTime.of(2024, 1, 2, 0, 0), LocalDateTime.of(2024, 1, 1, 0, 0), null);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Rango de fechas inválido", response.getBody());
+    }
+
+    @Test
+    void exportarOrdenes_Success() throws Exception {
+        // Arrange
+        LocalDate desde = LocalDate.of(2024, 1, 1);
+        LocalDate hasta = LocalDate.of(2024, 1, 31);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        // Act
+        ResponseEntity<?> response = ordenController.exportarOrdenes(desde, hasta, 1);
+        ((StreamingResponseBody) response.getBody()).writeTo(salida);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        verify(ordenService).exportar(desde, hasta, 1, salida);
+    }
+
+    @Test
+    void exportarOrdenes_RangoInvalido() throws Exception {
+        // Act
+        ResponseEntity<?> response = ordenController.exportarOrdenes(
+            LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), null);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Rango de fechas inválido", response.getBody());
+        verify(ordenService, never()).exportar(any(), any(), any(), any());
+    }
+
+    @Test
+    void getRanking_SinFechas_UsaUltimosSieteDias() {
+        // Arrange
+        LocalDate hoy = LocalDate.now();
+        List<RankingProductoDTO> ranking = List.of(new RankingProductoDTO(1L, 10L, 100.0));
+        when(ventasProductoService.ranking(hoy.minusDays(6), hoy, 20)).thenReturn(ranking);
+
+        // Act
+        ResponseEntity<?> response = ordenController.getRanking(null, null, 20);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(ranking, response.getBody());
+    }
+
+    @Test
+    void getRanking_LimiteExcesivo_SeAcota() {
+        // Act
+        ordenController.getRanking(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7), 5000);
+
+        // Assert
+        verify(ventasProductoService).ranking(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7), 100);
+    }
+
+    @Test
+    void getRanking_RangoInvalido() {
+        // Arrange
+        when(ventasProductoService.ranking(any(), any(), anyInt()))
+            .thenThrow(new IllegalArgumentException("Rango de fechas inválido"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getRanking(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), 20);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void getIngresos_Success() {
+        // Arrange
+        LocalDate desde = LocalDate.of(2024, 1, 1);
+        LocalDate hasta = LocalDate.of(2024, 1, 31);
+        List<IngresoPeriodoDTO> ingresos = List.of(new IngresoPeriodoDTO(desde.atStartOfDay(), 100.0, 2L));
+        when(ingresosService.consultar(desde, hasta, "dia")).thenReturn(ingresos);
+
+        // Act
+        ResponseEntity<?> response = ordenController.getIngresos(desde, hasta, "dia");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(ingresos, response.getBody());
+    }
+
+    @Test
+    void getIngresos_GranularidadInvalida() {
+        // Arrange
+        when(ingresosService.consultar(any(), any(), eq("semana")))
+            .thenThrow(new IllegalArgumentException("Granularidad inválida: use hora, dia o mes"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getIngresos(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), "semana");
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Granularidad inválida: use hora, dia o mes", response.getBody());
+    }
+
+    @Test
+    void getProductosRelacionados_Success() {
+        // Arrange
+        List<ProductoRelacionadoDTO> relacionados = List.of(new ProductoRelacionadoDTO(2L, 5L));
+        when(indiceCoCompraService.relacionados(1L, 10)).thenReturn(relacionados);
+
+        // Act
+        ResponseEntity<List<ProductoRelacionadoDTO>> response = ordenController.getProductosRelacionados(1L, 10);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(relacionados, response.getBody());
+    }
+
+    @Test
+    void streamOrdenes_Success() {
+        // Arrange
+        SseEmitter emitter = new SseEmitter();
+        when(eventosOrdenService.suscribir("test@test.com", 2)).thenReturn(emitter);
+
+        // Act
+        ResponseEntity<SseEmitter> response = ordenController.streamOrdenes("test@test.com", 2);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(emitter, response.getBody());
+    }
+
+    @Test
+    void streamOrdenes_MaximoDeSuscriptores() {
+        // Arrange
+        when(eventosOrdenService.suscribir(null, null))
+            .thenThrow(new IllegalStateException("Se alcanzó el máximo de suscriptores"));
+
+        // Act
+        ResponseEntity<SseEmitter> response = ordenController.streamOrdenes(null, null);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
     }
 
     @Test
@@ -97,21 +691,78 @@ class OrdenControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
         verify(ordenService).findById(1L);
+        verify(archivoOrdenesService).buscar(1L);
+    }
+
+    @Test
+    void getOrdenById_Archivada() {
+        // Arrange
+        Orden orden = new Orden();
+        orden.setId(1L);
+        when(ordenService.findById(1L)).thenReturn(Optional.empty());
+        when(archivoOrdenesService.buscar(1L)).thenReturn(Optional.of(orden));
+
+        // Act
+        ResponseEntity<Orden> response = ordenController.getOrdenById(1L);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(orden, response.getBody());
     }
 
     @Test
     void getOrdenesByEstado_Success() {
         // Arrange
         List<Orden> ordenes = Arrays.asList(new Orden(), new Orden());
-        when(ordenService.findByEstado(1)).thenReturn(ordenes);
+        when(ordenService.findPaginaByEstado(1, null, 50)).thenReturn(new PaginaDTO<>(ordenes, null));
+
+        // Act
+        ResponseEntity<?> response = ordenController.getOrdenesByEstado(1, null, 50);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        PaginaDTO<?> pagina = (PaginaDTO<?>) response.getBody();
+        assertEquals(2, pagina.getItems().size());
+        assertNull(pagina.getNext());
+        verify(ordenService).findPaginaByEstado(1, null, 50);
+    }
+
+    @Test
+    void avanzarEstado_Success() {
+        // Arrange
+        ResultadoTransicionDTO resultado = new ResultadoTransicionDTO(List.of(1L), List.of(2L));
+        when(ordenService.avanzarEstado(List.of(1L, 2L), 2)).thenReturn(resultado);
 
         // Act
-        ResponseEntity<List<Orden>> response = ordenController.getOrdenesByEstado(1);
+        ResponseEntity<?> response = ordenController.avanzarEstado(new TransicionEstadoDTO(List.of(1L, 2L), 2));
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(2, response.getBody().size());
-        verify(ordenService).findByEstado(1);
+        assertSame(resultado, response.getBody());
+    }
+
+    @Test
+    void avanzarEstado_SinEstadoEsperado() {
+        // Act
+        ResponseEntity<?> response = ordenController.avanzarEstado(new TransicionEstadoDTO(List.of(1L), null));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(ordenService);
+    }
+
+    @Test
+    void avanzarEstado_EstadoInvalido() {
+        // Arrange
+        when(ordenService.avanzarEstado(List.of(1L), 4))
+            .thenThrow(new IllegalArgumentException("Estado sin transición válida"));
+
+        // Act
+        ResponseEntity<?> response = ordenController.avanzarEstado(new TransicionEstadoDTO(List.of(1L), 4));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Estado sin transición válida", response.getBody());
     }
 
     @Test
@@ -120,10 +771,36 @@ class OrdenControllerTest {
         doNothing().when(ordenService).updateEstado(1L, 2);
 
         // Act
-        ResponseEntity<Void> response = ordenController.updateEstado(1L, 2);
+        ResponseEntity<?> response = ordenController.updateEstado(1L, 2);
 
         // Assert
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         verify(ordenService).updateEstado(1L, 2);
     }
+
+    @Test
+    void updateEstado_TransicionNoPermitida() {
+        // Arrange
+        doThrow(new IllegalStateException("La orden 1 no puede pasar al estado 4"))
+            .when(ordenService).updateEstado(1L, 4);
+
+        // Act
+        ResponseEntity<?> response = ordenController.updateEstado(1L, 4);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("La orden 1 no puede pasar al estado 4", response.getBody());
+    }
+
+    @Test
+    void updateEstado_EstadoInvalido() {
+        // Arrange
+        doThrow(new IllegalArgumentException("Estado sin transición válida")).when(ordenService).updateEstado(1L, 9);
+
+        // Act
+        ResponseEntity<?> response = ordenController.updateEstado(1L, 9);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
 }
@@ -1,8 +1,13 @@
 package com.example.tienda_ms_pedidos.controller;
 
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
+import com.example.tienda_ms_pedidos.DTO.ReservaStockDTO;
+import com.example.tienda_ms_pedidos.DTO.StockProductoDTO;
 import com.example.tienda_ms_pedidos.exception.StockException;
 import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.service.IndiceBajoStockService;
 import com.example.tienda_ms_pedidos.service.ProductoService;
+import com.example.tienda_ms_pedidos.service.ReservaStockService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -10,6 +15,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.*;
 
@@ -21,6 +27,9 @@ class ProductoControllerTest {
     @Mock
     private ProductoService productoService;
 
+    @Mock
+    private ReservaStockService reservaStockService;
+
     @InjectMocks
     private ProductoController productoController;
 
@@ -60,6 +69,53 @@ class ProductoControllerTest {
         verify(productoService).actualizarStock(1L, -5);
     }
 
+    @Test
+    void reservarStock_Success() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2));
+        List<Producto> productos = List.of(new Producto());
+        when(productoService.reservarStock(items)).thenReturn(productos);
+
+        // Act
+        ResponseEntity<?> response = productoController.reservarStock(items);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(productos, response.getBody());
+        verify(productoService).reservarStock(items);
+    }
+
+    @Test
+    void reservarStock_StockInsuficiente_ReportaProductos() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2), new ItemStockDTO(2L, 2));
+        when(productoService.reservarStock(items))
+            .thenThrow(new StockException("Stock insuficiente", List.of(1L, 2L)));
+
+        // Act
+        ResponseEntity<?> response = productoController.reservarStock(items);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals("Stock insuficiente", body.get("mensaje"));
+        assertEquals(List.of(1L, 2L), body.get("productos"));
+    }
+
+    @Test
+    void reservarStock_ItemInvalido() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 0));
+        when(productoService.reservarStock(items)).thenThrow(new StockException("Item de stock inválido"));
+
+        // Act
+        ResponseEntity<?> response = productoController.reservarStock(items);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Item de stock inválido", response.getBody());
+    }
+
     @Test
     void buscarPorNombreOCategoria_Success() {
         // Arrange
@@ -98,4 +154,141 @@ class ProductoControllerTest {
         assertEquals(1, response.getBody().size());
         verify(productoService).obtenerProductosAgrupadosConId();
     }
+
+    @Test
+    void crearReserva_Success() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2));
+        ReservaStockDTO reserva = new ReservaStockDTO("r-1", new Date(), items);
+        when(reservaStockService.reservar(items, 900)).thenReturn(reserva);
+
+        // Act
+        ResponseEntity<?> response = productoController.crearReserva(items, 900);
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(reserva, response.getBody());
+    }
+
+    @Test
+    void crearReserva_StockInsuficiente() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2));
+        when(reservaStockService.reservar(items, 900))
+            .thenThrow(new StockException("Stock insuficiente", List.of(1L)));
+
+        // Act
+        ResponseEntity<?> response = productoController.crearReserva(items, 900);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(Map.of("mensaje", "Stock insuficiente", "productos", List.of(1L)), response.getBody());
+    }
+
+    @Test
+    void crearReserva_TtlInvalido() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2));
+        when(reservaStockService.reservar(items, 0)).thenThrow(new IllegalArgumentException("TTL inválido"));
+
+        // Act
+        ResponseEntity<?> response = productoController.crearReserva(items, 0);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("TTL inválido", response.getBody());
+    }
+
+    @Test
+    void confirmarReserva_NoEncontrada() {
+        // Arrange
+        when(reservaStockService.confirmar("r-1")).thenReturn(false);
+
+        // Act
+        ResponseEntity<Void> response = productoController.confirmarReserva("r-1");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void liberarReserva_Success() {
+        // Arrange
+        when(reservaStockService.liberar("r-1")).thenReturn(true);
+
+        // Act
+        ResponseEntity<Void> response = productoController.liberarReserva("r-1");
+
+        // Assert
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(reservaStockService).liberar("r-1");
+    }
+
+    @Test
+    void getBajoStock_Deshabilitado() {
+        // Act
+        ResponseEntity<?> response = productoController.getBajoStock(5.0, 100);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getBajoStock_UmbralPorDefecto() {
+        // Arrange
+        IndiceBajoStockService indice = mock(IndiceBajoStockService.class);
+        productoController.setIndiceBajoStockService(indice);
+        List<StockProductoDTO> productos = List.of(new StockProductoDTO(3L, "Gorro", 1.0));
+        when(indice.getUmbralPorDefecto()).thenReturn(5.0);
+        when(indice.bajoStock(5.0, 100)).thenReturn(productos);
+
+        // Act
+        ResponseEntity<?> response = productoController.getBajoStock(null, 100);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(productos, response.getBody());
+    }
+
+    @Test
+    void getBajoStock_LimiteInvalido() {
+        // Arrange
+        productoController.setIndiceBajoStockService(mock(IndiceBajoStockService.class));
+
+        // Act
+        ResponseEntity<?> response = productoController.getBajoStock(5.0, 0);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void streamBajoStock_Success() {
+        // Arrange
+        IndiceBajoStockService indice = mock(IndiceBajoStockService.class);
+        productoController.setIndiceBajoStockService(indice);
+        SseEmitter emitter = new SseEmitter();
+        when(indice.suscribir(2.0)).thenReturn(emitter);
+
+        // Act
+        ResponseEntity<SseEmitter> response = productoController.streamBajoStock(2.0);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(emitter, response.getBody());
+    }
+
+    @Test
+    void streamBajoStock_MaximoDeSuscriptores() {
+        // Arrange
+        IndiceBajoStockService indice = mock(IndiceBajoStockService.class);
+        productoController.setIndiceBajoStockService(indice);
+        when(indice.suscribir(2.0)).thenThrow(new IllegalStateException("Se alcanzó el máximo de suscriptores"));
+
+        // Act
+        ResponseEntity<SseEmitter> response = productoController.streamBajoStock(2.0);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
 }
@@ -0,0 +1,31 @@
+package com.example.tienda_ms_pedidos.exception;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DetalleOrdenExceptionTest {
+
+    @Test
+    void constructor_WithMessage_ShouldHaveNoLineas() {
+        // Arrange & Act
+        DetalleOrdenException exception = new DetalleOrdenException("Test");
+
+        // Assert
+        assertEquals("Test", exception.getMessage());
+        assertTrue(exception.getLineas().isEmpty());
+        assertTrue(exception instanceof RuntimeException);
+    }
+
+    @Test
+    void constructor_WithLineas_ShouldSetLineas() {
+        // Arrange & Act
+        DetalleOrdenException exception = new DetalleOrdenException("Líneas de detalle inválidas", List.of(0, 3));
+
+        // Assert
+        assertEquals("Líneas de detalle inválidas", exception.getMessage());
+        assertEquals(List.of(0, 3), exception.getLineas());
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.tienda_ms_pedidos.exception;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class StockExceptionTest {
@@ -25,4 +28,23 @@ class StockExceptionTest {
         // Assert
         assertTrue(exception instanceof RuntimeException);
     }
+
+    @Test
+    void constructor_WithMessage_ShouldHaveNoProductos() {
+        // Arrange & Act
+        StockException exception = new StockException("Test");
+
+        // Assert
+        assertTrue(exception.getProductos().isEmpty());
+    }
+
+    @Test
+    void constructor_WithProductos_ShouldSetProductos() {
+        // Arrange & Act
+        StockException exception = new StockException("Stock insuficiente", List.of(1L, 2L));
+
+        // Assert
+        assertEquals("Stock insuficiente", exception.getMessage());
+        assertEquals(List.of(1L, 2L), exception.getProductos());
+    }
 }
@@ -0,0 +1,152 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifica que listar órdenes y recorrer sus detalles (como hace Jackson)
+ * ejecute una sola consulta SQL, sin importar cuántas órdenes haya.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:estadisticasdb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+    })
+@ActiveProfiles("test")
+class OrdenConsultaDetallesTest {
+
+    private static final int ORDENES = 1000;
+    private static final int DETALLES_POR_ORDEN = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDENES; i++) {
+            Orden orden = new Orden();
+            orden.setEmail("cliente" + (i % 10) + "@test.com");
+            orden.setEstado(i % 2 == 0 ? 1 : 2);
+            orden.setFecha(new Date());
+            orden.setMontoTotal(30.0);
+            orden.setDetalles(new ArrayList<>());
+            for (int j = 0; j < DETALLES_POR_ORDEN; j++) {
+                DetalleOrden detalle = new DetalleOrden();
+                detalle.setIdProducto((long) j + 1);
+                detalle.setPrecio(10.0);
+                detalle.setCantidad(1);
+                detalle.setMontoTotal(10.0);
+                orden.addDetalle(detalle);
+            }
+            entityManager.persist(orden);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    private int recorrerDetalles(List<Orden> ordenes) {
+        return ordenes.stream().mapToInt(o -> o.getDetalles().size()).sum();
+    }
+
+    @Test
+    void findAll_CargaDetallesEnUnaConsulta() {
+        // Act
+        List<Orden> ordenes = ordenRepository.findAll();
+        int detalles = recorrerDetalles(ordenes);
+
+        // Assert
+        assertEquals(ORDENES, ordenes.size());
+        assertEquals(ORDENES * DETALLES_POR_ORDEN, detalles);
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getCollectionFetchCount());
+    }
+
+    @Test
+    void findByEstado_CargaDetallesEnUnaConsulta() {
+        // Act
+        List<Orden> ordenes = ordenRepository.findByEstado(1);
+        int detalles = recorrerDetalles(ordenes);
+
+        // Assert
+        assertEquals(ORDENES / 2, ordenes.size());
+        assertEquals(ORDENES / 2 * DETALLES_POR_ORDEN, detalles);
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByEmail_CargaDetallesEnUnaConsulta() {
+        // Act
+        List<Orden> ordenes = ordenRepository.findByEmail("cliente1@test.com");
+        recorrerDetalles(ordenes);
+
+        // Assert
+        assertEquals(ORDENES / 10, ordenes.size());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void findResumenesPorEmailAntesDe_SinDetallesYDeMasRecienteAMasAntigua() {
+        // Act
+        List<ResumenOrdenDTO> primera = ordenRepository.findResumenesPorEmailAntesDe("cliente1@test.com", Long.MAX_VALUE, Limit.of(30));
+        Long ultimo = primera.get(primera.size() - 1).getId();
+        List<ResumenOrdenDTO> resto = ordenRepository.findResumenesPorEmailAntesDe("cliente1@test.com", ultimo, Limit.of(1000));
+
+        // Assert
+        assertEquals(30, primera.size());
+        assertEquals(ORDENES / 10 - 30, resto.size());
+        for (int i = 1; i < primera.size(); i++) {
+            assertTrue(primera.get(i - 1).getId() > primera.get(i).getId());
+        }
+        assertTrue(resto.get(0).getId() < ultimo);
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getCollectionFetchCount());
+    }
+
+    @Test
+    void findById_CargaDetallesEnUnaConsulta() {
+        // Arrange
+        Long id = ordenRepository.findAll().get(0).getId();
+        entityManager.clear();
+        estadisticas.clear();
+
+        // Act
+        Orden orden = ordenRepository.findById(id).orElseThrow();
+
+        // Assert
+        assertEquals(DETALLES_POR_ORDEN, orden.getDetalles().size());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+}
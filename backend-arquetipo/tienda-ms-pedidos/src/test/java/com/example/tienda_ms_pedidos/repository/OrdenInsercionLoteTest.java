@@ -0,0 +1,79 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mide cuántas sentencias JDBC se preparan al guardar una orden de 50 líneas.
+ * Con IDENTITY cada línea era su propio INSERT (51 sentencias); con secuencias
+ * pooled y batching quedan los dos lotes de INSERT más las lecturas de secuencia
+ * (5 sentencias con secuencias recién creadas), sin importar el número de líneas.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:estadisticasdb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+    })
+@ActiveProfiles("test")
+class OrdenInsercionLoteTest {
+
+    private static final int LINEAS = 50;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void save_OrdenDe50Lineas_UsaLotesDeInsert() {
+        // Arrange
+        Orden orden = new Orden();
+        orden.setEmail("lote@test.com");
+        orden.setEstado(1);
+        orden.setFecha(new Date());
+        orden.setMontoTotal(LINEAS * 10.0);
+        orden.setDetalles(new ArrayList<>());
+        for (int i = 0; i < LINEAS; i++) {
+            DetalleOrden detalle = new DetalleOrden();
+            detalle.setIdProducto((long) i + 1);
+            detalle.setPrecio(10.0);
+            detalle.setCantidad(1);
+            detalle.setMontoTotal(10.0);
+            orden.addDetalle(detalle);
+        }
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        // Act
+        ordenRepository.save(orden);
+        entityManager.flush();
+
+        // Assert
+        long sentencias = estadisticas.getPrepareStatementCount();
+        assertEquals(LINEAS + 1, estadisticas.getEntityInsertCount());
+        assertTrue(sentencias <= 6, "Se esperaban a lo más 6 sentencias y hubo " + sentencias);
+    }
+}
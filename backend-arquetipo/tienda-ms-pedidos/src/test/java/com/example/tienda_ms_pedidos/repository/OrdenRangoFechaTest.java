@@ -0,0 +1,105 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.model.Orden;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recorre un rango de fechas por páginas (keyset sobre fecha e ID) y
+ * verifica que no se repitan ni se pierdan órdenes, incluso con muchas
+ * órdenes en la misma fecha.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:estadisticasdb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+    })
+@ActiveProfiles("test")
+class OrdenRangoFechaTest {
+
+    private static final long BASE = 1_700_000_000_000L;
+    private static final long MINUTO = 60_000L;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @BeforeEach
+    void setUp() {
+        // 60 órdenes en 20 minutos distintos (3 por minuto, en orden de ID inverso a la fecha)
+        for (int i = 59; i >= 0; i--) {
+            Orden orden = new Orden();
+            orden.setEmail("rango@test.com");
+            orden.setEstado(i % 2 == 0 ? 1 : 2);
+            orden.setFecha(new Date(BASE + (i / 3) * MINUTO));
+            orden.setMontoTotal(10.0);
+            orden.setDetalles(new ArrayList<>());
+            entityManager.persist(orden);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<Long> recorrer(Integer estado, Date desde, Date hasta, int tamano) {
+        List<Long> vistos = new ArrayList<>();
+        Date fecha = desde;
+        long id = 0L;
+        while (true) {
+            List<Long> ids = estado == null
+                ? ordenRepository.findIdsPorFechaDespuesDe(fecha, id, hasta, Limit.of(tamano))
+                : ordenRepository.findIdsPorEstadoYFechaDespuesDe(estado, fecha, id, hasta, Limit.of(tamano));
+            if (ids.isEmpty()) {
+                return vistos;
+            }
+            vistos.addAll(ids);
+            Orden ultima = ordenRepository.findById(ids.get(ids.size() - 1)).orElseThrow();
+            fecha = ultima.getFecha();
+            id = ultima.getId();
+        }
+    }
+
+    @Test
+    void findIdsPorFechaDespuesDe_RecorreElRangoSinRepetidos() {
+        // Arrange: minutos 5 a 14 inclusive
+        Date desde = new Date(BASE + 5 * MINUTO);
+        Date hasta = new Date(BASE + 15 * MINUTO);
+
+        // Act
+        List<Long> vistos = recorrer(null, desde, hasta, 4);
+
+        // Assert
+        assertEquals(30, vistos.size());
+        assertEquals(30, vistos.stream().distinct().count());
+        List<Orden> ordenes = ordenRepository.findByIdInOrderByIdAsc(vistos);
+        assertTrue(ordenes.stream().allMatch(o -> !o.getFecha().before(desde) && o.getFecha().before(hasta)));
+    }
+
+    @Test
+    void findIdsPorEstadoYFechaDespuesDe_FiltraPorEstado() {
+        // Act
+        List<Long> vistos = recorrer(2, new Date(BASE), new Date(BASE + 20 * MINUTO), 7);
+
+        // Assert
+        assertEquals(30, vistos.size());
+        assertEquals(30, vistos.stream().distinct().count());
+        assertTrue(ordenRepository.findByIdInOrderByIdAsc(vistos).stream().allMatch(o -> o.getEstado() == 2));
+    }
+}
@@ -1,16 +1,21 @@
 package com.example.tienda_ms_pedidos.repository;
 
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
 import com.example.tienda_ms_pedidos.model.Orden;
+import jakarta.persistence.PersistenceException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -88,6 +93,104 @@ class OrdenRepositoryTest {
         assertTrue(ordenes.stream().allMatch(o -> o.getEstado() == 1));
     }
 
+    @Test
+    void findIdsDespuesDe_RecorrePorKeyset() {
+        // Arrange
+        Long[] ids = new Long[5];
+        for (int i = 0; i < ids.length; i++) {
+            Orden orden = new Orden();
+            orden.setEmail("keyset@test.com");
+            orden.setEstado(i % 2 == 0 ? 1 : 2);
+            orden.setFecha(new Date());
+            ids[i] = entityManager.persist(orden).getId();
+        }
+        entityManager.flush();
+
+        // Act
+        List<Long> primera = ordenRepository.findIdsDespuesDe(ids[0] - 1, Limit.of(2));
+        List<Long> segunda = ordenRepository.findIdsDespuesDe(primera.get(1), Limit.of(2));
+        List<Long> porEstado = ordenRepository.findIdsPorEstadoDespuesDe(1, ids[0], Limit.of(10));
+        List<Orden> ordenes = ordenRepository.findByIdInOrderByIdAsc(segunda);
+
+        // Assert
+        assertEquals(List.of(ids[0], ids[1]), primera);
+        assertEquals(List.of(ids[2], ids[3]), segunda);
+        assertEquals(List.of(ids[2], ids[4]), porEstado);
+        assertEquals(segunda, ordenes.stream().map(Orden::getId).toList());
+    }
+
+    @Test
+    void streamParaExportar_AplicaFiltros() {
+        // Arrange
+        Date ayer = new Date(System.currentTimeMillis() - 24L * 60 * 60 * 1000);
+        Orden conDetalle = new Orden();
+        conDetalle.setEmail("export@test.com");
+        conDetalle.setEstado(1);
+        conDetalle.setFecha(new Date());
+        conDetalle.setMontoTotal(10.0);
+        conDetalle.setDetalles(new ArrayList<>());
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setIdProducto(7L);
+        detalle.setPrecio(10.0);
+        detalle.setCantidad(1);
+        detalle.setMontoTotal(10.0);
+        conDetalle.addDetalle(detalle);
+        entityManager.persist(conDetalle);
+
+        Orden antigua = new Orden();
+        antigua.setEmail("export@test.com");
+        antigua.setEstado(2);
+        antigua.setFecha(new Date(ayer.getTime() - 24L * 60 * 60 * 1000));
+        antigua.setMontoTotal(0.0);
+        entityManager.persist(antigua);
+        entityManager.flush();
+
+        // Act
+        List<Object[]> todas;
+        try (Stream<Object[]> filas = ordenRepository.streamParaExportar(null, null, null)) {
+            todas = filas.toList();
+        }
+        List<Object[]> recientes;
+        try (Stream<Object[]> filas = ordenRepository.streamParaExportar(ayer, null, 1)) {
+            recientes = filas.toList();
+        }
+
+        // Assert
+        assertEquals(2, todas.stream().filter(f -> "export@test.com".equals(f[1])).count());
+        assertEquals(1, recientes.stream().filter(f -> "export@test.com".equals(f[1])).count());
+        assertTrue(recientes.stream().anyMatch(f -> f[0].equals(conDetalle.getId()) && f[6].equals(7L)));
+        assertTrue(todas.stream().anyMatch(f -> f[0].equals(antigua.getId()) && f[5] == null));
+    }
+
+    @Test
+    void avanzarEstado_SoloOrdenesEnEstadoEsperado() {
+        // Arrange
+        Long[] ids = new Long[3];
+        int[] estados = {2, 3, 4};
+        for (int i = 0; i < ids.length; i++) {
+            Orden orden = new Orden();
+            orden.setEmail("transicion@test.com");
+            orden.setEstado(estados[i]);
+            orden.setFecha(new Date());
+            ids[i] = entityManager.persist(orden).getId();
+        }
+        entityManager.flush();
+
+        // Act
+        List<Number> bloqueadas = ordenRepository.bloquearIdsEnEstado(List.of(ids), 2);
+        int actualizadas = ordenRepository.avanzarEstado(List.of(ids), 2);
+        int desdeFinal = ordenRepository.avanzarEstado(List.of(ids), 4);
+        entityManager.clear();
+
+        // Assert
+        assertEquals(List.of(ids[0]), bloqueadas.stream().map(Number::longValue).toList());
+        assertEquals(1, actualizadas);
+        assertEquals(0, desdeFinal);
+        assertEquals(3, entityManager.find(Orden.class, ids[0]).getEstado());
+        assertEquals(3, entityManager.find(Orden.class, ids[1]).getEstado());
+        assertEquals(4, entityManager.find(Orden.class, ids[2]).getEstado());
+    }
+
     @Test
     void updateEstado_UpdatesOrdenEstado() {
         // Arrange
@@ -107,6 +210,44 @@ class OrdenRepositoryTest {
         assertEquals(2, updatedOrden.getEstado());
     }
 
+    @Test
+    void updateEstado_SaltoORetroceso_NoActualiza() {
+        // Arrange
+        Orden orden = new Orden();
+        orden.setEmail("test@test.com");
+        orden.setEstado(2);
+        orden.setFecha(new Date());
+        orden.setMontoTotal(10.0);
+        orden = entityManager.persist(orden);
+        entityManager.flush();
+
+        // Act
+        int salto = ordenRepository.updateEstado(orden.getId(), 4);
+        int retroceso = ordenRepository.updateEstado(orden.getId(), 1);
+        entityManager.clear();
+
+        // Assert
+        assertEquals(0, salto);
+        assertEquals(0, retroceso);
+        assertEquals(2, entityManager.find(Orden.class, orden.getId()).getEstado());
+    }
+
+    @Test
+    void estadoFueraDeRango_ViolaRestriccion() {
+        // Arrange
+        Orden orden = new Orden();
+        orden.setEmail("test@test.com");
+        orden.setEstado(5);
+        orden.setFecha(new Date());
+        orden.setMontoTotal(10.0);
+
+        // Act & Assert
+        assertThrows(PersistenceException.class, () -> {
+            entityManager.persist(orden);
+            entityManager.flush();
+        });
+    }
+
     @Test
     void crudOperations() {
         // Create
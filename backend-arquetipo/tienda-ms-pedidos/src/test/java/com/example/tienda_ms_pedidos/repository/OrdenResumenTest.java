@@ -0,0 +1,142 @@
+package com.example.tienda_ms_pedidos.repository;
+
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara leer una página de 200 órdenes (5 líneas cada una) como entidades
+ * completas, como hace {@code GET /api/pedidos}, con leerla como resúmenes.
+ * La proyección no crea entidades, no deja nada en el contexto de persistencia
+ * y no consulta los detalles.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:estadisticasdb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+    })
+@ActiveProfiles("test")
+class OrdenResumenTest {
+
+    private static final int ORDENES = 200;
+    private static final int LINEAS = 5;
+    private static final int REPETICIONES = 20;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        ids = new ArrayList<>();
+        for (int i = 0; i < ORDENES; i++) {
+            Orden orden = new Orden();
+            orden.setEmail("resumen" + i + "@test.com");
+            orden.setEstado(1);
+            orden.setFecha(new Date());
+            orden.setMontoTotal(LINEAS * 10.0);
+            orden.setDetalles(new ArrayList<>());
+            for (int j = 0; j < LINEAS; j++) {
+                DetalleOrden detalle = new DetalleOrden();
+                detalle.setIdProducto((long) j + 1);
+                detalle.setPrecio(10.0);
+                detalle.setCantidad(1);
+                detalle.setMontoTotal(10.0);
+                orden.addDetalle(detalle);
+            }
+            ids.add(entityManager.persist(orden).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Session sesion() {
+        return entityManager.getEntityManager().unwrap(Session.class);
+    }
+
+    // Bytes asignados por el hilo actual en una lectura, promediando varias repeticiones
+    private long bytesPorLectura(Supplier<List<?>> lectura) {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < REPETICIONES; i++) {
+            lectura.get();
+            entityManager.clear();
+        }
+        long antes = hilos.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < REPETICIONES; i++) {
+            lectura.get();
+            entityManager.clear();
+        }
+        return (hilos.getCurrentThreadAllocatedBytes() - antes) / REPETICIONES;
+    }
+
+    @Test
+    void findResumenesDespuesDe_NoHidrataEntidadesNiDetalles() {
+        // Arrange
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        // Act
+        List<ResumenOrdenDTO> resumenes = ordenRepository.findResumenesDespuesDe(0L, Limit.of(ORDENES));
+
+        // Assert
+        assertEquals(ORDENES, resumenes.size());
+        assertEquals(ids.get(0), resumenes.get(0).getId());
+        assertEquals("resumen0@test.com", resumenes.get(0).getEmail());
+        assertEquals(LINEAS * 10.0, resumenes.get(0).getMontoTotal());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(0, estadisticas.getCollectionFetchCount());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, sesion().getStatistics().getEntityCount());
+    }
+
+    @Test
+    void findResumenesPorEstadoDespuesDe_FiltraPorEstado() {
+        // Act
+        List<ResumenOrdenDTO> resumenes = ordenRepository.findResumenesPorEstadoDespuesDe(2, 0L, Limit.of(ORDENES));
+
+        // Assert
+        assertTrue(resumenes.isEmpty());
+    }
+
+    @Test
+    void resumenes_AsignanMenosQueEntidadesCompletas() {
+        // Act
+        long bytesEntidades = bytesPorLectura(() -> ordenRepository.findByIdInOrderByIdAsc(ids));
+        long bytesResumenes = bytesPorLectura(() -> ordenRepository.findResumenesDespuesDe(0L, Limit.of(ORDENES)));
+
+        // Assert
+        assertTrue(bytesResumenes < bytesEntidades,
+            "Los resúmenes asignaron " + bytesResumenes + " bytes y las entidades " + bytesEntidades);
+    }
+}
@@ -13,7 +13,9 @@ import org.springframework.test.context.TestPropertySource;
 
 import jakarta.validation.ConstraintViolationException;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -109,6 +111,55 @@ class ProductoRepositoryTest {
         assertTrue(productos.isEmpty());
     }
 
+    @Test
+    void descontarStockEnLote_ReportaProductosSinStock() {
+        // Arrange
+        Categoria categoria = createCategoria("Librería", "Artículos de librería");
+        Set<Categoria> categorias = new HashSet<>();
+        categorias.add(categoria);
+        Producto cuaderno = createProducto("Cuaderno", "Cuaderno universitario", categorias);
+        Producto lapiz = createProducto("Lápiz", "Lápiz grafito", categorias);
+        entityManager.flush();
+
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        cantidades.put(cuaderno.getId(), 4);
+        cantidades.put(lapiz.getId(), 11);
+        cantidades.put(999L, 1);
+
+        // Act
+        List<Long> fallidos = productoRepository.descontarStockEnLote(cantidades);
+
+        // Assert
+        assertEquals(List.of(lapiz.getId(), 999L), fallidos);
+        assertEquals(6.0, productoRepository.findById(cuaderno.getId()).orElseThrow().getStock());
+        assertEquals(10.0, productoRepository.findById(lapiz.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void descontarStockEnLote_EnOrdenInverso_ReportaLosIdsCorrectos() {
+        // Arrange
+        Categoria categoria = createCategoria("Librería", "Artículos de librería");
+        Set<Categoria> categorias = new HashSet<>();
+        categorias.add(categoria);
+        Producto cuaderno = createProducto("Cuaderno", "Cuaderno universitario", categorias);
+        Producto lapiz = createProducto("Lápiz", "Lápiz grafito", categorias);
+        entityManager.flush();
+
+        // Los ítems llegan en el orden del carrito, no por ID
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        cantidades.put(999L, 1);
+        cantidades.put(lapiz.getId(), 4);
+        cantidades.put(cuaderno.getId(), 11);
+
+        // Act
+        List<Long> fallidos = productoRepository.descontarStockEnLote(cantidades);
+
+        // Assert
+        assertEquals(List.of(cuaderno.getId(), 999L), fallidos);
+        assertEquals(10.0, productoRepository.findById(cuaderno.getId()).orElseThrow().getStock());
+        assertEquals(6.0, productoRepository.findById(lapiz.getId()).orElseThrow().getStock());
+    }
+
     @Test
     void crudOperations() {
         // Create
@@ -0,0 +1,166 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.DetalleOrdenRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Archiva órdenes entregadas antiguas sobre H2 y las vuelve a leer desde los
+ * segmentos una vez eliminadas de las tablas.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:archivodb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "pedidos.archivo.tamano-lote=4"
+    })
+@ActiveProfiles("test")
+class ArchivoOrdenesServiceTest {
+
+    @TempDir
+    static Path directorio;
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registro) {
+        registro.add("pedidos.archivo.directorio", () -> directorio.toString());
+    }
+
+    @Autowired
+    private ArchivoOrdenesService archivoOrdenesService;
+
+    @Autowired
+    private OrdenService ordenService;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private DetalleOrdenRepository detalleOrdenRepository;
+
+    @Autowired
+    private IngresosService ingresosService;
+
+    @Autowired
+    private VentasProductoService ventasProductoService;
+
+    @Autowired
+    private IndiceCoCompraService indiceCoCompraService;
+
+    @Autowired
+    private HistorialClienteService historialClienteService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        detalleOrdenRepository.deleteAll();
+        ordenRepository.deleteAll();
+    }
+
+    private Orden guardar(int estado, Date fecha) {
+        Orden orden = new Orden();
+        orden.setEmail("archivo@test.com");
+        orden.setEstado(estado);
+        orden.setFecha(fecha);
+        orden.setMontoTotal(20.0);
+        orden.setDetalles(new ArrayList<>());
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setIdProducto(7L);
+        detalle.setPrecio(20.0);
+        detalle.setCantidad(1);
+        detalle.setMontoTotal(20.0);
+        orden.addDetalle(detalle);
+        return ordenRepository.save(orden);
+    }
+
+    @Test
+    void archivarLote_MueveSoloLasEntregadasAntiguas() {
+        // Arrange
+        Date antigua = Date.from(ZonedDateTime.now().minusYears(1).toInstant());
+        Date limite = Date.from(ZonedDateTime.now().minusMonths(6).toInstant());
+        List<Long> archivables = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            archivables.add(guardar(4, antigua).getId());
+        }
+        Long enProceso = guardar(2, antigua).getId();
+        Long reciente = guardar(4, new Date()).getId();
+
+        // Act
+        int primerLote = archivoOrdenesService.archivarLote(limite);
+        int segundoLote = archivoOrdenesService.archivarLote(limite);
+        int tercerLote = archivoOrdenesService.archivarLote(limite);
+
+        // Assert
+        assertEquals(4, primerLote);
+        assertEquals(2, segundoLote);
+        assertEquals(0, tercerLote);
+        assertEquals(2, ordenRepository.count());
+        assertTrue(ordenRepository.findById(enProceso).isPresent());
+        assertTrue(ordenRepository.findById(reciente).isPresent());
+        assertEquals(2, detalleOrdenRepository.count());
+        for (Long id : archivables) {
+            assertTrue(ordenService.findById(id).isEmpty());
+            Orden archivada = archivoOrdenesService.buscar(id).orElseThrow();
+            assertEquals(4, archivada.getEstado());
+            assertEquals(1, archivada.getDetalles().size());
+            assertEquals(7L, archivada.getDetalles().get(0).getIdProducto());
+        }
+        assertTrue(archivoOrdenesService.buscar(reciente).isEmpty());
+    }
+
+    @Test
+    void reconstruir_ConservaLoArchivado() {
+        // Arrange
+        Date antigua = Date.from(ZonedDateTime.now().minusYears(1).toInstant());
+        LocalDate dia = antigua.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        Orden orden = guardar(4, antigua);
+        DetalleOrden otro = new DetalleOrden();
+        otro.setIdProducto(8L);
+        otro.setPrecio(5.0);
+        otro.setCantidad(1);
+        otro.setMontoTotal(5.0);
+        orden.addDetalle(otro);
+        Orden guardada = ordenRepository.save(orden);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ingresosService.registrarOrdenes(List.of(guardada));
+            ventasProductoService.registrarVenta(guardada.getFecha(), guardada.getDetalles());
+        });
+        assertEquals(1, historialClienteService.pagina("archivo@test.com", null, 10).getItems().size());
+        archivoOrdenesService.archivarLote(Date.from(ZonedDateTime.now().minusMonths(6).toInstant()));
+
+        // Act
+        ingresosService.reconstruir();
+        ventasProductoService.reconstruir();
+        indiceCoCompraService.reconstruir();
+
+        // Assert
+        assertEquals(20.0, ingresosService.consultar(dia, dia, "hora").get(0).getMonto());
+        assertEquals(2, ventasProductoService.ranking(dia, dia, 10).size());
+        assertEquals(8L, indiceCoCompraService.relacionados(7L, 10).get(0).getIdProducto());
+        assertTrue(historialClienteService.pagina("archivo@test.com", null, 10).getItems().isEmpty());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchivoSumideroEventosTest {
+
+    @TempDir
+    Path directorio;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private EventoOutbox createEvento(long id, String payload) {
+        EventoOutbox evento = new EventoOutbox();
+        evento.setId(id);
+        evento.setTipo(EventoOutbox.ESTADO_ACTUALIZADO);
+        evento.setIdAgregado(10L);
+        evento.setCreado(new Date(1000L));
+        evento.setPayload(payload);
+        return evento;
+    }
+
+    @Test
+    void publicar_AgregaUnaLineaPorEvento() throws Exception {
+        // Arrange
+        Path archivo = directorio.resolve("eventos/outbox.ndjson");
+        ArchivoSumideroEventos sumidero = new ArchivoSumideroEventos(archivo.toString(), objectMapper);
+
+        // Act
+        sumidero.publicar(List.of(createEvento(1L, "{\"id\":10,\"estado\":2}")));
+        sumidero.publicar(List.of(createEvento(2L, "{\"id\":10,\"estado\":3}")));
+
+        // Assert
+        List<String> lineas = Files.readAllLines(archivo);
+        assertEquals(2, lineas.size());
+        JsonNode primera = objectMapper.readTree(lineas.get(0));
+        assertEquals(1L, primera.get("id").asLong());
+        assertEquals(EventoOutbox.ESTADO_ACTUALIZADO, primera.get("tipo").asText());
+        assertEquals(2, primera.get("payload").get("estado").asInt());
+        assertEquals(3, objectMapper.readTree(lineas.get(1)).get("payload").get("estado").asInt());
+    }
+
+    @Test
+    void publicar_PayloadInvalido_NoEscribeElLote() {
+        // Arrange
+        Path archivo = directorio.resolve("outbox.ndjson");
+        ArchivoSumideroEventos sumidero = new ArchivoSumideroEventos(archivo.toString(), objectMapper);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> sumidero.publicar(List.of(
+            createEvento(1L, "{\"id\":1}"), createEvento(2L, "{no es json"))));
+        assertFalse(Files.exists(archivo));
+    }
+}
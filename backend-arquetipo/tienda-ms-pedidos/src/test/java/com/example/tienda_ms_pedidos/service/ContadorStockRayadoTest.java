@@ -0,0 +1,145 @@
+package com.example.tienda_ms_pedidos.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContadorStockRayadoTest {
+
+    @Test
+    void constructor_RepartePorFranjas() {
+        // Arrange & Act
+        ContadorStockRayado contador = new ContadorStockRayado(10, 4);
+
+        // Assert
+        assertEquals(10, contador.disponible());
+        assertFalse(contador.isCerrado());
+    }
+
+    @Test
+    void constructor_ParametrosInvalidos_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new ContadorStockRayado(-1, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ContadorStockRayado(10, 0));
+    }
+
+    @Test
+    void descontar_Success() {
+        // Arrange
+        ContadorStockRayado contador = new ContadorStockRayado(10, 2);
+
+        // Act
+        boolean result = contador.descontar(3);
+
+        // Assert
+        assertTrue(result);
+        assertEquals(7, contador.disponible());
+    }
+
+    @Test
+    void descontar_NingunaFranjaAlcanza_RetornaFalse() {
+        // Arrange: 2 franjas de 5 unidades
+        ContadorStockRayado contador = new ContadorStockRayado(10, 2);
+
+        // Act & Assert
+        assertFalse(contador.descontar(6));
+        assertEquals(10, contador.disponible());
+    }
+
+    @Test
+    void tomarPendiente_DevuelveSoloLoNoPersistido() {
+        // Arrange
+        ContadorStockRayado contador = new ContadorStockRayado(10, 2);
+        contador.descontar(2);
+
+        // Act & Assert
+        assertEquals(2, contador.tomarPendiente());
+        assertEquals(0, contador.tomarPendiente());
+        contador.descontar(1);
+        assertEquals(1, contador.tomarPendiente());
+    }
+
+    @Test
+    void revertirPendiente_VuelveATomarseEnElSiguienteCiclo() {
+        // Arrange
+        ContadorStockRayado contador = new ContadorStockRayado(10, 2);
+        contador.descontar(4);
+        long delta = contador.tomarPendiente();
+
+        // Act
+        contador.revertirPendiente(delta);
+
+        // Assert
+        assertEquals(4, contador.tomarPendiente());
+    }
+
+    @Test
+    void devolver_ReduceElPendiente() {
+        // Arrange
+        ContadorStockRayado contador = new ContadorStockRayado(10, 2);
+        contador.descontar(3);
+        contador.tomarPendiente();
+
+        // Act
+        assertTrue(contador.devolver(3));
+
+        // Assert
+        assertEquals(10, contador.disponible());
+        assertEquals(-3, contador.tomarPendiente());
+    }
+
+    @Test
+    void cerrar_FijaConsumoFinal() {
+        // Arrange
+        ContadorStockRayado contador = new ContadorStockRayado(10, 2);
+        contador.descontar(2);
+        contador.tomarPendiente();
+        contador.descontar(3);
+
+        // Act
+        long delta = contador.cerrar();
+
+        // Assert
+        assertEquals(3, delta);
+        assertTrue(contador.isCerrado());
+        assertFalse(contador.descontar(1));
+        assertFalse(contador.devolver(1));
+        assertEquals(0, contador.cerrar());
+        assertEquals(0, contador.tomarPendiente());
+    }
+
+    @Test
+    void descontar_Concurrente_NuncaVendeDeMas() throws Exception {
+        // Arrange
+        ContadorStockRayado contador = new ContadorStockRayado(1000, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        AtomicInteger exitosas = new AtomicInteger();
+        List<Future<?>> tareas = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 64; i++) {
+            tareas.add(executor.submit(() -> {
+                for (int j = 0; j < 50; j++) {
+                    if (contador.descontar(1)) {
+                        exitosas.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1000 - exitosas.get(), contador.disponible());
+        assertEquals(exitosas.get(), contador.cerrar());
+    }
+}
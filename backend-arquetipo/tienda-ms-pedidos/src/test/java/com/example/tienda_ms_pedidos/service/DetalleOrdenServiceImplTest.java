@@ -1,20 +1,25 @@
 package com.example.tienda_ms_pedidos.service;
 
+import com.example.tienda_ms_pedidos.exception.DetalleOrdenException;
 import com.example.tienda_ms_pedidos.model.DetalleOrden;
 import com.example.tienda_ms_pedidos.model.Orden;
 import com.example.tienda_ms_pedidos.repository.DetalleOrdenRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 class DetalleOrdenServiceImplTest {
@@ -22,6 +27,18 @@ class DetalleOrdenServiceImplTest {
     @Mock
     private DetalleOrdenRepository detalleOrdenRepository;
 
+    @Mock
+    private OrdenRepository ordenRepository;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private VentasProductoService ventasProductoService;
+
+    @Mock
+    private IndiceCoCompraService indiceCoCompraService;
+
     @InjectMocks
     private DetalleOrdenServiceImpl detalleOrdenService;
 
@@ -58,6 +75,91 @@ class DetalleOrdenServiceImplTest {
         assertEquals(detalleOriginal.getPrecio(), result.getPrecio());
         assertEquals(detalleOriginal.getCantidad(), result.getCantidad());
         assertEquals(detalleOriginal.getMontoTotal(), result.getMontoTotal());
+        verify(outboxService).detalleCreado(detalleOriginal);
+        // La orden llegó sin fecha: se lee de la base de datos para el día de la venta
+        verify(detalleOrdenRepository).findFechaOrden(65L);
+        verify(ventasProductoService).registrarVenta(null, List.of(detalleOriginal));
+        verify(indiceCoCompraService).registrarLineaAlConfirmar(eq(detalleOriginal), any(), eq(1));
+    }
+
+    private DetalleOrden linea(Long idProducto) {
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setIdProducto(idProducto);
+        detalle.setPrecio(100.0);
+        detalle.setCantidad(2);
+        detalle.setMontoTotal(200.0);
+        return detalle;
+    }
+
+    @Test
+    void saveDetallesOrden_Success() {
+        // Arrange
+        Orden orden = new Orden();
+        orden.setId(65L);
+        Date fecha = new Date();
+        when(ordenRepository.existsById(65L)).thenReturn(true);
+        when(ordenRepository.getReferenceById(65L)).thenReturn(orden);
+        when(detalleOrdenRepository.findFechaOrden(65L)).thenReturn(Optional.of(fecha));
+        when(detalleOrdenRepository.findProductosDeOrden(65L)).thenReturn(List.of(1L));
+        when(detalleOrdenRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        List<DetalleOrden> result = detalleOrdenService.saveDetallesOrden(65L, List.of(linea(2L), linea(3L))).orElseThrow();
+
+        // Assert
+        assertEquals(2, result.size());
+        assertSame(orden, result.get(0).getOrden());
+        assertEquals(3L, result.get(1).getIdProducto());
+        verify(ordenRepository, never()).findById(any());
+        verify(detalleOrdenRepository).saveAll(anyList());
+        verify(detalleOrdenRepository, never()).save(any(DetalleOrden.class));
+        verify(outboxService).detallesCreados(result);
+        verify(ventasProductoService).registrarVenta(fecha, result);
+        verify(indiceCoCompraService).registrarLineasAlConfirmar(result, List.of(1L));
+    }
+
+    @Test
+    void saveDetallesOrden_OrdenNoEncontrada() {
+        // Arrange
+        when(ordenRepository.existsById(65L)).thenReturn(false);
+
+        // Act
+        Optional<List<DetalleOrden>> result = detalleOrdenService.saveDetallesOrden(65L, List.of(linea(2L)));
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(detalleOrdenRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void saveDetallesOrden_LineasInvalidas_ReportaTodas() {
+        // Arrange
+        DetalleOrden sinProducto = linea(null);
+        DetalleOrden sinCantidad = linea(3L);
+        sinCantidad.setCantidad(0);
+        List<DetalleOrden> lote = new ArrayList<>(List.of(linea(1L), sinProducto, linea(2L), sinCantidad));
+        lote.add(null);
+
+        // Act & Assert
+        DetalleOrdenException exception = assertThrows(DetalleOrdenException.class,
+            () -> detalleOrdenService.saveDetallesOrden(65L, lote));
+        assertEquals(List.of(1, 3, 4), exception.getLineas());
+        verifyNoInteractions(ordenRepository);
+    }
+
+    @Test
+    void saveDetallesOrden_LoteVacioOExcedido() {
+        // Arrange
+        List<DetalleOrden> excedido = new ArrayList<>();
+        for (int i = 0; i <= DetalleOrdenServiceImpl.MAX_LINEAS_POR_LOTE; i++) {
+            excedido.add(linea(1L));
+        }
+
+        // Act & Assert
+        assertTrue(assertThrows(DetalleOrdenException.class,
+            () -> detalleOrdenService.saveDetallesOrden(65L, List.of())).getLineas().isEmpty());
+        assertThrows(DetalleOrdenException.class, () -> detalleOrdenService.saveDetallesOrden(65L, excedido));
+        verifyNoInteractions(ordenRepository);
     }
 
     @Test
@@ -130,4 +232,23 @@ class DetalleOrdenServiceImplTest {
         // Assert
         verify(detalleOrdenRepository).deleteById(id);
     }
+
+    @Test
+    void deleteById_DetalleExistente_AnulaVenta() {
+        // Arrange
+        Orden orden = new Orden();
+        orden.setId(9L);
+        orden.setFecha(new Date());
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setOrden(orden);
+        when(detalleOrdenRepository.findById(1L)).thenReturn(Optional.of(detalle));
+
+        // Act
+        detalleOrdenService.deleteById(1L);
+
+        // Assert
+        verify(ventasProductoService).anularVenta(orden.getFecha(), List.of(detalle));
+        verify(indiceCoCompraService).registrarLineaAlConfirmar(eq(detalle), any(), eq(-1));
+        verify(detalleOrdenRepository).deleteById(1L);
+    }
 }
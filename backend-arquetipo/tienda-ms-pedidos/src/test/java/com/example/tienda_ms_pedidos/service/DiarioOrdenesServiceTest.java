@@ -0,0 +1,158 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.MetricasDiarioDTO;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.ClaveIdempotenciaRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:diariodb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "pedidos.diario.habilitado=true",
+        "pedidos.diario.tamano-mb=1",
+        "pedidos.diario.intervalo-ms=3600000"
+    })
+@ActiveProfiles("test")
+class DiarioOrdenesServiceTest {
+
+    @DynamicPropertySource
+    static void archivoDiario(DynamicPropertyRegistry registry) throws IOException {
+        Path directorio = Files.createTempDirectory("diario");
+        registry.add("pedidos.diario.archivo", () -> directorio.resolve("diario-ordenes.jrn").toString());
+    }
+
+    @Autowired
+    private DiarioOrdenesService diarioOrdenesService;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private ClaveIdempotenciaRepository claveRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directorio;
+
+    @AfterEach
+    void tearDown() {
+        diarioOrdenesService.reproducirPendientes();
+        ordenRepository.deleteAll();
+        claveRepository.deleteAll();
+    }
+
+    private Orden createOrden(String email) {
+        Orden orden = new Orden();
+        orden.setEmail(email);
+        orden.setEstado(1);
+        orden.setFecha(new Date());
+        orden.setMontoTotal(100.0);
+        return orden;
+    }
+
+    @Test
+    void reproducirLote_GuardaOrdenYClave() {
+        // Arrange
+        String clave = diarioOrdenesService.registrar(createOrden("diario@test.com"), null);
+
+        // Act
+        int procesadas = diarioOrdenesService.reproducirLote();
+
+        // Assert
+        assertEquals(1, procesadas);
+        assertTrue(clave.startsWith(DiarioOrdenesService.PREFIJO_CLAVE));
+        assertEquals(1, ordenRepository.findAll().stream()
+            .filter(o -> "diario@test.com".equals(o.getEmail())).count());
+        assertNotNull(claveRepository.findById(clave).orElseThrow().getRespuesta());
+        assertEquals(0, diarioOrdenesService.getDiario().getPendientes());
+    }
+
+    @Test
+    void reproducirLote_ClaveYaAplicada_NoDuplicaOrden() {
+        // Arrange: el cliente reintentó con su clave cuando la base de datos volvió
+        Date ahora = new Date();
+        claveRepository.reservar("clave-cliente", "cliente", ahora, new Date(ahora.getTime() + 60_000),
+            new Date(ahora.getTime() + 60_000));
+        diarioOrdenesService.registrar(createOrden("repetida@test.com"), "clave-cliente");
+        long reproducidasAntes = diarioOrdenesService.getMetricas().getReproducidas();
+
+        // Act
+        int procesadas = diarioOrdenesService.reproducirLote();
+
+        // Assert
+        assertEquals(1, procesadas);
+        assertEquals(0, ordenRepository.findAll().stream()
+            .filter(o -> "repetida@test.com".equals(o.getEmail())).count());
+        assertEquals(reproducidasAntes, diarioOrdenesService.getMetricas().getReproducidas());
+        assertEquals(0, diarioOrdenesService.getDiario().getPendientes());
+    }
+
+    @Test
+    void getMetricas_ConPendientes() {
+        // Arrange
+        long aceptadasAntes = diarioOrdenesService.getMetricas().getAceptadas();
+        diarioOrdenesService.registrar(createOrden("metricas@test.com"), null);
+
+        // Act
+        MetricasDiarioDTO metricas = diarioOrdenesService.getMetricas();
+
+        // Assert
+        assertEquals(1, metricas.getOrdenesPendientes());
+        assertTrue(metricas.getBytesPendientes() > 0);
+        assertEquals(1024 * 1024, metricas.getCapacidadBytes());
+        assertTrue(metricas.getRetrasoMs() >= 0);
+        assertEquals(aceptadasAntes + 1, metricas.getAceptadas());
+    }
+
+    @Test
+    void reproducirLote_BaseDeDatosCaida_ConservaPendientes() throws IOException {
+        // Arrange
+        OrdenService ordenService = mock(OrdenService.class);
+        when(ordenService.saveOrdenEnTransaccion(any(Orden.class)))
+            .thenThrow(new DataAccessResourceFailureException("Base de datos no disponible"));
+        DiarioOrdenesService servicio = new DiarioOrdenesService(ordenService, claveRepository, objectMapper,
+            transactionManager, directorio.resolve("caida.jrn").toString(), 1, 100, 24);
+        try {
+            servicio.registrar(createOrden("caida1@test.com"), "caida-1");
+            servicio.registrar(createOrden("caida2@test.com"), "caida-2");
+
+            // Act
+            int procesadas = servicio.reproducirLote();
+
+            // Assert
+            assertEquals(0, procesadas);
+            assertEquals(2, servicio.getDiario().getPendientes());
+            assertFalse(claveRepository.existsById("caida-1"));
+        } finally {
+            servicio.cerrar();
+        }
+    }
+}
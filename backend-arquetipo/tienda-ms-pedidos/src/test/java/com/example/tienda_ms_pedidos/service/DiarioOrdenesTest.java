@@ -0,0 +1,171 @@
+package com.example.tienda_ms_pedidos.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiarioOrdenesTest {
+
+    private static final int CAPACIDAD = 4096;
+
+    @TempDir
+    Path directorio;
+
+    private Path archivo() {
+        return directorio.resolve("diario.jrn");
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> textos(List<DiarioOrdenes.Registro> registros) {
+        return registros.stream().map(r -> new String(r.datos(), StandardCharsets.UTF_8)).toList();
+    }
+
+    @Test
+    void agregar_Reabrir_RecuperaPendientes() throws IOException {
+        // Arrange
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), CAPACIDAD)) {
+            diario.esperarDurable(diario.agregar(bytes("uno")));
+            diario.esperarDurable(diario.agregar(bytes("dos")));
+        }
+
+        // Act
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), CAPACIDAD)) {
+            // Assert
+            assertEquals(2, diario.getPendientes());
+            assertEquals(List.of("uno", "dos"), textos(diario.leerPendientes(10)));
+        }
+    }
+
+    @Test
+    void reabrir_ConRegistroCortado_DescartaLaCola() throws IOException {
+        // Arrange
+        int finPrimero;
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), CAPACIDAD)) {
+            diario.agregar(bytes("completo"));
+            diario.agregar(bytes("cortado"));
+            finPrimero = diario.leerPendientes(1).get(0).fin();
+        }
+        // Se corrompe el contenido del segundo registro, como una escritura a medias
+        try (FileChannel canal = FileChannel.open(archivo(), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(bytes("XX")), finPrimero + DiarioOrdenes.CABECERA_REGISTRO);
+        }
+
+        // Act
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), CAPACIDAD)) {
+            // Assert
+            assertEquals(1, diario.getPendientes());
+            assertEquals(List.of("completo"), textos(diario.leerPendientes(10)));
+
+            // Lo nuevo se escribe sobre el registro cortado
+            diario.agregar(bytes("nuevo"));
+            assertEquals(List.of("completo", "nuevo"), textos(diario.leerPendientes(10)));
+        }
+    }
+
+    @Test
+    void marcarAplicados_Parcial_SobreviveAlReabrir() throws IOException {
+        // Arrange
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), CAPACIDAD)) {
+            diario.agregar(bytes("a"));
+            diario.agregar(bytes("b"));
+            diario.agregar(bytes("c"));
+
+            // Act
+            List<DiarioOrdenes.Registro> registros = diario.leerPendientes(2);
+            diario.marcarAplicados(registros.get(1).fin(), 2);
+        }
+
+        // Assert
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), CAPACIDAD)) {
+            assertEquals(1, diario.getPendientes());
+            assertEquals(List.of("c"), textos(diario.leerPendientes(10)));
+        }
+    }
+
+    @Test
+    void marcarAplicados_Todo_VuelveAlInicioSinRevivirRegistros() throws IOException {
+        // Arrange
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), CAPACIDAD)) {
+            diario.agregar(bytes("viejo-1"));
+            diario.agregar(bytes("viejo-2"));
+            List<DiarioOrdenes.Registro> registros = diario.leerPendientes(10);
+
+            // Act
+            diario.marcarAplicados(registros.get(1).fin(), 2);
+
+            // Assert
+            assertEquals(0, diario.getPendientes());
+            assertEquals(0, diario.getBytesPendientes());
+            diario.esperarDurable(diario.agregar(bytes("n")));
+        }
+        // Los registros viejos siguen en el archivo, pero con la época anterior
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), CAPACIDAD)) {
+            assertEquals(List.of("n"), textos(diario.leerPendientes(10)));
+        }
+    }
+
+    @Test
+    void agregar_SinEspacio_LanzaExcepcion() throws IOException {
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), 256)) {
+            // Arrange
+            diario.agregar(new byte[100]);
+
+            // Act & Assert
+            assertThrows(IllegalStateException.class, () -> diario.agregar(new byte[100]));
+            assertEquals(1, diario.getPendientes());
+        }
+    }
+
+    @Test
+    void esperarDurable_Concurrente_TodosQuedanEnDisco() throws Exception {
+        // Arrange
+        int hilos = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), 64 * 1024)) {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                String texto = "orden-" + i;
+                tareas.add(executor.submit(() -> {
+                    inicio.await();
+                    for (int j = 0; j < 20; j++) {
+                        diario.esperarDurable(diario.agregar(bytes(texto + "-" + j)));
+                    }
+                    return null;
+                }));
+            }
+
+            // Act
+            inicio.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+
+            // Assert
+            assertEquals(hilos * 20, diario.getPendientes());
+        } finally {
+            executor.shutdownNow();
+        }
+        try (DiarioOrdenes diario = new DiarioOrdenes(archivo(), 64 * 1024)) {
+            assertEquals(hilos * 20, diario.getPendientes());
+        }
+    }
+}
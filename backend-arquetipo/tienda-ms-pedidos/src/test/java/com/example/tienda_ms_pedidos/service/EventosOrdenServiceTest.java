@@ -0,0 +1,160 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.EventoOrdenDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventosOrdenServiceTest {
+
+    private EventosOrdenService eventosOrdenService;
+
+    /**
+     * Emisor que guarda los eventos enviados en vez de escribir en una respuesta HTTP.
+     */
+    static class EmisorDePrueba extends SseEmitter {
+        final List<SseEventBuilder> enviados = new CopyOnWriteArrayList<>();
+        final CountDownLatch recibidos;
+        volatile CountDownLatch bloqueo;
+
+        EmisorDePrueba(int esperados) {
+            this.recibidos = new CountDownLatch(esperados);
+        }
+
+        @Override
+        public void send(SseEventBuilder evento) throws IOException {
+            if (bloqueo != null) {
+                try {
+                    bloqueo.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            enviados.add(evento);
+            recibidos.countDown();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        eventosOrdenService = new EventosOrdenService(60000, 3, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventosOrdenService.detener();
+    }
+
+    private EventoOrdenDTO evento(String email, int estado) {
+        return new EventoOrdenDTO(EventoOrdenDTO.ESTADO, 1L, email, estado, new Date());
+    }
+
+    private void esperarEnviados(EmisorDePrueba emisor, int cantidad) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (emisor.enviados.size() < cantidad && System.currentTimeMillis() < limite) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void publicar_FiltraPorEmailYEstado() throws Exception {
+        // Arrange
+        EmisorDePrueba porEmail = new EmisorDePrueba(1);
+        EmisorDePrueba porEstado = new EmisorDePrueba(1);
+        EmisorDePrueba todos = new EmisorDePrueba(2);
+        eventosOrdenService.registrar(porEmail, "a@test.com", null);
+        eventosOrdenService.registrar(porEstado, null, 3);
+        eventosOrdenService.registrar(todos, null, null);
+
+        // Act
+        eventosOrdenService.publicar(evento("A@test.com", 2));
+        eventosOrdenService.publicar(evento("b@test.com", 3));
+
+        // Assert
+        assertTrue(todos.recibidos.await(5, TimeUnit.SECONDS));
+        assertTrue(porEmail.recibidos.await(5, TimeUnit.SECONDS));
+        assertTrue(porEstado.recibidos.await(5, TimeUnit.SECONDS));
+        assertEquals(1, porEmail.enviados.size());
+        assertEquals(1, porEstado.enviados.size());
+        assertEquals(2, todos.enviados.size());
+    }
+
+    @Test
+    void publicar_ClienteLento_NoBloqueaALosDemas() throws Exception {
+        // Arrange
+        EmisorDePrueba lento = new EmisorDePrueba(1);
+        lento.bloqueo = new CountDownLatch(1);
+        EmisorDePrueba rapido = new EmisorDePrueba(5);
+        eventosOrdenService.registrar(lento, null, null);
+        eventosOrdenService.registrar(rapido, null, null);
+
+        // Act
+        for (int i = 1; i <= 5; i++) {
+            eventosOrdenService.publicar(evento("a@test.com", 1));
+            esperarEnviados(rapido, i);
+        }
+
+        // Assert
+        assertTrue(rapido.recibidos.await(5, TimeUnit.SECONDS));
+        // La cola del lento (capacidad 2) se desbordó: queda fuera del hub
+        assertEquals(1, eventosOrdenService.getSuscriptores());
+        lento.bloqueo.countDown();
+    }
+
+    @Test
+    void publicarAlConfirmar_EsperaElCommit() throws Exception {
+        // Arrange
+        EmisorDePrueba emisor = new EmisorDePrueba(1);
+        eventosOrdenService.registrar(emisor, null, null);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            eventosOrdenService.publicarAlConfirmar(evento("a@test.com", 1));
+            Thread.sleep(50);
+            assertTrue(emisor.enviados.isEmpty());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        assertTrue(emisor.recibidos.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void registrar_MaximoDeSuscriptores_ThrowsException() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            eventosOrdenService.registrar(new EmisorDePrueba(0), null, null);
+        }
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+            () -> eventosOrdenService.registrar(new EmisorDePrueba(0), null, null));
+    }
+
+    @Test
+    void enviarLatido_LlegaATodos() throws Exception {
+        // Arrange
+        EmisorDePrueba emisor = new EmisorDePrueba(1);
+        eventosOrdenService.registrar(emisor, "a@test.com", 4);
+
+        // Act
+        eventosOrdenService.enviarLatido();
+
+        // Assert
+        assertTrue(emisor.recibidos.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.PaginaDTO;
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.example.tienda_ms_pedidos.util.CursorUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class HistorialClienteServiceTest {
+
+    private static final String EMAIL = "cliente@test.com";
+
+    private OrdenRepository ordenRepository;
+    private HistorialClienteService historialClienteService;
+
+    @BeforeEach
+    void setUp() {
+        ordenRepository = mock(OrdenRepository.class);
+        historialClienteService = new HistorialClienteService(ordenRepository, 2, 5);
+    }
+
+    // Simula el índice (EMAIL, ID_ORDEN): órdenes con IDs 1..total, de la más reciente a la más antigua
+    private void conOrdenes(String email, int total) {
+        when(ordenRepository.findResumenesPorEmailAntesDe(eq(email), anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long antesDe = inv.getArgument(1);
+            int limite = inv.<Limit>getArgument(2).max();
+            List<ResumenOrdenDTO> resumenes = new ArrayList<>();
+            for (long id = Math.min(total, antesDe - 1); id >= 1 && resumenes.size() < limite; id--) {
+                resumenes.add(new ResumenOrdenDTO(id, new Date(), 1, 10.0));
+            }
+            return resumenes;
+        });
+    }
+
+    private List<Long> ids(PaginaDTO<ResumenOrdenDTO> pagina) {
+        return pagina.getItems().stream().map(ResumenOrdenDTO::getId).toList();
+    }
+
+    @Test
+    void pagina_PrimeraPaginaSeSirveDesdeCache() {
+        // Arrange
+        conOrdenes(EMAIL, 12);
+
+        // Act
+        PaginaDTO<ResumenOrdenDTO> primera = historialClienteService.pagina(EMAIL, null, 3);
+        PaginaDTO<ResumenOrdenDTO> repetida = historialClienteService.pagina(EMAIL, null, 3);
+
+        // Assert
+        assertEquals(List.of(12L, 11L, 10L), ids(primera));
+        assertEquals(CursorUtil.codificar(10L), primera.getNext());
+        assertEquals(ids(primera), ids(repetida));
+        verify(ordenRepository, times(1)).findResumenesPorEmailAntesDe(EMAIL, Long.MAX_VALUE, Limit.of(6));
+        verifyNoMoreInteractions(ordenRepository);
+    }
+
+    @Test
+    void pagina_SiguientePaginaDentroDeLaCache_NoConsulta() {
+        // Arrange
+        conOrdenes(EMAIL, 12);
+        PaginaDTO<ResumenOrdenDTO> primera = historialClienteService.pagina(EMAIL, null, 2);
+
+        // Act
+        PaginaDTO<ResumenOrdenDTO> segunda = historialClienteService.pagina(EMAIL, primera.getNext(), 2);
+
+        // Assert
+        assertEquals(List.of(10L, 9L), ids(segunda));
+        verify(ordenRepository, times(1)).findResumenesPorEmailAntesDe(eq(EMAIL), anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void pagina_FueraDeLaCache_ConsultaLaBaseDeDatos() {
+        // Arrange
+        conOrdenes(EMAIL, 12);
+
+        // Act
+        PaginaDTO<ResumenOrdenDTO> pagina = historialClienteService.pagina(EMAIL, CursorUtil.codificar(9L), 5);
+
+        // Assert
+        assertEquals(List.of(8L, 7L, 6L, 5L, 4L), ids(pagina));
+        assertEquals(CursorUtil.codificar(4L), pagina.getNext());
+        verify(ordenRepository).findResumenesPorEmailAntesDe(EMAIL, 9L, Limit.of(6));
+    }
+
+    @Test
+    void pagina_HistorialCompletoEnCache_UltimaPaginaSinNext() {
+        // Arrange
+        conOrdenes(EMAIL, 3);
+
+        // Act
+        PaginaDTO<ResumenOrdenDTO> pagina = historialClienteService.pagina(EMAIL, null, 10);
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 1L), ids(pagina));
+        assertNull(pagina.getNext());
+        verify(ordenRepository, times(1)).findResumenesPorEmailAntesDe(eq(EMAIL), anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void invalidar_LaSiguienteLecturaVuelveAConsultar() {
+        // Arrange
+        conOrdenes(EMAIL, 3);
+        historialClienteService.pagina(EMAIL, null, 10);
+
+        // Act
+        historialClienteService.invalidarAlConfirmar(EMAIL);
+        historialClienteService.pagina(EMAIL, null, 10);
+
+        // Assert
+        verify(ordenRepository, times(2)).findResumenesPorEmailAntesDe(eq(EMAIL), anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void pagina_InvalidacionDuranteLaCarga_NoGuardaDatosViejos() {
+        // Arrange
+        when(ordenRepository.findResumenesPorEmailAntesDe(eq(EMAIL), anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            // Un commit invalida el email mientras la lectura está en curso
+            historialClienteService.invalidar(EMAIL);
+            return List.of(new ResumenOrdenDTO(1L, new Date(), 1, 10.0));
+        });
+
+        // Act
+        historialClienteService.pagina(EMAIL, null, 10);
+
+        // Assert
+        assertEquals(0, historialClienteService.getTamano());
+    }
+
+    @Test
+    void pagina_CapacidadAcotada_DescartaElMenosUsado() {
+        // Arrange
+        conOrdenes("a@test.com", 1);
+        conOrdenes("b@test.com", 1);
+        conOrdenes("c@test.com", 1);
+
+        // Act
+        historialClienteService.pagina("a@test.com", null, 10);
+        historialClienteService.pagina("b@test.com", null, 10);
+        historialClienteService.pagina("a@test.com", null, 10);
+        historialClienteService.pagina("c@test.com", null, 10);
+        historialClienteService.pagina("a@test.com", null, 10);
+        historialClienteService.pagina("b@test.com", null, 10);
+
+        // Assert
+        assertEquals(2, historialClienteService.getTamano());
+        verify(ordenRepository, times(1)).findResumenesPorEmailAntesDe(eq("a@test.com"), anyLong(), any(Limit.class));
+        verify(ordenRepository, times(2)).findResumenesPorEmailAntesDe(eq("b@test.com"), anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void pagina_SinEmail_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> historialClienteService.pagina(" ", null, 10));
+        verifyNoInteractions(ordenRepository);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.exception.IdempotenciaException;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.ClaveIdempotenciaRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas sobre H2 sin transacción envolvente, para que las reservas de
+ * claves hagan commit y sean visibles entre hilos como en producción.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = "spring.datasource.url=jdbc:h2:mem:idempotenciadb;DB_CLOSE_DELAY=-1;MODE=MySQL")
+@ActiveProfiles("test")
+class IdempotenciaServiceTest {
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private OrdenService ordenService;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private ClaveIdempotenciaRepository claveRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger ejecuciones = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        claveRepository.deleteAll();
+        ordenRepository.deleteAll();
+    }
+
+    private Supplier<Orden> crearOrden() {
+        return () -> {
+            ejecuciones.incrementAndGet();
+            Orden orden = new Orden();
+            orden.setEmail("idempotencia@test.com");
+            orden.setEstado(1);
+            orden.setFecha(new Date());
+            orden.setMontoTotal(100.0);
+            return ordenService.saveOrden(orden);
+        };
+    }
+
+    private IdempotenciaService otraInstancia(long ttlHoras) {
+        return new IdempotenciaService(claveRepository, objectMapper, transactionManager, 100, ttlHoras, 2000, 60_000);
+    }
+
+    @Test
+    void ejecutar_Reintento_DevuelveOrdenOriginal() {
+        // Act
+        IdempotenciaService.Resultado primera = idempotenciaService.ejecutar("reintento", crearOrden());
+        IdempotenciaService.Resultado segunda = idempotenciaService.ejecutar("reintento", crearOrden());
+
+        // Assert
+        assertFalse(primera.repetida());
+        assertTrue(segunda.repetida());
+        assertEquals(primera.orden().getId(), segunda.orden().getId());
+        assertEquals(1, ejecuciones.get());
+        assertEquals(1, ordenRepository.count());
+    }
+
+    @Test
+    void ejecutar_OtraInstancia_LeeRespuestaDeLaTabla() {
+        // Arrange
+        Long id = idempotenciaService.ejecutar("tabla", crearOrden()).orden().getId();
+
+        // Act
+        IdempotenciaService.Resultado resultado = otraInstancia(24).ejecutar("tabla", crearOrden());
+
+        // Assert
+        assertTrue(resultado.repetida());
+        assertEquals(id, resultado.orden().getId());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_ClaveExpirada_SeEjecutaDeNuevo() {
+        // Arrange
+        IdempotenciaService sinTtl = otraInstancia(0);
+        sinTtl.ejecutar("expirada", crearOrden());
+
+        // Act
+        IdempotenciaService.Resultado resultado = sinTtl.ejecutar("expirada", crearOrden());
+
+        // Assert
+        assertFalse(resultado.repetida());
+        assertEquals(2, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_PrimeraFalla_LiberaLaClave() {
+        // Arrange
+        Supplier<Orden> falla = () -> {
+            throw new IllegalArgumentException("Fallo al guardar");
+        };
+
+        // Act
+        assertThrows(IllegalArgumentException.class, () -> idempotenciaService.ejecutar("fallida", falla));
+        IdempotenciaService.Resultado resultado = idempotenciaService.ejecutar("fallida", crearOrden());
+
+        // Assert
+        assertFalse(resultado.repetida());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_ReservaVigente_NoSeAbandona() {
+        // Arrange: otra ejecución sigue dentro de su reserva pasada la espera máxima
+        Date ahora = new Date();
+        claveRepository.reservar("en-curso", "otra-ejecucion", ahora,
+            new Date(ahora.getTime() + 60_000), new Date(ahora.getTime() + 3_600_000));
+
+        // Act
+        assertThrows(IdempotenciaException.class, () -> otraInstancia(24).ejecutar("en-curso", crearOrden()));
+
+        // Assert
+        assertEquals(0, ejecuciones.get());
+        assertEquals("otra-ejecucion", claveRepository.findById("en-curso").orElseThrow().getReservadaPor());
+    }
+
+    @Test
+    void ejecutar_ReservaVencida_TomaSuLugar() {
+        // Arrange
+        Date ahora = new Date();
+        claveRepository.reservar("abandonada", "otra-ejecucion", new Date(ahora.getTime() - 120_000),
+            new Date(ahora.getTime() - 60_000), new Date(ahora.getTime() + 3_600_000));
+
+        // Act
+        IdempotenciaService.Resultado resultado = otraInstancia(24).ejecutar("abandonada", crearOrden());
+
+        // Assert
+        assertFalse(resultado.repetida());
+        assertEquals(1, ejecuciones.get());
+        assertNotNull(claveRepository.findById("abandonada").orElseThrow().getRespuesta());
+    }
+
+    @Test
+    void ejecutar_ReservaPerdida_RevierteLaOrden() {
+        // Arrange: mientras se crea la orden, otro intento toma la reserva en su propia transacción
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Supplier<Orden> conReservaTomada = () -> {
+            Orden orden = crearOrden().get();
+            try {
+                executor.submit(() -> {
+                    Date ahora = new Date();
+                    claveRepository.deleteById("perdida");
+                    claveRepository.reservar("perdida", "otra-ejecucion", ahora,
+                        new Date(ahora.getTime() + 60_000), new Date(ahora.getTime() + 3_600_000));
+                }).get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return orden;
+        };
+
+        // Act
+        assertThrows(IdempotenciaException.class, () -> otraInstancia(24).ejecutar("perdida", conReservaTomada));
+        executor.shutdown();
+
+        // Assert
+        assertEquals(0, ordenRepository.count());
+        assertEquals("otra-ejecucion", claveRepository.findById("perdida").orElseThrow().getReservadaPor());
+    }
+
+    @Test
+    void ejecutar_DuplicadosConcurrentes_UnaSolaOrden() throws Exception {
+        // Arrange
+        int hilos = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<Long>> tareas = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            // La mitad usa otra instancia, como si fuera otro nodo
+            IdempotenciaService servicio = i % 2 == 0 ? idempotenciaService : otraInstancia(24);
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                return servicio.ejecutar("concurrente", crearOrden()).orden().getId();
+            }));
+        }
+
+        // Act
+        inicio.countDown();
+        List<Long> ids = new ArrayList<>();
+        for (Future<Long> tarea : tareas) {
+            ids.add(tarea.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, ejecuciones.get());
+        assertEquals(1, ordenRepository.count());
+        assertTrue(ids.stream().allMatch(ids.get(0)::equals));
+    }
+}
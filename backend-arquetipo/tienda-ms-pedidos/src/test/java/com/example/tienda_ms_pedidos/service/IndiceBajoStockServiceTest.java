@@ -0,0 +1,214 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.AlertaStockDTO;
+import com.example.tienda_ms_pedidos.DTO.StockProductoDTO;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class IndiceBajoStockServiceTest {
+
+    private ProductoRepository productoRepository;
+    private IndiceBajoStockService indice;
+
+    @BeforeEach
+    void setUp() {
+        productoRepository = mock(ProductoRepository.class);
+        when(productoRepository.findStock()).thenReturn(filas(
+            new Object[] { 1L, "Polera", 10.0 },
+            new Object[] { 2L, "Pantalón", 3.0 },
+            new Object[] { 3L, "Gorro", 0.0 },
+            new Object[] { 4L, "Bufanda", 5.0 }));
+        indice = new IndiceBajoStockService(productoRepository, 5, 60000, 2, 2, 2);
+        indice.cargar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        indice.detener();
+    }
+
+    private static List<Object[]> filas(Object[]... filas) {
+        return new ArrayList<>(List.of(filas));
+    }
+
+    private static List<Long> ids(List<StockProductoDTO> productos) {
+        return productos.stream().map(StockProductoDTO::getIdProducto).toList();
+    }
+
+    // Nombres de los eventos SSE enviados, sin los latidos
+    private static List<String> nombresEnviados(EventosOrdenServiceTest.EmisorDePrueba emisor) {
+        List<String> nombres = new ArrayList<>();
+        emisor.enviados.forEach(evento -> evento.build().stream()
+            .map(parte -> parte.getData().toString())
+            .filter(texto -> texto.startsWith("event:"))
+            .forEach(texto -> nombres.add(texto.substring("event:".length(), texto.indexOf('\n')))));
+        return nombres;
+    }
+
+    @Test
+    void bajoStock_OrdenadoPorStockEIncluyeElUmbral() {
+        // Act
+        List<StockProductoDTO> productos = indice.bajoStock(5, 10);
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 4L), ids(productos));
+        assertEquals("Gorro", productos.get(0).getNombre());
+        assertEquals(0.0, productos.get(0).getStock());
+    }
+
+    @Test
+    void bajoStock_RespetaElLimite() {
+        // Act
+        List<StockProductoDTO> productos = indice.bajoStock(100, 2);
+
+        // Assert
+        assertEquals(List.of(3L, 2L), ids(productos));
+    }
+
+    @Test
+    void descontarAlConfirmar_SinTransaccion_ActualizaDeInmediato() {
+        // Act
+        indice.descontarAlConfirmar(Map.of(1L, 6));
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 1L, 4L), ids(indice.bajoStock(5, 10)));
+        assertEquals(4.0, indice.bajoStock(5, 10).get(2).getStock());
+    }
+
+    @Test
+    void descontarAlConfirmar_EsperaAlCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            indice.descontarAlConfirmar(Map.of(1L, 6));
+            assertEquals(List.of(3L, 2L, 4L), ids(indice.bajoStock(5, 10)));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 1L, 4L), ids(indice.bajoStock(5, 10)));
+    }
+
+    @Test
+    void devolverAlConfirmar_SacaAlProductoDelUmbral() {
+        // Act
+        indice.devolverAlConfirmar(Map.of(3L, 8));
+
+        // Assert
+        assertEquals(List.of(2L, 4L), ids(indice.bajoStock(5, 10)));
+    }
+
+    @Test
+    void descontarAlConfirmar_ProductoNuevo_SeLeeDeLaBaseDeDatos() {
+        // Arrange
+        when(productoRepository.findStockByIdIn(anyCollection()))
+            .thenReturn(filas(new Object[] { 9L, "Nuevo", 1.0 }));
+
+        // Act
+        indice.descontarAlConfirmar(Map.of(9L, 2));
+
+        // Assert: el stock leído ya incluye el descuento
+        List<StockProductoDTO> productos = indice.bajoStock(1, 10);
+        assertEquals(List.of(3L, 9L), ids(productos));
+        assertEquals(1.0, productos.get(1).getStock());
+    }
+
+    @Test
+    void descontarAlConfirmar_FallaLaBaseDeDatos_NoPropaga() {
+        // Arrange
+        when(productoRepository.findStockByIdIn(anyCollection()))
+            .thenThrow(new DataAccessResourceFailureException("Base de datos no disponible"));
+
+        // Act & Assert
+        assertDoesNotThrow(() -> indice.descontarAlConfirmar(Map.of(9L, 2)));
+    }
+
+    @Test
+    void cargar_QuitaProductosEliminados() {
+        // Arrange
+        when(productoRepository.findStock()).thenReturn(filas(new Object[] { 2L, "Pantalón", 3.0 }));
+
+        // Act
+        indice.cargar();
+
+        // Assert
+        assertEquals(List.of(2L), ids(indice.bajoStock(100, 10)));
+    }
+
+    @Test
+    void suscripcion_RecibeCrucesDelUmbral() throws Exception {
+        // Arrange
+        EventosOrdenServiceTest.EmisorDePrueba emisor = new EventosOrdenServiceTest.EmisorDePrueba(2);
+        indice.registrar(emisor, 5);
+
+        // Act
+        indice.descontarAlConfirmar(Map.of(1L, 4)); // 10 -> 6: no cruza
+        indice.descontarAlConfirmar(Map.of(1L, 2)); // 6 -> 4: baja del umbral
+        indice.descontarAlConfirmar(Map.of(2L, 1)); // 3 -> 2: ya estaba bajo
+        indice.devolverAlConfirmar(Map.of(1L, 3));  // 4 -> 7: repuesto
+
+        // Assert
+        assertTrue(emisor.recibidos.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(List.of(AlertaStockDTO.BAJO, AlertaStockDTO.REPUESTO), nombresEnviados(emisor));
+    }
+
+    @Test
+    void suscripcion_ClienteLento_NoBloqueaALosDemas() throws Exception {
+        // Arrange
+        EventosOrdenServiceTest.EmisorDePrueba lento = new EventosOrdenServiceTest.EmisorDePrueba(1);
+        lento.bloqueo = new CountDownLatch(1);
+        EventosOrdenServiceTest.EmisorDePrueba rapido = new EventosOrdenServiceTest.EmisorDePrueba(6);
+        indice.registrar(lento, 5);
+        indice.registrar(rapido, 5);
+
+        // Act: cada cambio cruza el umbral; el rápido alcanza a recibir cada alerta
+        for (int i = 1; i <= 6; i++) {
+            if (i % 2 == 1) {
+                indice.descontarAlConfirmar(Map.of(1L, 6)); // 10 -> 4
+            } else {
+                indice.devolverAlConfirmar(Map.of(1L, 6));  // 4 -> 10
+            }
+            long limite = System.currentTimeMillis() + 5000;
+            while (rapido.enviados.size() < i && System.currentTimeMillis() < limite) {
+                Thread.sleep(5);
+            }
+        }
+
+        // Assert
+        assertTrue(rapido.recibidos.await(5, TimeUnit.SECONDS));
+        // La cola del lento (capacidad 2) se desbordó: queda fuera de las suscripciones
+        assertEquals(1, indice.getSuscriptores());
+        lento.bloqueo.countDown();
+    }
+
+    @Test
+    void registrar_MaximoDeSuscriptores_ThrowsException() {
+        // Arrange
+        indice.registrar(new EventosOrdenServiceTest.EmisorDePrueba(0), 5);
+        indice.registrar(new EventosOrdenServiceTest.EmisorDePrueba(0), 5);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+            () -> indice.registrar(new EventosOrdenServiceTest.EmisorDePrueba(0), 5));
+        assertEquals(2, indice.getSuscriptores());
+    }
+}
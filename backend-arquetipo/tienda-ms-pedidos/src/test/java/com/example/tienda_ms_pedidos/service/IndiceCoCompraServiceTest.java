@@ -0,0 +1,201 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.ProductoRelacionadoDTO;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.repository.EventoOutboxRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El índice de productos relacionados se actualiza al confirmar checkouts y
+ * líneas de detalle, y una reconstrucción desde DETALLE_ORDENES llega al mismo resultado.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:cocompradb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "pedidos.relacionados.reconstruir-al-iniciar=false"
+    })
+@ActiveProfiles("test")
+class IndiceCoCompraServiceTest {
+
+    @Autowired
+    private IndiceCoCompraService indiceCoCompraService;
+
+    @Autowired
+    private OrdenService ordenService;
+
+    @Autowired
+    private DetalleOrdenService detalleOrdenService;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    private final List<Long> productos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 4; i++) {
+            Producto producto = new Producto();
+            producto.setNombre("P" + i);
+            producto.setDescripcion("Producto " + i);
+            producto.setPrecio(10.0);
+            producto.setStock(1000.0);
+            producto.setImagen("imagen.jpg");
+            productos.add(productoRepository.save(producto).getId());
+        }
+        indiceCoCompraService.reconstruir();
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventoOutboxRepository.deleteAll();
+        ordenRepository.deleteAll();
+        productoRepository.deleteAll();
+        productos.clear();
+    }
+
+    private Orden checkout(Long... idsProducto) {
+        Orden orden = new Orden();
+        orden.setEmail("cocompra@test.com");
+        orden.setEstado(1);
+        orden.setFecha(new Date());
+        orden.setMontoTotal(10.0 * idsProducto.length);
+        orden.setDetalles(new ArrayList<>());
+        for (Long idProducto : idsProducto) {
+            DetalleOrden detalle = new DetalleOrden();
+            detalle.setIdProducto(idProducto);
+            detalle.setPrecio(10.0);
+            detalle.setCantidad(1);
+            detalle.setMontoTotal(10.0);
+            orden.addDetalle(detalle);
+        }
+        return ordenService.checkout(orden);
+    }
+
+    private List<Long> idsRelacionados(Long idProducto) {
+        return indiceCoCompraService.relacionados(idProducto, 10).stream()
+            .map(ProductoRelacionadoDTO::getIdProducto)
+            .toList();
+    }
+
+    @Test
+    void checkout_ActualizaElIndiceAlConfirmar() {
+        // Arrange
+        Long a = productos.get(0);
+        Long b = productos.get(1);
+        Long c = productos.get(2);
+
+        // Act
+        checkout(a, b);
+        checkout(a, b, c);
+
+        // Assert
+        List<ProductoRelacionadoDTO> relacionados = indiceCoCompraService.relacionados(a, 10);
+        assertEquals(List.of(b, c), idsRelacionados(a));
+        assertEquals(2L, relacionados.get(0).getVeces());
+        assertEquals(1L, relacionados.get(1).getVeces());
+    }
+
+    @Test
+    void saveYDeleteDetalle_ActualizanElIndice() {
+        // Arrange
+        Long a = productos.get(0);
+        Long d = productos.get(3);
+        Orden orden = checkout(a);
+        Orden referencia = new Orden();
+        referencia.setId(orden.getId());
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setOrden(referencia);
+        detalle.setIdProducto(d);
+        detalle.setPrecio(10.0);
+        detalle.setCantidad(1);
+        detalle.setMontoTotal(10.0);
+
+        // Act
+        DetalleOrden guardado = detalleOrdenService.saveDetalleOrden(detalle);
+        List<Long> conDetalle = idsRelacionados(a);
+        detalleOrdenService.deleteById(guardado.getId());
+        List<Long> sinDetalle = idsRelacionados(a);
+
+        // Assert
+        assertEquals(List.of(d), conDetalle);
+        assertTrue(sinDetalle.isEmpty());
+    }
+
+    @Test
+    void saveDetallesOrden_RegistraLasLineasDelLote() {
+        // Arrange
+        Long a = productos.get(0);
+        Long b = productos.get(1);
+        Long c = productos.get(2);
+        Orden orden = checkout(a);
+        List<DetalleOrden> lote = new ArrayList<>();
+        for (Long idProducto : List.of(b, c, b)) {
+            DetalleOrden detalle = new DetalleOrden();
+            detalle.setIdProducto(idProducto);
+            detalle.setPrecio(10.0);
+            detalle.setCantidad(1);
+            detalle.setMontoTotal(10.0);
+            lote.add(detalle);
+        }
+
+        // Act
+        List<DetalleOrden> guardados = detalleOrdenService.saveDetallesOrden(orden.getId(), lote).orElseThrow();
+
+        // Assert
+        assertEquals(3, guardados.size());
+        assertTrue(guardados.stream().allMatch(d -> d.getId() != null));
+        assertEquals(List.of(b, c), idsRelacionados(a).stream().sorted().toList());
+        assertEquals(List.of(a, c), idsRelacionados(b).stream().sorted().toList());
+        assertEquals(4, ordenRepository.findById(orden.getId()).orElseThrow().getDetalles().size());
+    }
+
+    @Test
+    void reconstruir_CoincideConElIndiceIncremental() {
+        // Arrange
+        Long a = productos.get(0);
+        Long b = productos.get(1);
+        Long c = productos.get(2);
+        checkout(a, b, c);
+        checkout(b, c);
+        checkout(c, c);
+        List<ProductoRelacionadoDTO> incremental = indiceCoCompraService.relacionados(c, 10);
+        long pares = indiceCoCompraService.getPares();
+
+        // Act
+        long lineas = indiceCoCompraService.reconstruir();
+
+        // Assert
+        assertEquals(7, lineas);
+        assertEquals(pares, indiceCoCompraService.getPares());
+        List<ProductoRelacionadoDTO> reconstruido = indiceCoCompraService.relacionados(c, 10);
+        assertEquals(incremental.size(), reconstruido.size());
+        for (int i = 0; i < incremental.size(); i++) {
+            assertEquals(incremental.get(i).getIdProducto(), reconstruido.get(i).getIdProducto());
+            assertEquals(incremental.get(i).getVeces(), reconstruido.get(i).getVeces());
+        }
+    }
+}
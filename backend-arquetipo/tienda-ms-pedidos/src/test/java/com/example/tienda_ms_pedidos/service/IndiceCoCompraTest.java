@@ -0,0 +1,107 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.ProductoRelacionadoDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceCoCompraTest {
+
+    @Test
+    void relacionados_OrdenaPorOrdenesEnComun() {
+        // Arrange
+        IndiceCoCompra indice = new IndiceCoCompra();
+        long[] orden1 = { 1L, 2L, 3L };
+        long[] orden2 = { 1L, 2L, 2L };
+        long[] orden3 = { 1L, 4L };
+        indice.registrarOrden(orden1, 0, orden1.length);
+        indice.registrarOrden(orden2, 0, orden2.length);
+        indice.registrarOrden(orden3, 0, orden3.length);
+
+        // Act
+        List<ProductoRelacionadoDTO> relacionados = indice.relacionados(1L, 10);
+
+        // Assert
+        assertEquals(3, relacionados.size());
+        assertEquals(2L, relacionados.get(0).getIdProducto());
+        assertEquals(2L, relacionados.get(0).getVeces());
+        // Empate en una orden: primero el ID menor
+        assertEquals(3L, relacionados.get(1).getIdProducto());
+        assertEquals(4L, relacionados.get(2).getIdProducto());
+        assertEquals(4, indice.getPares());
+    }
+
+    @Test
+    void relacionados_RespetaElLimite() {
+        // Arrange
+        IndiceCoCompra indice = new IndiceCoCompra();
+        indice.registrar(new long[] { 1L, 2L, 3L, 4L }, new long[0], 1);
+
+        // Act & Assert
+        assertEquals(2, indice.relacionados(1L, 2).size());
+        assertTrue(indice.relacionados(99L, 5).isEmpty());
+    }
+
+    @Test
+    void registrar_SignoNegativo_QuitaElPar() {
+        // Arrange
+        IndiceCoCompra indice = new IndiceCoCompra();
+        indice.registrar(new long[] { 1L }, new long[] { 2L }, 1);
+
+        // Act
+        indice.registrar(new long[] { 1L }, new long[] { 2L }, -1);
+        // Quitar un par inexistente no deja conteos negativos
+        indice.registrar(new long[] { 1L }, new long[] { 2L }, -1);
+
+        // Assert
+        assertTrue(indice.relacionados(1L, 10).isEmpty());
+        assertEquals(0, indice.getPares());
+    }
+
+    @Test
+    void construccionForkJoin_CoincideConLaSecuencial() {
+        // Arrange: 100.000 líneas en órdenes de 1 a 6 líneas, ordenadas por orden
+        Random random = new Random(7);
+        int lineas = 100_000;
+        long[] ordenes = new long[lineas];
+        long[] productos = new long[lineas];
+        long orden = 1;
+        for (int i = 0; i < lineas; ) {
+            int tamano = Math.min(1 + random.nextInt(6), lineas - i);
+            for (int j = 0; j < tamano; j++, i++) {
+                ordenes[i] = orden;
+                productos[i] = 1 + random.nextInt(300);
+            }
+            orden++;
+        }
+        IndiceCoCompra secuencial = new IndiceCoCompra();
+        int inicio = 0;
+        for (int i = 1; i <= lineas; i++) {
+            if (i == lineas || ordenes[i] != ordenes[inicio]) {
+                secuencial.registrarOrden(productos, inicio, i);
+                inicio = i;
+            }
+        }
+
+        // Act
+        IndiceCoCompra paralelo = ForkJoinPool.commonPool()
+            .invoke(new IndiceCoCompraService.Construccion(ordenes, productos, 0, lineas));
+
+        // Assert
+        assertEquals(secuencial.getPares(), paralelo.getPares());
+        assertEquals(secuencial.getProductos(), paralelo.getProductos());
+        for (long producto = 1; producto <= 300; producto++) {
+            List<ProductoRelacionadoDTO> esperado = secuencial.relacionados(producto, 5);
+            List<ProductoRelacionadoDTO> obtenido = paralelo.relacionados(producto, 5);
+            assertEquals(esperado.size(), obtenido.size());
+            for (int i = 0; i < esperado.size(); i++) {
+                assertEquals(esperado.get(i).getIdProducto(), obtenido.get(i).getIdProducto());
+                assertEquals(esperado.get(i).getVeces(), obtenido.get(i).getVeces());
+            }
+        }
+    }
+}
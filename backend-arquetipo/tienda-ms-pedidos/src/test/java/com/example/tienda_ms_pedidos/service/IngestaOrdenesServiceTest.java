@@ -0,0 +1,243 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.MetricasIngestaDTO;
+import com.example.tienda_ms_pedidos.exception.IngestaPendienteException;
+import com.example.tienda_ms_pedidos.exception.IngestaSaturadaException;
+import com.example.tienda_ms_pedidos.model.ClaveIdempotencia;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.ClaveIdempotenciaRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:ingestadb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "pedidos.ingesta.habilitada=true",
+        "pedidos.ingesta.espera-lote-ms=50"
+    })
+@ActiveProfiles("test")
+class IngestaOrdenesServiceTest {
+
+    @Autowired
+    private IngestaOrdenesService ingestaOrdenesService;
+
+    @Autowired
+    private OrdenService ordenService;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private ClaveIdempotenciaRepository claveRepository;
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        claveRepository.deleteAll();
+        ordenRepository.deleteAll();
+    }
+
+    private Orden createOrden(String email) {
+        Orden orden = new Orden();
+        orden.setEmail(email);
+        orden.setEstado(1);
+        orden.setFecha(new Date());
+        orden.setMontoTotal(100.0);
+        return orden;
+    }
+
+    private IngestaOrdenesService instanciaConMocks(OrdenRepository repository, int capacidad) {
+        return instanciaConMocks(repository, mock(ClaveIdempotenciaRepository.class), capacidad, 5000);
+    }
+
+    private IngestaOrdenesService instanciaConMocks(OrdenRepository repository, ClaveIdempotenciaRepository claves,
+                                                    int capacidad, long esperaConfirmacionMs) {
+        IngestaOrdenesService servicio = new IngestaOrdenesService(
+            repository, claves, new ObjectMapper(), mock(OutboxService.class), mock(IngresosService.class),
+            mock(PlatformTransactionManager.class), capacidad, 1, 0, 50, esperaConfirmacionMs, 24);
+        servicio.iniciar();
+        return servicio;
+    }
+
+    @Test
+    void saveOrden_Concurrente_AgrupaCommits() throws Exception {
+        // Arrange
+        int hilos = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<Orden>> tareas = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            String email = "ingesta" + i + "@test.com";
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                return ordenService.saveOrden(createOrden(email));
+            }));
+        }
+        long lotesAntes = ingestaOrdenesService.getMetricas().getLotesConfirmados();
+
+        // Act
+        inicio.countDown();
+        for (Future<Orden> tarea : tareas) {
+            assertNotNull(tarea.get(30, TimeUnit.SECONDS).getId());
+        }
+        executor.shutdown();
+
+        // Assert
+        MetricasIngestaDTO metricas = ingestaOrdenesService.getMetricas();
+        assertEquals(hilos, ordenRepository.count());
+        assertEquals(hilos, claveRepository.count());
+        assertTrue(metricas.getLotesConfirmados() - lotesAntes < hilos);
+        assertEquals(0, metricas.getProfundidadCola());
+        assertTrue(metricas.getLatenciaCommitMaximaMs() > 0);
+    }
+
+    @Test
+    void guardar_ColaLlena_RechazaConContrapresion() throws Exception {
+        // Arrange
+        OrdenRepository repository = mock(OrdenRepository.class);
+        CountDownLatch enCommit = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(repository.saveAll(any())).thenAnswer(inv -> {
+            enCommit.countDown();
+            liberar.await();
+            return inv.getArgument(0);
+        });
+        IngestaOrdenesService servicio = instanciaConMocks(repository, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Una orden ocupa al escritor y otra llena la cola
+        Future<Orden> primera = executor.submit(() -> servicio.guardar(createOrden("a@test.com")));
+        assertTrue(enCommit.await(5, TimeUnit.SECONDS));
+        Future<Orden> segunda = executor.submit(() -> servicio.guardar(createOrden("b@test.com")));
+        while (servicio.getMetricas().getProfundidadCola() == 0) {
+            Thread.sleep(5);
+        }
+
+        // Act & Assert
+        assertThrows(IngestaSaturadaException.class, () -> servicio.guardar(createOrden("c@test.com")));
+        assertEquals(1, servicio.getMetricas().getRechazadas());
+
+        liberar.countDown();
+        assertEquals("a@test.com", primera.get(5, TimeUnit.SECONDS).getEmail());
+        assertEquals("b@test.com", segunda.get(5, TimeUnit.SECONDS).getEmail());
+        executor.shutdown();
+        servicio.detener();
+    }
+
+    @Test
+    void guardar_LoteFallido_ReintentaUnaAUna() {
+        // Arrange
+        OrdenRepository repository = mock(OrdenRepository.class);
+        when(repository.saveAll(any())).thenThrow(new IllegalStateException("Fallo del lote"));
+        when(repository.save(any(Orden.class))).thenAnswer(inv -> inv.getArgument(0));
+        IngestaOrdenesService servicio = instanciaConMocks(repository, 10);
+        Orden orden = createOrden("reintento@test.com");
+        orden.setId(99L);
+
+        // Act
+        Orden guardada = servicio.guardar(orden);
+        servicio.detener();
+
+        // Assert
+        assertSame(orden, guardada);
+        assertNull(guardada.getId());
+        assertEquals(1, servicio.getMetricas().getLotesFallidos());
+        assertEquals(1, servicio.getMetricas().getOrdenesConfirmadas());
+    }
+
+    @Test
+    void guardar_SinConfirmacionATiempo_QuedaPendienteConClave() throws Exception {
+        // Arrange
+        OrdenRepository repository = mock(OrdenRepository.class);
+        ClaveIdempotenciaRepository claves = mock(ClaveIdempotenciaRepository.class);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(repository.saveAll(any())).thenAnswer(inv -> {
+            liberar.await();
+            return inv.getArgument(0);
+        });
+        IngestaOrdenesService servicio = instanciaConMocks(repository, claves, 10, 50);
+
+        // Act
+        IngestaPendienteException pendiente = assertThrows(IngestaPendienteException.class,
+            () -> servicio.guardar(createOrden("pendiente@test.com")));
+        liberar.countDown();
+        servicio.detener();
+
+        // Assert: la respuesta de la clave entregada se guarda en el commit de la orden
+        assertTrue(pendiente.getClave().startsWith("ingesta-"));
+        verify(claves).insertarCompletadas(argThat((Map<String, String> respuestas) ->
+            respuestas.get(pendiente.getClave()).contains("pendiente@test.com")), any(), any());
+        assertEquals(1, servicio.getMetricas().getOrdenesConfirmadas());
+    }
+
+    @Test
+    void saveOrden_ClaveDeIngesta_PermiteConsultarElResultado() {
+        // Arrange
+        Orden guardada = ordenService.saveOrden(createOrden("clave@test.com"));
+        ClaveIdempotencia clave = claveRepository.findAll().get(0);
+
+        // Act
+        IdempotenciaService.Resultado resultado = idempotenciaService.ejecutar(clave.getClave(),
+            () -> fail("La orden ya fue confirmada"));
+
+        // Assert
+        assertTrue(resultado.repetida());
+        assertEquals(guardada.getId(), resultado.orden().getId());
+        assertEquals(1, ordenRepository.count());
+    }
+
+    @Test
+    void saveOrden_DentroDeTransaccion_NoUsaLaCola() {
+        // Arrange
+        long confirmadasAntes = ingestaOrdenesService.getMetricas().getOrdenesConfirmadas();
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+
+        // Act
+        Orden guardada = transaccion.execute(status -> ordenService.saveOrden(createOrden("transaccion@test.com")));
+
+        // Assert
+        assertNotNull(guardada.getId());
+        assertEquals(confirmadasAntes, ingestaOrdenesService.getMetricas().getOrdenesConfirmadas());
+        assertEquals(1, ordenRepository.count());
+    }
+
+    @Test
+    void guardar_DentroDeTransaccion_Rechaza() {
+        // Arrange
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> transaccion.execute(
+            status -> ingestaOrdenesService.guardar(createOrden("rechazo@test.com"))));
+        assertEquals(0, ordenRepository.count());
+    }
+}
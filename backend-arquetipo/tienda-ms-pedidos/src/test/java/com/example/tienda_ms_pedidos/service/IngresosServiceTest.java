@@ -0,0 +1,164 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.IngresoPeriodoDTO;
+import com.example.tienda_ms_pedidos.model.IngresoPeriodo;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.EventoOutboxRepository;
+import com.example.tienda_ms_pedidos.repository.IngresoPeriodoRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ingresos por periodo acumulados al crear órdenes, plegados en días y
+ * meses, y comparados con una reconstrucción desde ORDENES.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = "spring.datasource.url=jdbc:h2:mem:ingresosdb;DB_CLOSE_DELAY=-1;MODE=MySQL")
+@ActiveProfiles("test")
+class IngresosServiceTest {
+
+    @Autowired
+    private IngresosService ingresosService;
+
+    @Autowired
+    private OrdenService ordenService;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private IngresoPeriodoRepository ingresoPeriodoRepository;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    private final LocalDate hoy = LocalDate.now();
+
+    @AfterEach
+    void tearDown() {
+        ingresoPeriodoRepository.deleteAll();
+        eventoOutboxRepository.deleteAll();
+        ordenRepository.deleteAll();
+    }
+
+    private void crearOrden(LocalDateTime fecha, double monto) {
+        Orden orden = new Orden();
+        orden.setEmail("ingresos@test.com");
+        orden.setEstado(1);
+        orden.setFecha(Date.from(fecha.atZone(ZoneId.systemDefault()).toInstant()));
+        orden.setMontoTotal(monto);
+        ordenService.saveOrden(orden);
+    }
+
+    @Test
+    void consultar_PorHora_SumaLasFranjas() {
+        // Arrange
+        for (int i = 0; i < 20; i++) {
+            crearOrden(hoy.atTime(10, i), 10.0);
+        }
+        crearOrden(hoy.atTime(11, 5), 7.0);
+
+        // Act
+        List<IngresoPeriodoDTO> horas = ingresosService.consultar(hoy, hoy, "hora");
+
+        // Assert
+        assertEquals(2, horas.size());
+        assertEquals(hoy.atTime(10, 0), horas.get(0).getInicio());
+        assertEquals(200.0, horas.get(0).getMonto());
+        assertEquals(20L, horas.get(0).getOrdenes());
+        assertEquals(7.0, horas.get(1).getMonto());
+    }
+
+    @Test
+    void plegar_GeneraDiasYMeses() {
+        // Arrange
+        LocalDate ayer = hoy.minusDays(1);
+        crearOrden(hoy.atTime(9, 0), 10.0);
+        crearOrden(hoy.atTime(18, 30), 20.0);
+        crearOrden(ayer.atTime(12, 0), 5.0);
+
+        // Act
+        ingresosService.plegar();
+        List<IngresoPeriodoDTO> dias = ingresosService.consultar(ayer, hoy, "dia");
+        List<IngresoPeriodoDTO> meses = ingresosService.consultar(ayer, hoy, "mes");
+
+        // Assert
+        assertEquals(2, dias.size());
+        assertEquals(5.0, dias.get(0).getMonto());
+        assertEquals(30.0, dias.get(1).getMonto());
+        assertEquals(2L, dias.get(1).getOrdenes());
+        assertEquals(35.0, meses.stream().mapToDouble(IngresoPeriodoDTO::getMonto).sum());
+        assertEquals(hoy.withDayOfMonth(1).atStartOfDay(), meses.get(meses.size() - 1).getInicio());
+    }
+
+    @Test
+    void plegar_Repetido_NoDuplicaIngresos() {
+        // Arrange
+        crearOrden(hoy.atTime(9, 0), 10.0);
+
+        // Act
+        ingresosService.plegar();
+        ingresosService.plegar();
+
+        // Assert
+        List<IngresoPeriodoDTO> dias = ingresosService.consultar(hoy, hoy, "dia");
+        assertEquals(1, dias.size());
+        assertEquals(10.0, dias.get(0).getMonto());
+    }
+
+    @Test
+    void reconstruir_CoincideConLoAcumulado() {
+        // Arrange
+        crearOrden(hoy.atTime(9, 0), 10.0);
+        crearOrden(hoy.atTime(9, 45), 15.0);
+        crearOrden(hoy.minusMonths(2).atTime(8, 0), 40.0);
+        List<IngresoPeriodoDTO> acumulado = ingresosService.consultar(hoy.minusMonths(2), hoy, "hora");
+
+        // Act
+        int horas = ingresosService.reconstruir();
+        List<IngresoPeriodoDTO> reconstruido = ingresosService.consultar(hoy.minusMonths(2), hoy, "hora");
+        List<IngresoPeriodoDTO> meses = ingresosService.consultar(hoy.minusMonths(2), hoy, "mes");
+
+        // Assert
+        assertEquals(2, horas);
+        assertEquals(acumulado.size(), reconstruido.size());
+        for (int i = 0; i < acumulado.size(); i++) {
+            assertEquals(acumulado.get(i).getInicio(), reconstruido.get(i).getInicio());
+            assertEquals(acumulado.get(i).getMonto(), reconstruido.get(i).getMonto());
+        }
+        assertEquals(2, meses.size());
+        assertEquals(40.0, meses.get(0).getMonto());
+        // La reconstrucción deja cada periodo en una sola franja
+        assertTrue(ingresoPeriodoRepository.findAll().stream()
+            .filter(p -> IngresoPeriodo.HORA.equals(p.getGranularidad()))
+            .allMatch(p -> p.getFranja() == 0));
+    }
+
+    @Test
+    void consultar_GranularidadInvalida_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ingresosService.consultar(hoy, hoy, "semana"));
+    }
+
+    @Test
+    void consultar_RangoDemasiadoAmplio_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> ingresosService.consultar(hoy.minusYears(1), hoy, "hora"));
+    }
+}
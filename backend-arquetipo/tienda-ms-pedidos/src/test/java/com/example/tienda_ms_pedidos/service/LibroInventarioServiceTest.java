@@ -0,0 +1,204 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
+import com.example.tienda_ms_pedidos.exception.StockException;
+import com.example.tienda_ms_pedidos.model.MovimientoStock;
+import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.repository.MovimientoStockRepository;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stock llevado como libro de movimientos: PRODUCTO.STOCK queda como base y
+ * el stock vigente sale de la proyección, que debe coincidir con la
+ * reconstruida desde snapshots y movimientos.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:librodb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "pedidos.stock.libro.habilitado=true",
+        "pedidos.stock.libro.snapshot-retraso-ms=0"
+    })
+@ActiveProfiles("test")
+class LibroInventarioServiceTest {
+
+    @Autowired
+    private LibroInventarioService libroInventarioService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private MovimientoStockRepository movimientoStockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long productoA;
+    private Long productoB;
+
+    @BeforeEach
+    void setUp() {
+        productoA = createProducto("A", 10).getId();
+        productoB = createProducto("B", 5).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM SNAPSHOTS_STOCK");
+        movimientoStockRepository.deleteAll();
+        productoRepository.deleteAll();
+        libroInventarioService.reconstruir();
+    }
+
+    private Producto createProducto(String nombre, double stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setDescripcion("Producto " + nombre);
+        producto.setPrecio(10.0);
+        producto.setStock(stock);
+        producto.setImagen("imagen.jpg");
+        return productoRepository.save(producto);
+    }
+
+    private double stockEnTabla(Long id) {
+        return productoRepository.findById(id).orElseThrow().getStock();
+    }
+
+    @Test
+    void reservarStock_InsertaMovimientosSinTocarLaFila() {
+        // Act
+        List<Producto> productos = productoService.reservarStock(List.of(
+            new ItemStockDTO(productoA, 3), new ItemStockDTO(productoB, 5)));
+
+        // Assert
+        assertEquals(7.0, libroInventarioService.getStock(productoA));
+        assertEquals(0.0, libroInventarioService.getStock(productoB));
+        assertEquals(10.0, stockEnTabla(productoA));
+        assertTrue(productos.stream().anyMatch(p -> p.getId().equals(productoA) && p.getStock() == 7.0));
+        List<MovimientoStock> movimientos = movimientoStockRepository.findByIdProductoOrderByIdAsc(productoA);
+        assertEquals(1, movimientos.size());
+        assertEquals(-3.0, movimientos.get(0).getCantidad());
+        assertEquals(MovimientoStock.RESERVA, movimientos.get(0).getMotivo());
+    }
+
+    @Test
+    void reservarStock_StockInsuficiente_NoRegistraNada() {
+        // Act & Assert
+        StockException exception = assertThrows(StockException.class, () -> productoService.reservarStock(List.of(
+            new ItemStockDTO(productoA, 3), new ItemStockDTO(productoB, 6))));
+        assertEquals(List.of(productoB), exception.getProductos());
+        assertEquals(10.0, libroInventarioService.getStock(productoA));
+        assertEquals(0, movimientoStockRepository.count());
+    }
+
+    @Test
+    void actualizarStock_DescuentaDesdeLaProyeccion() {
+        // Act
+        Producto producto = productoService.actualizarStock(productoA, 4);
+
+        // Assert
+        assertEquals(6.0, producto.getStock());
+        assertThrows(StockException.class, () -> productoService.actualizarStock(productoA, 7));
+        assertEquals(6.0, libroInventarioService.getStock(productoA));
+    }
+
+    @Test
+    void rollback_RevierteLaProyeccion() {
+        // Arrange
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> transaccion.executeWithoutResult(status -> {
+            productoService.reservarStock(List.of(new ItemStockDTO(productoA, 2)));
+            throw new IllegalStateException("falla posterior");
+        }));
+
+        // Assert
+        assertEquals(10.0, libroInventarioService.getStock(productoA));
+        assertEquals(0, movimientoStockRepository.count());
+    }
+
+    @Test
+    void reconstruir_DesdeSnapshotYCola_CoincideConLaProyeccion() {
+        // Arrange: movimientos antes y después de dos snapshots
+        productoService.reservarStock(List.of(new ItemStockDTO(productoA, 2), new ItemStockDTO(productoB, 1)));
+        assertEquals(2, libroInventarioService.tomarSnapshot(System.currentTimeMillis() + 1000));
+        productoService.devolverStock(Map.of(productoA, 1));
+        assertEquals(1, libroInventarioService.tomarSnapshot(System.currentTimeMillis() + 1000));
+        productoService.reservarStock(List.of(new ItemStockDTO(productoB, 3)));
+        double stockA = libroInventarioService.getStock(productoA);
+        double stockB = libroInventarioService.getStock(productoB);
+
+        // Act
+        libroInventarioService.reconstruir();
+
+        // Assert
+        assertEquals(9.0, stockA);
+        assertEquals(1.0, stockB);
+        assertEquals(stockA, libroInventarioService.getStock(productoA));
+        assertEquals(stockB, libroInventarioService.getStock(productoB));
+        // Un único snapshot vigente por producto
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SNAPSHOTS_STOCK", Integer.class));
+        assertEquals(0, libroInventarioService.tomarSnapshot(System.currentTimeMillis() - 60_000));
+    }
+
+    @Test
+    void tomarSnapshot_SumaLosMovimientosAProductoStock() {
+        // Arrange
+        productoService.reservarStock(List.of(new ItemStockDTO(productoA, 3)));
+
+        // Act
+        libroInventarioService.tomarSnapshot(System.currentTimeMillis() + 1000);
+
+        // Assert
+        assertEquals(7.0, stockEnTabla(productoA));
+        assertEquals(5.0, stockEnTabla(productoB));
+        assertEquals(7.0, libroInventarioService.getStock(productoA));
+    }
+
+    @Test
+    void reposicionExterna_SeAplicaEnElSnapshotSiguiente() {
+        // Arrange: tienda-ms-productos repone con un UPDATE relativo, antes y después de un snapshot
+        productoService.reservarStock(List.of(new ItemStockDTO(productoA, 2)));
+        jdbcTemplate.update("UPDATE PRODUCTO SET STOCK = STOCK + 5 WHERE ID_PRODUCTO = ?", productoA);
+        libroInventarioService.tomarSnapshot(System.currentTimeMillis() + 1000);
+        double trasPrimerSnapshot = libroInventarioService.getStock(productoA);
+        jdbcTemplate.update("UPDATE PRODUCTO SET STOCK = STOCK + 4 WHERE ID_PRODUCTO = ?", productoA);
+        productoService.reservarStock(List.of(new ItemStockDTO(productoA, 1)));
+
+        // Act
+        libroInventarioService.tomarSnapshot(System.currentTimeMillis() + 1000);
+        double proyectado = libroInventarioService.getStock(productoA);
+        libroInventarioService.reconstruir();
+
+        // Assert
+        assertEquals(13.0, trasPrimerSnapshot);
+        assertEquals(16.0, proyectado);
+        assertEquals(16.0, stockEnTabla(productoA));
+        assertEquals(16.0, libroInventarioService.getStock(productoA));
+        assertEquals(5.0, libroInventarioService.getStock(productoB));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.tienda_ms_pedidos.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapaLargoLargoTest {
+
+    @Test
+    void putYGet_Success() {
+        // Arrange
+        MapaLargoLargo mapa = new MapaLargoLargo();
+
+        // Act
+        mapa.put(5L, 50L);
+        mapa.put(5L, 55L);
+        mapa.put(-3L, 30L);
+
+        // Assert
+        assertEquals(55L, mapa.get(5L));
+        assertEquals(30L, mapa.get(-3L));
+        assertEquals(0L, mapa.get(7L));
+        assertEquals(2, mapa.tamano());
+    }
+
+    @Test
+    void sumar_HastaCero_EliminaLaEntrada() {
+        // Arrange
+        MapaLargoLargo mapa = new MapaLargoLargo();
+        mapa.sumar(1L, 2L);
+
+        // Act
+        long valor = mapa.sumar(1L, -2L);
+
+        // Assert
+        assertEquals(0L, valor);
+        assertFalse(mapa.contiene(1L));
+        assertEquals(0, mapa.tamano());
+    }
+
+    @Test
+    void claveCero_ThrowsException() {
+        MapaLargoLargo mapa = new MapaLargoLargo();
+        assertThrows(IllegalArgumentException.class, () -> mapa.put(0L, 1L));
+        assertFalse(mapa.contiene(0L));
+    }
+
+    @Test
+    void operacionesAleatorias_CoincidenConHashMap() {
+        // Arrange: pocas claves posibles para forzar colisiones, crecimiento y borrados
+        MapaLargoLargo mapa = new MapaLargoLargo();
+        Map<Long, Long> esperado = new HashMap<>();
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 200_000; i++) {
+            long clave = 1 + random.nextInt(5000);
+            long delta = random.nextInt(5) - 2;
+            mapa.sumar(clave, delta);
+            esperado.merge(clave, delta, Long::sum);
+            esperado.remove(clave, 0L);
+            if (random.nextInt(10) == 0) {
+                mapa.eliminar(clave);
+                esperado.remove(clave);
+            }
+        }
+
+        // Assert
+        assertEquals(esperado.size(), mapa.tamano());
+        esperado.forEach((clave, valor) -> assertEquals(valor, mapa.get(clave), "Clave " + clave));
+        Map<Long, Long> recorrido = new HashMap<>();
+        mapa.recorrer(recorrido::put);
+        assertEquals(esperado, recorrido);
+    }
+}
@@ -1,18 +1,36 @@
 package com.example.tienda_ms_pedidos.service;
 
+import com.example.tienda_ms_pedidos.DTO.EventoOrdenDTO;
+import com.example.tienda_ms_pedidos.DTO.PaginaDTO;
+import com.example.tienda_ms_pedidos.DTO.ResultadoTransicionDTO;
+import com.example.tienda_ms_pedidos.DTO.ResumenOrdenDTO;
+import com.example.tienda_ms_pedidos.exception.StockException;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
 import com.example.tienda_ms_pedidos.model.Orden;
 import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.example.tienda_ms_pedidos.util.CursorUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -23,6 +41,33 @@ class OrdenServiceImplTest {
     @Mock
     private OrdenRepository ordenRepository;
 
+    @Mock
+    private ProductoService productoService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private EventosOrdenService eventosOrdenService;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private VentasProductoService ventasProductoService;
+
+    @Mock
+    private IngresosService ingresosService;
+
+    @Mock
+    private IndiceCoCompraService indiceCoCompraService;
+
+    @Mock
+    private HistorialClienteService historialClienteService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private OrdenServiceImpl ordenService;
 
@@ -54,8 +99,174 @@ class OrdenServiceImplTest {
         assertEquals(ordenOriginal.getMontoTotal(), result.getMontoTotal());
         assertEquals(ordenOriginal.getFecha(), result.getFecha());
         assertEquals(ordenOriginal.getEstado(), result.getEstado());
+        verify(outboxService).ordenCreada(ordenOriginal);
+        verify(ingresosService).registrarOrdenes(List.of(ordenOriginal));
+        verify(transactionManager).commit(any());
+        verify(historialClienteService).invalidarAlConfirmar("test@example.com");
     }
     
+    private Orden createOrdenConDetalles() {
+        Orden orden = new Orden();
+        orden.setEmail("test@example.com");
+        orden.setMontoTotal(300.0);
+        orden.setFecha(new Date());
+        orden.setEstado(1);
+        orden.setDetalles(new ArrayList<>());
+
+        DetalleOrden detalle1 = new DetalleOrden();
+        detalle1.setIdProducto(1L);
+        detalle1.setPrecio(100.0);
+        detalle1.setCantidad(1);
+        detalle1.setMontoTotal(100.0);
+        orden.addDetalle(detalle1);
+
+        DetalleOrden detalle2 = new DetalleOrden();
+        detalle2.setIdProducto(2L);
+        detalle2.setPrecio(100.0);
+        detalle2.setCantidad(2);
+        detalle2.setMontoTotal(200.0);
+        orden.addDetalle(detalle2);
+        return orden;
+    }
+
+    @Test
+    void saveOrden_ConIngesta_DelegaEnLaCola() {
+        // Arrange
+        IngestaOrdenesService ingesta = mock(IngestaOrdenesService.class);
+        ordenService.setIngestaOrdenesService(ingesta);
+        Orden guardada = new Orden();
+        guardada.setId(5L);
+        when(ingesta.guardar(any(Orden.class))).thenReturn(guardada);
+
+        // Act
+        Orden result = ordenService.saveOrden(new Orden());
+
+        // Assert
+        assertEquals(5L, result.getId());
+        verify(ordenRepository, never()).save(any());
+        // El evento del outbox lo registra el escritor de ingesta en su propio commit
+        verify(outboxService, never()).ordenCreada(any());
+    }
+
+    @Test
+    void checkout_Success() {
+        // Arrange
+        Orden orden = createOrdenConDetalles();
+        when(ordenRepository.save(any(Orden.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Orden result = ordenService.checkout(orden);
+
+        // Assert
+        ArgumentCaptor<Orden> captor = ArgumentCaptor.forClass(Orden.class);
+        verify(ordenRepository).save(captor.capture());
+        Orden guardada = captor.getValue();
+        assertSame(guardada, result);
+        assertEquals(2, guardada.getDetalles().size());
+        assertTrue(guardada.getDetalles().stream().allMatch(d -> d.getOrden() == guardada));
+        assertEquals(orden.getEmail(), guardada.getEmail());
+        verify(productoService).actualizarStock(1L, 1);
+        verify(productoService).actualizarStock(2L, 2);
+        verify(outboxService).ordenCreada(guardada);
+        verify(ventasProductoService).registrarVenta(guardada.getFecha(), guardada.getDetalles());
+        verify(ingresosService).registrarOrdenes(List.of(guardada));
+        verify(indiceCoCompraService).registrarOrdenAlConfirmar(guardada);
+        verify(historialClienteService).invalidarAlConfirmar(orden.getEmail());
+    }
+
+    @Test
+    void checkout_DescuentaStockPorIdAscendenteYConservaLasLineas() {
+        // Arrange
+        Orden orden = createOrdenConDetalles();
+        DetalleOrden repetido = new DetalleOrden();
+        repetido.setIdProducto(1L);
+        repetido.setPrecio(100.0);
+        repetido.setCantidad(3);
+        repetido.setMontoTotal(300.0);
+        orden.getDetalles().add(0, orden.getDetalles().remove(1));
+        orden.addDetalle(repetido);
+        when(ordenRepository.save(any(Orden.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Orden result = ordenService.checkout(orden);
+
+        // Assert
+        InOrder enOrden = inOrder(productoService);
+        enOrden.verify(productoService).actualizarStock(1L, 4);
+        enOrden.verify(productoService).actualizarStock(2L, 2);
+        verifyNoMoreInteractions(productoService);
+        assertEquals(List.of(2L, 1L, 1L),
+            result.getDetalles().stream().map(DetalleOrden::getIdProducto).toList());
+    }
+
+    @Test
+    void checkout_StockInsuficiente_NoGuardaOrden() {
+        // Arrange
+        Orden orden = createOrdenConDetalles();
+        when(productoService.actualizarStock(2L, 2)).thenThrow(new StockException("Stock insuficiente"));
+
+        // Act & Assert
+        assertThrows(StockException.class, () -> ordenService.checkout(orden));
+        verify(ordenRepository, never()).save(any(Orden.class));
+    }
+
+    @Test
+    void checkout_ProductoIdNulo_ThrowsException() {
+        // Arrange
+        Orden orden = createOrdenConDetalles();
+        orden.getDetalles().get(0).setIdProducto(null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.checkout(orden));
+        verify(productoService, never()).actualizarStock(any(), anyInt());
+        verify(ordenRepository, never()).save(any(Orden.class));
+    }
+
+    @Test
+    void checkout_CantidadNegativa_NoTocaStock() {
+        // Arrange
+        Orden orden = createOrdenConDetalles();
+        orden.getDetalles().get(1).setCantidad(-3);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.checkout(orden));
+        verify(productoService, never()).actualizarStock(any(), anyInt());
+        verify(ordenRepository, never()).save(any(Orden.class));
+    }
+
+    @Test
+    void checkout_CantidadNula_ThrowsException() {
+        // Arrange
+        Orden orden = createOrdenConDetalles();
+        orden.getDetalles().get(0).setCantidad(null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.checkout(orden));
+        verify(productoService, never()).actualizarStock(any(), anyInt());
+    }
+
+    @Test
+    void checkout_PrecioNulo_ThrowsException() {
+        // Arrange
+        Orden orden = createOrdenConDetalles();
+        orden.getDetalles().get(1).setPrecio(null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.checkout(orden));
+        verify(productoService, never()).actualizarStock(any(), anyInt());
+    }
+
+    @Test
+    void checkout_MontoTotalNulo_ThrowsException() {
+        // Arrange
+        Orden orden = createOrdenConDetalles();
+        orden.setMontoTotal(null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.checkout(orden));
+        verify(productoService, never()).actualizarStock(any(), anyInt());
+    }
+
     @Test
     void findById_WhenExists() {
         // Arrange
@@ -129,17 +340,391 @@ class OrdenServiceImplTest {
         verify(ordenRepository).findByEstado(estado);
     }
 
+    private Orden ordenConId(Long id) {
+        Orden orden = new Orden();
+        orden.setId(id);
+        return orden;
+    }
+
+    @Test
+    void findPagina_ConPaginaSiguiente_DevuelveCursor() {
+        // Arrange
+        when(ordenRepository.findIdsDespuesDe(0L, Limit.of(3))).thenReturn(Arrays.asList(1L, 2L, 3L));
+        when(ordenRepository.findByIdInOrderByIdAsc(List.of(1L, 2L)))
+            .thenReturn(Arrays.asList(ordenConId(1L), ordenConId(2L)));
+
+        // Act
+        PaginaDTO<Orden> pagina = ordenService.findPagina(null, 2);
+
+        // Assert
+        assertEquals(2, pagina.getItems().size());
+        assertEquals(2L, CursorUtil.decodificar(pagina.getNext()));
+    }
+
+    @Test
+    void findPagina_UltimaPagina_SinCursor() {
+        // Arrange
+        String cursor = CursorUtil.codificar(2L);
+        when(ordenRepository.findIdsDespuesDe(2L, Limit.of(3))).thenReturn(List.of(3L));
+        when(ordenRepository.findByIdInOrderByIdAsc(List.of(3L))).thenReturn(List.of(ordenConId(3L)));
+
+        // Act
+        PaginaDTO<Orden> pagina = ordenService.findPagina(cursor, 2);
+
+        // Assert
+        assertEquals(1, pagina.getItems().size());
+        assertNull(pagina.getNext());
+    }
+
+    @Test
+    void findPagina_SinResultados_NoCargaOrdenes() {
+        // Arrange
+        when(ordenRepository.findIdsDespuesDe(0L, Limit.of(3))).thenReturn(List.of());
+
+        // Act
+        PaginaDTO<Orden> pagina = ordenService.findPagina(null, 2);
+
+        // Assert
+        assertTrue(pagina.getItems().isEmpty());
+        assertNull(pagina.getNext());
+        verify(ordenRepository, never()).findByIdInOrderByIdAsc(any());
+    }
+
+    @Test
+    void findPagina_CursorInvalido_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.findPagina("no-es-un-cursor", 2));
+        verifyNoInteractions(ordenRepository);
+    }
+
+    @Test
+    void findPaginaResumen_ConPaginaSiguiente_NoCargaOrdenes() {
+        // Arrange
+        when(ordenRepository.findResumenesDespuesDe(0L, Limit.of(3))).thenReturn(Arrays.asList(
+            new ResumenOrdenDTO(1L, "a@test.com", new Date(), 1, 10.0),
+            new ResumenOrdenDTO(2L, "b@test.com", new Date(), 2, 20.0),
+            new ResumenOrdenDTO(3L, "c@test.com", new Date(), 1, 30.0)));
+
+        // Act
+        PaginaDTO<ResumenOrdenDTO> pagina = ordenService.findPaginaResumen(null, null, 2);
+
+        // Assert
+        assertEquals(2, pagina.getItems().size());
+        assertEquals("b@test.com", pagina.getItems().get(1).getEmail());
+        assertEquals(2L, CursorUtil.decodificar(pagina.getNext()));
+        verify(ordenRepository, never()).findByIdInOrderByIdAsc(any());
+    }
+
+    @Test
+    void findPaginaResumen_FiltraPorEstado_UltimaPagina() {
+        // Arrange
+        String cursor = CursorUtil.codificar(4L);
+        when(ordenRepository.findResumenesPorEstadoDespuesDe(1, 4L, Limit.of(3)))
+            .thenReturn(List.of(new ResumenOrdenDTO(5L, "a@test.com", new Date(), 1, 10.0)));
+
+        // Act
+        PaginaDTO<ResumenOrdenDTO> pagina = ordenService.findPaginaResumen(1, cursor, 2);
+
+        // Assert
+        assertEquals(1, pagina.getItems().size());
+        assertNull(pagina.getNext());
+        verify(ordenRepository, never()).findResumenesDespuesDe(any(), any());
+    }
+
+    @Test
+    void findPaginaResumen_CursorInvalido_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.findPaginaResumen(null, "no-es-un-cursor", 2));
+        verifyNoInteractions(ordenRepository);
+    }
+
+    @Test
+    void findPaginaByEstado_FiltraPorEstado() {
+        // Arrange
+        when(ordenRepository.findIdsPorEstadoDespuesDe(1, 0L, Limit.of(3))).thenReturn(List.of(5L));
+        when(ordenRepository.findByIdInOrderByIdAsc(List.of(5L))).thenReturn(List.of(ordenConId(5L)));
+
+        // Act
+        PaginaDTO<Orden> pagina = ordenService.findPaginaByEstado(1, null, 2);
+
+        // Assert
+        assertEquals(1, pagina.getItems().size());
+        assertNull(pagina.getNext());
+    }
+
+    @Test
+    void findPaginaByFecha_OrdenaPorFechaYDevuelveCursor() {
+        // Arrange
+        Date desde = new Date(1_000_000L);
+        Date hasta = new Date(2_000_000L);
+        Orden antigua = ordenConId(7L);
+        antigua.setFecha(new Date(1_100_000L));
+        Orden reciente = ordenConId(3L);
+        reciente.setFecha(new Date(1_200_000L));
+        when(ordenRepository.findIdsPorFechaDespuesDe(desde, 0L, hasta, Limit.of(3))).thenReturn(List.of(7L, 3L, 9L));
+        when(ordenRepository.findByIdInOrderByIdAsc(List.of(7L, 3L))).thenReturn(List.of(reciente, antigua));
+
+        // Act
+        PaginaDTO<Orden> pagina = ordenService.findPaginaByFecha(desde, hasta, null, null, 2);
+
+        // Assert
+        assertEquals(List.of(antigua, reciente), pagina.getItems());
+        CursorUtil.PosicionFecha posicion = CursorUtil.decodificarFecha(pagina.getNext());
+        assertEquals(reciente.getFecha(), posicion.fecha());
+        assertEquals(3L, posicion.id());
+    }
+
+    @Test
+    void findPaginaByFecha_ConCursorYEstado_ContinuaDesdeLaPosicion() {
+        // Arrange
+        Date desde = new Date(1_000_000L);
+        Date hasta = new Date(2_000_000L);
+        Date ultima = new Date(1_500_000L);
+        when(ordenRepository.findIdsPorEstadoYFechaDespuesDe(2, ultima, 4L, hasta, Limit.of(3))).thenReturn(List.of(8L));
+        when(ordenRepository.findByIdInOrderByIdAsc(List.of(8L))).thenReturn(List.of(ordenConId(8L)));
+
+        // Act
+        PaginaDTO<Orden> pagina = ordenService.findPaginaByFecha(desde, hasta, 2, CursorUtil.codificar(ultima, 4L), 2);
+
+        // Assert
+        assertEquals(1, pagina.getItems().size());
+        assertNull(pagina.getNext());
+    }
+
+    @Test
+    void findPaginaByFecha_RangoInvalido_ThrowsException() {
+        // Act & Assert
+        Date fecha = new Date();
+        assertThrows(IllegalArgumentException.class, () -> ordenService.findPaginaByFecha(fecha, fecha, null, null, 10));
+        assertThrows(IllegalArgumentException.class,
+            () -> ordenService.findPaginaByFecha(new Date(0), fecha, null, CursorUtil.codificar(5L), 10));
+        verifyNoInteractions(ordenRepository);
+    }
+
+    @Test
+    void exportarRango_UsaElRangoExacto() throws Exception {
+        // Arrange
+        Date desde = new Date(1_000_000L);
+        Date hasta = new Date(1_900_000L);
+        when(ordenRepository.streamParaExportar(desde, hasta, null)).thenReturn(Stream.<Object[]>of(
+            new Object[] {1L, "a@test.com", 1, desde, 10.0, null, null, null, null, null}));
+
+        // Act
+        long total = ordenService.exportarRango(desde, hasta, null, new ByteArrayOutputStream());
+
+        // Assert
+        assertEquals(1, total);
+    }
+
+    @Test
+    void exportar_EscribeUnaOrdenPorLinea() throws Exception {
+        // Arrange
+        Stream<Object[]> filas = Stream.of(
+            new Object[] {1L, "a@test.com", 1, null, 30.0, 10L, 100L, 10.0, 1, 10.0},
+            new Object[] {1L, "a@test.com", 1, null, 30.0, 11L, 101L, 20.0, 1, 20.0},
+            new Object[] {2L, "b@test.com", 2, null, 0.0, null, null, null, null, null});
+        when(ordenRepository.streamParaExportar(null, null, null)).thenReturn(filas);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        // Act
+        long total = ordenService.exportar(null, null, null, salida);
+
+        // Assert
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, total);
+        assertEquals(2, lineas.length);
+        JsonNode primera = objectMapper.readTree(lineas[0]);
+        assertEquals(1L, primera.get("id").asLong());
+        assertEquals(2, primera.get("detalles").size());
+        assertEquals(101L, primera.get("detalles").get(1).get("idProducto").asLong());
+        JsonNode segunda = objectMapper.readTree(lineas[1]);
+        assertEquals("b@test.com", segunda.get("email").asText());
+        assertEquals(0, segunda.get("detalles").size());
+    }
+
+    @Test
+    void exportar_HastaIncluyeElDiaCompleto() throws Exception {
+        // Arrange
+        LocalDate dia = LocalDate.of(2024, 5, 10);
+        when(ordenRepository.streamParaExportar(any(), any(), any())).thenReturn(Stream.empty());
+        ArgumentCaptor<Date> desde = ArgumentCaptor.forClass(Date.class);
+        ArgumentCaptor<Date> hasta = ArgumentCaptor.forClass(Date.class);
+
+        // Act
+        long total = ordenService.exportar(dia, dia, 3, new ByteArrayOutputStream());
+
+        // Assert
+        assertEquals(0, total);
+        verify(ordenRepository).streamParaExportar(desde.capture(), hasta.capture(), eq(3));
+        assertEquals(24L * 60 * 60 * 1000, hasta.getValue().getTime() - desde.getValue().getTime());
+    }
+
+    @Test
+    void avanzarEstado_SeparaActualizadasYOmitidas() {
+        // Arrange
+        when(ordenRepository.bloquearIdsEnEstado(List.of(1L, 2L, 3L), 2)).thenReturn(List.<Number>of(1L, 3L));
+
+        // Act
+        ResultadoTransicionDTO resultado = ordenService.avanzarEstado(Arrays.asList(1L, 2L, 3L, 1L), 2);
+
+        // Assert
+        assertEquals(List.of(1L, 3L), resultado.getActualizadas());
+        assertEquals(List.of(2L), resultado.getOmitidas());
+        verify(ordenRepository).avanzarEstado(List.of(1L, 3L), 2);
+        verify(outboxService).estadosActualizados(List.of(1L, 3L), 3);
+    }
+
+    @Test
+    void avanzarEstado_NingunaEnEstado_NoActualiza() {
+        // Arrange
+        when(ordenRepository.bloquearIdsEnEstado(List.of(1L), 1)).thenReturn(List.of());
+
+        // Act
+        ResultadoTransicionDTO resultado = ordenService.avanzarEstado(List.of(1L), 1);
+
+        // Assert
+        assertTrue(resultado.getActualizadas().isEmpty());
+        assertEquals(List.of(1L), resultado.getOmitidas());
+        verify(ordenRepository, never()).avanzarEstado(any(), anyInt());
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void avanzarEstado_MuchosIds_UsaLotesDe1000() {
+        // Arrange
+        List<Long> ids = new ArrayList<>();
+        for (long i = 1; i <= 1500; i++) {
+            ids.add(i);
+        }
+        when(ordenRepository.bloquearIdsEnEstado(any(), eq(2))).thenAnswer(inv -> new ArrayList<Number>(inv.getArgument(0)));
+
+        // Act
+        ResultadoTransicionDTO resultado = ordenService.avanzarEstado(ids, 2);
+
+        // Assert
+        assertEquals(1500, resultado.getActualizadas().size());
+        verify(ordenRepository, times(2)).bloquearIdsEnEstado(any(), eq(2));
+        verify(ordenRepository, times(2)).avanzarEstado(any(), eq(2));
+    }
+
+    @Test
+    void avanzarEstado_EstadoFinal_ThrowsException() {
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+            () -> ordenService.avanzarEstado(List.of(1L), 4));
+        assertEquals("Estado sin transición válida", exception.getMessage());
+        verifyNoInteractions(ordenRepository);
+    }
+
+    @Test
+    void avanzarEstado_SinIds_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.avanzarEstado(List.of(), 1));
+        verifyNoInteractions(ordenRepository);
+    }
+
+    @Test
+    void updateEstado_ConSuscriptores_PublicaEvento() {
+        // Arrange
+        when(ordenRepository.updateEstado(1L, 3)).thenReturn(1);
+        when(eventosOrdenService.haySuscriptores()).thenReturn(true);
+        when(ordenRepository.findEmailById(1L)).thenReturn(Optional.of("test@example.com"));
+        ArgumentCaptor<EventoOrdenDTO> evento = ArgumentCaptor.forClass(EventoOrdenDTO.class);
+
+        // Act
+        ordenService.updateEstado(1L, 3);
+
+        // Assert
+        verify(eventosOrdenService).publicarAlConfirmar(evento.capture());
+        assertEquals(EventoOrdenDTO.ESTADO, evento.getValue().getTipo());
+        assertEquals("test@example.com", evento.getValue().getEmail());
+        assertEquals(3, evento.getValue().getEstado());
+    }
+
+    @Test
+    void updateEstado_OrdenInexistente_NoPublica() {
+        // Arrange
+        when(ordenRepository.updateEstado(1L, 3)).thenReturn(0);
+        when(eventosOrdenService.haySuscriptores()).thenReturn(true);
+
+        // Act
+        ordenService.updateEstado(1L, 3);
+
+        // Assert
+        verify(eventosOrdenService, never()).publicarAlConfirmar(any());
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void updateEstado_TransicionNoPermitida_LanzaExcepcion() {
+        // Arrange
+        when(ordenRepository.updateEstado(1L, 3)).thenReturn(0);
+        when(ordenRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> ordenService.updateEstado(1L, 3));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void updateEstado_EstadoInvalido_LanzaExcepcion() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ordenService.updateEstado(1L, 5));
+        verifyNoInteractions(ordenRepository);
+    }
+
     @Test
     void updateEstado_Success() {
         // Arrange
         Long id = 1L;
         int estado = 2;
-        doNothing().when(ordenRepository).updateEstado(id, estado);
+        when(ordenRepository.updateEstado(id, estado)).thenReturn(1);
 
         // Act
         ordenService.updateEstado(id, estado);
 
         // Assert
         verify(ordenRepository).updateEstado(id, estado);
+        verify(outboxService).estadosActualizados(List.of(id), estado);
+    }
+
+    @Test
+    void updateEstado_InvalidaHistorialDelCliente() {
+        // Arrange
+        when(ordenRepository.updateEstado(1L, 2)).thenReturn(1);
+        when(ordenRepository.findEmailById(1L)).thenReturn(Optional.of("test@example.com"));
+
+        // Act
+        ordenService.updateEstado(1L, 2);
+
+        // Assert
+        verify(historialClienteService).invalidarAlConfirmar("test@example.com");
+        verify(eventosOrdenService, never()).publicarAlConfirmar(any());
+    }
+
+    @Test
+    void avanzarEstado_InvalidaHistorialDeCadaCliente() {
+        // Arrange
+        when(ordenRepository.bloquearIdsEnEstado(List.of(1L, 2L, 3L), 1)).thenReturn(List.of(1L, 2L, 3L));
+        when(ordenRepository.findEmailsByIdIn(List.of(1L, 2L, 3L))).thenReturn(List.of(
+            new Object[]{1L, "a@test.com"}, new Object[]{2L, "b@test.com"}, new Object[]{3L, "a@test.com"}));
+
+        // Act
+        ordenService.avanzarEstado(List.of(1L, 2L, 3L), 1);
+
+        // Assert
+        verify(historialClienteService).invalidarAlConfirmar("a@test.com");
+        verify(historialClienteService).invalidarAlConfirmar("b@test.com");
+        verify(eventosOrdenService, never()).publicarAlConfirmar(any());
+    }
+
+    @Test
+    void findPaginaByEmail_DelegaEnHistorial() {
+        // Arrange
+        PaginaDTO<ResumenOrdenDTO> pagina = new PaginaDTO<>(List.of(), null);
+        when(historialClienteService.pagina("test@example.com", null, 20)).thenReturn(pagina);
+
+        // Act & Assert
+        assertSame(pagina, ordenService.findPaginaByEmail("test@example.com", null, 20));
     }
 }
@@ -0,0 +1,99 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.exception.StockException;
+import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estrés: muchas compras concurrentes del mismo producto sobre H2,
+ * sin transacción de prueba envolvente para que cada descuento haga commit.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = "spring.datasource.url=jdbc:h2:mem:stockdb;DB_CLOSE_DELAY=-1;MODE=MySQL")
+@ActiveProfiles("test")
+class ProductoServiceImplConcurrencyTest {
+
+    private static final int HILOS = 64;
+    private static final int COMPRAS_POR_HILO = 20;
+    private static final double STOCK_INICIAL = 1000.0;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @AfterEach
+    void tearDown() {
+        productoRepository.deleteAll();
+    }
+
+    private Producto createProducto(double stock) {
+        Producto producto = new Producto();
+        producto.setNombre("Producto concurrente");
+        producto.setDescripcion("Producto para prueba de estrés");
+        producto.setPrecio(100.0);
+        producto.setStock(stock);
+        producto.setImagen("imagen.jpg");
+        return productoRepository.save(producto);
+    }
+
+    @Test
+    void actualizarStock_Concurrente_SinActualizacionesPerdidas() throws Exception {
+        // Arrange
+        Long id = createProducto(STOCK_INICIAL).getId();
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        AtomicInteger exitosas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (int i = 0; i < HILOS; i++) {
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                for (int j = 0; j < COMPRAS_POR_HILO; j++) {
+                    try {
+                        productoService.actualizarStock(id, 1);
+                        exitosas.incrementAndGet();
+                    } catch (StockException e) {
+                        rechazadas.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        int intentos = HILOS * COMPRAS_POR_HILO;
+        Producto producto = productoRepository.findById(id).orElseThrow();
+        assertEquals((int) STOCK_INICIAL, exitosas.get());
+        assertEquals(intentos - (int) STOCK_INICIAL, rechazadas.get());
+        assertEquals(0.0, producto.getStock());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.tienda_ms_pedidos.service;
 
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
 import com.example.tienda_ms_pedidos.exception.StockException;
 import com.example.tienda_ms_pedidos.model.Categoria;
 import com.example.tienda_ms_pedidos.model.Producto;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.CannotAcquireLockException;
 
 import java.util.*;
 
@@ -34,48 +36,208 @@ class ProductoServiceImplTest {
         Long id = 1L;
         Producto producto = new Producto();
         producto.setId(id);
-        producto.setStock(10.0);
+        producto.setStock(5.0);
         
+        when(productoRepository.descontarStock(id, 5)).thenReturn(1);
         when(productoRepository.findById(id)).thenReturn(Optional.of(producto));
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
 
         // Act
         Producto result = productoService.actualizarStock(id, 5);
 
         // Assert
         assertEquals(5, result.getStock());
-        verify(productoRepository).findById(id);
-        verify(productoRepository).save(producto);
+        verify(productoRepository).descontarStock(id, 5);
+        verify(productoRepository, never()).save(any(Producto.class));
     }
 
     @Test
     void actualizarStock_ProductoNoEncontrado() {
         // Arrange
         Long id = 1L;
-        when(productoRepository.findById(id)).thenReturn(Optional.empty());
+        when(productoRepository.descontarStock(id, 5)).thenReturn(0);
+        when(productoRepository.existsById(id)).thenReturn(false);
 
         // Act & Assert
-        assertThrows(StockException.class, () -> {
+        StockException exception = assertThrows(StockException.class, () -> {
             productoService.actualizarStock(id, 5);
         });
-        verify(productoRepository).findById(id);
+        assertEquals("Producto no encontrado", exception.getMessage());
+        verify(productoRepository).descontarStock(id, 5);
     }
 
     @Test
     void actualizarStock_StockInsuficiente() {
+        // Arrange
+        Long id = 1L;
+        when(productoRepository.descontarStock(id, 5)).thenReturn(0);
+        when(productoRepository.existsById(id)).thenReturn(true);
+
+        // Act & Assert
+        StockException exception = assertThrows(StockException.class, () -> {
+            productoService.actualizarStock(id, 5);
+        });
+        assertEquals("Stock insuficiente", exception.getMessage());
+        verify(productoRepository, never()).findById(id);
+    }
+
+    @Test
+    void actualizarStock_ReintentaAnteBloqueo() {
         // Arrange
         Long id = 1L;
         Producto producto = new Producto();
         producto.setId(id);
-        producto.setStock(3.0);
-        
+        when(productoRepository.descontarStock(id, 1))
+            .thenThrow(new CannotAcquireLockException("lock timeout"))
+            .thenReturn(1);
         when(productoRepository.findById(id)).thenReturn(Optional.of(producto));
 
+        // Act
+        Producto result = productoService.actualizarStock(id, 1);
+
+        // Assert
+        assertSame(producto, result);
+        verify(productoRepository, times(2)).descontarStock(id, 1);
+    }
+
+    @Test
+    void actualizarStock_AgotaReintentos() {
+        // Arrange
+        Long id = 1L;
+        when(productoRepository.descontarStock(id, 1))
+            .thenThrow(new CannotAcquireLockException("lock timeout"));
+
         // Act & Assert
-        assertThrows(StockException.class, () -> {
-            productoService.actualizarStock(id, 5);
-        });
-        verify(productoRepository).findById(id);
+        assertThrows(CannotAcquireLockException.class, () -> productoService.actualizarStock(id, 1));
+        verify(productoRepository, times(ProductoServiceImpl.MAX_REINTENTOS)).descontarStock(id, 1);
+    }
+
+    @Test
+    void reservarStock_Success() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2), new ItemStockDTO(2L, 1), new ItemStockDTO(1L, 3));
+        Map<Long, Integer> esperado = new LinkedHashMap<>();
+        esperado.put(1L, 5);
+        esperado.put(2L, 1);
+        List<Producto> productos = Arrays.asList(new Producto(), new Producto());
+
+        when(productoRepository.descontarStockEnLote(esperado)).thenReturn(Collections.emptyList());
+        when(productoRepository.findAllById(esperado.keySet())).thenReturn(productos);
+
+        // Act
+        List<Producto> result = productoService.reservarStock(items);
+
+        // Assert
+        assertEquals(2, result.size());
+        verify(productoRepository).descontarStockEnLote(esperado);
+    }
+
+    @Test
+    void reservarStock_StockInsuficiente_ReportaTodosLosProductos() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2), new ItemStockDTO(2L, 1), new ItemStockDTO(3L, 1));
+        when(productoRepository.descontarStockEnLote(anyMap())).thenReturn(List.of(1L, 3L));
+
+        // Act & Assert
+        StockException exception = assertThrows(StockException.class, () -> productoService.reservarStock(items));
+        assertEquals(List.of(1L, 3L), exception.getProductos());
+        verify(productoRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void reservarStock_ListaVacia_ThrowsException() {
+        // Act & Assert
+        assertThrows(StockException.class, () -> productoService.reservarStock(Collections.emptyList()));
+        verify(productoRepository, never()).descontarStockEnLote(anyMap());
+    }
+
+    @Test
+    void reservarStock_CantidadInvalida_ThrowsException() {
+        // Arrange
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 0));
+
+        // Act & Assert
+        assertThrows(StockException.class, () -> productoService.reservarStock(items));
+        verify(productoRepository, never()).descontarStockEnLote(anyMap());
+    }
+
+    @Test
+    void devolverStock_UnSoloLote() {
+        // Arrange
+        Map<Long, Integer> cantidades = Map.of(1L, 2, 2L, 3);
+
+        // Act
+        productoService.devolverStock(cantidades);
+
+        // Assert
+        verify(productoRepository).devolverStockEnLote(cantidades);
+    }
+
+    @Test
+    void devolverStock_SinCantidades_NoActualiza() {
+        // Act
+        productoService.devolverStock(Collections.emptyMap());
+
+        // Assert
+        verify(productoRepository, never()).devolverStockEnLote(anyMap());
+    }
+
+    @Test
+    void actualizarStock_ConIndiceBajoStock_RegistraElDescuento() {
+        // Arrange
+        IndiceBajoStockService indice = mock(IndiceBajoStockService.class);
+        productoService.setIndiceBajoStockService(indice);
+        Producto producto = new Producto();
+        producto.setId(1L);
+        when(productoRepository.descontarStock(1L, 2)).thenReturn(1);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
+
+        // Act
+        productoService.actualizarStock(1L, 2);
+
+        // Assert
+        verify(indice).descontarAlConfirmar(Map.of(1L, 2));
+    }
+
+    @Test
+    void actualizarStock_StockInsuficiente_NoActualizaIndiceBajoStock() {
+        // Arrange
+        IndiceBajoStockService indice = mock(IndiceBajoStockService.class);
+        productoService.setIndiceBajoStockService(indice);
+        when(productoRepository.descontarStock(1L, 2)).thenReturn(0);
+        when(productoRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(StockException.class, () -> productoService.actualizarStock(1L, 2));
+        verifyNoInteractions(indice);
+    }
+
+    @Test
+    void devolverStock_ConIndiceBajoStock_RegistraLaDevolucion() {
+        // Arrange
+        IndiceBajoStockService indice = mock(IndiceBajoStockService.class);
+        productoService.setIndiceBajoStockService(indice);
+        Map<Long, Integer> cantidades = Map.of(1L, 2);
+
+        // Act
+        productoService.devolverStock(cantidades);
+
+        // Assert
+        verify(productoRepository).devolverStockEnLote(cantidades);
+        verify(indice).devolverAlConfirmar(cantidades);
+    }
+
+    @Test
+    void reservarStock_ConLibroDeInventario_NoActualizaLaFila() {
+        // Arrange
+        LibroInventarioService libro = mock(LibroInventarioService.class);
+        productoService.setLibroInventarioService(libro);
+        List<ItemStockDTO> items = List.of(new ItemStockDTO(1L, 2));
+        when(libro.descontar(Map.of(1L, 2), "RESERVA")).thenReturn(List.of(1L));
+
+        // Act & Assert
+        StockException exception = assertThrows(StockException.class, () -> productoService.reservarStock(items));
+        assertEquals(List.of(1L), exception.getProductos());
+        verify(productoRepository, never()).descontarStockEnLote(anyMap());
     }
 
     @Test
@@ -0,0 +1,202 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.EventoOutbox;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.repository.EventoOutboxRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox sobre H2 sin transacción de prueba envolvente: cada evento se
+ * confirma con su cambio y varios relays compiten por reclamar los lotes.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxdb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "pedidos.outbox.relay.habilitado=true",
+        // Los relays se crean a mano en cada prueba; el programado no llega a ejecutarse
+        "pedidos.outbox.relay.intervalo-ms=3600000"
+    })
+@ActiveProfiles("test")
+class RelayOutboxServiceTest {
+
+    private static final int EVENTOS = 500;
+    private static final int RELAYS = 4;
+
+    @Autowired
+    private OrdenService ordenService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        eventoOutboxRepository.deleteAll();
+        ordenRepository.deleteAll();
+    }
+
+    private RelayOutboxService crearRelay(SumideroEventos sumidero) {
+        return new RelayOutboxService(eventoOutboxRepository, sumidero, transactionManager, 25, 10, 60000, 72);
+    }
+
+    private void registrarEventos(int cantidad) {
+        List<Long> ids = LongStream.rangeClosed(1, cantidad).boxed().toList();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            outboxService.estadosActualizados(ids, 2));
+    }
+
+    @Test
+    void saveOrdenYUpdateEstado_RegistranEventosEnElOutbox() {
+        // Arrange
+        Orden orden = new Orden();
+        orden.setEmail("outbox@test.com");
+        orden.setEstado(1);
+        orden.setFecha(new Date());
+        orden.setMontoTotal(100.0);
+
+        // Act
+        Orden guardada = ordenService.saveOrden(orden);
+        ordenService.updateEstado(guardada.getId(), 2);
+
+        // Assert
+        List<EventoOutbox> eventos = eventoOutboxRepository.findAll();
+        assertEquals(2, eventos.size());
+        assertTrue(eventos.stream().allMatch(e -> guardada.getId().equals(e.getIdAgregado())));
+        assertTrue(eventos.stream().anyMatch(e -> EventoOutbox.ORDEN_CREADA.equals(e.getTipo())
+            && e.getPayload().contains("outbox@test.com")));
+        assertTrue(eventos.stream().anyMatch(e -> EventoOutbox.ESTADO_ACTUALIZADO.equals(e.getTipo())));
+    }
+
+    @Test
+    void updateEstado_OrdenInexistente_NoRegistraEvento() {
+        // Act
+        ordenService.updateEstado(999999L, 2);
+
+        // Assert
+        assertEquals(0, eventoOutboxRepository.count());
+    }
+
+    @Test
+    void estadosActualizados_RelayDeshabilitado_NoRegistraEventos() {
+        // Arrange
+        OutboxService sinRelay = new OutboxService(eventoOutboxRepository, objectMapper, false);
+
+        // Act
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            sinRelay.estadosActualizados(List.of(1L, 2L), 2));
+
+        // Assert
+        assertEquals(0, eventoOutboxRepository.count());
+    }
+
+    @Test
+    void publicarLote_RelaysEnParalelo_SinDuplicados() throws Exception {
+        // Arrange
+        registrarEventos(EVENTOS);
+        Map<Long, AtomicInteger> publicados = new ConcurrentHashMap<>();
+        SumideroEventos sumidero = eventos -> eventos.forEach(e ->
+            publicados.computeIfAbsent(e.getId(), k -> new AtomicInteger()).incrementAndGet());
+        ExecutorService executor = Executors.newFixedThreadPool(RELAYS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < RELAYS; i++) {
+            RelayOutboxService relay = crearRelay(sumidero);
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                long limite = System.currentTimeMillis() + 30000;
+                // Un lote vacío no basta para terminar: otra instancia puede tener filas bloqueadas
+                while (eventoOutboxRepository.countByPublicadoIsNull() > 0 && System.currentTimeMillis() < limite) {
+                    relay.publicarLote();
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(EVENTOS, publicados.size());
+        assertTrue(publicados.values().stream().allMatch(c -> c.get() == 1), "Hubo eventos publicados más de una vez");
+        assertEquals(0, eventoOutboxRepository.countByPublicadoIsNull());
+    }
+
+    @Test
+    void publicarLote_SumideroFalla_LiberaEventosParaReintentar() {
+        // Arrange
+        registrarEventos(3);
+        RelayOutboxService fallido = crearRelay(eventos -> {
+            throw new IllegalStateException("Destino caído");
+        });
+        List<Long> publicados = new ArrayList<>();
+        RelayOutboxService sano = crearRelay(eventos -> eventos.forEach(e -> publicados.add(e.getId())));
+
+        // Act
+        int primerIntento = fallido.publicarLote();
+        int segundoIntento = sano.publicarLote();
+
+        // Assert
+        assertEquals(0, primerIntento);
+        assertEquals(3, segundoIntento);
+        assertEquals(3, publicados.size());
+        assertTrue(eventoOutboxRepository.findAll().stream()
+            .allMatch(e -> e.getIntentos() == 1 && e.getPublicado() != null));
+    }
+
+    @Test
+    void purgarPublicados_EliminaSoloPublicadosFueraDeRetencion() {
+        // Arrange
+        registrarEventos(2);
+        RelayOutboxService relay = new RelayOutboxService(eventoOutboxRepository,
+            eventos -> { }, transactionManager, 1, 1, 60000, 0);
+        relay.publicarLote();
+
+        // Act
+        relay.purgarPublicados();
+
+        // Assert
+        assertEquals(1, eventoOutboxRepository.count());
+        assertEquals(1, eventoOutboxRepository.countByPublicadoIsNull());
+    }
+}
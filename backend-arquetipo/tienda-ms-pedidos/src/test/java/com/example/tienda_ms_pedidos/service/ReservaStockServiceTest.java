@@ -0,0 +1,220 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
+import com.example.tienda_ms_pedidos.DTO.ReservaStockDTO;
+import com.example.tienda_ms_pedidos.exception.StockException;
+import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.model.ReservaStock;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import com.example.tienda_ms_pedidos.repository.ReservaStockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reservas contra H2. Cada prueba usa su propia instancia del servicio (y su
+ * propia rueda) y fuerza el vencimiento avanzándola con una hora futura en
+ * lugar de esperar el tick programado.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:reservasdb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "pedidos.reservas.cargar-al-iniciar=false"
+    })
+@ActiveProfiles("test")
+class ReservaStockServiceTest {
+
+    private static final long TTL_SEGUNDOS = 60;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ReservaStockRepository reservaStockRepository;
+
+    private ReservaStockService reservaStockService;
+    private Long productoA;
+    private Long productoB;
+
+    @BeforeEach
+    void setUp() {
+        reservaStockService = new ReservaStockService(reservaStockRepository, productoService, transactionManager,
+            100, 3600, 5000, 60000, false);
+        productoA = createProducto("A", 10).getId();
+        productoB = createProducto("B", 5).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservaStockRepository.deleteAll();
+        productoRepository.deleteAll();
+    }
+
+    private Producto createProducto(String nombre, double stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setDescripcion("Producto " + nombre);
+        producto.setPrecio(10.0);
+        producto.setStock(stock);
+        producto.setImagen("imagen.jpg");
+        return productoRepository.save(producto);
+    }
+
+    private double stock(Long id) {
+        return productoRepository.findById(id).orElseThrow().getStock();
+    }
+
+    private long despuesDelVencimiento(ReservaStockDTO reserva) {
+        return reserva.getVence().getTime() + 1000;
+    }
+
+    @Test
+    void reservar_DescuentaStockYGuardaLasLineasAgrupadas() {
+        // Act
+        ReservaStockDTO reserva = reservaStockService.reservar(List.of(
+            new ItemStockDTO(productoA, 2), new ItemStockDTO(productoB, 1), new ItemStockDTO(productoA, 1)),
+            TTL_SEGUNDOS);
+
+        // Assert
+        assertEquals(7.0, stock(productoA));
+        assertEquals(4.0, stock(productoB));
+        assertEquals(2, reserva.getItems().size());
+        List<ReservaStock> lineas = reservaStockRepository.findByIdReserva(reserva.getId());
+        assertEquals(2, lineas.size());
+        assertEquals(1, reservaStockService.getPendientes());
+    }
+
+    @Test
+    void reservar_StockInsuficiente_NoDejaReserva() {
+        // Act & Assert
+        assertThrows(StockException.class, () -> reservaStockService.reservar(List.of(
+            new ItemStockDTO(productoA, 2), new ItemStockDTO(productoB, 6)), TTL_SEGUNDOS));
+        assertEquals(10.0, stock(productoA));
+        assertEquals(0, reservaStockRepository.count());
+        assertEquals(0, reservaStockService.getPendientes());
+    }
+
+    @Test
+    void reservar_TtlFueraDeRango_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+            () -> reservaStockService.reservar(List.of(new ItemStockDTO(productoA, 1)), 0));
+    }
+
+    @Test
+    void procesarVencidas_DevuelveElStockDeTodasEnUnLote() {
+        // Arrange
+        ReservaStockDTO primera = reservaStockService.reservar(List.of(new ItemStockDTO(productoA, 3)), TTL_SEGUNDOS);
+        reservaStockService.reservar(List.of(new ItemStockDTO(productoA, 2), new ItemStockDTO(productoB, 5)), TTL_SEGUNDOS);
+        assertEquals(5.0, stock(productoA));
+        assertEquals(0.0, stock(productoB));
+
+        // Act & Assert: antes de la hora no vence nada
+        assertEquals(0, reservaStockService.procesarVencidas(primera.getVence().getTime() - 5000));
+        assertEquals(2, reservaStockService.procesarVencidas(despuesDelVencimiento(primera) + 1000));
+        assertEquals(10.0, stock(productoA));
+        assertEquals(5.0, stock(productoB));
+        assertEquals(0, reservaStockRepository.count());
+        assertEquals(0, reservaStockService.getPendientes());
+    }
+
+    @Test
+    void confirmar_ElStockQuedaDescontadoYYaNoVence() {
+        // Arrange
+        ReservaStockDTO reserva = reservaStockService.reservar(List.of(new ItemStockDTO(productoA, 4)), TTL_SEGUNDOS);
+
+        // Act
+        assertTrue(reservaStockService.confirmar(reserva.getId()));
+        reservaStockService.procesarVencidas(despuesDelVencimiento(reserva));
+
+        // Assert
+        assertEquals(6.0, stock(productoA));
+        assertFalse(reservaStockService.confirmar(reserva.getId()));
+        assertFalse(reservaStockService.liberar(reserva.getId()));
+    }
+
+    @Test
+    void liberar_DevuelveElStockUnaSolaVez() {
+        // Arrange
+        ReservaStockDTO reserva = reservaStockService.reservar(List.of(new ItemStockDTO(productoB, 2)), TTL_SEGUNDOS);
+
+        // Act
+        assertTrue(reservaStockService.liberar(reserva.getId()));
+        assertFalse(reservaStockService.liberar(reserva.getId()));
+        reservaStockService.procesarVencidas(despuesDelVencimiento(reserva));
+
+        // Assert
+        assertEquals(5.0, stock(productoB));
+        assertEquals(0, reservaStockService.getPendientes());
+    }
+
+    @Test
+    void procesarVencidas_ReservaYaEliminadaPorOtraInstancia_NoDevuelveStock() {
+        // Arrange: otra instancia confirmó la reserva directamente en la tabla
+        ReservaStockDTO reserva = reservaStockService.reservar(List.of(new ItemStockDTO(productoA, 1)), TTL_SEGUNDOS);
+        reservaStockRepository.eliminarReserva(reserva.getId());
+
+        // Act
+        int liberadas = reservaStockService.procesarVencidas(despuesDelVencimiento(reserva));
+
+        // Assert
+        assertEquals(0, liberadas);
+        assertEquals(9.0, stock(productoA));
+    }
+
+    @Test
+    void cargar_ProgramaLasReservasGuardadasQueNoConoce() {
+        // Arrange: reserva creada por otra instancia (solo existe en la tabla)
+        productoRepository.descontarStock(productoA, 2);
+        Date vence = new Date(System.currentTimeMillis() + TTL_SEGUNDOS * 1000);
+        reservaStockRepository.insertar("otra-instancia", Map.of(productoA, 2), vence);
+        ReservaStockDTO propia = reservaStockService.reservar(List.of(new ItemStockDTO(productoB, 1)), TTL_SEGUNDOS);
+
+        // Act
+        int cargadas = reservaStockService.cargar();
+        int liberadas = reservaStockService.procesarVencidas(despuesDelVencimiento(propia) + 1000);
+
+        // Assert
+        assertEquals(1, cargadas);
+        assertEquals(2, liberadas);
+        assertEquals(10.0, stock(productoA));
+        assertEquals(5.0, stock(productoB));
+    }
+
+    @Test
+    void barrerVencidas_ProgramaSoloLasVencidasHaceMasDelBarrido() {
+        // Arrange: reservas de una instancia caída, una vencida hace rato y otra recién vencida
+        long ahora = System.currentTimeMillis();
+        productoRepository.descontarStock(productoA, 3);
+        reservaStockRepository.insertar("abandonada", Map.of(productoA, 2), new Date(ahora - 120000));
+        reservaStockRepository.insertar("reciente", Map.of(productoA, 1), new Date(ahora - 1000));
+
+        // Act
+        int tomadas = reservaStockService.barrerVencidas(ahora);
+        int liberadas = reservaStockService.procesarVencidas(ahora);
+
+        // Assert
+        assertEquals(1, tomadas);
+        assertEquals(1, liberadas);
+        assertEquals(9.0, stock(productoA));
+        assertEquals(1, reservaStockRepository.findByIdReserva("reciente").size());
+    }
+}
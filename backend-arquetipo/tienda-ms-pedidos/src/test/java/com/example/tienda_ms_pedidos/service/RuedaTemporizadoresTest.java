@@ -0,0 +1,137 @@
+package com.example.tienda_ms_pedidos.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuedaTemporizadoresTest {
+
+    private static final long TICK_MS = 10;
+    private static final long INICIO = 1_000_000;
+
+    @Test
+    void avanzar_VenceEnSuTickYNoAntes() {
+        // Arrange
+        RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(TICK_MS, INICIO);
+        rueda.programar("a", INICIO + 95);
+        List<String> vencidos = new ArrayList<>();
+
+        // Act & Assert
+        rueda.avanzar(INICIO + 94, vencidos::add);
+        assertTrue(vencidos.isEmpty());
+        rueda.avanzar(INICIO + 100, vencidos::add);
+        assertEquals(List.of("a"), vencidos);
+        assertEquals(0, rueda.getTamano());
+    }
+
+    @Test
+    void programar_HoraPasada_VenceEnElProximoTick() {
+        // Arrange
+        RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(TICK_MS, INICIO);
+        rueda.avanzar(INICIO + 500, v -> { });
+        List<String> vencidos = new ArrayList<>();
+
+        // Act
+        rueda.programar("atrasado", INICIO);
+        rueda.avanzar(INICIO + 510, vencidos::add);
+
+        // Assert
+        assertEquals(List.of("atrasado"), vencidos);
+    }
+
+    @Test
+    void cancelar_NoVenceYNoSePuedeCancelarDosVeces() {
+        // Arrange
+        RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(TICK_MS, INICIO);
+        RuedaTemporizadores.Temporizador<String> temporizador = rueda.programar("a", INICIO + 100_000);
+        rueda.programar("b", INICIO + 100_000);
+        List<String> vencidos = new ArrayList<>();
+
+        // Act
+        assertTrue(rueda.cancelar(temporizador));
+        assertFalse(rueda.cancelar(temporizador));
+        rueda.avanzar(INICIO + 100_000, vencidos::add);
+
+        // Assert
+        assertEquals(List.of("b"), vencidos);
+        assertFalse(temporizador.isPendiente());
+    }
+
+    @Test
+    void avanzar_MuchosTemporizadoresEnVariosNiveles_CadaUnoVenceUnaVezEnSuTick() {
+        // Arrange: horas repartidas entre el primer nivel y el último
+        RuedaTemporizadores<Integer> rueda = new RuedaTemporizadores<>(TICK_MS, INICIO);
+        Random random = new Random(42);
+        Map<Integer, Long> horas = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long hora = INICIO + (long) Math.pow(10, 1 + random.nextDouble() * 7);
+            horas.put(i, hora);
+            rueda.programar(i, hora);
+        }
+        Map<Integer, Long> vencidoEn = new HashMap<>();
+
+        // Act: avanzar en saltos irregulares
+        long ahora = INICIO;
+        while (rueda.getTamano() > 0) {
+            ahora += 1 + random.nextInt(5_000);
+            long momento = ahora;
+            rueda.avanzar(momento, valor -> assertNull(vencidoEn.put(valor, momento)));
+        }
+
+        // Assert
+        assertEquals(horas.size(), vencidoEn.size());
+        horas.forEach((valor, hora) -> {
+            long momento = vencidoEn.get(valor);
+            assertTrue(momento >= hora, "venció antes de tiempo: " + valor);
+            // El avance anterior al que lo entregó estaba antes de su tick
+            assertTrue(momento - hora < 5_000 + TICK_MS, "venció tarde: " + valor);
+        });
+    }
+
+    @Test
+    void avanzar_HoraFueraDeAlcance_SeReubicaYVenceASuHora() {
+        // Arrange: más allá de 64^4 ticks
+        RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(1, 0);
+        long lejos = 20_000_000L;
+        rueda.programar("lejano", lejos);
+        List<String> vencidos = new ArrayList<>();
+
+        // Act
+        rueda.avanzar(lejos - 1, vencidos::add);
+        assertTrue(vencidos.isEmpty());
+        rueda.avanzar(lejos, vencidos::add);
+
+        // Assert
+        assertEquals(List.of("lejano"), vencidos);
+    }
+
+    @Test
+    void avanzar_ProgramarDesdeElConsumidor_VenceEnUnTickPosterior() {
+        // Arrange
+        RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(TICK_MS, INICIO);
+        rueda.programar("primero", INICIO + 10);
+        List<String> vencidos = new ArrayList<>();
+
+        // Act
+        rueda.avanzar(INICIO + 10, valor -> {
+            vencidos.add(valor);
+            rueda.programar("reintento", INICIO);
+        });
+        assertEquals(List.of("primero"), vencidos);
+        rueda.avanzar(INICIO + 20, vencidos::add);
+
+        // Assert
+        assertEquals(List.of("primero", "reintento"), vencidos);
+    }
+
+    @Test
+    void constructor_TickInvalido_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new RuedaTemporizadores<String>(0, INICIO));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentosOrdenesTest {
+
+    private static final long TAMANO_SEGMENTO = 64 * 1024;
+
+    @TempDir
+    Path directorio;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SegmentosOrdenes abrir() {
+        return new SegmentosOrdenes(directorio, objectMapper, TAMANO_SEGMENTO);
+    }
+
+    private Orden orden(long id) {
+        Orden orden = new Orden();
+        orden.setId(id);
+        orden.setEmail("cliente" + id + "@test.com");
+        orden.setEstado(4);
+        orden.setFecha(new Date(1_600_000_000_000L + id));
+        orden.setMontoTotal(30.0);
+        orden.setDetalles(new ArrayList<>());
+        for (int j = 0; j < 2; j++) {
+            DetalleOrden detalle = new DetalleOrden();
+            detalle.setId(id * 10 + j);
+            detalle.setIdProducto((long) j + 1);
+            detalle.setPrecio(15.0);
+            detalle.setCantidad(1);
+            detalle.setMontoTotal(15.0);
+            orden.addDetalle(detalle);
+        }
+        return orden;
+    }
+
+    private List<Orden> lote(long desde, long hasta) {
+        List<Orden> ordenes = new ArrayList<>();
+        for (long id = desde; id <= hasta; id++) {
+            ordenes.add(orden(id));
+        }
+        return ordenes;
+    }
+
+    private List<Path> archivos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.sorted().toList();
+        }
+    }
+
+    @Test
+    void agregarYBuscar_DevuelveLaOrdenConSusDetalles() {
+        // Arrange
+        SegmentosOrdenes segmentos = abrir();
+        segmentos.agregar(lote(1, 100));
+
+        // Act
+        Optional<Orden> encontrada = segmentos.buscar(42);
+
+        // Assert
+        assertTrue(encontrada.isPresent());
+        assertEquals("cliente42@test.com", encontrada.get().getEmail());
+        assertEquals(new Date(1_600_000_000_042L), encontrada.get().getFecha());
+        assertEquals(2, encontrada.get().getDetalles().size());
+        assertSame(encontrada.get(), encontrada.get().getDetalles().get(0).getOrden());
+        assertTrue(segmentos.buscar(101).isEmpty());
+        assertTrue(segmentos.buscar(0).isEmpty());
+    }
+
+    @Test
+    void agregar_BloquesConRangosSolapados_EncuentraCadaOrden() {
+        // Arrange: un ciclo posterior archiva IDs dentro del rango de un bloque anterior
+        SegmentosOrdenes segmentos = abrir();
+        segmentos.agregar(List.of(orden(10), orden(20), orden(30)));
+        segmentos.agregar(List.of(orden(15), orden(25)));
+        segmentos.agregar(List.of(orden(5)));
+
+        // Act & Assert
+        for (long id : new long[] {5, 10, 15, 20, 25, 30}) {
+            assertEquals(id, segmentos.buscar(id).orElseThrow().getId());
+        }
+        assertTrue(segmentos.buscar(12).isEmpty());
+        assertEquals(3, segmentos.getBloques());
+    }
+
+    @Test
+    void agregar_SuperaElTamano_AbreOtroSegmento() throws IOException {
+        // Arrange
+        long tamano = 4 * 1024;
+        SegmentosOrdenes segmentos = new SegmentosOrdenes(directorio, objectMapper, tamano);
+
+        // Act
+        for (int i = 0; i < 40; i++) {
+            segmentos.agregar(lote(i * 100L + 1, i * 100L + 100));
+        }
+
+        // Assert
+        assertTrue(archivos().size() > 1);
+        assertTrue(archivos().stream().allMatch(p -> p.toFile().length() <= tamano));
+        assertEquals(4000, segmentos.getOrdenes());
+        assertEquals(3999L, segmentos.buscar(3999).orElseThrow().getId());
+        assertEquals(1L, segmentos.buscar(1).orElseThrow().getId());
+    }
+
+    @Test
+    void abrir_ReconstruyeElIndiceDesdeLasCabeceras() {
+        // Arrange
+        SegmentosOrdenes escritura = abrir();
+        escritura.agregar(lote(1, 50));
+        escritura.agregar(lote(51, 100));
+
+        // Act
+        SegmentosOrdenes lectura = abrir();
+
+        // Assert
+        assertEquals(2, lectura.getBloques());
+        assertEquals(100, lectura.getOrdenes());
+        assertEquals(77L, lectura.buscar(77).orElseThrow().getId());
+    }
+
+    @Test
+    void abrir_BloqueIncompletoAlFinal_SeDescartaYSeSigueAgregando() throws IOException {
+        // Arrange: simula una caída a mitad de la escritura de un bloque
+        SegmentosOrdenes escritura = abrir();
+        escritura.agregar(lote(1, 50));
+        Path segmento = archivos().get(0);
+        long largoValido = Files.size(segmento);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.APPEND)) {
+            ByteBuffer incompleto = ByteBuffer.allocate(SegmentosOrdenes.CABECERA + 10);
+            incompleto.putInt(SegmentosOrdenes.MAGIA).putLong(51).putLong(60).putInt(10).putInt(500).flip();
+            canal.write(incompleto);
+        }
+
+        // Act
+        SegmentosOrdenes recuperado = abrir();
+        int bloques = recuperado.getBloques();
+        recuperado.agregar(lote(51, 60));
+
+        // Assert
+        assertEquals(1, bloques);
+        assertTrue(Files.size(segmento) > largoValido);
+        assertEquals(55L, abrir().buscar(55).orElseThrow().getId());
+        assertEquals(10L, abrir().buscar(10).orElseThrow().getId());
+    }
+
+    @Test
+    void buscar_ContenidoCorrupto_ThrowsException() throws IOException {
+        // Arrange
+        SegmentosOrdenes segmentos = abrir();
+        segmentos.agregar(lote(1, 50));
+        Path segmento = archivos().get(0);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[] {0x55, 0x55}), SegmentosOrdenes.CABECERA + 20);
+        }
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> segmentos.buscar(10));
+        assertTrue(exception.getMessage().startsWith("Checksum inválido"));
+    }
+}
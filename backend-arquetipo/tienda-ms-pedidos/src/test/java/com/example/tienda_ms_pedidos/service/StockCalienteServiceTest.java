@@ -0,0 +1,225 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.ItemStockDTO;
+import com.example.tienda_ms_pedidos.exception.StockException;
+import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockcalientedb;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "pedidos.stock-caliente.habilitado=true",
+        "pedidos.stock-caliente.ventana-ms=600000"
+    })
+@ActiveProfiles("test")
+class StockCalienteServiceTest {
+
+    @Autowired
+    private StockCalienteService stockCalienteService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        productoRepository.findAll().forEach(p -> stockCalienteService.degradar(p.getId()));
+        productoRepository.deleteAll();
+    }
+
+    private Long createProducto(double stock) {
+        Producto producto = new Producto();
+        producto.setNombre("Producto en oferta");
+        producto.setDescripcion("Producto con alta demanda");
+        producto.setPrecio(100.0);
+        producto.setStock(stock);
+        producto.setImagen("imagen.jpg");
+        return productoRepository.save(producto).getId();
+    }
+
+    private double stockEnBaseDatos(Long id) {
+        return productoRepository.findById(id).orElseThrow().getStock();
+    }
+
+    @Test
+    void promover_DescuentaEnMemoriaYPersisteEnLote() {
+        // Arrange
+        Long id = createProducto(100.0);
+        assertTrue(stockCalienteService.promover(id));
+
+        // Act
+        Producto producto = productoService.actualizarStock(id, 5);
+
+        // Assert
+        assertEquals(95.0, producto.getStock());
+        assertEquals(100.0, stockEnBaseDatos(id));
+        stockCalienteService.persistirPendientes();
+        assertEquals(95.0, stockEnBaseDatos(id));
+    }
+
+    @Test
+    void promover_SinStockSuficiente_NoPromueve() {
+        // Arrange
+        Long id = createProducto(2.0);
+
+        // Act & Assert
+        assertFalse(stockCalienteService.promover(id));
+        assertFalse(stockCalienteService.isCaliente(id));
+    }
+
+    @Test
+    void actualizarStock_Rollback_DevuelveStockAMemoria() {
+        // Arrange
+        Long id = createProducto(100.0);
+        stockCalienteService.promover(id);
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+
+        // Act
+        transaccion.executeWithoutResult(status -> {
+            productoService.actualizarStock(id, 10);
+            status.setRollbackOnly();
+        });
+        stockCalienteService.degradar(id);
+
+        // Assert
+        assertEquals(100.0, stockEnBaseDatos(id));
+    }
+
+    @Test
+    void reservarStock_DegradaProductoCaliente() {
+        // Arrange
+        Long id = createProducto(100.0);
+        stockCalienteService.promover(id);
+        productoService.actualizarStock(id, 4);
+
+        // Act
+        productoService.reservarStock(List.of(new ItemStockDTO(id, 6)));
+
+        // Assert
+        assertFalse(stockCalienteService.isCaliente(id));
+        assertEquals(90.0, stockEnBaseDatos(id));
+    }
+
+    @Test
+    void actualizarStock_Concurrente_ConProductoCaliente_SinVentasDeMas() throws Exception {
+        // Arrange
+        Long id = createProducto(1000.0);
+        assertTrue(stockCalienteService.promover(id));
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch inicio = new CountDownLatch(1);
+        AtomicInteger exitosas = new AtomicInteger();
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (int i = 0; i < 64; i++) {
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                for (int j = 0; j < 20; j++) {
+                    try {
+                        productoService.actualizarStock(id, 1);
+                        exitosas.incrementAndGet();
+                    } catch (StockException e) {
+                        // Sin stock: esperado al final de la prueba
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        stockCalienteService.degradar(id);
+
+        // Assert
+        assertEquals(1000, exitosas.get());
+        assertEquals(0.0, stockEnBaseDatos(id));
+    }
+
+    @Test
+    void degradar_FallaLaBaseDeDatos_ReintentaElDeltaEnElFlush() {
+        // Arrange
+        ProductoRepository repositorio = mock(ProductoRepository.class);
+        Producto producto = new Producto();
+        producto.setId(1L);
+        producto.setStock(100.0);
+        when(repositorio.bloquearPorId(1L)).thenReturn(Optional.of(producto));
+        DataAccessResourceFailureException caida = new DataAccessResourceFailureException("Base de datos no disponible");
+        when(repositorio.descontarStock(1L, 5.0)).thenThrow(caida, caida).thenReturn(1);
+        StockCalienteService servicio = new StockCalienteService(repositorio, transactionManager, 2, 50, 5);
+        assertTrue(servicio.promover(1L));
+        servicio.descontar(1L, 5, () -> fail("No debe ir a la base de datos"));
+
+        // Act
+        servicio.degradar(1L);
+
+        // Assert
+        assertEquals(5, servicio.getNoPersistido(1L));
+        assertThrows(DataAccessResourceFailureException.class,
+            () -> servicio.ejecutarEnBaseDatos(List.of(1L), () -> fail("Stock de la base de datos desfasado")));
+        servicio.persistirPendientes();
+        assertEquals(0, servicio.getNoPersistido(1L));
+        verify(repositorio, times(3)).descontarStock(1L, 5.0);
+    }
+
+    @Test
+    void rollbackTrasElCierre_FallaLaBaseDeDatos_NoPierdeLaDevolucion() {
+        // Arrange
+        ProductoRepository repositorio = mock(ProductoRepository.class);
+        Producto producto = new Producto();
+        producto.setId(1L);
+        producto.setStock(100.0);
+        when(repositorio.bloquearPorId(1L)).thenReturn(Optional.of(producto));
+        when(repositorio.descontarStock(1L, 10.0)).thenReturn(1);
+        when(repositorio.devolverStock(1L, 10.0))
+            .thenThrow(new DataAccessResourceFailureException("Base de datos no disponible"))
+            .thenReturn(1);
+        StockCalienteService servicio = new StockCalienteService(repositorio, transactionManager, 2, 50, 5);
+        servicio.promover(1L);
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+
+        // Act: el producto se degrada antes del rollback de la compra
+        transaccion.executeWithoutResult(status -> {
+            servicio.descontar(1L, 10, () -> fail("No debe ir a la base de datos"));
+            servicio.degradar(1L);
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(-10, servicio.getNoPersistido(1L));
+        servicio.persistirPendientes();
+        assertEquals(0, servicio.getNoPersistido(1L));
+        verify(repositorio, times(2)).devolverStock(1L, 10.0);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.tienda_ms_pedidos.service;
+
+import com.example.tienda_ms_pedidos.DTO.RankingProductoDTO;
+import com.example.tienda_ms_pedidos.model.DetalleOrden;
+import com.example.tienda_ms_pedidos.model.Orden;
+import com.example.tienda_ms_pedidos.model.Producto;
+import com.example.tienda_ms_pedidos.repository.EventoOutboxRepository;
+import com.example.tienda_ms_pedidos.repository.OrdenRepository;
+import com.example.tienda_ms_pedidos.repository.ProductoRepository;
+import com.example.tienda_ms_pedidos.repository.VentaProductoDiaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ventas por producto y día mantenidas en la misma transacción que los
+ * detalles, comparadas con una reconstrucción completa desde DETALLE_ORDENES.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(
+    locations = "classpath:application-test.properties",
+    properties = "spring.datasource.url=jdbc:h2:mem:ventasdb;DB_CLOSE_DELAY=-1;MODE=MySQL")
+@ActiveProfiles("test")
+class VentasProductoServiceTest {
+
+    @Autowired
+    private VentasProductoService ventasProductoService;
+
+    @Autowired
+    private OrdenService ordenService;
+
+    @Autowired
+    private DetalleOrdenService detalleOrdenService;
+
+    @Autowired
+    private OrdenRepository ordenRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private VentaProductoDiaRepository ventaProductoDiaRepository;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productoA;
+    private Long productoB;
+    private final LocalDate hoy = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        productoA = createProducto("A").getId();
+        productoB = createProducto("B").getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ventaProductoDiaRepository.deleteAll();
+        eventoOutboxRepository.deleteAll();
+        ordenRepository.deleteAll();
+        productoRepository.deleteAll();
+    }
+
+    private Producto createProducto(String nombre) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setDescripcion("Producto " + nombre);
+        producto.setPrecio(10.0);
+        producto.setStock(1000.0);
+        producto.setImagen("imagen.jpg");
+        return productoRepository.save(producto);
+    }
+
+    private Orden checkout(LocalDate dia, Long idProducto, int cantidad) {
+        Orden orden = new Orden();
+        orden.setEmail("ranking@test.com");
+        orden.setEstado(1);
+        orden.setFecha(Date.from(dia.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant()));
+        orden.setMontoTotal(cantidad * 10.0);
+        orden.setDetalles(new ArrayList<>());
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setIdProducto(idProducto);
+        detalle.setPrecio(10.0);
+        detalle.setCantidad(cantidad);
+        detalle.setMontoTotal(cantidad * 10.0);
+        orden.addDetalle(detalle);
+        return ordenService.checkout(orden);
+    }
+
+    @Test
+    void ranking_OrdenaPorUnidadesDelRango() {
+        // Arrange
+        checkout(hoy, productoA, 2);
+        checkout(hoy, productoB, 3);
+        checkout(hoy.minusDays(1), productoA, 4);
+        // Fuera del rango consultado
+        checkout(hoy.minusDays(30), productoB, 100);
+
+        // Act
+        List<RankingProductoDTO> ranking = ventasProductoService.ranking(hoy.minusDays(6), hoy, 10);
+
+        // Assert
+        assertEquals(2, ranking.size());
+        assertEquals(productoA, ranking.get(0).getIdProducto());
+        assertEquals(6L, ranking.get(0).getUnidades());
+        assertEquals(60.0, ranking.get(0).getMonto());
+        assertEquals(productoB, ranking.get(1).getIdProducto());
+        assertEquals(3L, ranking.get(1).getUnidades());
+    }
+
+    @Test
+    void ranking_RespetaElLimite() {
+        // Arrange
+        checkout(hoy, productoA, 1);
+        checkout(hoy, productoB, 2);
+
+        // Act
+        List<RankingProductoDTO> ranking = ventasProductoService.ranking(hoy, hoy, 1);
+
+        // Assert
+        assertEquals(1, ranking.size());
+        assertEquals(productoB, ranking.get(0).getIdProducto());
+    }
+
+    @Test
+    void saveYDeleteDetalle_ActualizanElDiaDeLaOrden() {
+        // Arrange
+        Orden orden = checkout(hoy.minusDays(2), productoA, 1);
+        Orden referencia = new Orden();
+        referencia.setId(orden.getId());
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setOrden(referencia);
+        detalle.setIdProducto(productoB);
+        detalle.setPrecio(10.0);
+        detalle.setCantidad(5);
+        detalle.setMontoTotal(50.0);
+
+        // Act
+        DetalleOrden guardado = detalleOrdenService.saveDetalleOrden(detalle);
+        List<RankingProductoDTO> conDetalle = ventasProductoService.ranking(hoy.minusDays(2), hoy.minusDays(2), 10);
+        detalleOrdenService.deleteById(guardado.getId());
+        List<RankingProductoDTO> sinDetalle = ventasProductoService.ranking(hoy.minusDays(2), hoy.minusDays(2), 10);
+
+        // Assert
+        assertEquals(productoB, conDetalle.get(0).getIdProducto());
+        assertEquals(5L, conDetalle.get(0).getUnidades());
+        assertEquals(1, sinDetalle.size());
+        assertEquals(productoA, sinDetalle.get(0).getIdProducto());
+    }
+
+    @Test
+    void reconstruir_CoincideConLosAgregadosIncrementales() {
+        // Arrange
+        checkout(hoy, productoA, 2);
+        checkout(hoy, productoA, 3);
+        checkout(hoy.minusDays(3), productoB, 1);
+        List<RankingProductoDTO> incremental = ventasProductoService.ranking(hoy.minusDays(6), hoy, 10);
+
+        // Act
+        int filas = ventasProductoService.reconstruir();
+        List<RankingProductoDTO> reconstruido = ventasProductoService.ranking(hoy.minusDays(6), hoy, 10);
+
+        // Assert
+        assertEquals(2, filas);
+        assertEquals(incremental.size(), reconstruido.size());
+        for (int i = 0; i < incremental.size(); i++) {
+            assertEquals(incremental.get(i).getIdProducto(), reconstruido.get(i).getIdProducto());
+            assertEquals(incremental.get(i).getUnidades(), reconstruido.get(i).getUnidades());
+            assertEquals(incremental.get(i).getMonto(), reconstruido.get(i).getMonto());
+        }
+    }
+
+    @Test
+    void reconstruir_CalculaElDiaConLaZonaIndicada() {
+        // Arrange: a las 23:30 UTC ya es el día siguiente en UTC+14
+        Orden orden = checkout(hoy, productoA, 1);
+        jdbcTemplate.update("UPDATE ORDENES SET FECHA = ? WHERE ID_ORDEN = ?",
+            Timestamp.from(hoy.atTime(23, 30).atZone(ZoneId.of("UTC")).toInstant()), orden.getId());
+
+        // Act
+        ventaProductoDiaRepository.reconstruir(ZoneId.of("Pacific/Kiritimati"), null);
+
+        // Assert
+        List<RankingProductoDTO> siguiente = ventasProductoService.ranking(hoy.plusDays(1), hoy.plusDays(1), 10);
+        assertEquals(1, siguiente.size());
+        assertEquals(productoA, siguiente.get(0).getIdProducto());
+        assertTrue(ventasProductoService.ranking(hoy, hoy, 10).isEmpty());
+    }
+
+    @Test
+    void ranking_RangoInvalido_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ventasProductoService.ranking(hoy, hoy.minusDays(1), 10));
+    }
+}
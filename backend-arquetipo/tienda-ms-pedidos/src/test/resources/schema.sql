@@ -1,10 +1,16 @@
+CREATE SEQUENCE IF NOT EXISTS ordenes_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS detalle_ordenes_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE ordenes (
     id_orden BIGINT AUTO_INCREMENT PRIMARY KEY,
     email VARCHAR(100) NOT NULL,
     estado INTEGER NOT NULL,
     fecha TIMESTAMP,
-    monto_total DOUBLE
+    monto_total DOUBLE,
+    CONSTRAINT CK_ORDENES_ESTADO CHECK (estado BETWEEN 1 AND 4)
 );
+CREATE INDEX IF NOT EXISTS IDX_ORDENES_EMAIL ON ordenes (EMAIL, ID_ORDEN);
+CREATE INDEX IF NOT EXISTS IDX_ORDENES_ESTADO_FECHA ON ordenes (ESTADO, FECHA, ID_ORDEN);
 
 CREATE TABLE detalle_ordenes (
     id_detalle_orden BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -37,4 +43,66 @@ CREATE TABLE IF NOT EXISTS Producto_Categoria (
     PRIMARY KEY (id_producto, id_categoria),
     FOREIGN KEY (id_producto) REFERENCES Producto(id_producto),
     FOREIGN KEY (id_categoria) REFERENCES Categoria(id_categoria)
-);
\ No newline at end of file
+);
+CREATE TABLE IF NOT EXISTS IDEMPOTENCIA_PEDIDOS (
+    CLAVE VARCHAR(100) PRIMARY KEY,
+    RESPUESTA CLOB,
+    CREADA TIMESTAMP NOT NULL,
+    RESERVADA_POR VARCHAR(36),
+    RESERVADA_HASTA TIMESTAMP,
+    EXPIRA TIMESTAMP NOT NULL
+);
+CREATE SEQUENCE IF NOT EXISTS outbox_pedidos_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS OUTBOX_PEDIDOS (
+    ID_EVENTO BIGINT PRIMARY KEY,
+    TIPO VARCHAR(50) NOT NULL,
+    ID_AGREGADO BIGINT NOT NULL,
+    PAYLOAD CLOB NOT NULL,
+    CREADO TIMESTAMP NOT NULL,
+    PUBLICADO TIMESTAMP,
+    RECLAMADO_POR VARCHAR(100),
+    RECLAMADO_HASTA TIMESTAMP,
+    INTENTOS INTEGER DEFAULT 0 NOT NULL
+);
+CREATE INDEX IF NOT EXISTS IDX_OUTBOX_PENDIENTES ON OUTBOX_PEDIDOS (PUBLICADO, ID_EVENTO);
+CREATE TABLE IF NOT EXISTS VENTAS_PRODUCTO_DIA (
+    ID_PRODUCTO BIGINT NOT NULL,
+    DIA DATE NOT NULL,
+    UNIDADES BIGINT NOT NULL,
+    MONTO DOUBLE NOT NULL,
+    LINEAS BIGINT NOT NULL,
+    PRIMARY KEY (ID_PRODUCTO, DIA)
+);
+CREATE INDEX IF NOT EXISTS IDX_VENTAS_PRODUCTO_DIA_DIA ON VENTAS_PRODUCTO_DIA (DIA, ID_PRODUCTO);
+CREATE TABLE IF NOT EXISTS INGRESOS_PERIODO (
+    GRANULARIDAD VARCHAR(4) NOT NULL,
+    INICIO TIMESTAMP NOT NULL,
+    FRANJA INTEGER NOT NULL,
+    MONTO DOUBLE NOT NULL,
+    ORDENES BIGINT NOT NULL,
+    PRIMARY KEY (GRANULARIDAD, INICIO, FRANJA)
+);
+CREATE TABLE IF NOT EXISTS RESERVAS_STOCK (
+    ID_RESERVA VARCHAR(36) NOT NULL,
+    ID_PRODUCTO BIGINT NOT NULL,
+    CANTIDAD INTEGER NOT NULL,
+    VENCE TIMESTAMP NOT NULL,
+    PRIMARY KEY (ID_RESERVA, ID_PRODUCTO)
+);
+CREATE INDEX IF NOT EXISTS IDX_RESERVAS_STOCK_VENCE ON RESERVAS_STOCK (VENCE);
+CREATE SEQUENCE IF NOT EXISTS movimientos_stock_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS MOVIMIENTOS_STOCK (
+    ID_MOVIMIENTO BIGINT PRIMARY KEY,
+    ID_PRODUCTO BIGINT NOT NULL,
+    CANTIDAD DOUBLE NOT NULL,
+    MOTIVO VARCHAR(20) NOT NULL,
+    CREADO TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS IDX_MOVIMIENTOS_STOCK_PRODUCTO ON MOVIMIENTOS_STOCK (ID_PRODUCTO, ID_MOVIMIENTO);
+CREATE TABLE IF NOT EXISTS SNAPSHOTS_STOCK (
+    ID_PRODUCTO BIGINT NOT NULL,
+    ID_MOVIMIENTO BIGINT NOT NULL,
+    STOCK DOUBLE NOT NULL,
+    CREADO TIMESTAMP NOT NULL,
+    PRIMARY KEY (ID_PRODUCTO, ID_MOVIMIENTO)
+);